@@ -2,7 +2,9 @@ package com.phegon.FoodApp.auth_users.repository;
 
 import com.phegon.FoodApp.auth_users.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -10,4 +12,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
 
+    @Query("SELECT u.profileUrl FROM User u WHERE u.profileUrl IS NOT NULL")
+    List<String> findAllProfileUrls();
+
 }
@@ -0,0 +1,56 @@
+package com.phegon.FoodApp.auth_users.services;
+
+
+import com.phegon.FoodApp.auth_users.dtos.UserDTO;
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.role.dtos.RoleDTO;
+import com.phegon.FoodApp.role.entity.Role;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain field-by-field User -> UserDTO mapping. Never touches the user's orders, reviews,
+ * payments or cart, and never copies the password hash.
+ */
+@Component
+public class UserMapper {
+
+    public UserDTO toDTO(User user) {
+        return toDTO(user, true);
+    }
+
+    public UserDTO toDTO(User user, boolean withRoles) {
+        if (user == null) {
+            return null;
+        }
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(user.getId());
+        userDTO.setName(user.getName());
+        userDTO.setEmail(user.getEmail());
+        userDTO.setPhoneNumber(user.getPhoneNumber());
+        userDTO.setProfileUrl(user.getProfileUrl());
+        userDTO.setActive(user.isActive());
+        userDTO.setAddress(user.getAddress());
+        if (withRoles && user.getRoles() != null) {
+            List<RoleDTO> roles = new ArrayList<>(user.getRoles().size());
+            for (Role role : user.getRoles()) {
+                RoleDTO roleDTO = new RoleDTO();
+                roleDTO.setId(role.getId());
+                roleDTO.setName(role.getName());
+                roles.add(roleDTO);
+            }
+            userDTO.setRoles(roles);
+        }
+        return userDTO;
+    }
+
+    public List<UserDTO> toDTOs(List<User> users) {
+        List<UserDTO> userDTOS = new ArrayList<>(users.size());
+        for (User user : users) {
+            userDTOS.add(toDTO(user, true));
+        }
+        return userDTOS;
+    }
+}
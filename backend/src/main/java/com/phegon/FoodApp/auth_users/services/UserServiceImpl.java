@@ -5,17 +5,20 @@ import com.phegon.FoodApp.auth_users.dtos.UserDTO;
 import com.phegon.FoodApp.auth_users.entity.User;
 import com.phegon.FoodApp.auth_users.repository.UserRepository;
 import com.phegon.FoodApp.aws.AWSS3Service;
+import com.phegon.FoodApp.aws.S3DeletionQueue;
+import com.phegon.FoodApp.aws.S3Keys;
 import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
 import com.phegon.FoodApp.email_notification.services.NotificationService;
 import com.phegon.FoodApp.exceptions.BadRequestException;
 import com.phegon.FoodApp.exceptions.NotFoundException;
 import com.phegon.FoodApp.response.Response;
+import com.phegon.FoodApp.security.AuthUser;
+import com.phegon.FoodApp.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -32,14 +35,34 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final ModelMapper modelMapper;
+    private final UserMapper userMapper;
     private final NotificationService notificationService;
     private final AWSS3Service awss3Service;
+    private final PrincipalCache principalCache;
+    private final S3DeletionQueue s3DeletionQueue;
 
 
     @Override
     public User getCurrentLoggedInUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        // AuthFilter already resolved the user (through the principal cache), reuse it
+        if (authentication.getPrincipal() instanceof AuthUser authUser) {
+            if (!authUser.getUser().isActive()) {
+                throw new NotFoundException("Account not active");
+            }
+            return authUser.getUser();
+        }
+
+        return findActiveUser(authentication.getName());
+    }
+
+    // writes go through a freshly loaded entity rather than the cached principal
+    private User getCurrentLoggedInUserForUpdate() {
+        return findActiveUser(SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    private User findActiveUser(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new NotFoundException("User not found"));
 
@@ -58,8 +81,7 @@ public class UserServiceImpl implements UserService {
 
         List<User> userList = userRepository.findAll(Sort.by(Sort.Direction.DESC, "id"));
 
-        List<UserDTO> userDTOS = modelMapper.map(userList, new TypeToken<List<UserDTO>>() {
-        }.getType());
+        List<UserDTO> userDTOS = userMapper.toDTOs(userList);
 
         return Response.<List<UserDTO>>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -75,7 +97,7 @@ public class UserServiceImpl implements UserService {
 
         User user = getCurrentLoggedInUser();
 
-        UserDTO userDTO = modelMapper.map(user, UserDTO.class);
+        UserDTO userDTO = userMapper.toDTO(user);
 
         return Response.<UserDTO>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -90,20 +112,20 @@ public class UserServiceImpl implements UserService {
 
         log.info("INSIDE updateOwnAccount()");
 
-        User user = getCurrentLoggedInUser();
+        User user = getCurrentLoggedInUserForUpdate();
+        String previousEmail = user.getEmail();
 
         validateUpdate(userDTO);
 
         String profileUrl = user.getProfileUrl();
         MultipartFile imageFile = userDTO.getImageFile();
+        String replacedImageKey = null;
 
         // Handle profile image
         if (imageFile != null && !imageFile.isEmpty()) {
 
-            if (profileUrl != null && !profileUrl.isEmpty()) {
-                String keyName = profileUrl.substring(profileUrl.lastIndexOf("/") + 1);
-                awss3Service.deleteFile("profile/" + keyName);
-            }
+            // deleted only once the new url is saved
+            replacedImageKey = S3Keys.fromUrl("profile", profileUrl);
 
             String imageName = UUID.randomUUID() + "_" + imageFile.getOriginalFilename();
             URL newImageUrl = awss3Service.uploadFile("profile/" + imageName, imageFile);
@@ -127,6 +149,8 @@ public class UserServiceImpl implements UserService {
         }
 
         userRepository.save(user);
+        principalCache.evict(previousEmail);
+        s3DeletionQueue.enqueue(replacedImageKey);
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -140,11 +164,12 @@ public class UserServiceImpl implements UserService {
 
         log.info("INSIDE deactivateOwnAccount()");
 
-        User user = getCurrentLoggedInUser();
+        User user = getCurrentLoggedInUserForUpdate();
 
         // Deactivate the user
         user.setActive(false);
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
 
         //SEND EMAIL AFTER DEACTIVATION
 
@@ -2,11 +2,27 @@ package com.phegon.FoodApp.aws;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import software.amazon.awssdk.services.s3.model.S3Object;
+
 import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface AWSS3Service {
 
     URL uploadFile(String keyName, MultipartFile file);
 
+    // the file must stay readable until the returned future completes
+    CompletableFuture<URL> uploadFileAsync(String keyName, MultipartFile file);
+
+    // for small generated objects such as image variants
+    URL uploadBytes(String keyName, byte[] content, String contentType);
+
     void deleteFile(String keyName);
+
+    // S3 batch delete, 1000 keys per call; returns the keys S3 reported as not deleted
+    List<String> deleteFiles(List<String> keyNames);
+
+    void listFiles(String prefix, Consumer<S3Object> consumer);
 }
@@ -1,27 +1,76 @@
 package com.phegon.FoodApp.aws;
 
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Object;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Uploads stream the multipart temp file straight into the async S3 client (multipart above
+ * aws.s3.multipart-threshold-bytes), so heap use per upload is a couple of parts, never the
+ * whole file. At most aws.s3.max-concurrent-uploads run at once; further uploads wait for a slot.
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class AWSS3ServiceImpl implements AWSS3Service {
 
+    private static final int MAX_KEYS_PER_DELETE = 1000; // S3 DeleteObjects limit
+
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucketName;
+    private final long uploadSlotTimeoutMillis;
+
+    private final Semaphore uploadSlots;
+    private final ExecutorService streamExecutor; // feeds file bytes to the SDK, one thread per upload slot
 
-    @Value("${aws.s3.bucket}")
-    private String bucketName;
+
+    public AWSS3ServiceImpl(S3Client s3Client,
+                            S3AsyncClient s3AsyncClient,
+                            @Value("${aws.s3.bucket}") String bucketName,
+                            @Value("${aws.s3.max-concurrent-uploads:8}") int maxConcurrentUploads,
+                            @Value("${aws.s3.upload-slot-timeout-seconds:60}") long uploadSlotTimeoutSeconds) {
+        this.s3Client = s3Client;
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucketName = bucketName;
+        this.uploadSlotTimeoutMillis = TimeUnit.SECONDS.toMillis(uploadSlotTimeoutSeconds);
+        this.uploadSlots = new Semaphore(maxConcurrentUploads, true);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.streamExecutor = Executors.newFixedThreadPool(maxConcurrentUploads, runnable -> {
+            Thread thread = new Thread(runnable, "s3-upload-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
 
     @Override
@@ -30,17 +79,79 @@ public class AWSS3ServiceImpl implements AWSS3Service {
         log.info("Inside AWSS3Service uploadFile()");
 
         try {
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(keyName)
-                    .contentType(file.getContentType())
-                    .build();
+            return uploadFileAsync(keyName, file).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException(cause.getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<URL> uploadFileAsync(String keyName, MultipartFile file) {
+
+        InputStream content;
+        try {
+            if (!uploadSlots.tryAcquire(uploadSlotTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Too many uploads in progress, try again later"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        try {
+            content = file.getInputStream();
+        } catch (IOException | RuntimeException e) {
+            uploadSlots.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(keyName)
+                .contentType(file.getContentType())
+                .contentLength(file.getSize())
+                .build();
+
+        long start = System.nanoTime();
+        CompletableFuture<URL> upload;
+        try {
+            upload = s3AsyncClient.putObject(putObjectRequest,
+                            AsyncRequestBody.fromInputStream(content, file.getSize(), streamExecutor))
+                    .thenApply(response -> s3AsyncClient.utilities().getUrl(builder -> builder.bucket(bucketName).key(keyName)));
+        } catch (RuntimeException e) {
+            upload = CompletableFuture.failedFuture(e);
+        }
+
+        return upload.whenComplete((url, error) -> {
+            uploadSlots.release();
+            closeQuietly(content);
+            if (error == null) {
+                log.info("Uploaded {} ({} bytes) in {} ms", keyName, file.getSize(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } else {
+                log.error("Upload of {} failed: {}", keyName, error.getMessage());
+            }
+        });
+    }
 
-            s3Client.putObject(putObjectRequest, RequestBody.fromBytes(file.getBytes()));
-            return s3Client.utilities().getUrl(builder -> builder.bucket(bucketName).key(keyName));
+    @Override
+    public URL uploadBytes(String keyName, byte[] content, String contentType) {
 
-        }catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(keyName)
+                .contentType(contentType)
+                .contentLength((long) content.length)
+                .build();
+
+        try {
+            return s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.fromBytes(content))
+                    .thenApply(response -> s3AsyncClient.utilities().getUrl(builder -> builder.bucket(bucketName).key(keyName)))
+                    .join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException(cause.getMessage());
         }
     }
 
@@ -53,5 +164,49 @@ public class AWSS3ServiceImpl implements AWSS3Service {
         s3Client.deleteObject(deleteObjectRequest);
         log.info("File {} deleted from bucket {}", keyName, bucketName);
     }
-}
 
+    @Override
+    public List<String> deleteFiles(List<String> keyNames) {
+
+        List<String> failed = new ArrayList<>();
+        for (int from = 0; from < keyNames.size(); from += MAX_KEYS_PER_DELETE) {
+            List<ObjectIdentifier> objects = keyNames.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, keyNames.size()))
+                    .stream()
+                    .map(key -> ObjectIdentifier.builder().key(key).build())
+                    .toList();
+
+            DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                    .bucket(bucketName)
+                    .delete(Delete.builder().objects(objects).quiet(true).build())
+                    .build());
+
+            for (S3Error error : response.errors()) {
+                log.warn("Could not delete {} from bucket {}: {} {}", error.key(), bucketName, error.code(), error.message());
+                failed.add(error.key());
+            }
+        }
+        log.info("Deleted {} files from bucket {}", keyNames.size() - failed.size(), bucketName);
+        return failed;
+    }
+
+    @Override
+    public void listFiles(String prefix, Consumer<S3Object> consumer) {
+        s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucketName).prefix(prefix).build())
+                .contents()
+                .forEach(consumer);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        streamExecutor.shutdown();
+    }
+
+
+    private static void closeQuietly(InputStream content) {
+        try {
+            content.close();
+        } catch (IOException e) {
+            log.debug("Ignoring error closing upload stream: {}", e.getMessage());
+        }
+    }
+}
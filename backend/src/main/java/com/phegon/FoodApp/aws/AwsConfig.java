@@ -7,7 +7,9 @@ import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
 
 @Configuration
 public class AwsConfig {
@@ -38,4 +40,22 @@ public class AwsConfig {
     }
 
 
+    // uploads: objects above the threshold go up as multipart, buffering at most a couple of parts per upload
+    @Bean
+    public S3AsyncClient s3AsyncClient(StaticCredentialsProvider credentialsProvider,
+                                       @Value("${aws.s3.multipart-threshold-bytes:8388608}") long multipartThresholdBytes,
+                                       @Value("${aws.s3.part-size-bytes:8388608}") long partSizeBytes) {
+        return S3AsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(credentialsProvider)
+                .multipartEnabled(true)
+                .multipartConfiguration(MultipartConfiguration.builder()
+                        .thresholdInBytes(multipartThresholdBytes)
+                        .minimumPartSizeInBytes(partSizeBytes)
+                        .apiCallBufferSizeInBytes(partSizeBytes * 2)
+                        .build())
+                .build();
+    }
+
+
 }
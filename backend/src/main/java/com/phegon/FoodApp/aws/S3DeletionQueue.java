@@ -0,0 +1,104 @@
+package com.phegon.FoodApp.aws;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deletes bucket objects in the background, in batches of up to 1000 keys per S3 call.
+ *
+ * Keys are only queued once the surrounding transaction commits, so a rolled back update never
+ * loses the image it still points at. The queue lives in memory: keys lost to a restart, or that
+ * S3 refuses to delete, are picked up later by {@link S3OrphanCollector}.
+ */
+@Component
+@Slf4j
+public class S3DeletionQueue {
+
+    private final AWSS3Service awss3Service;
+    private final int maxBatch;
+
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+
+    public S3DeletionQueue(AWSS3Service awss3Service,
+                           @Value("${aws.s3.delete.max-batch:1000}") int maxBatch) {
+        this.awss3Service = awss3Service;
+        this.maxBatch = maxBatch;
+    }
+
+    public void enqueue(String keyName) {
+        enqueueAll(keyName == null ? List.of() : List.of(keyName));
+    }
+
+    public void enqueueAll(Collection<String> keyNames) {
+        List<String> keys = keyNames.stream().filter(Objects::nonNull).toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            pending.addAll(keys);
+            size.addAndGet(keys.size());
+        });
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @Scheduled(fixedDelayString = "${aws.s3.delete.flush-interval-ms:5000}")
+    public int flush() {
+
+        int deleted = 0;
+        List<String> batch;
+        while (!(batch = drain()).isEmpty()) {
+            try {
+                List<String> failed = awss3Service.deleteFiles(batch);
+                deleted += batch.size() - failed.size();
+            } catch (RuntimeException e) {
+                // S3 unreachable: put the batch back and try again on the next tick
+                log.warn("Batch delete of {} files failed, will retry: {}", batch.size(), e.getMessage());
+                pending.addAll(batch);
+                size.addAndGet(batch.size());
+                break;
+            }
+        }
+        return deleted;
+    }
+
+
+    private List<String> drain() {
+        List<String> batch = new ArrayList<>();
+        String key;
+        while (batch.size() < maxBatch && (key = pending.poll()) != null) {
+            batch.add(key);
+        }
+        size.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
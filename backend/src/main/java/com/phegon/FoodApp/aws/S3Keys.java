@@ -0,0 +1,26 @@
+package com.phegon.FoodApp.aws;
+
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Maps the public object URLs stored in the database back to bucket keys.
+ */
+public final class S3Keys {
+
+    private S3Keys() {
+    }
+
+    /**
+     * "https://bucket.s3.region.amazonaws.com/menus/abc_my%20burger.png" with folder "menus"
+     * gives "menus/abc_my burger.png"; null for a null or blank url.
+     */
+    public static String fromUrl(String folder, String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        String encodedName = url.substring(url.lastIndexOf("/") + 1);
+        return folder + "/" + URLDecoder.decode(encodedName, StandardCharsets.UTF_8);
+    }
+}
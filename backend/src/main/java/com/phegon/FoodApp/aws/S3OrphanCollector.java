@@ -0,0 +1,93 @@
+package com.phegon.FoodApp.aws;
+
+
+import com.phegon.FoodApp.auth_users.repository.UserRepository;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes objects under menus/ and profile/ that no menu or user points at any more: leftovers of
+ * failed updates, deletes lost from {@link S3DeletionQueue} on restart, and uploads whose
+ * database write never happened.
+ *
+ * Objects younger than the grace period are left alone, since an upload always lands in the
+ * bucket a moment before the row that references it is committed.
+ */
+@Component
+@Slf4j
+public class S3OrphanCollector {
+
+    private static final String MENUS = "menus";
+    private static final String PROFILE = "profile";
+
+    private final AWSS3Service awss3Service;
+    private final S3DeletionQueue s3DeletionQueue;
+    private final MenuRepository menuRepository;
+    private final UserRepository userRepository;
+    private final Duration gracePeriod;
+    private final int maxDeletionsPerRun;
+
+
+    public S3OrphanCollector(AWSS3Service awss3Service,
+                             S3DeletionQueue s3DeletionQueue,
+                             MenuRepository menuRepository,
+                             UserRepository userRepository,
+                             @Value("${aws.s3.orphan-gc.grace-hours:24}") long graceHours,
+                             @Value("${aws.s3.orphan-gc.max-deletions-per-run:10000}") int maxDeletionsPerRun) {
+        this.awss3Service = awss3Service;
+        this.s3DeletionQueue = s3DeletionQueue;
+        this.menuRepository = menuRepository;
+        this.userRepository = userRepository;
+        this.gracePeriod = Duration.ofHours(graceHours);
+        this.maxDeletionsPerRun = maxDeletionsPerRun;
+    }
+
+    @Scheduled(cron = "${aws.s3.orphan-gc.cron:0 30 4 * * *}")
+    public int collect() {
+
+        // read references before listing: anything referenced after this point is younger than the grace period
+        Set<String> referenced = new HashSet<>();
+        for (Object[] urls : menuRepository.findAllImageUrls()) {
+            for (Object url : urls) {
+                addKey(referenced, S3Keys.fromUrl(MENUS, (String) url));
+            }
+        }
+        for (String url : userRepository.findAllProfileUrls()) {
+            addKey(referenced, S3Keys.fromUrl(PROFILE, url));
+        }
+
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        List<String> orphans = new ArrayList<>();
+        for (String folder : List.of(MENUS, PROFILE)) {
+            awss3Service.listFiles(folder + "/", object -> {
+                if (orphans.size() < maxDeletionsPerRun
+                        && !referenced.contains(object.key())
+                        && object.lastModified() != null
+                        && object.lastModified().isBefore(cutoff)) {
+                    orphans.add(object.key());
+                }
+            });
+        }
+
+        s3DeletionQueue.enqueueAll(orphans);
+        log.info("Orphan collection: {} referenced objects, {} orphans queued for deletion", referenced.size(), orphans.size());
+        return orphans.size();
+    }
+
+
+    private static void addKey(Set<String> keys, String key) {
+        if (key != null) {
+            keys.add(key);
+        }
+    }
+}
@@ -18,5 +18,6 @@ public class CartDTO {
     private Long menuId;
     private int quantity;
     private BigDecimal totalAmount;
+    private Integer itemCount;
 
 }
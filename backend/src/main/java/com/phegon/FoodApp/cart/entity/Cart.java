@@ -8,6 +8,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Entity
@@ -31,4 +32,11 @@ public class Cart {
     private List<CartItem> cartItems;
 
     private String promoCode;
+
+    private BigDecimal totalAmount; // sum of the line subtotals, kept by CartStore as lines change
+
+    private int itemCount; // sum of the line quantities
+
+    @Version
+    private long version; // bumped by every checkout, so two checkouts of one cart cannot both commit
 }
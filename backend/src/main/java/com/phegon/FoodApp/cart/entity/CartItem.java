@@ -12,7 +12,7 @@ import java.math.BigDecimal;
 
 @Entity
 @Data
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints = @UniqueConstraint(name = "uk_cart_items_cart_menu", columnNames = {"cart_id", "menu_id"}))
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -20,7 +20,8 @@ public class CartItem {
 
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_items_seq")
+    @SequenceGenerator(name = "cart_items_seq", sequenceName = "cart_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
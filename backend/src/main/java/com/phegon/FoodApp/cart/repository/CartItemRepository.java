@@ -3,5 +3,9 @@ package com.phegon.FoodApp.cart.repository;
 import com.phegon.FoodApp.cart.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    List<CartItem> findByCart_Id(Long cartId);
 }
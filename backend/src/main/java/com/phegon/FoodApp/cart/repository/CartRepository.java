@@ -1,12 +1,37 @@
 package com.phegon.FoodApp.cart.repository;
 
 import com.phegon.FoodApp.cart.entity.Cart;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
 
     Optional<Cart> findByUser_Id(Long userId);
 
+    // the version is incremented when the checkout commits; a concurrent checkout of the same cart fails
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT c FROM Cart c WHERE c.user.id = :userId")
+    Optional<Cart> findForCheckoutByUserId(@Param("userId") Long userId);
+
+    // no version bump: CartStore is the only writer of a cart's totals
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalAmount = :totalAmount, c.itemCount = :itemCount WHERE c.id = :cartId")
+    int updateTotals(@Param("cartId") Long cartId, @Param("totalAmount") BigDecimal totalAmount, @Param("itemCount") int itemCount);
+
+    @Query("SELECT new com.phegon.FoodApp.cart.repository.CartTotalsRow(c.id, c.user.id, c.totalAmount, c.itemCount, " +
+            "COALESCE(SUM(ci.subtotal), 0), COALESCE(SUM(ci.quantity), 0)) " +
+            "FROM Cart c LEFT JOIN c.cartItems ci " +
+            "GROUP BY c.id, c.user.id, c.totalAmount, c.itemCount " +
+            "HAVING c.totalAmount IS NULL OR c.totalAmount <> COALESCE(SUM(ci.subtotal), 0) " +
+            "OR c.itemCount <> COALESCE(SUM(ci.quantity), 0)")
+    List<CartTotalsRow> findDriftedTotals();
+
 }
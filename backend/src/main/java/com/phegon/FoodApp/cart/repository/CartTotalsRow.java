@@ -0,0 +1,14 @@
+package com.phegon.FoodApp.cart.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * A cart whose stored running totals disagree with the sums over its lines.
+ */
+public record CartTotalsRow(Long cartId,
+                            Long userId,
+                            BigDecimal totalAmount,
+                            Integer itemCount,
+                            BigDecimal lineTotal,
+                            Long lineCount) {
+}
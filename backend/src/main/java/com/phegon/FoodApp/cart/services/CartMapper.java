@@ -0,0 +1,66 @@
+package com.phegon.FoodApp.cart.services;
+
+
+import com.phegon.FoodApp.cart.dtos.CartDTO;
+import com.phegon.FoodApp.cart.dtos.CartItemDTO;
+import com.phegon.FoodApp.cart.entity.Cart;
+import com.phegon.FoodApp.cart.entity.CartItem;
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
+import com.phegon.FoodApp.menu.services.MenuMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Plain field-by-field Cart -> CartDTO mapping: the items and their menus, never the owner.
+ */
+@Component
+@RequiredArgsConstructor
+public class CartMapper {
+
+    private final MenuMapper menuMapper;
+
+    public CartDTO toDTO(Cart cart) {
+        CartDTO cartDTO = new CartDTO();
+        cartDTO.setId(cart.getId());
+        if (cart.getCartItems() != null) {
+            List<CartItemDTO> items = new ArrayList<>(cart.getCartItems().size());
+            for (CartItem cartItem : cart.getCartItems()) {
+                CartItemDTO cartItemDTO = new CartItemDTO();
+                cartItemDTO.setId(cartItem.getId());
+                cartItemDTO.setMenu(menuMapper.toDTO(cartItem.getMenu()));
+                cartItemDTO.setQuantity(cartItem.getQuantity());
+                cartItemDTO.setPricePerUnit(cartItem.getPricePerUnit());
+                cartItemDTO.setSubtotal(cartItem.getSubtotal());
+                items.add(cartItemDTO);
+            }
+            cartDTO.setCartItems(items);
+        }
+        return cartDTO;
+    }
+
+    /**
+     * Maps an in-memory cart; menus come from the catalog snapshot and are shared, not copied.
+     */
+    public CartDTO toDTO(CartStore.CartSnapshot cart, Function<Long, MenuDTO> menus) {
+        CartDTO cartDTO = new CartDTO();
+        cartDTO.setId(cart.cartId());
+        List<CartItemDTO> items = new ArrayList<>(cart.lines().size());
+        for (CartStore.CartLine line : cart.lines()) {
+            CartItemDTO cartItemDTO = new CartItemDTO();
+            cartItemDTO.setId(line.cartItemId());
+            cartItemDTO.setMenu(menus.apply(line.menuId()));
+            cartItemDTO.setQuantity(line.quantity());
+            cartItemDTO.setPricePerUnit(line.pricePerUnit());
+            cartItemDTO.setSubtotal(line.subtotal());
+            items.add(cartItemDTO);
+        }
+        cartDTO.setCartItems(items);
+        cartDTO.setTotalAmount(cart.totalAmount()); // running total, not re-added here
+        cartDTO.setItemCount(cart.itemCount());
+        return cartDTO;
+    }
+}
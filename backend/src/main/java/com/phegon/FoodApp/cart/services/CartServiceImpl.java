@@ -3,38 +3,27 @@ package com.phegon.FoodApp.cart.services;
 import com.phegon.FoodApp.auth_users.entity.User;
 import com.phegon.FoodApp.auth_users.services.UserService;
 import com.phegon.FoodApp.cart.dtos.CartDTO;
-import com.phegon.FoodApp.cart.entity.Cart;
-import com.phegon.FoodApp.cart.entity.CartItem;
-import com.phegon.FoodApp.cart.repository.CartItemRepository;
-import com.phegon.FoodApp.cart.repository.CartRepository;
+import com.phegon.FoodApp.exceptions.BadRequestException;
 import com.phegon.FoodApp.exceptions.NotFoundException;
-import com.phegon.FoodApp.menu.entity.Menu;
-import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
 import com.phegon.FoodApp.response.Response;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
-@Transactional
 public class CartServiceImpl implements CartService {
 
+    // no @Transactional: carts are served from the CartStore, which opens its own transactions when it writes
 
-    private final CartItemRepository cartItemRepository;
-    private final CartRepository cartRepository;
-    private final MenuRepository menuRepository;
+    private final CartStore cartStore;
+    private final MenuCatalog menuCatalog;
     private final UserService userService;
-    private final ModelMapper modelMapper;
+    private final CartMapper cartMapper;
 
 
     @Override
@@ -44,49 +33,16 @@ public class CartServiceImpl implements CartService {
         Long menuId = cartDTO.getMenuId();
         int quantity = cartDTO.getQuantity();
 
+        if (menuId == null || quantity <= 0) {
+            throw new BadRequestException("A menu and a positive quantity are required");
+        }
+
         User user = userService.getCurrentLoggedInUser();
 
-        Menu menu = menuRepository.findById(menuId)
+        MenuDTO menu = menuCatalog.findMenu(menuId)
                 .orElseThrow(() -> new NotFoundException("Menu Item Not Found"));
 
-        Cart cart = cartRepository.findByUser_Id(user.getId())
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    newCart.setCartItems(new ArrayList<>());
-                    return cartRepository.save(newCart);
-                });
-
-
-        // Check if the item is already in the cart
-        Optional<CartItem> optionalCartItem = cart.getCartItems().stream()
-                .filter(cartItem -> cartItem.getMenu().getId().equals(menuId))
-                .findFirst();
-
-
-        //if present, increment item
-        if (optionalCartItem.isPresent()) {
-            CartItem cartItem = optionalCartItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            cartItem.setSubtotal(cartItem.getPricePerUnit().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
-            cartItemRepository.save(cartItem);
-        } else {
-            //if nor present, and add it
-            CartItem newCartItem = CartItem.builder()
-                    .cart(cart)
-                    .menu(menu)
-                    .quantity(quantity)
-                    .pricePerUnit(menu.getPrice())
-                    .subtotal(menu.getPrice().multiply(BigDecimal.valueOf(quantity)))
-                    .build();
-
-            cart.getCartItems().add(newCartItem);
-
-            cartItemRepository.save(newCartItem);
-
-        }
-
-        //cartRepository.save(cart);// not, it will auto save and persists in the cart table
+        cartStore.add(user.getId(), menuId, quantity, menu.getPrice());
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -101,20 +57,9 @@ public class CartServiceImpl implements CartService {
 
         User user = userService.getCurrentLoggedInUser();
 
-        Cart cart = cartRepository.findByUser_Id(user.getId())
-                .orElseThrow(() -> new NotFoundException("Cart Not Found"));
-
-        CartItem cartItem = cart.getCartItems().stream()
-                .filter(item -> item.getMenu().getId().equals(menuId))
-                .findFirst().orElseThrow(() -> new NotFoundException("Menu not found in cart"));
-
-        int newQuantity = cartItem.getQuantity() + 1;  //INCREMENT THE ITEM
-
-        cartItem.setQuantity(newQuantity);
-
-        cartItem.setSubtotal(cartItem.getPricePerUnit().multiply(BigDecimal.valueOf(newQuantity)));
-
-        cartItemRepository.save(cartItem);
+        if (!cartStore.adjust(user.getId(), menuId, 1)) {
+            throw new NotFoundException("Menu not found in cart");
+        }
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -130,22 +75,8 @@ public class CartServiceImpl implements CartService {
 
         User user = userService.getCurrentLoggedInUser();
 
-        Cart cart = cartRepository.findByUser_Id(user.getId())
-                .orElseThrow(() -> new NotFoundException("Cart Not Found"));
-
-        CartItem cartItem = cart.getCartItems().stream()
-                .filter(item -> item.getMenu().getId().equals(menuId))
-                .findFirst().orElseThrow(() -> new NotFoundException("Menu not found in cart"));
-
-        int newQuantity = cartItem.getQuantity() - 1; //DECREMENT THE ITEM
-
-        if (newQuantity > 0) {
-            cartItem.setQuantity(newQuantity);
-            cartItem.setSubtotal(cartItem.getPricePerUnit().multiply(BigDecimal.valueOf(newQuantity)));
-            cartItemRepository.save(cartItem);
-        } else {
-            cart.getCartItems().remove(cartItem);
-            cartItemRepository.delete(cartItem);
+        if (!cartStore.adjust(user.getId(), menuId, -1)) {
+            throw new NotFoundException("Menu not found in cart");
         }
 
         return Response.builder()
@@ -160,18 +91,9 @@ public class CartServiceImpl implements CartService {
 
         User user = userService.getCurrentLoggedInUser();
 
-        Cart cart = cartRepository.findByUser_Id(user.getId())
-                .orElseThrow(() -> new NotFoundException("Cart not found for user"));
-
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new NotFoundException("Cart item not found"));
-
-        if (!cart.getCartItems().contains(cartItem)) {
-            throw new NotFoundException("Cart item does not belong to this user's cart");
+        if (!cartStore.remove(user.getId(), cartItemId)) {
+            throw new NotFoundException("Cart item not found in this user's cart");
         }
-        cart.getCartItems().remove(cartItem);
-        cartItemRepository.delete(cartItem);
-
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -180,34 +102,18 @@ public class CartServiceImpl implements CartService {
     }
 
     @Override
-    @Transactional(readOnly = true)
     public Response<CartDTO> getShoppingCart() {
         log.info("Inside getShoppingCart()");
 
         User user = userService.getCurrentLoggedInUser();
 
-        Cart cart = cartRepository.findByUser_Id(user.getId())
-                .orElseThrow(() -> new NotFoundException("Cart not found for user"));
-
-        List<CartItem> cartItems = cart.getCartItems();
-
-        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
+        CartStore.CartSnapshot cart = cartStore.read(user.getId());
 
-        // Calculate total amount
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        if (cartItems != null) { // Add null check here
-            for (CartItem item : cartItems) {
-                totalAmount = totalAmount.add(item.getSubtotal());
-            }
+        if (cart.cartId() == null) {
+            throw new NotFoundException("Cart not found for user");
         }
 
-        cartDTO.setTotalAmount(totalAmount); //set the totalAmount
-
-        //remove the review from the response
-        if (cartDTO.getCartItems() != null) {
-            cartDTO.getCartItems()
-                    .forEach(item -> item.getMenu().setReviews(null));
-        }
+        CartDTO cartDTO = cartMapper.toDTO(cart, menuId -> menuCatalog.findMenu(menuId).orElse(null));
 
         return Response.<CartDTO>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -223,17 +129,8 @@ public class CartServiceImpl implements CartService {
 
         User user = userService.getCurrentLoggedInUser();
 
-        Cart cart = cartRepository.findByUser_Id(user.getId())
-                .orElseThrow(() -> new NotFoundException("Cart not found for user"));
-
-        //Delete cart items from the database first
-        cartItemRepository.deleteAll(cart.getCartItems());
-
-        //Clear the cart's items collection
-        cart.getCartItems().clear();
-
-        //update the database
-        cartRepository.save(cart);
+        // written through, in the checkout's transaction when called from there
+        cartStore.clear(user.getId());
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -241,10 +138,3 @@ public class CartServiceImpl implements CartService {
                 .build();
     }
 }
-
-
-
-
-
-
-
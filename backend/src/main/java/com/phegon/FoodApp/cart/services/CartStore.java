@@ -0,0 +1,426 @@
+package com.phegon.FoodApp.cart.services;
+
+
+import com.phegon.FoodApp.auth_users.repository.UserRepository;
+import com.phegon.FoodApp.cart.entity.Cart;
+import com.phegon.FoodApp.cart.entity.CartItem;
+import com.phegon.FoodApp.cart.repository.CartItemRepository;
+import com.phegon.FoodApp.cart.repository.CartRepository;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Write-behind store of the active carts, keyed by user id.
+ *
+ * Reads and quantity changes are served from memory and only mark the cart dirty; dirty carts are
+ * written to carts/cart_items every flush interval, one transaction per cart no matter how many
+ * taps it took since the last flush. A menu's first line is written through at once, because
+ * clients address lines by their database id. Checkout flushes the cart and holds it for the
+ * whole order transaction.
+ *
+ * The database stays the recovery point: each flush is all-or-nothing per cart, a failed flush
+ * keeps the cart dirty and is retried, dirty carts are never evicted, and shutdown flushes
+ * everything. A crash loses at most the taps of the last flush interval; evicted or lost carts
+ * are simply reloaded from the database. Carts live in this JVM, so like the menu catalog this
+ * assumes one instance (or sticky routing by user).
+ *
+ * Flushes run on the store's own thread rather than the shared @Scheduled one, so a long outbox
+ * drain or reconcile job cannot hold back the write-behind and widen that window.
+ */
+@Component
+@Slf4j
+public class CartStore {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final MenuRepository menuRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxCarts;
+    private final long idleMillis;
+    private final long flushIntervalMillis;
+    private ScheduledExecutorService flusher;
+
+    private final ConcurrentHashMap<Long, CartState> carts = new ConcurrentHashMap<>();
+
+
+    public CartStore(CartRepository cartRepository,
+                     CartItemRepository cartItemRepository,
+                     MenuRepository menuRepository,
+                     UserRepository userRepository,
+                     TransactionTemplate transactionTemplate,
+                     @Value("${cart.store.max-carts:10000}") int maxCarts,
+                     @Value("${cart.store.idle-minutes:30}") long idleMinutes,
+                     @Value("${cart.store.flush-interval-ms:1000}") long flushIntervalMillis) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.menuRepository = menuRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxCarts = maxCarts;
+        this.idleMillis = idleMinutes * 60_000;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public record CartLine(Long cartItemId, Long menuId, int quantity, BigDecimal pricePerUnit) {
+
+        public BigDecimal subtotal() {
+            return pricePerUnit.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    public record CartSnapshot(Long cartId, List<CartLine> lines, BigDecimal totalAmount, int itemCount) {}
+
+
+    public CartSnapshot read(Long userId) {
+        return withState(userId, CartState::snapshot);
+    }
+
+    /**
+     * Adds to the menu's line, or writes a new line through to the database so that it gets its id.
+     */
+    public void add(Long userId, Long menuId, int quantity, BigDecimal pricePerUnit) {
+        withState(userId, state -> {
+            CartLine line = state.lines.get(menuId);
+            if (line != null) {
+                state.put(new CartLine(line.cartItemId(), menuId, line.quantity() + quantity, line.pricePerUnit()));
+                return null;
+            }
+            state.put(new CartLine(null, menuId, quantity, pricePerUnit));
+            try {
+                flush(state);
+            } catch (RuntimeException e) {
+                state.remove(menuId); // other pending changes stay dirty for the next flush
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Changes the quantity of the menu's line by delta, dropping the line when it reaches zero.
+     * Returns false if the menu is not in the cart.
+     */
+    public boolean adjust(Long userId, Long menuId, int delta) {
+        return withState(userId, state -> {
+            CartLine line = state.lines.get(menuId);
+            if (line == null) return false;
+            int quantity = line.quantity() + delta;
+            if (quantity > 0) {
+                state.put(new CartLine(line.cartItemId(), menuId, quantity, line.pricePerUnit()));
+            } else {
+                state.remove(menuId);
+            }
+            return true;
+        });
+    }
+
+    public boolean remove(Long userId, Long cartItemId) {
+        return withState(userId, state -> state.lines.values().stream()
+                .filter(line -> Objects.equals(line.cartItemId(), cartItemId))
+                .findFirst()
+                .map(line -> state.remove(line.menuId()))
+                .isPresent());
+    }
+
+    /**
+     * Empties the cart and writes it through, in the caller's transaction if there is one.
+     */
+    public void clear(Long userId) {
+        withState(userId, state -> {
+            if (state.cartId == null) return null; // nothing stored yet
+            List.copyOf(state.lines.keySet()).forEach(state::remove);
+            flush(state);
+            return null;
+        });
+    }
+
+    /**
+     * Flushes the user's cart and runs the checkout while holding it, so no tap lands between the
+     * order reading the cart and the order clearing it.
+     */
+    public void checkout(Long userId, Runnable checkout) {
+        withState(userId, state -> {
+            flush(state);
+            checkout.run();
+            return null;
+        });
+    }
+
+    /**
+     * Recounts the user's running totals from the lines and writes the cart through, totals included.
+     * Returns true if the running totals had drifted.
+     */
+    public boolean reconcile(Long userId) {
+        return withState(userId, state -> {
+            if (state.cartId == null) return false; // deleted since the caller looked
+            BigDecimal totalAmount = state.totalAmount;
+            int itemCount = state.itemCount;
+            state.recount();
+            boolean drifted = totalAmount.compareTo(state.totalAmount) != 0 || itemCount != state.itemCount;
+            if (drifted) {
+                log.warn("Correcting running totals of the cart of user {}: total {} -> {}, items {} -> {}",
+                        userId, totalAmount, state.totalAmount, itemCount, state.itemCount);
+            }
+            state.dirty = true; // rewrite the stored totals even when ours were right
+            flush(state);
+            return drifted;
+        });
+    }
+
+    @PostConstruct
+    void startFlushing() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flushDirty();
+            } catch (RuntimeException e) {
+                log.error("Cart flush round failed", e); // an escaping exception would cancel the schedule
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int flushDirty() {
+
+        int flushed = 0;
+        for (CartState state : carts.values()) {
+            state.lock.lock();
+            try {
+                if (!state.dirty || state.evicted) continue;
+                flush(state);
+                flushed++;
+            } catch (RuntimeException e) {
+                log.warn("Flushing the cart of user {} failed, will retry: {}", state.userId, e.getMessage());
+            } finally {
+                state.lock.unlock();
+            }
+        }
+        evictIdle();
+        return flushed;
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int flushed = flushDirty();
+        log.info("Flushed {} carts on shutdown", flushed);
+    }
+
+    public int size() {
+        return carts.size();
+    }
+
+
+    private <T> T withState(Long userId, Function<CartState, T> action) {
+        while (true) {
+            CartState state = carts.get(userId);
+            if (state == null) {
+                // loaded outside the map so a slow read does not block other users' carts
+                CartState loaded = load(userId);
+                state = Objects.requireNonNullElse(carts.putIfAbsent(userId, loaded), loaded);
+            }
+            state.lock.lock();
+            try {
+                if (state.evicted) continue; // evicted while we waited: reload
+                state.lastAccess = System.currentTimeMillis();
+                return action.apply(state);
+            } finally {
+                state.lock.unlock();
+            }
+        }
+    }
+
+    private CartState load(Long userId) {
+        CartState state = new CartState(userId);
+        transactionTemplate.executeWithoutResult(status -> cartRepository.findByUser_Id(userId).ifPresent(cart -> {
+            state.cartId = cart.getId();
+            for (CartItem item : cart.getCartItems()) {
+                state.lines.put(item.getMenu().getId(),
+                        new CartLine(item.getId(), item.getMenu().getId(), item.getQuantity(), item.getPricePerUnit()));
+            }
+            if (cart.getTotalAmount() == null) {
+                // stored before carts kept totals: count once and persist on the next flush
+                state.recount();
+                state.dirty = true;
+            } else {
+                state.totalAmount = cart.getTotalAmount();
+                state.itemCount = cart.getItemCount();
+            }
+        }));
+        return state;
+    }
+
+    // caller holds the state's lock
+    private void flush(CartState state) {
+        if (!state.dirty) return;
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // joined the caller's transaction: if that rolls back the database keeps the old cart, so forget ours
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        evict(state);
+                    }
+                }
+            });
+        }
+        transactionTemplate.executeWithoutResult(status -> write(state));
+        state.dirty = false;
+    }
+
+    private void write(CartState state) {
+
+        Cart cart;
+        if (state.cartId == null) {
+            cart = new Cart();
+            cart.setUser(userRepository.getReferenceById(state.userId));
+            cart.setCartItems(new ArrayList<>());
+            cart.setTotalAmount(state.totalAmount);
+            cart.setItemCount(state.itemCount);
+            cart = cartRepository.save(cart);
+            state.cartId = cart.getId();
+        } else {
+            cart = cartRepository.getReferenceById(state.cartId);
+            cartRepository.updateTotals(state.cartId, state.totalAmount, state.itemCount);
+        }
+
+        Map<Long, CartItem> stored = new HashMap<>();
+        for (CartItem item : cartItemRepository.findByCart_Id(state.cartId)) {
+            stored.put(item.getMenu().getId(), item);
+        }
+
+        for (CartLine line : List.copyOf(state.lines.values())) {
+            CartItem item = stored.remove(line.menuId());
+            if (item == null) {
+                item = cartItemRepository.save(CartItem.builder()
+                        .cart(cart)
+                        .menu(menuRepository.getReferenceById(line.menuId()))
+                        .quantity(line.quantity())
+                        .pricePerUnit(line.pricePerUnit())
+                        .subtotal(line.subtotal())
+                        .build());
+                state.lines.put(line.menuId(), new CartLine(item.getId(), line.menuId(), line.quantity(), line.pricePerUnit()));
+            } else if (item.getQuantity() != line.quantity()) {
+                item.setQuantity(line.quantity()); // dirty checking issues the UPDATE
+                item.setSubtotal(line.subtotal());
+            }
+        }
+
+        cartItemRepository.deleteAll(stored.values());
+        if (Hibernate.isInitialized(cart) && Hibernate.isInitialized(cart.getCartItems())) {
+            cart.getCartItems().removeAll(stored.values()); // or the cascade would re-save them
+        }
+    }
+
+    private void evictIdle() {
+        long idleSince = System.currentTimeMillis() - idleMillis;
+        int over = carts.size() - maxCarts;
+
+        List<CartState> candidates = carts.values().stream()
+                .sorted(Comparator.comparingLong(state -> state.lastAccess))
+                .toList();
+        for (CartState state : candidates) {
+            if (state.lastAccess > idleSince && over <= 0) break;
+            state.lock.lock();
+            try {
+                if (!state.dirty && evict(state)) over--;
+            } finally {
+                state.lock.unlock();
+            }
+        }
+    }
+
+    private boolean evict(CartState state) {
+        state.evicted = true;
+        return carts.remove(state.userId, state);
+    }
+
+
+    // guarded by its lock, not a monitor: flush and checkout hold it across JDBC calls, which
+    // would pin a virtual thread to its carrier for the whole transaction
+    private static final class CartState {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Long userId;
+        private final Map<Long, CartLine> lines = new LinkedHashMap<>(); // by menu id, in the order added
+        private Long cartId;
+        private BigDecimal totalAmount = BigDecimal.ZERO; // running sums over the lines, never recounted per tap
+        private int itemCount;
+        private boolean dirty;
+        private boolean evicted;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private CartState(Long userId) {
+            this.userId = userId;
+        }
+
+        private void put(CartLine line) {
+            CartLine previous = lines.put(line.menuId(), line);
+            totalAmount = totalAmount.add(line.subtotal());
+            itemCount += line.quantity();
+            if (previous != null) {
+                totalAmount = totalAmount.subtract(previous.subtotal());
+                itemCount -= previous.quantity();
+            }
+            dirty = true;
+        }
+
+        private CartLine remove(Long menuId) {
+            CartLine removed = lines.remove(menuId);
+            if (removed != null) {
+                totalAmount = totalAmount.subtract(removed.subtotal());
+                itemCount -= removed.quantity();
+                dirty = true;
+            }
+            return removed;
+        }
+
+        private void recount() {
+            totalAmount = BigDecimal.ZERO;
+            itemCount = 0;
+            for (CartLine line : lines.values()) {
+                totalAmount = totalAmount.add(line.subtotal());
+                itemCount += line.quantity();
+            }
+        }
+
+        private CartSnapshot snapshot() {
+            return new CartSnapshot(cartId, List.copyOf(lines.values()), totalAmount, itemCount);
+        }
+    }
+}
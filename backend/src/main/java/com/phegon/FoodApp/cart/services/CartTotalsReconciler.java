@@ -0,0 +1,54 @@
+package com.phegon.FoodApp.cart.services;
+
+
+import com.phegon.FoodApp.cart.repository.CartRepository;
+import com.phegon.FoodApp.cart.repository.CartTotalsRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Checks the running totals stored on each cart against its line items.
+ *
+ * CartStore keeps the totals up to date as lines change and writes them with the lines, so this
+ * only repairs drift (manual edits, carts stored before the totals existed). One GROUP BY finds
+ * the carts that disagree; each is then recounted and rewritten through the store, under the same
+ * lock the taps take, so nothing in flight is lost.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CartTotalsReconciler {
+
+    private final CartRepository cartRepository;
+    private final CartStore cartStore;
+
+
+    @Scheduled(cron = "${cart.totals.reconcile.cron:0 30 3 * * *}")
+    public int reconcile() {
+
+        long start = System.currentTimeMillis();
+
+        List<CartTotalsRow> drifted = cartRepository.findDriftedTotals();
+
+        int corrected = 0;
+        for (CartTotalsRow row : drifted) {
+            log.warn("Cart {} stores total {} / {} items, its lines add up to {} / {}",
+                    row.cartId(), row.totalAmount(), row.itemCount(), row.lineTotal(), row.lineCount());
+            try {
+                cartStore.reconcile(row.userId());
+                corrected++;
+            } catch (RuntimeException e) {
+                log.warn("Could not correct the totals of cart {}: {}", row.cartId(), e.getMessage());
+            }
+        }
+
+        log.info("Cart totals reconciled: drifted={}, corrected={}, took={}ms",
+                drifted.size(), corrected, System.currentTimeMillis() - start);
+
+        return corrected;
+    }
+}
@@ -5,6 +5,7 @@ import com.phegon.FoodApp.category.dtos.CategoryDTO;
 import com.phegon.FoodApp.category.entity.Category;
 import com.phegon.FoodApp.category.repository.CategoryRepository;
 import com.phegon.FoodApp.exceptions.NotFoundException;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
 import com.phegon.FoodApp.response.Response;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +23,7 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final ModelMapper modelMapper;
+    private final MenuCatalog menuCatalog;
 
 
     @Override
@@ -53,6 +55,7 @@ public class CategoryServiceImpl implements CategoryService {
         if (categoryDTO.getDescription() != null) category.setDescription(categoryDTO.getDescription());
 
         categoryRepository.save(category);
+        menuCatalog.invalidate();
 
 
         return Response.<CategoryDTO>builder()
@@ -108,6 +111,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         categoryRepository.deleteById(id);
+        menuCatalog.invalidate(); // menus cascade with their category
 
 
         return Response.builder()
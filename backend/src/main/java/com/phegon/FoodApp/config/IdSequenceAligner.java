@@ -0,0 +1,69 @@
+package com.phegon.FoodApp.config;
+
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+
+/**
+ * Moves the emulated id sequences past the ids that are already in their tables.
+ * <p>
+ * MySQL has no sequences, so Hibernate keeps each one in a one-row table ({@code orders_seq} ...) that
+ * {@code ddl-auto=update} creates starting at 1. Tables that used IDENTITY before already hold rows,
+ * and the first pooled block would collide with them. Raising {@code next_val} is idempotent, so this
+ * runs on every start, once the singletons exist but before the context starts the web server, the
+ * schedulers and the startup runners, so that no pooled block is fetched before its sequence is raised.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceAligner implements SmartInitializingSingleton {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport().supportsSequences()) {
+            return; // native sequences are not emulated by a table
+        }
+
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            SequenceGenerator generator = sequenceGenerator(entity.getJavaType());
+            Table table = entity.getJavaType().getAnnotation(Table.class);
+            if (generator == null || table == null) continue;
+
+            try {
+                // pooled blocks hand out (next_val - allocationSize, next_val]
+                long floor = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table.name(), Long.class)
+                        + generator.allocationSize() + 1;
+                int raised = jdbcTemplate.update(
+                        "UPDATE " + generator.sequenceName() + " SET next_val = ? WHERE next_val < ?", floor, floor);
+                if (raised > 0) {
+                    log.info("Raised {} to {}", generator.sequenceName(), floor);
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not align {} with {}: {}", generator.sequenceName(), table.name(), e.getMessage());
+            }
+        }
+    }
+
+    private static SequenceGenerator sequenceGenerator(Class<?> type) {
+        for (Field field : type.getDeclaredFields()) {
+            SequenceGenerator generator = field.getAnnotation(SequenceGenerator.class);
+            if (generator != null) return generator;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,172 @@
+package com.phegon.FoodApp.config;
+
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watches the virtual threads that serve requests, {@code @Async} and {@code @Scheduled} work when
+ * {@code spring.threads.virtual.enabled=true}.
+ * <p>
+ * A virtual thread that blocks inside a {@code synchronized} block or a native frame cannot unmount
+ * and pins its carrier; with only one carrier per core a few pinned threads stall everything. JFR
+ * reports every pin longer than the threshold as {@code jdk.VirtualThreadPinned}: the first pin
+ * from a code location is logged with its stack, later ones are only counted per location.
+ * Carrier utilization is the CPU time the carrier threads used since the last report, relative to
+ * the scheduler's parallelism; a busy scheduler with idle CPUs usually means pinning.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class VirtualThreadMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final String CARRIER_THREAD_CLASS = "jdk.internal.misc.CarrierThread";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final Duration pinnedThreshold;
+    private final int parallelism;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> pinnedSites = new ConcurrentHashMap<>();
+
+    private RecordingStream recording;
+
+    // previous sample, guarded by this
+    private Map<Long, Long> carrierCpuNanos = new HashMap<>();
+    private long sampledAt = System.nanoTime();
+
+
+    public VirtualThreadMonitor(@Value("${threads.virtual.pinned-threshold-ms:20}") long pinnedThresholdMillis) {
+        this.pinnedThreshold = Duration.ofMillis(pinnedThresholdMillis);
+        this.parallelism = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public record Stats(long pinnedEvents, long pinnedMillis, Map<String, Long> pinnedSites,
+                        int carriers, int parallelism, double carrierUtilization) {}
+
+
+    @PostConstruct
+    public void start() {
+        try {
+            recording = new RecordingStream();
+            recording.enable(PINNED_EVENT).withThreshold(pinnedThreshold).withStackTrace();
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.startAsync();
+            log.info("Watching for virtual threads pinned longer than {}ms, {} carriers",
+                    pinnedThreshold.toMillis(), parallelism);
+        } catch (RuntimeException e) {
+            recording = null;
+            log.warn("JFR is unavailable, pinned virtual threads will not be reported: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${threads.virtual.report-interval-ms:60000}")
+    public void report() {
+        Stats stats = sample();
+        log.info("Virtual threads: carriers {}/{} at {}% CPU, {} pins ({}ms) so far, top sites {}",
+                stats.carriers(), stats.parallelism(), Math.round(stats.carrierUtilization() * 100),
+                stats.pinnedEvents(), stats.pinnedMillis(), stats.pinnedSites());
+    }
+
+    /**
+     * Returns the pins so far and the carriers' utilization since the previous call.
+     */
+    public synchronized Stats sample() {
+
+        long now = System.nanoTime();
+        Map<Long, Long> cpuNanos = new HashMap<>();
+        long busyNanos = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!thread.getClass().getName().equals(CARRIER_THREAD_CLASS)) continue;
+            long cpu = threads.getThreadCpuTime(thread.threadId());
+            if (cpu < 0) continue; // terminated, or CPU time measurement is off
+            cpuNanos.put(thread.threadId(), cpu);
+            busyNanos += cpu - carrierCpuNanos.getOrDefault(thread.threadId(), 0L);
+        }
+        long elapsedNanos = Math.max(1, now - sampledAt);
+        carrierCpuNanos = cpuNanos;
+        sampledAt = now;
+
+        Map<String, Long> sites = new LinkedHashMap<>();
+        pinnedSites.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .limit(5)
+                .forEach(site -> sites.put(site.getKey(), site.getValue().sum()));
+
+        return new Stats(pinnedEvents.sum(), pinnedNanos.sum() / 1_000_000, sites, cpuNanos.size(), parallelism,
+                Math.min(1.0, (double) busyNanos / elapsedNanos / parallelism));
+    }
+
+
+    // the event is counted last, so a sample that sees it also sees its site and duration
+    private void onPinned(RecordedEvent event) {
+        String site = site(event);
+        LongAdder count = pinnedSites.computeIfAbsent(site, key -> new LongAdder());
+        count.increment();
+        pinnedNanos.add(event.getDuration().toNanos());
+        pinnedEvents.increment();
+
+        if (count.sum() == 1) {
+            log.warn("Virtual thread pinned to its carrier for {}ms at {}:\n{}",
+                    event.getDuration().toMillis(), site, stack(event));
+        }
+    }
+
+    // the first application frame, skipping the JDK's own parking and locking frames
+    private static String site(RecordedEvent event) {
+        if (event.getStackTrace() == null) return "unknown";
+        RecordedFrame top = null;
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (!frame.isJavaFrame()) continue;
+            if (top == null) top = frame;
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return describe(frame);
+            }
+        }
+        return top == null ? "unknown" : describe(top);
+    }
+
+    private static String stack(RecordedEvent event) {
+        if (event.getStackTrace() == null) return "\tno stack trace";
+        StringBuilder stack = new StringBuilder();
+        event.getStackTrace().getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .forEach(frame -> stack.append("\tat ").append(describe(frame)).append('\n'));
+        return stack.toString();
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,42 @@
+package com.phegon.FoodApp.email_notification.controller;
+
+import com.phegon.FoodApp.email_notification.dtos.EmailOutboxStatsDTO;
+import com.phegon.FoodApp.email_notification.dtos.EmailRenderStatsDTO;
+import com.phegon.FoodApp.email_notification.dtos.MailTransportStatsDTO;
+import com.phegon.FoodApp.email_notification.services.NotificationService;
+import com.phegon.FoodApp.response.Response;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/notifications")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('ADMIN')")
+public class NotificationController {
+
+    private final NotificationService notificationService;
+
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<Response<EmailOutboxStatsDTO>> getOutboxStats() {
+        return ResponseEntity.ok(notificationService.getOutboxStats());
+    }
+
+    @GetMapping("/transport/stats")
+    public ResponseEntity<Response<MailTransportStatsDTO>> getTransportStats() {
+        return ResponseEntity.ok(notificationService.getTransportStats());
+    }
+
+    @GetMapping("/templates/stats")
+    public ResponseEntity<Response<List<EmailRenderStatsDTO>>> getRenderStats() {
+        return ResponseEntity.ok(notificationService.getRenderStats());
+    }
+
+    @PostMapping("/outbox/requeue-dead")
+    public ResponseEntity<Response<Integer>> requeueDeadEmails() {
+        return ResponseEntity.ok(notificationService.requeueDeadEmails());
+    }
+}
@@ -0,0 +1,18 @@
+package com.phegon.FoodApp.email_notification.dtos;
+
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class EmailOutboxStatsDTO {
+
+    private long pending;
+
+    private long sending;
+
+    private long sent;
+
+    private long dead;
+}
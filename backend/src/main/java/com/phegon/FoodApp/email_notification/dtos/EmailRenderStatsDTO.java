@@ -0,0 +1,20 @@
+package com.phegon.FoodApp.email_notification.dtos;
+
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class EmailRenderStatsDTO {
+
+    private String template;
+
+    private long renders;
+
+    private long failures;
+
+    private double averageRenderMillis;
+
+    private double maxRenderMillis;
+}
@@ -0,0 +1,24 @@
+package com.phegon.FoodApp.email_notification.dtos;
+
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class MailTransportStatsDTO {
+
+    private int queued; // messages handed to the transport and not yet sent or failed
+
+    private long sent;
+
+    private long failed;
+
+    private long connectionsOpened;
+
+    private int idleConnections;
+
+    private double averageSendMillis;
+
+    private double maxSendMillis;
+}
@@ -10,6 +10,7 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -31,4 +32,8 @@ public class NotificationDTO {
     private LocalDateTime createdAt;
 
     private boolean isHtml;
+
+    private String template; // Thymeleaf template the body is rendered from when it is sent
+
+    private Map<String, Object> templateVariables;
 }
@@ -0,0 +1,35 @@
+package com.phegon.FoodApp.email_notification.repository;
+
+import com.phegon.FoodApp.email_notification.entity.EmailOutbox;
+import com.phegon.FoodApp.enums.OutboxStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // FOR UPDATE SKIP LOCKED (lock timeout -2), so several app instances can drain the outbox side by side
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EmailOutbox e WHERE e.status IN :statuses AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt")
+    List<EmailOutbox> findDueForUpdate(@Param("statuses") Collection<OutboxStatus> statuses,
+                                       @Param("now") LocalDateTime now,
+                                       Limit limit);
+
+    long countByStatus(OutboxStatus status);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = com.phegon.FoodApp.enums.OutboxStatus.PENDING, e.attempts = 0, " +
+            "e.nextAttemptAt = :now WHERE e.status = com.phegon.FoodApp.enums.OutboxStatus.DEAD")
+    int requeueDead(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,182 @@
+package com.phegon.FoodApp.email_notification.services;
+
+
+import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
+import com.phegon.FoodApp.email_notification.entity.EmailOutbox;
+import com.phegon.FoodApp.email_notification.repository.EmailOutboxRepository;
+import com.phegon.FoodApp.enums.OutboxStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the email outbox.
+ *
+ * Each round claims a batch of due rows (FOR UPDATE SKIP LOCKED, marked SENDING with a lease),
+ * splits it across a small fixed pool of workers that each push their share through one pooled
+ * SMTP connection, then records the outcome in one transaction. Failures are
+ * retried with exponential backoff and jitter until max-attempts, after which the row is DEAD.
+ * A row whose dispatcher died mid-send becomes due again once its lease runs out, so delivery
+ * is at-least-once.
+ */
+@Component
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    private static final List<OutboxStatus> DUE_STATUSES = List.of(OutboxStatus.PENDING, OutboxStatus.SENDING);
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final ExecutorService executor;
+
+
+    public EmailOutboxDispatcher(EmailOutboxRepository emailOutboxRepository,
+                                 NotificationService notificationService,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${email.outbox.batch-size:50}") int batchSize,
+                                 @Value("${email.outbox.concurrency:4}") int concurrency,
+                                 @Value("${email.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${email.outbox.base-backoff-seconds:30}") long baseBackoffSeconds,
+                                 @Value("${email.outbox.max-backoff-seconds:3600}") long maxBackoffSeconds,
+                                 @Value("${email.outbox.lease-seconds:300}") long leaseSeconds) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = Duration.ofSeconds(baseBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    public int dispatch() {
+
+        int sent = 0;
+        List<EmailOutbox> batch;
+        do {
+            batch = claimBatch();
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            // one chunk per worker; each chunk goes out over a single pooled SMTP connection
+            int chunkSize = (batch.size() + concurrency - 1) / concurrency;
+            List<CompletableFuture<List<String>>> results = new ArrayList<>();
+            for (int from = 0; from < batch.size(); from += chunkSize) {
+                List<EmailOutbox> chunk = batch.subList(from, Math.min(from + chunkSize, batch.size()));
+                results.add(CompletableFuture.supplyAsync(() -> send(chunk), executor));
+            }
+
+            List<String> errors = results.stream().flatMap(result -> result.join().stream()).toList();
+            sent += (int) errors.stream().filter(error -> error == null).count();
+            recordOutcomes(batch, errors);
+
+        } while (batch.size() == batchSize);
+
+        return sent;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+
+    private List<EmailOutbox> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<EmailOutbox> due = emailOutboxRepository.findDueForUpdate(DUE_STATUSES, now, Limit.of(batchSize));
+            for (EmailOutbox outbox : due) {
+                outbox.setStatus(OutboxStatus.SENDING);
+                outbox.setNextAttemptAt(now.plus(lease));
+            }
+            return emailOutboxRepository.saveAll(due);
+        });
+    }
+
+    // one entry per email: null on success, the failure message otherwise
+    private List<String> send(List<EmailOutbox> chunk) {
+        List<String> errors = new ArrayList<>(chunk.size());
+        List<NotificationDTO> notifications = new ArrayList<>(chunk.size());
+        try {
+            for (EmailOutbox outbox : chunk) {
+                notifications.add(notificationService.toNotification(outbox));
+            }
+            errors.addAll(notificationService.deliverBatch(notifications));
+        } catch (Exception e) {
+            String error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            errors.clear();
+            chunk.forEach(outbox -> errors.add(error));
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            if (errors.get(i) != null) {
+                log.warn("Email {} to {} failed (attempt {}): {}",
+                        chunk.get(i).getId(), chunk.get(i).getRecipient(), chunk.get(i).getAttempts() + 1, errors.get(i));
+            }
+        }
+        return errors;
+    }
+
+    private void recordOutcomes(List<EmailOutbox> batch, List<String> errors) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < batch.size(); i++) {
+            EmailOutbox outbox = batch.get(i);
+            String error = errors.get(i);
+            if (error == null) {
+                outbox.setStatus(OutboxStatus.SENT);
+                outbox.setSentAt(now);
+                outbox.setLastError(null);
+                continue;
+            }
+            outbox.setAttempts(outbox.getAttempts() + 1);
+            outbox.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (outbox.getAttempts() >= maxAttempts) {
+                outbox.setStatus(OutboxStatus.DEAD);
+                log.error("Email {} to {} moved to dead letter after {} attempts: {}",
+                        outbox.getId(), outbox.getRecipient(), outbox.getAttempts(), error);
+            } else {
+                outbox.setStatus(OutboxStatus.PENDING);
+                outbox.setNextAttemptAt(now.plus(backoff(outbox.getAttempts())));
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.saveAll(batch));
+    }
+
+    // base * 2^(attempts - 1), capped, plus up to 20% jitter so failed batches don't retry in lockstep
+    private Duration backoff(int attempts) {
+        long baseMillis = baseBackoff.toMillis();
+        long millis = Math.min(maxBackoff.toMillis(), baseMillis << Math.min(attempts - 1, 30));
+        return Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(millis / 5 + 1));
+    }
+}
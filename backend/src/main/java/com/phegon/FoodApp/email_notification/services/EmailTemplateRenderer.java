@@ -0,0 +1,153 @@
+package com.phegon.FoodApp.email_notification.services;
+
+
+import com.phegon.FoodApp.email_notification.dtos.EmailRenderStatsDTO;
+import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Renders email bodies from Thymeleaf templates.
+ *
+ * Templates are parsed once (the engine's template cache is warmed at startup) and rendered
+ * into a per-thread buffer that is reused between renders, so the only per-email allocation is
+ * the resulting String. Render time and failures are tracked per template.
+ */
+@Component
+@Slf4j
+public class EmailTemplateRenderer {
+
+    private static final int MAX_RETAINED_BUFFER_CHARS = 64 * 1024;
+
+    private final TemplateEngine templateEngine;
+    private final List<String> preloadTemplates;
+
+    private final ThreadLocal<StringWriter> buffers = ThreadLocal.withInitial(() -> new StringWriter(8 * 1024));
+    private final Map<String, TemplateStats> stats = new ConcurrentHashMap<>();
+
+
+    public EmailTemplateRenderer(TemplateEngine templateEngine,
+                                 @Value("${email.templates.preload:order-confirmation,payment-success,payment-failed}")
+                                 List<String> preloadTemplates) {
+        this.templateEngine = templateEngine;
+        this.preloadTemplates = preloadTemplates;
+    }
+
+    /** Parses the known templates up front so the first email of each kind doesn't pay for it. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        for (String template : preloadTemplates) {
+            try {
+                render(template, null);
+            } catch (RuntimeException e) {
+                log.warn("Could not preload email template {}: {}", template, e.getMessage());
+            }
+        }
+        stats.clear(); // warm-up renders with no variables are not representative
+    }
+
+    public String render(String template, Map<String, Object> variables) {
+        Context context = new Context(Locale.getDefault());
+        return render(template, variables, context);
+    }
+
+    /**
+     * Renders the body of every notification in one pass, sharing one context and buffer.
+     *
+     * @return one entry per notification: the rendered body (or the plain body when it has no
+     *         template), or the failure if rendering it threw
+     */
+    public List<Rendered> renderBatch(List<NotificationDTO> notifications) {
+        List<Rendered> results = new ArrayList<>(notifications.size());
+        Context context = new Context(Locale.getDefault());
+        for (NotificationDTO notification : notifications) {
+            if (notification.getTemplate() == null) {
+                results.add(new Rendered(notification.getBody(), null));
+                continue;
+            }
+            try {
+                context.clearVariables();
+                results.add(new Rendered(render(notification.getTemplate(), notification.getTemplateVariables(), context), null));
+            } catch (RuntimeException e) {
+                results.add(new Rendered(null, e));
+            }
+        }
+        return results;
+    }
+
+    public List<EmailRenderStatsDTO> getStats() {
+        return stats.entrySet().stream()
+                .map(entry -> entry.getValue().toDTO(entry.getKey()))
+                .sorted(Comparator.comparing(EmailRenderStatsDTO::getTemplate))
+                .toList();
+    }
+
+
+    private String render(String template, Map<String, Object> variables, Context context) {
+        if (variables != null) {
+            context.setVariables(variables);
+        }
+
+        StringWriter buffer = buffers.get();
+        buffer.getBuffer().setLength(0);
+        TemplateStats templateStats = stats.computeIfAbsent(template, name -> new TemplateStats());
+
+        long start = System.nanoTime();
+        try {
+            templateEngine.process(template, context, buffer);
+            templateStats.record(System.nanoTime() - start);
+            return buffer.toString();
+        } catch (RuntimeException e) {
+            templateStats.failures.increment();
+            throw e;
+        } finally {
+            if (buffer.getBuffer().capacity() > MAX_RETAINED_BUFFER_CHARS) {
+                buffers.remove(); // don't pin one unusually large email's buffer to the thread
+            }
+        }
+    }
+
+
+    public record Rendered(String body, RuntimeException failure) {
+    }
+
+    private static final class TemplateStats {
+
+        private final LongAdder renders = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            renders.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        EmailRenderStatsDTO toDTO(String template) {
+            long count = renders.sum();
+            return EmailRenderStatsDTO.builder()
+                    .template(template)
+                    .renders(count)
+                    .failures(failures.sum())
+                    .averageRenderMillis(count == 0 ? 0 : totalNanos.sum() / count / 1_000_000.0)
+                    .maxRenderMillis(maxNanos.get() / 1_000_000.0)
+                    .build();
+        }
+    }
+}
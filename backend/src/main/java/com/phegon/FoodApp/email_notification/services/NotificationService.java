@@ -1,7 +1,23 @@
 package com.phegon.FoodApp.email_notification.services;
 
+import com.phegon.FoodApp.email_notification.dtos.EmailOutboxStatsDTO;
+import com.phegon.FoodApp.email_notification.dtos.EmailRenderStatsDTO;
+import com.phegon.FoodApp.email_notification.dtos.MailTransportStatsDTO;
 import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
+import com.phegon.FoodApp.email_notification.entity.EmailOutbox;
+import com.phegon.FoodApp.response.Response;
+import jakarta.mail.MessagingException;
+
+import java.util.List;
 
 public interface NotificationService {
     void sendEmail(NotificationDTO notificationDTO);
+    void queueEmail(NotificationDTO notificationDTO);
+    void deliver(NotificationDTO notificationDTO) throws MessagingException;
+    List<String> deliverBatch(List<NotificationDTO> notificationDTOs);
+    NotificationDTO toNotification(EmailOutbox outbox);
+    Response<EmailOutboxStatsDTO> getOutboxStats();
+    Response<Integer> requeueDeadEmails();
+    Response<MailTransportStatsDTO> getTransportStats();
+    Response<List<EmailRenderStatsDTO>> getRenderStats();
 }
@@ -1,20 +1,37 @@
 package com.phegon.FoodApp.email_notification.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phegon.FoodApp.email_notification.dtos.EmailOutboxStatsDTO;
+import com.phegon.FoodApp.email_notification.dtos.EmailRenderStatsDTO;
+import com.phegon.FoodApp.email_notification.dtos.MailTransportStatsDTO;
 import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
+import com.phegon.FoodApp.email_notification.entity.EmailOutbox;
 import com.phegon.FoodApp.email_notification.entity.Notification;
+import com.phegon.FoodApp.email_notification.repository.EmailOutboxRepository;
 import com.phegon.FoodApp.email_notification.repository.NotificationRepository;
 import com.phegon.FoodApp.enums.NotificationType;
+import com.phegon.FoodApp.enums.OutboxStatus;
+import com.phegon.FoodApp.response.Response;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +40,10 @@ public class NotificationServiceImpl implements NotificationService {
 
     private final JavaMailSender javaMailSender;
     private final NotificationRepository notificationRepository;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailTemplateRenderer emailTemplateRenderer;
+    private final ObjectMapper objectMapper;
+    private final SmtpMailTransport smtpMailTransport;
     @Value("${spring.mail.username:}")
     private String fromEmail;
 
@@ -36,48 +57,212 @@ public class NotificationServiceImpl implements NotificationService {
         log.info("spring.mail.username (fromEmail) = {}", fromEmail);
 
         try {
-            MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(
-                    mimeMessage,
-                    MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
-                    StandardCharsets.UTF_8.name()
-            );
-
-            if (fromEmail != null && !fromEmail.isBlank()) {
-                helper.setFrom(fromEmail);
-            }
+            deliver(notificationDTO);
+        } catch (Exception e) {
+            log.error("❌ Failed to send email to {}",
+                    notificationDTO.getRecipient(), e); // log full stacktrace
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void queueEmail(NotificationDTO notificationDTO) {
 
-            helper.setTo(notificationDTO.getRecipient());
-            helper.setSubject(notificationDTO.getSubject());
-            helper.setText(notificationDTO.getBody(), notificationDTO.isHtml());
+        // joins the caller's transaction: the email exists if and only if the business change commits
+        EmailOutbox outbox = EmailOutbox.builder()
+                .recipient(notificationDTO.getRecipient())
+                .subject(notificationDTO.getSubject())
+                .body(notificationDTO.getBody())
+                .template(notificationDTO.getTemplate())
+                .templateVariables(writeVariables(notificationDTO.getTemplateVariables()))
+                .isHtml(notificationDTO.isHtml())
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .build();
 
-            log.info("📤 Sending email to {}", notificationDTO.getRecipient());
-            javaMailSender.send(mimeMessage);
-            log.info("✅ Email sent to {}", notificationDTO.getRecipient());
+        emailOutboxRepository.save(outbox);
+        log.info("📥 Queued email '{}' to {}", notificationDTO.getSubject(), notificationDTO.getRecipient());
+    }
 
-            Notification notificationToSave = Notification.builder()
-                    .recipient(notificationDTO.getRecipient())
-                    .subject(notificationDTO.getSubject())
-                    .body(notificationDTO.getBody())
-                    .type(NotificationType.EMAIL)
-                    .isHtml(notificationDTO.isHtml())
-                    .build();
+    @Override
+    public void deliver(NotificationDTO notificationDTO) throws MessagingException {
 
-            notificationRepository.save(notificationToSave);
-            log.info("✅ Saved to notification table");
+        String body = renderBody(notificationDTO);
 
-        } catch (Exception e) {
-            log.error("❌ Failed to send email to {}",
-                    notificationDTO.getRecipient(), e); // log full stacktrace
-            throw new RuntimeException(e);
+        log.info("📤 Sending email to {}", notificationDTO.getRecipient());
+        smtpMailTransport.send(toMimeMessage(notificationDTO, body));
+        log.info("✅ Email sent to {}", notificationDTO.getRecipient());
+
+        notificationRepository.save(toNotificationRecord(notificationDTO, body));
+        log.info("✅ Saved to notification table");
+    }
+
+    @Override
+    public List<String> deliverBatch(List<NotificationDTO> notificationDTOs) {
+
+        List<String> errors = new ArrayList<>(Collections.nCopies(notificationDTOs.size(), null));
+        List<MimeMessage> messages = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        List<String> bodies = new ArrayList<>();
+
+        List<EmailTemplateRenderer.Rendered> rendered = emailTemplateRenderer.renderBatch(notificationDTOs);
+
+        for (int i = 0; i < notificationDTOs.size(); i++) {
+            NotificationDTO notificationDTO = notificationDTOs.get(i);
+            try {
+                if (rendered.get(i).failure() != null) {
+                    throw rendered.get(i).failure();
+                }
+                String body = rendered.get(i).body();
+                messages.add(toMimeMessage(notificationDTO, body));
+                positions.add(i);
+                bodies.add(body);
+            } catch (Exception e) {
+                errors.set(i, describe(e));
+            }
+        }
+
+        // one pooled SMTP connection for the whole batch
+        List<MessagingException> failures = smtpMailTransport.sendBatch(messages);
+
+        List<Notification> records = new ArrayList<>();
+        for (int j = 0; j < messages.size(); j++) {
+            int i = positions.get(j);
+            if (failures.get(j) != null) {
+                errors.set(i, describe(failures.get(j)));
+            } else {
+                records.add(toNotificationRecord(notificationDTOs.get(i), bodies.get(j)));
+            }
         }
+        notificationRepository.saveAll(records);
+
+        log.info("📤 Sent {}/{} emails in batch", records.size(), notificationDTOs.size());
+        return errors;
     }
-}
 
+    @Override
+    public Response<MailTransportStatsDTO> getTransportStats() {
+        return Response.<MailTransportStatsDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Mail transport stats retrieved successfully")
+                .data(smtpMailTransport.getStats())
+                .build();
+    }
 
+    @Override
+    public Response<List<EmailRenderStatsDTO>> getRenderStats() {
+        return Response.<List<EmailRenderStatsDTO>>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Email render stats retrieved successfully")
+                .data(emailTemplateRenderer.getStats())
+                .build();
+    }
+
+    @Override
+    public Response<EmailOutboxStatsDTO> getOutboxStats() {
+
+        EmailOutboxStatsDTO stats = EmailOutboxStatsDTO.builder()
+                .pending(emailOutboxRepository.countByStatus(OutboxStatus.PENDING))
+                .sending(emailOutboxRepository.countByStatus(OutboxStatus.SENDING))
+                .sent(emailOutboxRepository.countByStatus(OutboxStatus.SENT))
+                .dead(emailOutboxRepository.countByStatus(OutboxStatus.DEAD))
+                .build();
+
+        return Response.<EmailOutboxStatsDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Email outbox stats retrieved successfully")
+                .data(stats)
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public Response<Integer> requeueDeadEmails() {
 
+        int requeued = emailOutboxRepository.requeueDead(LocalDateTime.now());
+        log.info("Requeued {} dead emails", requeued);
 
+        return Response.<Integer>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Dead emails requeued")
+                .data(requeued)
+                .build();
+    }
+
+    @Override
+    public NotificationDTO toNotification(EmailOutbox outbox) {
+        return NotificationDTO.builder()
+                .id(outbox.getId())
+                .recipient(outbox.getRecipient())
+                .subject(outbox.getSubject())
+                .body(outbox.getBody())
+                .template(outbox.getTemplate())
+                .templateVariables(readVariables(outbox.getTemplateVariables()))
+                .isHtml(outbox.isHtml())
+                .type(NotificationType.EMAIL)
+                .build();
+    }
 
 
+    private String renderBody(NotificationDTO notificationDTO) {
+        return notificationDTO.getTemplate() != null
+                ? emailTemplateRenderer.render(notificationDTO.getTemplate(), notificationDTO.getTemplateVariables())
+                : notificationDTO.getBody();
+    }
+
+    private MimeMessage toMimeMessage(NotificationDTO notificationDTO, String body) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(
+                mimeMessage,
+                MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
+                StandardCharsets.UTF_8.name()
+        );
 
+        if (fromEmail != null && !fromEmail.isBlank()) {
+            helper.setFrom(fromEmail);
+        }
 
+        helper.setTo(notificationDTO.getRecipient());
+        helper.setSubject(notificationDTO.getSubject());
+        helper.setText(body, notificationDTO.isHtml());
+        return mimeMessage;
+    }
+
+    private Notification toNotificationRecord(NotificationDTO notificationDTO, String body) {
+        return Notification.builder()
+                .recipient(notificationDTO.getRecipient())
+                .subject(notificationDTO.getSubject())
+                .body(body)
+                .type(NotificationType.EMAIL)
+                .isHtml(notificationDTO.isHtml())
+                .build();
+    }
+
+    private static String describe(Exception e) {
+        return e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+    }
+
+    private String writeVariables(Map<String, Object> variables) {
+        if (variables == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(variables);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Email template variables are not serializable", e);
+        }
+    }
+
+    private Map<String, Object> readVariables(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt email template variables", e);
+        }
+    }
+}
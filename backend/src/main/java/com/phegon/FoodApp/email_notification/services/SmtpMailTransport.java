@@ -0,0 +1,228 @@
+package com.phegon.FoodApp.email_notification.services;
+
+
+import com.phegon.FoodApp.email_notification.dtos.MailTransportStatsDTO;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends mail over a small pool of connected, authenticated SMTP transports instead of opening
+ * a new connection (TCP + STARTTLS + AUTH) per message like {@code JavaMailSender.send} does.
+ *
+ * {@link #sendBatch(List)} pushes a whole batch through one connection. A connection that has
+ * been idle for a while is probed with NOOP before reuse; one that breaks mid-batch is replaced
+ * and the failed message retried once on the new connection.
+ */
+@Component
+@Slf4j
+public class SmtpMailTransport {
+
+    private final JavaMailSenderImpl mailSender;
+    private final long idleProbeMillis;
+    private final long borrowTimeoutMillis;
+
+    private final Semaphore permits; // one per connection, idle or in use
+    private final BlockingQueue<PooledTransport> idle;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final AtomicLong totalSendNanos = new AtomicLong();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+
+    public SmtpMailTransport(JavaMailSenderImpl mailSender,
+                             @Value("${email.smtp.pool-size:4}") int poolSize,
+                             @Value("${email.smtp.idle-probe-seconds:30}") long idleProbeSeconds,
+                             @Value("${email.smtp.borrow-timeout-seconds:30}") long borrowTimeoutSeconds) {
+        this.mailSender = mailSender;
+        this.idleProbeMillis = TimeUnit.SECONDS.toMillis(idleProbeSeconds);
+        this.borrowTimeoutMillis = TimeUnit.SECONDS.toMillis(borrowTimeoutSeconds);
+        this.permits = new Semaphore(poolSize, true);
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    public void send(MimeMessage message) throws MessagingException {
+        MessagingException failure = sendBatch(List.of(message)).get(0);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Sends every message over one pooled connection.
+     *
+     * @return one entry per message: null if it was sent, otherwise why it failed
+     */
+    public List<MessagingException> sendBatch(List<MimeMessage> messages) {
+
+        List<MessagingException> results = new ArrayList<>(messages.size());
+        queued.addAndGet(messages.size());
+
+        PooledTransport transport;
+        try {
+            transport = borrow();
+        } catch (MessagingException e) {
+            queued.addAndGet(-messages.size());
+            failed.add(messages.size());
+            messages.forEach(message -> results.add(e));
+            return results;
+        }
+
+        try {
+            for (MimeMessage message : messages) {
+                try {
+                    if (transport == null) {
+                        transport = connect();
+                    }
+                    transport = sendOne(transport, message);
+                    results.add(null);
+                } catch (MessagingException e) {
+                    failed.increment();
+                    results.add(e);
+                    if (transport != null && !transport.transport().isConnected()) {
+                        closeQuietly(transport);
+                        transport = null; // reconnect for the next message
+                    }
+                } finally {
+                    queued.decrementAndGet();
+                }
+            }
+        } finally {
+            release(transport);
+        }
+        return results;
+    }
+
+    public MailTransportStatsDTO getStats() {
+        long sentCount = sent.sum();
+        return MailTransportStatsDTO.builder()
+                .queued(queued.get())
+                .sent(sentCount)
+                .failed(failed.sum())
+                .connectionsOpened(connectionsOpened.sum())
+                .idleConnections(idle.size())
+                .averageSendMillis(sentCount == 0 ? 0 : totalSendNanos.get() / sentCount / 1_000_000.0)
+                .maxSendMillis(maxSendNanos.get() / 1_000_000.0)
+                .build();
+    }
+
+    @PreDestroy
+    void close() {
+        PooledTransport transport;
+        while ((transport = idle.poll()) != null) {
+            closeQuietly(transport);
+        }
+    }
+
+
+    private PooledTransport sendOne(PooledTransport transport, MimeMessage message) throws MessagingException {
+
+        message.saveChanges();
+        Address[] recipients = message.getAllRecipients();
+
+        long start = System.nanoTime();
+        try {
+            transport.transport().sendMessage(message, recipients);
+        } catch (MessagingException e) {
+            if (transport.transport().isConnected()) {
+                throw e; // rejected by the server, the connection itself is fine
+            }
+            // connection dropped under us: replace it and retry this message once
+            log.warn("SMTP connection lost, reconnecting: {}", e.getMessage());
+            closeQuietly(transport);
+            PooledTransport fresh = connect();
+            start = System.nanoTime();
+            try {
+                fresh.transport().sendMessage(message, recipients);
+            } catch (MessagingException retryFailure) {
+                closeQuietly(fresh);
+                throw retryFailure;
+            }
+            transport = fresh;
+        }
+        recordLatency(System.nanoTime() - start);
+        sent.increment();
+        return transport.touch();
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for an SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for an SMTP connection", e);
+        }
+
+        try {
+            PooledTransport transport = idle.poll();
+            if (transport != null && System.currentTimeMillis() - transport.lastUsed() > idleProbeMillis
+                    && !transport.transport().isConnected()) {
+                closeQuietly(transport); // the server dropped it while idle
+                transport = null;
+            }
+            return transport != null ? transport : connect();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledTransport transport) {
+        if (transport != null && !idle.offer(transport)) {
+            closeQuietly(transport);
+        }
+        permits.release();
+    }
+
+    private PooledTransport connect() throws MessagingException {
+        String protocol = mailSender.getProtocol();
+        Transport transport = protocol != null
+                ? mailSender.getSession().getTransport(protocol)
+                : mailSender.getSession().getTransport();
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        connectionsOpened.increment();
+        return new PooledTransport(transport, System.currentTimeMillis());
+    }
+
+    private void recordLatency(long nanos) {
+        totalSendNanos.addAndGet(nanos);
+        maxSendNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static void closeQuietly(PooledTransport transport) {
+        try {
+            transport.transport().close();
+        } catch (MessagingException e) {
+            log.debug("Ignoring error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+
+    private record PooledTransport(Transport transport, long lastUsed) {
+
+        PooledTransport touch() {
+            return new PooledTransport(transport, System.currentTimeMillis());
+        }
+    }
+}
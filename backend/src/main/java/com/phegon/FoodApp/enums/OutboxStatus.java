@@ -0,0 +1,8 @@
+package com.phegon.FoodApp.enums;
+
+public enum OutboxStatus {
+    PENDING,  // waiting for its first or next attempt
+    SENDING,  // claimed by a dispatcher; reclaimed if the lease runs out
+    SENT,
+    DEAD      // gave up after the maximum number of attempts
+}
@@ -0,0 +1,8 @@
+package com.phegon.FoodApp.enums;
+
+public enum WebhookEventStatus {
+    PENDING,     // waiting for its first or next attempt
+    PROCESSING,  // claimed by a dispatcher; reclaimed if the lease runs out
+    PROCESSED,
+    DEAD         // gave up after the maximum number of attempts
+}
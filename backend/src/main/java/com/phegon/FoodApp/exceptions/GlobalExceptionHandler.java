@@ -43,4 +43,12 @@ public class GlobalExceptionHandler {
         body.put("message", ex.getMessage());
         return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
+
+    @ExceptionHandler(PaymentProcessingException.class)
+    public ResponseEntity<Map<String, Object>> handlePaymentProcessing(PaymentProcessingException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("statusCode", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("message", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
@@ -5,4 +5,8 @@ public class PaymentProcessingException extends RuntimeException{
     public PaymentProcessingException(String message){
         super(message);
     }
+
+    public PaymentProcessingException(String message, Throwable cause){
+        super(message, cause);
+    }
 }
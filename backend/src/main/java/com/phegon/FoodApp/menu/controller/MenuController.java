@@ -1,5 +1,6 @@
 package com.phegon.FoodApp.menu.controller;
 
+import com.phegon.FoodApp.menu.dtos.MenuCatalogStatsDTO;
 import com.phegon.FoodApp.menu.dtos.MenuDTO;
 import com.phegon.FoodApp.menu.services.MenuService;
 import com.phegon.FoodApp.response.Response;
@@ -62,4 +63,11 @@ public class MenuController {
         return ResponseEntity.ok(menuService.getMenus(categoryId, search));
     }
 
+
+    @GetMapping("/catalog/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response<MenuCatalogStatsDTO>> getCatalogStats() {
+        return ResponseEntity.ok(menuService.getCatalogStats());
+    }
+
 }
@@ -0,0 +1,32 @@
+package com.phegon.FoodApp.menu.dtos;
+
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class MenuCatalogStatsDTO {
+
+    private long version; // current catalog version, bumped on every committed write
+
+    private long snapshotVersion; // version the in-memory snapshot was built for
+
+    private int size;
+
+    private long hits;
+
+    private long misses;
+
+    private long rebuilds;
+
+    private long lastRebuildMillis;
+
+    private long totalRebuildMillis;
+
+    private int indexedTerms;
+
+    private long searches;
+
+    private long totalSearchMicros;
+}
@@ -12,6 +12,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -31,11 +32,21 @@ public class MenuDTO {
     private BigDecimal price;
     private String imageUrl;
 
+    private Map<String, String> imageVariants; // thumbnail / card / detail -> url, once generated
+
+    private String imageSrcSet; // the variants as an <img srcset>, widest last
+
     @NotNull(message = "Category ID is required")
     private Long categoryId; // needed when adding a menu
 
     private MultipartFile imageFile; // For uploading the image
 
-    private List<ReviewDTO> reviews;
+    private List<ReviewDTO> reviews; // latest reviews only, see nextReviewCursor
+
+    private Long nextReviewCursor; // cursor for GET /api/reviews/menu-item/{menuId} to continue from
+
+    private Double averageRating;
+
+    private Long reviewCount;
 
 }
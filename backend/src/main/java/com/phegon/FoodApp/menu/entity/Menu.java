@@ -31,6 +31,11 @@ public class Menu {
     private BigDecimal price;
     private String imageUrl;
 
+    // resized copies of imageUrl, filled in by MenuImageProcessor after upload; null until then
+    private String thumbnailUrl;
+    private String cardUrl;
+    private String detailUrl;
+
     @ManyToOne
     @JoinColumn(name = "category_id") // Link to the Category entity
     private Category category;
@@ -41,5 +46,34 @@ public class Menu {
     @OneToMany(mappedBy = "menu")
     private List<Review> reviews;
 
+    // Running review aggregates, kept in step with the reviews table by ReviewServiceImpl
+    // and rebuilt from it by RatingAggregateReconciler
+    private Long reviewCount;
+
+    private Long ratingTotal;
+
+    @Convert(converter = RatingHistogramConverter.class)
+    private long[] ratingHistogram; // ratingHistogram[i] = number of reviews rated i + 1
+
+
+    public void addRating(int rating) {
+        if (rating < 1 || rating > RatingHistogramConverter.MAX_RATING) {
+            throw new IllegalArgumentException("Rating must be between 1 and " + RatingHistogramConverter.MAX_RATING);
+        }
+        if (ratingHistogram == null || ratingHistogram.length != RatingHistogramConverter.MAX_RATING) {
+            ratingHistogram = new long[RatingHistogramConverter.MAX_RATING];
+        }
+        ratingHistogram[rating - 1]++;
+        reviewCount = (reviewCount == null ? 0 : reviewCount) + 1;
+        ratingTotal = (ratingTotal == null ? 0 : ratingTotal) + rating;
+    }
+
+    public Double getAverageRating() {
+        if (reviewCount == null || reviewCount == 0 || ratingTotal == null) {
+            return 0.0;
+        }
+        return (double) ratingTotal / reviewCount;
+    }
+
 
 }
@@ -0,0 +1,40 @@
+package com.phegon.FoodApp.menu.entity;
+
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Stores the per-menu rating histogram as a short comma separated column, e.g. "0,0,1,0,0,0,2,0,5,3".
+ */
+@Converter
+public class RatingHistogramConverter implements AttributeConverter<long[], String> {
+
+    public static final int MAX_RATING = 10;
+
+    @Override
+    public String convertToDatabaseColumn(long[] histogram) {
+        if (histogram == null) {
+            return null;
+        }
+        return Arrays.stream(histogram)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+    }
+
+    @Override
+    public long[] convertToEntityAttribute(String column) {
+        if (column == null || column.isBlank()) {
+            return null;
+        }
+        long[] histogram = new long[MAX_RATING];
+        String[] counts = column.split(",");
+        for (int i = 0; i < Math.min(counts.length, MAX_RATING); i++) {
+            histogram[i] = Long.parseLong(counts[i].trim());
+        }
+        return histogram;
+    }
+}
@@ -1,8 +1,27 @@
 package com.phegon.FoodApp.menu.repository;
 
 import com.phegon.FoodApp.menu.entity.Menu;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface MenuRepository extends JpaRepository<Menu, Long>, JpaSpecificationExecutor<Menu> {
+
+    @Query("SELECT m FROM Menu m LEFT JOIN FETCH m.category ORDER BY m.id DESC")
+    List<Menu> findAllForCatalog();
+
+    // row lock so concurrent reviews of the same menu don't lose rating aggregate updates
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM Menu m WHERE m.id = :id")
+    Optional<Menu> findByIdForUpdate(@Param("id") Long id);
+
+    // every bucket URL a menu references: [imageUrl, thumbnailUrl, cardUrl, detailUrl]
+    @Query("SELECT m.imageUrl, m.thumbnailUrl, m.cardUrl, m.detailUrl FROM Menu m")
+    List<Object[]> findAllImageUrls();
 }
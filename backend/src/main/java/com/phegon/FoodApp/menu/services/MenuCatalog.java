@@ -0,0 +1,335 @@
+package com.phegon.FoodApp.menu.services;
+
+
+import com.phegon.FoodApp.menu.dtos.MenuCatalogStatsDTO;
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Immutable, pre-projected snapshot of the menu catalog served by GET /api/menu.
+ *
+ * Every write to menus or categories bumps the catalog version once the surrounding
+ * transaction commits. The next read notices the snapshot is older than the current version
+ * and rebuilds it with a single query; all other reads are served from memory. The DTOs inside
+ * a snapshot are shared between requests and must not be mutated.
+ *
+ * Search goes through a {@link MenuSearchIndex} that is updated per menu by
+ * {@link #menuSaved(Menu)} and {@link #menuDeleted(Long)}, and rebuilt in full only after
+ * {@link #invalidate()}.
+ *
+ * A new review only changes its menu's rating fields; {@link #ratingChanged(Menu)} swaps that one
+ * entry into a copy of the snapshot under the same version instead of rebuilding it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MenuCatalog {
+
+    private final MenuRepository menuRepository;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = Snapshot.empty();
+
+    private volatile MenuSearchIndex searchIndex = new MenuSearchIndex();
+    // a lock rather than a monitor: rebuild holds it across the catalog query, which would pin a
+    // virtual thread to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean searchIndexStale = true; // guarded by lock
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong lastRebuildMillis = new AtomicLong();
+    private final AtomicLong totalRebuildMillis = new AtomicLong();
+    private final LongAdder searches = new LongAdder();
+    private final AtomicLong totalSearchNanos = new AtomicLong();
+
+
+    public List<MenuDTO> findMenus(Long categoryId, String search) {
+
+        Snapshot current = current();
+
+        if (search == null || search.isBlank()) {
+            return categoryId == null
+                    ? current.menus()
+                    : current.menusByCategory().getOrDefault(categoryId, List.of());
+        }
+
+        long start = System.nanoTime();
+
+        // ids come back ranked by relevance; ids the snapshot no longer holds are skipped
+        List<MenuDTO> result = new ArrayList<>();
+        for (Long menuId : searchIndex.search(search)) {
+            MenuDTO menuDTO = current.menusById().get(menuId);
+            if (menuDTO != null && (categoryId == null || categoryId.equals(menuDTO.getCategoryId()))) {
+                result.add(menuDTO);
+            }
+        }
+
+        searches.increment();
+        totalSearchNanos.addAndGet(System.nanoTime() - start);
+
+        return Collections.unmodifiableList(result);
+    }
+
+    public Optional<MenuDTO> findMenu(Long menuId) {
+        return Optional.ofNullable(current().menusById().get(menuId));
+    }
+
+    /**
+     * Records a created or updated menu: its search entry is replaced and the snapshot is
+     * rebuilt on the next read.
+     */
+    public void menuSaved(Menu menu) {
+        Long menuId = menu.getId();
+        String name = menu.getName();
+        String description = menu.getDescription();
+        afterCommit(() -> {
+            lock.lock();
+            try {
+                searchIndex.index(menuId, name, description);
+                version.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Records a menu's new rating aggregates. The menu keeps its search entry and the catalog its
+     * version; only the menu's DTO is replaced.
+     */
+    public void ratingChanged(Menu menu) {
+        Long menuId = menu.getId();
+        Double averageRating = menu.getAverageRating();
+        long reviewCount = menu.getReviewCount() == null ? 0L : menu.getReviewCount();
+        afterCommit(() -> {
+            lock.lock();
+            try {
+                // a rebuild reads the committed aggregates under this lock, so it cannot undo the swap;
+                // the count check keeps a late callback from overwriting a newer review's aggregates
+                Snapshot current = snapshot;
+                MenuDTO cached = current.menusById().get(menuId);
+                if (cached == null || cached.getReviewCount() > reviewCount) return;
+                snapshot = current.replace(withRating(cached, averageRating, reviewCount));
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    public void menuDeleted(Long menuId) {
+        afterCommit(() -> {
+            lock.lock();
+            try {
+                searchIndex.remove(menuId);
+                version.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Drops everything, including the search index. Used for bulk changes such as deleting
+     * a category, which cascades to its menus.
+     */
+    public void invalidate() {
+        afterCommit(() -> {
+            lock.lock();
+            try {
+                searchIndexStale = true;
+                version.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    public MenuCatalogStatsDTO getStats() {
+        Snapshot current = snapshot;
+        return MenuCatalogStatsDTO.builder()
+                .version(version.get())
+                .snapshotVersion(current.version())
+                .size(current.menus().size())
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .rebuilds(rebuilds.get())
+                .lastRebuildMillis(lastRebuildMillis.get())
+                .totalRebuildMillis(totalRebuildMillis.get())
+                .indexedTerms(searchIndex.termCount())
+                .searches(searches.sum())
+                .totalSearchMicros(totalSearchNanos.get() / 1_000)
+                .build();
+    }
+
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current.version() == version.get()) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        return rebuild();
+    }
+
+    private Snapshot rebuild() {
+        lock.lock();
+        try {
+            return rebuildLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Snapshot rebuildLocked() {
+
+        // read the target version before loading, so a write that lands mid-rebuild
+        // leaves the snapshot stale and forces another rebuild on the next read
+        long targetVersion = version.get();
+        if (snapshot.version() == targetVersion) {
+            return snapshot;
+        }
+
+        long start = System.nanoTime();
+
+        List<Menu> menuList = menuRepository.findAllForCatalog();
+
+        List<MenuDTO> menus = new ArrayList<>(menuList.size());
+        Map<Long, MenuDTO> menusById = new HashMap<>();
+        Map<Long, List<MenuDTO>> menusByCategory = new LinkedHashMap<>();
+
+        // a full index rebuild goes into a fresh instance so searches never see it half-built;
+        // incremental updates wait on the lock and land in whichever index is current
+        MenuSearchIndex rebuiltIndex = searchIndexStale ? new MenuSearchIndex() : null;
+
+        for (Menu menu : menuList) {
+            MenuDTO menuDTO = toCatalogDTO(menu);
+            menus.add(menuDTO);
+            menusById.put(menuDTO.getId(), menuDTO);
+            if (rebuiltIndex != null) {
+                rebuiltIndex.index(menu.getId(), menu.getName(), menu.getDescription());
+            }
+            if (menuDTO.getCategoryId() != null) {
+                menusByCategory.computeIfAbsent(menuDTO.getCategoryId(), id -> new ArrayList<>()).add(menuDTO);
+            }
+        }
+
+        menusByCategory.replaceAll((id, list) -> Collections.unmodifiableList(list));
+
+        if (rebuiltIndex != null) {
+            searchIndex = rebuiltIndex;
+            searchIndexStale = false;
+        }
+
+        Snapshot built = new Snapshot(targetVersion,
+                Collections.unmodifiableList(menus),
+                Collections.unmodifiableMap(menusById),
+                Collections.unmodifiableMap(menusByCategory));
+        snapshot = built;
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        rebuilds.incrementAndGet();
+        lastRebuildMillis.set(elapsedMillis);
+        totalRebuildMillis.addAndGet(elapsedMillis);
+
+        log.info("Menu catalog rebuilt: version={}, items={}, took={}ms", targetVersion, menus.size(), elapsedMillis);
+
+        return built;
+    }
+
+    private MenuDTO toCatalogDTO(Menu menu) {
+        MenuDTO menuDTO = new MenuDTO();
+        menuDTO.setId(menu.getId());
+        menuDTO.setName(menu.getName());
+        menuDTO.setDescription(menu.getDescription());
+        menuDTO.setPrice(menu.getPrice());
+        menuDTO.setImageUrl(menu.getImageUrl());
+        MenuImageProcessor.applyVariants(menu, menuDTO);
+        menuDTO.setAverageRating(menu.getAverageRating());
+        menuDTO.setReviewCount(menu.getReviewCount() == null ? 0L : menu.getReviewCount());
+        if (menu.getCategory() != null) {
+            menuDTO.setCategoryId(menu.getCategory().getId());
+        }
+        return menuDTO;
+    }
+
+    private static MenuDTO withRating(MenuDTO cached, Double averageRating, long reviewCount) {
+        MenuDTO menuDTO = new MenuDTO();
+        menuDTO.setId(cached.getId());
+        menuDTO.setName(cached.getName());
+        menuDTO.setDescription(cached.getDescription());
+        menuDTO.setPrice(cached.getPrice());
+        menuDTO.setImageUrl(cached.getImageUrl());
+        menuDTO.setImageVariants(cached.getImageVariants());
+        menuDTO.setImageSrcSet(cached.getImageSrcSet());
+        menuDTO.setCategoryId(cached.getCategoryId());
+        menuDTO.setAverageRating(averageRating);
+        menuDTO.setReviewCount(reviewCount);
+        return menuDTO;
+    }
+
+    // Only publish a change after commit, otherwise a concurrent reader could rebuild
+    // from uncommitted state and stamp it with the new version.
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+
+    private record Snapshot(long version,
+                            List<MenuDTO> menus,
+                            Map<Long, MenuDTO> menusById,
+                            Map<Long, List<MenuDTO>> menusByCategory) {
+
+        // version -1 never matches the counter, so the first read always builds
+        static Snapshot empty() {
+            return new Snapshot(-1, List.of(), Map.of(), Map.of());
+        }
+
+        // a copy with the menu of the same id swapped for the given one, at the same version
+        Snapshot replace(MenuDTO menuDTO) {
+            Long menuId = menuDTO.getId();
+            Map<Long, MenuDTO> byId = new HashMap<>(menusById);
+            byId.put(menuId, menuDTO);
+            Map<Long, List<MenuDTO>> byCategory = new LinkedHashMap<>(menusByCategory);
+            if (menuDTO.getCategoryId() != null) {
+                byCategory.computeIfPresent(menuDTO.getCategoryId(), (id, list) -> replaced(list, menuDTO));
+            }
+            return new Snapshot(version, replaced(menus, menuDTO),
+                    Collections.unmodifiableMap(byId), Collections.unmodifiableMap(byCategory));
+        }
+
+        private static List<MenuDTO> replaced(List<MenuDTO> menus, MenuDTO menuDTO) {
+            List<MenuDTO> copy = new ArrayList<>(menus);
+            copy.replaceAll(menu -> menu.getId().equals(menuDTO.getId()) ? menuDTO : menu);
+            return Collections.unmodifiableList(copy);
+        }
+    }
+}
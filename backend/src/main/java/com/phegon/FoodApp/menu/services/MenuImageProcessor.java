@@ -0,0 +1,315 @@
+package com.phegon.FoodApp.menu.services;
+
+
+import com.phegon.FoodApp.aws.AWSS3Service;
+import com.phegon.FoodApp.aws.S3DeletionQueue;
+import com.phegon.FoodApp.aws.S3Keys;
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the thumbnail / card / detail variants of a menu image.
+ *
+ * The upload is spooled to a temp file on the request thread (a stream copy, not a heap copy)
+ * and the resizing, encoding and S3 uploads run on a small bounded pool once the menu is
+ * committed. When done, the variant URLs are written back to the menu, but only if its image
+ * is still the one the variants were made from; otherwise they are queued for deletion. Until then,
+ * and if the pool is saturated, clients fall back to imageUrl.
+ */
+@Component
+@Slf4j
+public class MenuImageProcessor {
+
+    public static final String THUMBNAIL = "thumbnail";
+    public static final String CARD = "card";
+    public static final String DETAIL = "detail";
+
+    private static final List<Variant> VARIANTS = List.of(
+            new Variant(THUMBNAIL, 160),
+            new Variant(CARD, 480),
+            new Variant(DETAIL, 1024));
+
+    private static final int MAX_VARIANT_WIDTH = 1024;
+    private static final String VARIANT_CONTENT_TYPE = "image/jpeg";
+
+    private final AWSS3Service awss3Service;
+    private final S3DeletionQueue s3DeletionQueue;
+    private final MenuRepository menuRepository;
+    private final MenuCatalog menuCatalog;
+    private final TransactionTemplate transactionTemplate;
+    private final float jpegQuality;
+    private final ThreadPoolExecutor executor;
+
+
+    public MenuImageProcessor(AWSS3Service awss3Service,
+                              S3DeletionQueue s3DeletionQueue,
+                              MenuRepository menuRepository,
+                              MenuCatalog menuCatalog,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${menu.images.workers:2}") int workers,
+                              @Value("${menu.images.queue-capacity:100}") int queueCapacity,
+                              @Value("${menu.images.jpeg-quality:0.8}") float jpegQuality) {
+        this.awss3Service = awss3Service;
+        this.s3DeletionQueue = s3DeletionQueue;
+        this.menuRepository = menuRepository;
+        this.menuCatalog = menuCatalog;
+        this.transactionTemplate = transactionTemplate;
+        this.jpegQuality = jpegQuality;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "menu-images-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedules variant generation for a menu whose image was just uploaded as
+     * "menus/" + imageName. Runs after the surrounding transaction commits.
+     *
+     * @return completes when the variants are stored, skipped or failed (never exceptionally)
+     */
+    public CompletableFuture<Void> generateVariants(Menu menu, String imageName, MultipartFile imageFile) {
+
+        Long menuId = menu.getId();
+        String sourceUrl = menu.getImageUrl();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Path spooled;
+        try {
+            spooled = Files.createTempFile("menu-image-", ".upload");
+            try (InputStream in = imageFile.getInputStream()) {
+                Files.copy(in, spooled, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Could not spool image of menu {}, no variants: {}", menuId, e.getMessage());
+            done.complete(null);
+            return done;
+        }
+
+        Runnable discard = () -> {
+            deleteQuietly(spooled);
+            done.complete(null);
+        };
+
+        afterCommit(() -> {
+            try {
+                executor.execute(() -> {
+                    try {
+                        process(menuId, sourceUrl, imageName, spooled);
+                    } catch (Exception e) {
+                        log.error("Generating image variants for menu {} failed: {}", menuId, e.getMessage());
+                    } finally {
+                        deleteQuietly(spooled);
+                        done.complete(null);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.warn("Image pool saturated, menu {} keeps only its original image", menuId);
+                discard.run();
+            }
+        }, discard);
+        return done;
+    }
+
+    /** S3 keys of the variants a menu currently points at. */
+    public static List<String> variantKeys(Menu menu) {
+        List<String> keys = new ArrayList<>();
+        for (String url : new String[]{menu.getThumbnailUrl(), menu.getCardUrl(), menu.getDetailUrl()}) {
+            String key = S3Keys.fromUrl("menus", url);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    public static void applyVariants(Menu menu, MenuDTO menuDTO) {
+        applyVariants(menu.getThumbnailUrl(), menu.getCardUrl(), menu.getDetailUrl(), menuDTO);
+    }
+
+    public static void applyVariants(String thumbnailUrl, String cardUrl, String detailUrl, MenuDTO menuDTO) {
+        if (thumbnailUrl == null || cardUrl == null || detailUrl == null) {
+            return;
+        }
+        Map<String, String> variants = new LinkedHashMap<>();
+        variants.put(THUMBNAIL, thumbnailUrl);
+        variants.put(CARD, cardUrl);
+        variants.put(DETAIL, detailUrl);
+        menuDTO.setImageVariants(Collections.unmodifiableMap(variants));
+        menuDTO.setImageSrcSet(thumbnailUrl + " 160w, " + cardUrl + " 480w, " + detailUrl + " 1024w");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+
+    private void process(Long menuId, String sourceUrl, String imageName, Path spooled) throws IOException {
+
+        long start = System.nanoTime();
+        BufferedImage source = read(spooled);
+        if (source == null) {
+            log.warn("Image of menu {} is not in a readable format, no variants", menuId);
+            return;
+        }
+
+        String stem = imageName.contains(".") ? imageName.substring(0, imageName.lastIndexOf('.')) : imageName;
+        Map<String, String> urls = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>();
+        try {
+            for (Variant variant : VARIANTS) {
+                byte[] encoded = encodeJpeg(resize(source, variant.width()));
+                String key = "menus/" + stem + "_" + variant.name() + ".jpg";
+                urls.put(variant.name(), awss3Service.uploadBytes(key, encoded, VARIANT_CONTENT_TYPE).toString());
+                keys.add(key);
+            }
+        } catch (RuntimeException e) {
+            s3DeletionQueue.enqueueAll(keys);
+            throw e;
+        }
+
+        Boolean stored = transactionTemplate.execute(status -> menuRepository.findByIdForUpdate(menuId)
+                .filter(menu -> sourceUrl.equals(menu.getImageUrl()))
+                .map(menu -> {
+                    menu.setThumbnailUrl(urls.get(THUMBNAIL));
+                    menu.setCardUrl(urls.get(CARD));
+                    menu.setDetailUrl(urls.get(DETAIL));
+                    menuCatalog.menuSaved(menuRepository.save(menu));
+                    return true;
+                })
+                .orElse(false));
+
+        if (!Boolean.TRUE.equals(stored)) {
+            // the menu was deleted or got a new image while we worked
+            s3DeletionQueue.enqueueAll(keys);
+            log.info("Menu {} changed during image processing, discarded its variants", menuId);
+            return;
+        }
+        log.info("Generated image variants for menu {} in {} ms", menuId,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // decodes with subsampling so a 6000px photo isn't fully expanded in memory just to make a 1024px copy
+    private static BufferedImage read(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, reader.getWidth(0) / (MAX_VARIANT_WIDTH * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // never upscales; draws onto an opaque RGB canvas since JPEG has no alpha
+    private static BufferedImage resize(BufferedImage source, int maxWidth) {
+        int width = Math.min(maxWidth, source.getWidth());
+        int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Could not delete spooled image {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action, Runnable onRollback) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    (status == STATUS_COMMITTED ? action : onRollback).run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+
+    private record Variant(String name, int width) {
+    }
+}
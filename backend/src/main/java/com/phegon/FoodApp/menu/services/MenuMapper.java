@@ -0,0 +1,49 @@
+package com.phegon.FoodApp.menu.services;
+
+
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
+import com.phegon.FoodApp.menu.entity.Menu;
+import org.springframework.stereotype.Component;
+
+/**
+ * Plain field-by-field Menu -> MenuDTO mapping. Reviews are never mapped here (they are paged
+ * through the review feed) and order items are never touched, so mapping a menu loads nothing.
+ */
+@Component
+public class MenuMapper {
+
+    public MenuDTO toDTO(Menu menu) {
+        if (menu == null) {
+            return null;
+        }
+        MenuDTO menuDTO = new MenuDTO();
+        menuDTO.setId(menu.getId());
+        menuDTO.setName(menu.getName());
+        menuDTO.setDescription(menu.getDescription());
+        menuDTO.setPrice(menu.getPrice());
+        menuDTO.setImageUrl(menu.getImageUrl());
+        MenuImageProcessor.applyVariants(menu, menuDTO);
+        menuDTO.setAverageRating(menu.getAverageRating());
+        menuDTO.setReviewCount(menu.getReviewCount() == null ? 0L : menu.getReviewCount());
+        if (menu.getCategory() != null) {
+            menuDTO.setCategoryId(menu.getCategory().getId());
+        }
+        return menuDTO;
+    }
+
+    // shallow copy of a shared catalog entry, safe to decorate per request
+    public MenuDTO copy(MenuDTO source) {
+        MenuDTO menuDTO = new MenuDTO();
+        menuDTO.setId(source.getId());
+        menuDTO.setName(source.getName());
+        menuDTO.setDescription(source.getDescription());
+        menuDTO.setPrice(source.getPrice());
+        menuDTO.setImageUrl(source.getImageUrl());
+        menuDTO.setImageVariants(source.getImageVariants());
+        menuDTO.setImageSrcSet(source.getImageSrcSet());
+        menuDTO.setCategoryId(source.getCategoryId());
+        menuDTO.setAverageRating(source.getAverageRating());
+        menuDTO.setReviewCount(source.getReviewCount());
+        return menuDTO;
+    }
+}
@@ -0,0 +1,283 @@
+package com.phegon.FoodApp.menu.services;
+
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over menu name and description.
+ *
+ * Text is lower-cased, stripped of accents and split into tokens. A query token matches an
+ * indexed term exactly, as a prefix (for search-as-you-type), or within one edit for tokens of
+ * at least {@value #FUZZY_MIN_LENGTH} characters. Typo candidates come from a single-deletion
+ * dictionary, so lookups cost O(token length) map probes instead of a scan over the vocabulary.
+ * Every query token must match; results are ranked by match quality, name matches weigh more
+ * than description matches, and ties fall back to newest id first.
+ */
+public class MenuSearchIndex {
+
+    static final int FUZZY_MIN_LENGTH = 4;
+
+    private static final int NAME_FIELD = 1;
+    private static final int DESCRIPTION_FIELD = 2;
+
+    private static final double EXACT_SCORE = 3.0;
+    private static final double PREFIX_SCORE = 2.0;
+    private static final double FUZZY_SCORE = 1.0;
+    private static final double NAME_BOOST = 2.0;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    // term -> (menu id -> bitmask of the fields the term appears in)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // single-character deletion of a term -> terms producing it
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+    // menu id -> terms currently indexed for it, needed to unindex on update/delete
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+
+    public void index(Long menuId, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(menuId);
+            addInternal(menuId, name, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long menuId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(menuId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of matching menus, best match first. An empty list is returned when the
+     * query has no searchable characters.
+     */
+    public List<Long> search(String query) {
+
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+
+            for (String token : new LinkedHashSet<>(tokens)) {
+                Map<Long, Double> tokenScores = scoreToken(token);
+
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    // every query token has to match, so keep only menus seen for all of them
+                    Map<Long, Double> previous = scores;
+                    scores = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : tokenScores.entrySet()) {
+                        Double score = previous.get(entry.getKey());
+                        if (score != null) {
+                            scores.put(entry.getKey(), score + entry.getValue());
+                        }
+                    }
+                }
+
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())));
+
+            return ranked.stream().map(Map.Entry::getKey).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent transpositions), which
+     * covers the common "pizaz" for "pizza" typo as a single edit.
+     */
+    static int editDistance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+
+    private Map<Long, Double> scoreToken(String token) {
+
+        Map<Long, Double> tokenScores = new HashMap<>();
+
+        // exact match and prefix matches share one range scan: the exact term sorts first
+        for (Map.Entry<String, Map<Long, Integer>> entry
+                : postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            double score = entry.getKey().length() == token.length() ? EXACT_SCORE : PREFIX_SCORE;
+            addPostings(tokenScores, entry.getValue(), score);
+        }
+
+        if (token.length() >= FUZZY_MIN_LENGTH) {
+            for (String candidate : fuzzyCandidates(token)) {
+                if (!candidate.startsWith(token) && editDistance(token, candidate) <= 1) {
+                    addPostings(tokenScores, postings.get(candidate), FUZZY_SCORE);
+                }
+            }
+        }
+
+        return tokenScores;
+    }
+
+    private Set<String> fuzzyCandidates(String token) {
+        Set<String> candidates = new HashSet<>();
+
+        // the token is a deletion of a longer term (a character was left out)
+        candidates.addAll(deletions.getOrDefault(token, Set.of()));
+
+        for (String deletion : deletionsOf(token)) {
+            // a term is a deletion of the token (an extra character was typed)
+            if (postings.containsKey(deletion)) {
+                candidates.add(deletion);
+            }
+            // token and term share a deletion (substitution or transposition)
+            candidates.addAll(deletions.getOrDefault(deletion, Set.of()));
+        }
+        return candidates;
+    }
+
+    private void addPostings(Map<Long, Double> tokenScores, Map<Long, Integer> termPostings, double score) {
+        if (termPostings == null) {
+            return;
+        }
+        for (Map.Entry<Long, Integer> posting : termPostings.entrySet()) {
+            double weighted = (posting.getValue() & NAME_FIELD) != 0 ? score * NAME_BOOST : score;
+            tokenScores.merge(posting.getKey(), weighted, Math::max);
+        }
+    }
+
+    private void addInternal(Long menuId, String name, String description) {
+        Map<String, Integer> fields = new HashMap<>();
+        tokenize(name).forEach(term -> fields.merge(term, NAME_FIELD, (a, b) -> a | b));
+        tokenize(description).forEach(term -> fields.merge(term, DESCRIPTION_FIELD, (a, b) -> a | b));
+
+        for (Map.Entry<String, Integer> field : fields.entrySet()) {
+            String term = field.getKey();
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings == null) {
+                termPostings = new HashMap<>();
+                postings.put(term, termPostings);
+                for (String deletion : fuzzyDeletionsOf(term)) {
+                    deletions.computeIfAbsent(deletion, key -> new HashSet<>()).add(term);
+                }
+            }
+            termPostings.put(menuId, field.getValue());
+        }
+        documentTerms.put(menuId, fields.keySet());
+    }
+
+    private void removeInternal(Long menuId) {
+        Set<String> terms = documentTerms.remove(menuId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            termPostings.remove(menuId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+                for (String deletion : fuzzyDeletionsOf(term)) {
+                    Set<String> sources = deletions.get(deletion);
+                    if (sources != null) {
+                        sources.remove(term);
+                        if (sources.isEmpty()) {
+                            deletions.remove(deletion);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // terms shorter than the fuzzy threshold can only be reached through the token's own deletions
+    private static Set<String> fuzzyDeletionsOf(String term) {
+        return term.length() >= FUZZY_MIN_LENGTH ? deletionsOf(term) : Set.of();
+    }
+
+    private static Set<String> deletionsOf(String term) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i < term.length(); i++) {
+            result.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return result;
+    }
+}
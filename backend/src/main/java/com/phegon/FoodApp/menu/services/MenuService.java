@@ -1,5 +1,6 @@
 package com.phegon.FoodApp.menu.services;
 
+import com.phegon.FoodApp.menu.dtos.MenuCatalogStatsDTO;
 import com.phegon.FoodApp.menu.dtos.MenuDTO;
 import com.phegon.FoodApp.response.Response;
 
@@ -12,5 +13,6 @@ public interface MenuService {
     Response<MenuDTO> getMenuById(Long id);
     Response<?> deleteMenu(Long id);
     Response<List<MenuDTO>> getMenus(Long categoryId, String search);
+    Response<MenuCatalogStatsDTO> getCatalogStats();
 
 }
@@ -2,29 +2,28 @@ package com.phegon.FoodApp.menu.services;
 
 
 import com.phegon.FoodApp.aws.AWSS3Service;
+import com.phegon.FoodApp.aws.S3DeletionQueue;
+import com.phegon.FoodApp.aws.S3Keys;
 import com.phegon.FoodApp.category.entity.Category;
 import com.phegon.FoodApp.category.repository.CategoryRepository;
 import com.phegon.FoodApp.exceptions.BadRequestException;
 import com.phegon.FoodApp.exceptions.NotFoundException;
+import com.phegon.FoodApp.menu.dtos.MenuCatalogStatsDTO;
 import com.phegon.FoodApp.menu.dtos.MenuDTO;
 import com.phegon.FoodApp.menu.entity.Menu;
 import com.phegon.FoodApp.menu.repository.MenuRepository;
 import com.phegon.FoodApp.response.Response;
-import com.phegon.FoodApp.review.dtos.ReviewDTO;
-import jakarta.persistence.criteria.Predicate;
+import com.phegon.FoodApp.review.dtos.ReviewPageDTO;
+import com.phegon.FoodApp.review.services.ReviewService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.event.spi.SaveOrUpdateEvent;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
 
@@ -36,8 +35,14 @@ public class MenuServiceImpl implements MenuService{
 
     private final MenuRepository menuRepository;
     private final CategoryRepository categoryRepository;
-    private final ModelMapper modelMapper;
+    private final MenuMapper menuMapper;
     private final AWSS3Service awss3Service;
+    private final MenuCatalog menuCatalog;
+    private final ReviewService reviewService;
+    private final MenuImageProcessor menuImageProcessor;
+    private final S3DeletionQueue s3DeletionQueue;
+
+    private static final int LATEST_REVIEWS_LIMIT = 10;
 
 
     @Override
@@ -68,11 +73,13 @@ public class MenuServiceImpl implements MenuService{
                 .build();
 
         Menu savedMenu= menuRepository.save(menu);
+        menuCatalog.menuSaved(savedMenu);
+        menuImageProcessor.generateVariants(savedMenu, imageName, imageFile);
 
         return Response.<MenuDTO>builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Menu created successfully")
-                .data(modelMapper.map(savedMenu, MenuDTO.class))
+                .data(menuMapper.toDTO(savedMenu))
                 .build();
 
     }
@@ -91,17 +98,20 @@ public class MenuServiceImpl implements MenuService{
 
         String imageUrl = existingMenu.getImageUrl();
         MultipartFile imageFile = menuDTO.getImageFile();
+        String imageName = null;
+        List<String> replacedKeys = new ArrayList<>();
 
         // Check if a new imageFile was provided
         if (imageFile != null && !imageFile.isEmpty()) {
-            // Delete the old image from S3 if it exists
-            if (imageUrl != null && !imageUrl.isEmpty()) {
-                String keyName = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
-                awss3Service.deleteFile("menus/" + keyName);
-                log.info("Deleted old menu image from s3");
-            }
+            // the old image and its variants are deleted once the new one is saved
+            replacedKeys.add(S3Keys.fromUrl("menus", imageUrl));
+            replacedKeys.addAll(MenuImageProcessor.variantKeys(existingMenu));
+            existingMenu.setThumbnailUrl(null);
+            existingMenu.setCardUrl(null);
+            existingMenu.setDetailUrl(null);
+
             //upload new image
-            String imageName = UUID.randomUUID() + "_" + imageFile.getOriginalFilename();
+            imageName = UUID.randomUUID() + "_" + imageFile.getOriginalFilename();
             URL newImageUrl = awss3Service.uploadFile("menus/" + imageName, imageFile);
             imageUrl = newImageUrl.toString();
         }
@@ -115,11 +125,16 @@ public class MenuServiceImpl implements MenuService{
         existingMenu.setCategory(category);
 
         Menu updatedMenu = menuRepository.save(existingMenu);
+        menuCatalog.menuSaved(updatedMenu);
+        s3DeletionQueue.enqueueAll(replacedKeys);
+        if (imageName != null) {
+            menuImageProcessor.generateVariants(updatedMenu, imageName, imageFile);
+        }
 
         return Response.<MenuDTO>builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Menu  updated successfully")
-                .data(modelMapper.map(updatedMenu, MenuDTO.class))
+                .data(menuMapper.toDTO(updatedMenu))
                 .build();
 
 
@@ -131,15 +146,15 @@ public class MenuServiceImpl implements MenuService{
 
         log.info("Inside getMenuById()");
 
-        Menu menu = menuRepository.findById(id)
+        // catalog entries are shared between requests, so work on a copy
+        MenuDTO menuDTO = menuCatalog.findMenu(id)
+                .map(menuMapper::copy)
                 .orElseThrow(() -> new NotFoundException("Menu not found"));
 
-        MenuDTO menuDTO = modelMapper.map(menu, MenuDTO.class);
-
-        // Sort the reviews by id in descending order
-        if (menuDTO.getReviews() != null) {
-            menuDTO.getReviews().sort(Comparator.comparing(ReviewDTO::getId).reversed());
-        }
+        // only the latest reviews are embedded; the rest are paged through the review feed
+        ReviewPageDTO latestReviews = reviewService.getReviewPage(id, null, LATEST_REVIEWS_LIMIT);
+        menuDTO.setReviews(latestReviews.getReviews());
+        menuDTO.setNextReviewCursor(latestReviews.getNextCursor());
 
         return Response.<MenuDTO>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -156,15 +171,14 @@ public class MenuServiceImpl implements MenuService{
         Menu menuToDelete = menuRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Menu  not found with ID: " + id));
 
-        // Delete the image from S3 if it exists
-        String imageUrl = menuToDelete.getImageUrl();
-        if (imageUrl != null && !imageUrl.isEmpty()) {
-            String keyName = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
-            awss3Service.deleteFile("menus/" + keyName);
-            log.info("Deleted image from S3: menus/" + keyName);
-        }
-
         menuRepository.deleteById(id);
+        menuCatalog.menuDeleted(id);
+
+        // image and variants go once the row is gone
+        List<String> imageKeys = new ArrayList<>(MenuImageProcessor.variantKeys(menuToDelete));
+        imageKeys.add(S3Keys.fromUrl("menus", menuToDelete.getImageUrl()));
+        s3DeletionQueue.enqueueAll(imageKeys);
+
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Menu  deleted successfully")
@@ -176,15 +190,7 @@ public class MenuServiceImpl implements MenuService{
 
         log.info("Inside getMenus()");
 
-        Specification<Menu> spec = buildSpecification(categoryId, search);
-
-        Sort sort = Sort.by(Sort.Direction.DESC, "id");
-
-        List<Menu> menuList = menuRepository.findAll(spec, sort);
-
-        List<MenuDTO> menuDTOS = menuList.stream()
-                .map(menu -> modelMapper.map(menu, MenuDTO.class))
-                .toList();
+        List<MenuDTO> menuDTOS = menuCatalog.findMenus(categoryId, search);
 
         return Response.<List<MenuDTO>>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -194,44 +200,16 @@ public class MenuServiceImpl implements MenuService{
 
     }
 
+    @Override
+    public Response<MenuCatalogStatsDTO> getCatalogStats() {
+
+        log.info("Inside getCatalogStats()");
 
-    private Specification<Menu> buildSpecification(Long categoryId, String search) {
-        return (root, query, cb) -> {
-            // List to accumulate all WHERE conditions
-            List<Predicate> predicates = new ArrayList<>();
-
-            // Add category filter if categoryId is provided
-            if (categoryId != null) {
-                // Creates condition: category.id = providedCategoryId
-                predicates.add(cb.equal(
-                        root.get("category").get("id"), // Navigate to category->id
-                        categoryId                      // Match provided category ID
-                ));
-            }
-
-            // Add search term filter if search text is provided
-            if (search != null && !search.isBlank()) {
-                // Prepare search term with wildcards for partial matching
-                // Converts to lowercase for case-insensitive search
-                String searchTerm = "%" + search.toLowerCase() + "%";
-
-                // Creates OR condition for:
-                // (name LIKE %term% OR description LIKE %term%)
-                predicates.add(cb.or(
-                        cb.like(
-                                cb.lower(root.get("name")), // Convert name to lowercase
-                                searchTerm                 // Match against search term
-                        ),
-                        cb.like(
-                                cb.lower(root.get("description")), // Convert description to lowercase
-                                searchTerm                        // Match against search term
-                        )
-                ));
-            }
-
-            // Combine all conditions with AND logic
-            return cb.and(predicates.toArray(new Predicate[0]));
-        };
+        return Response.<MenuCatalogStatsDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Menu catalog stats retrieved")
+                .data(menuCatalog.getStats())
+                .build();
     }
 }
 
@@ -3,16 +3,18 @@ package com.phegon.FoodApp.order.controller;
 
 import com.phegon.FoodApp.enums.OrderStatus;
 import com.phegon.FoodApp.order.dtos.OrderDTO;
+import com.phegon.FoodApp.order.dtos.OrderHistoryPageDTO;
 import com.phegon.FoodApp.order.dtos.OrderItemDTO;
 import com.phegon.FoodApp.order.services.OrderService;
 import com.phegon.FoodApp.response.Response;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.time.LocalDate;
 
 @RestController
 @RequiredArgsConstructor
@@ -23,8 +25,8 @@ public class OrderController {
 
     @PostMapping("/checkout")
     @PreAuthorize("hasAuthority('CUSTOMER')")
-    public ResponseEntity<Response<?>> checkout(){
-        return ResponseEntity.ok(orderService.placeOrderFromCart());
+    public ResponseEntity<Response<?>> checkout(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey){
+        return ResponseEntity.ok(orderService.placeOrderFromCart(idempotencyKey));
     }
 
     @GetMapping("/{id}")
@@ -34,8 +36,18 @@ public class OrderController {
 
 
     @GetMapping("/me")
-    public ResponseEntity<Response<List<OrderDTO>>> getMyOrders(){
-        return ResponseEntity.ok(orderService.getOrdersOfUser());
+    public ResponseEntity<Response<OrderHistoryPageDTO>> getMyOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) OrderStatus orderStatus,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        return ResponseEntity.ok(orderService.getOrdersOfUser(cursor, size, orderStatus, from, to));
+    }
+
+    @GetMapping("/me/{orderId}")
+    public ResponseEntity<Response<OrderDTO>> getMyOrder(@PathVariable Long orderId){
+        return ResponseEntity.ok(orderService.getOrderOfUser(orderId));
     }
 
     @GetMapping("/order-item/{orderItemId}")
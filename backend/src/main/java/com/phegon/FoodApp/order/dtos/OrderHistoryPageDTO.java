@@ -0,0 +1,30 @@
+package com.phegon.FoodApp.order.dtos;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a customer's orders, newest first. Pass nextCursor back as the cursor
+ * to get the following page; it is null on the last page.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OrderHistoryPageDTO {
+
+    private List<OrderSummaryDTO> orders;
+
+    private String nextCursor;
+
+    private boolean hasMore;
+}
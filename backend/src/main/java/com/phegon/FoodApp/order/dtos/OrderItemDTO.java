@@ -24,4 +24,6 @@ public class OrderItemDTO {
     private BigDecimal pricePerUnit;
 
     private BigDecimal subtotal;
+
+    private Boolean reviewed; // set on the customer's own order detail only
 }
@@ -0,0 +1,38 @@
+package com.phegon.FoodApp.order.dtos;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.phegon.FoodApp.enums.OrderStatus;
+import com.phegon.FoodApp.enums.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One line of a customer's order history. The items are fetched separately, on demand.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OrderSummaryDTO {
+
+    private Long id;
+
+    private LocalDateTime orderDate;
+
+    private BigDecimal totalAmount;
+
+    private OrderStatus orderStatus;
+
+    private PaymentStatus paymentStatus;
+
+    private Integer itemCount;
+}
@@ -0,0 +1,41 @@
+package com.phegon.FoodApp.order.entity;
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A checkout that was completed under a client-supplied idempotency key. Written in the same
+ * transaction as the order, so a key maps to an order exactly when that order was committed.
+ */
+@Entity
+@Data
+@Table(name = "checkout_requests",
+        uniqueConstraints = @UniqueConstraint(name = "uk_checkout_requests_user_key", columnNames = {"user_id", "idempotency_key"}),
+        indexes = @Index(name = "idx_checkout_requests_created_at", columnList = "created_at"))
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutRequest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "checkout_requests_seq")
+    @SequenceGenerator(name = "checkout_requests_seq", sequenceName = "checkout_requests_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+
+    private Long orderId;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
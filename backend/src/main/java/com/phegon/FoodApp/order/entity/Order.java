@@ -18,7 +18,11 @@ import java.util.List;
 
 @Entity
 @Data
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // keyset order history: WHERE user_id = ? [AND order_status = ?] ORDER BY order_date DESC, id DESC
+        @Index(name = "idx_orders_user_date_id", columnList = "user_id, order_date, id"),
+        @Index(name = "idx_orders_user_status_date_id", columnList = "user_id, order_status, order_date, id")
+})
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -26,7 +30,9 @@ public class Order {
 
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled ids instead of IDENTITY, so the order and its items are inserted in JDBC batches at flush
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -49,6 +55,16 @@ public class Order {
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
     private List<OrderItem> orderItems;
 
+    // the payment intent last handed out by POST /api/payments/pay, served again until the amount
+    // changes or it is older than payment.intent.max-age-hours
+    private String paymentIntentId;
+
+    private String paymentIntentClientSecret;
+
+    private BigDecimal paymentIntentAmount;
+
+    private LocalDateTime paymentIntentCreatedAt;
+
 }
 
 
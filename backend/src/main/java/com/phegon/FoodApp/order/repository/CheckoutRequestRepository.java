@@ -0,0 +1,19 @@
+package com.phegon.FoodApp.order.repository;
+
+import com.phegon.FoodApp.order.entity.CheckoutRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface CheckoutRequestRepository extends JpaRepository<CheckoutRequest, Long> {
+
+    Optional<CheckoutRequest> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM CheckoutRequest c WHERE c.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,21 @@
+package com.phegon.FoodApp.order.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * One item of the admin order listing with the columns of its menu the listing shows.
+ */
+public record OrderItemListRow(Long orderId,
+                               Long id,
+                               int quantity,
+                               BigDecimal pricePerUnit,
+                               BigDecimal subtotal,
+                               Long menuId,
+                               String menuName,
+                               BigDecimal menuPrice,
+                               String menuImageUrl,
+                               String menuThumbnailUrl,
+                               String menuCardUrl,
+                               String menuDetailUrl,
+                               Long menuCategoryId) {
+}
@@ -5,6 +5,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
 
@@ -15,4 +18,12 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
             @Param("orderId") Long orderId,
             @Param("menuId") Long menuId);
 
+    // items of a whole page of orders, with the menu columns the listing shows, in one statement
+    @Query("SELECT new com.phegon.FoodApp.order.repository.OrderItemListRow(" +
+            "oi.order.id, oi.id, oi.quantity, oi.pricePerUnit, oi.subtotal, " +
+            "m.id, m.name, m.price, m.imageUrl, m.thumbnailUrl, m.cardUrl, m.detailUrl, c.id) " +
+            "FROM OrderItem oi LEFT JOIN oi.menu m LEFT JOIN m.category c " +
+            "WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<OrderItemListRow> findListRowsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
 }
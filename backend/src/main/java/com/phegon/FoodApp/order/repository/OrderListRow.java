@@ -0,0 +1,23 @@
+package com.phegon.FoodApp.order.repository;
+
+import com.phegon.FoodApp.enums.OrderStatus;
+import com.phegon.FoodApp.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of the admin order listing: the order's own columns plus the customer's contact
+ * details, read in a single joined query.
+ */
+public record OrderListRow(Long id,
+                           LocalDateTime orderDate,
+                           BigDecimal totalAmount,
+                           OrderStatus orderStatus,
+                           PaymentStatus paymentStatus,
+                           Long userId,
+                           String userName,
+                           String userEmail,
+                           String userPhoneNumber,
+                           String userAddress) {
+}
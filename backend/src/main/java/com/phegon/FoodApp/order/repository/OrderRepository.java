@@ -1,20 +1,76 @@
 package com.phegon.FoodApp.order.repository;
 
-import com.phegon.FoodApp.auth_users.entity.User;
 import com.phegon.FoodApp.enums.OrderStatus;
+import com.phegon.FoodApp.order.dtos.OrderSummaryDTO;
 import com.phegon.FoodApp.order.entity.Order;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-    Page<Order> findByOrderStatus(OrderStatus orderStatus, Pageable pageable);
+    // a keyed UPDATE, so recording an intent cannot overwrite a payment status changed meanwhile
+    @Modifying
+    @Transactional
+    @Query("UPDATE Order o SET o.paymentIntentId = :intentId, o.paymentIntentClientSecret = :clientSecret, " +
+            "o.paymentIntentAmount = :amount, o.paymentIntentCreatedAt = :createdAt WHERE o.id = :orderId")
+    int recordPaymentIntent(@Param("orderId") Long orderId,
+                            @Param("intentId") String intentId,
+                            @Param("clientSecret") String clientSecret,
+                            @Param("amount") BigDecimal amount,
+                            @Param("createdAt") LocalDateTime createdAt);
 
-    List<Order> findByUserOrderByOrderDateDesc(User user);
+    // row lock so the webhook worker and PUT /update record a payment's outcome one after the other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT o.id FROM Order o WHERE o.paymentIntentId = :intentId")
+    Optional<Long> findIdByPaymentIntentId(@Param("intentId") String intentId);
+
+    // admin listing: order columns and customer in one statement (plus the page count)
+    @Query(value = "SELECT new com.phegon.FoodApp.order.repository.OrderListRow(" +
+            "o.id, o.orderDate, o.totalAmount, o.orderStatus, o.paymentStatus, " +
+            "u.id, u.name, u.email, u.phoneNumber, u.address) " +
+            "FROM Order o LEFT JOIN o.user u " +
+            "WHERE (:status IS NULL OR o.orderStatus = :status)",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE (:status IS NULL OR o.orderStatus = :status)")
+    Page<OrderListRow> findListRows(@Param("status") OrderStatus status, Pageable pageable);
+
+    // keyset order history on (order_date, id), newest first; the cursor is the last row of the previous page
+    @Query("SELECT new com.phegon.FoodApp.order.dtos.OrderSummaryDTO(" +
+            "o.id, o.orderDate, o.totalAmount, o.orderStatus, o.paymentStatus, SIZE(o.orderItems)) " +
+            "FROM Order o " +
+            "WHERE o.user.id = :userId " +
+            "AND (:status IS NULL OR o.orderStatus = :status) " +
+            "AND (:from IS NULL OR o.orderDate >= :from) " +
+            "AND (:to IS NULL OR o.orderDate < :to) " +
+            "AND (:cursorDate IS NULL OR o.orderDate < :cursorDate " +
+            "     OR (o.orderDate = :cursorDate AND o.id < :cursorId)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummaryDTO> findHistory(@Param("userId") Long userId,
+                                      @Param("status") OrderStatus status,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      @Param("cursorDate") LocalDateTime cursorDate,
+                                      @Param("cursorId") Long cursorId,
+                                      Limit limit);
+
+    @EntityGraph(attributePaths = {"orderItems", "orderItems.menu"})
+    Optional<Order> findWithItemsByIdAndUserId(Long id, Long userId);
 
     @Query("SELECT COUNT(DISTINCT o.user.id) FROM Order o")
     long countDistinctUsers();
@@ -0,0 +1,39 @@
+package com.phegon.FoodApp.order.services;
+
+
+import com.phegon.FoodApp.order.repository.CheckoutRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Forgets checkout idempotency keys once clients can no longer be retrying them.
+ */
+@Component
+@Slf4j
+public class CheckoutRequestPurger {
+
+    private final CheckoutRequestRepository checkoutRequestRepository;
+    private final long retentionHours;
+
+
+    public CheckoutRequestPurger(CheckoutRequestRepository checkoutRequestRepository,
+                                 @Value("${checkout.idempotency.retention-hours:24}") long retentionHours) {
+        this.checkoutRequestRepository = checkoutRequestRepository;
+        this.retentionHours = retentionHours;
+    }
+
+    @Scheduled(cron = "${checkout.idempotency.purge-cron:0 15 * * * *}")
+    @Transactional
+    public int purge() {
+        int purged = checkoutRequestRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (purged > 0) {
+            log.info("Purged {} checkout idempotency keys older than {} h", purged, retentionHours);
+        }
+        return purged;
+    }
+}
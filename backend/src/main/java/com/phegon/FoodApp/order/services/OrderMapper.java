@@ -0,0 +1,108 @@
+package com.phegon.FoodApp.order.services;
+
+
+import com.phegon.FoodApp.auth_users.services.UserMapper;
+import com.phegon.FoodApp.auth_users.dtos.UserDTO;
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
+import com.phegon.FoodApp.menu.services.MenuImageProcessor;
+import com.phegon.FoodApp.menu.services.MenuMapper;
+import com.phegon.FoodApp.order.dtos.OrderDTO;
+import com.phegon.FoodApp.order.dtos.OrderItemDTO;
+import com.phegon.FoodApp.order.entity.Order;
+import com.phegon.FoodApp.order.entity.OrderItem;
+import com.phegon.FoodApp.order.repository.OrderItemListRow;
+import com.phegon.FoodApp.order.repository.OrderListRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain field-by-field Order -> OrderDTO mapping with explicit depth: items and their menus are
+ * always included, the customer only when asked for (without roles), the payment never.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderMapper {
+
+    private final UserMapper userMapper;
+    private final MenuMapper menuMapper;
+
+    public OrderDTO toDTO(Order order, boolean withUser) {
+        if (order == null) {
+            return null;
+        }
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setId(order.getId());
+        orderDTO.setOrderDate(order.getOrderDate());
+        orderDTO.setTotalAmount(order.getTotalAmount());
+        orderDTO.setOrderStatus(order.getOrderStatus());
+        orderDTO.setPaymentStatus(order.getPaymentStatus());
+        if (withUser) {
+            orderDTO.setUser(userMapper.toDTO(order.getUser(), false));
+        }
+        List<OrderItemDTO> items = new ArrayList<>();
+        if (order.getOrderItems() != null) {
+            for (OrderItem orderItem : order.getOrderItems()) {
+                items.add(toDTO(orderItem));
+            }
+        }
+        orderDTO.setOrderItems(items);
+        return orderDTO;
+    }
+
+    // admin listing rows, see OrderRepository.findListRows
+    public OrderDTO toDTO(OrderListRow row, List<OrderItemListRow> itemRows) {
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setId(row.id());
+        orderDTO.setOrderDate(row.orderDate());
+        orderDTO.setTotalAmount(row.totalAmount());
+        orderDTO.setOrderStatus(row.orderStatus());
+        orderDTO.setPaymentStatus(row.paymentStatus());
+        if (row.userId() != null) {
+            UserDTO userDTO = new UserDTO();
+            userDTO.setId(row.userId());
+            userDTO.setName(row.userName());
+            userDTO.setEmail(row.userEmail());
+            userDTO.setPhoneNumber(row.userPhoneNumber());
+            userDTO.setAddress(row.userAddress());
+            orderDTO.setUser(userDTO);
+        }
+        List<OrderItemDTO> items = new ArrayList<>(itemRows.size());
+        for (OrderItemListRow itemRow : itemRows) {
+            OrderItemDTO orderItemDTO = new OrderItemDTO();
+            orderItemDTO.setId(itemRow.id());
+            orderItemDTO.setQuantity(itemRow.quantity());
+            orderItemDTO.setPricePerUnit(itemRow.pricePerUnit());
+            orderItemDTO.setSubtotal(itemRow.subtotal());
+            if (itemRow.menuId() != null) {
+                MenuDTO menuDTO = new MenuDTO();
+                menuDTO.setId(itemRow.menuId());
+                menuDTO.setName(itemRow.menuName());
+                menuDTO.setPrice(itemRow.menuPrice());
+                menuDTO.setImageUrl(itemRow.menuImageUrl());
+                menuDTO.setCategoryId(itemRow.menuCategoryId());
+                MenuImageProcessor.applyVariants(itemRow.menuThumbnailUrl(), itemRow.menuCardUrl(), itemRow.menuDetailUrl(), menuDTO);
+                orderItemDTO.setMenuId(itemRow.menuId());
+                orderItemDTO.setMenu(menuDTO);
+            }
+            items.add(orderItemDTO);
+        }
+        orderDTO.setOrderItems(items);
+        return orderDTO;
+    }
+
+    public OrderItemDTO toDTO(OrderItem orderItem) {
+        OrderItemDTO orderItemDTO = new OrderItemDTO();
+        orderItemDTO.setId(orderItem.getId());
+        orderItemDTO.setQuantity(orderItem.getQuantity());
+        orderItemDTO.setPricePerUnit(orderItem.getPricePerUnit());
+        orderItemDTO.setSubtotal(orderItem.getSubtotal());
+        if (orderItem.getMenu() != null) {
+            orderItemDTO.setMenuId(orderItem.getMenu().getId());
+            orderItemDTO.setMenu(menuMapper.toDTO(orderItem.getMenu()));
+        }
+        return orderItemDTO;
+    }
+}
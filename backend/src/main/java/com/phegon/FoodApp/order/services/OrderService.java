@@ -2,18 +2,20 @@ package com.phegon.FoodApp.order.services;
 
 import com.phegon.FoodApp.enums.OrderStatus;
 import com.phegon.FoodApp.order.dtos.OrderDTO;
+import com.phegon.FoodApp.order.dtos.OrderHistoryPageDTO;
 import com.phegon.FoodApp.order.dtos.OrderItemDTO;
 import com.phegon.FoodApp.response.Response;
 import org.springframework.data.domain.Page;
 
-import java.util.List;
+import java.time.LocalDate;
 
 public interface OrderService {
 
-    Response<?> placeOrderFromCart();
+    Response<?> placeOrderFromCart(String idempotencyKey);
     Response<OrderDTO> getOrderById(Long id);
     Response<Page<OrderDTO>> getAllOrders(OrderStatus orderStatus, int page, int size);
-    Response<List<OrderDTO>> getOrdersOfUser();
+    Response<OrderHistoryPageDTO> getOrdersOfUser(String cursor, int size, OrderStatus orderStatus, LocalDate from, LocalDate to);
+    Response<OrderDTO> getOrderOfUser(Long orderId);
     Response<OrderItemDTO> getOrderItemById(Long orderItemId);
     Response<OrderDTO> updateOrderStatus(OrderDTO orderDTO);
     Response<Long> countUniqueCustomers();
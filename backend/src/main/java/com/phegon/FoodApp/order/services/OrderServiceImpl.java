@@ -6,39 +6,53 @@ import com.phegon.FoodApp.cart.entity.Cart;
 import com.phegon.FoodApp.cart.entity.CartItem;
 import com.phegon.FoodApp.cart.repository.CartRepository;
 import com.phegon.FoodApp.cart.services.CartService;
+import com.phegon.FoodApp.cart.services.CartStore;
 import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
 import com.phegon.FoodApp.email_notification.services.NotificationService;
 import com.phegon.FoodApp.enums.OrderStatus;
 import com.phegon.FoodApp.enums.PaymentStatus;
 import com.phegon.FoodApp.exceptions.BadRequestException;
 import com.phegon.FoodApp.exceptions.NotFoundException;
-import com.phegon.FoodApp.menu.dtos.MenuDTO;
 import com.phegon.FoodApp.order.dtos.OrderDTO;
+import com.phegon.FoodApp.order.dtos.OrderHistoryPageDTO;
 import com.phegon.FoodApp.order.dtos.OrderItemDTO;
+import com.phegon.FoodApp.order.dtos.OrderSummaryDTO;
+import com.phegon.FoodApp.order.entity.CheckoutRequest;
 import com.phegon.FoodApp.order.entity.Order;
 import com.phegon.FoodApp.order.entity.OrderItem;
+import com.phegon.FoodApp.order.repository.CheckoutRequestRepository;
+import com.phegon.FoodApp.order.repository.OrderItemListRow;
 import com.phegon.FoodApp.order.repository.OrderItemRepository;
+import com.phegon.FoodApp.order.repository.OrderListRow;
 import com.phegon.FoodApp.order.repository.OrderRepository;
 import com.phegon.FoodApp.response.Response;
+import com.phegon.FoodApp.review.repository.ReviewRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -50,26 +64,92 @@ public class OrderServiceImpl  implements OrderService{
     private final OrderItemRepository orderItemRepository;
     private final UserService userService;
     private final NotificationService notificationService;
-    private final ModelMapper modelMapper;
-    private final TemplateEngine templateEngine;
+    private final OrderMapper orderMapper;
     private final CartService cartService;
     private final CartRepository cartRepository;
+    private final CartStore cartStore;
+    private final ReviewRepository reviewRepository;
+    private final CheckoutRequestRepository checkoutRequestRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 50;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
 
 
     @Value("${base.payment.link}")
     private String basePaymentLink;
 
 
-    @Transactional
     @Override
-    public Response<?> placeOrderFromCart() {
+    public Response<?> placeOrderFromCart(String idempotencyKey) {
 
         log.info("Inside placeOrderFromCart()");
 
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new BadRequestException("Idempotency-Key must be between 1 and " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+
         User customer = userService.getCurrentLoggedInUser();
 
         log.info("user passed");
 
+        if (idempotencyKey != null) {
+            Optional<CheckoutRequest> completed = checkoutRequestRepository
+                    .findByUserIdAndIdempotencyKey(customer.getId(), idempotencyKey);
+            if (completed.isPresent()) {
+                return replayCheckout(completed.get());
+            }
+        }
+
+        AtomicReference<CheckoutRequest> replayed = new AtomicReference<>();
+        try {
+            // the cart is flushed first and stays held until the order has committed or rolled back
+            cartStore.checkout(customer.getId(), () -> {
+                // a request with the same key that held the cart before us has committed by now
+                if (idempotencyKey != null) {
+                    checkoutRequestRepository.findByUserIdAndIdempotencyKey(customer.getId(), idempotencyKey)
+                            .ifPresent(replayed::set);
+                }
+                if (replayed.get() == null) {
+                    transactionTemplate.executeWithoutResult(status -> checkout(customer, idempotencyKey));
+                }
+            });
+        } catch (ObjectOptimisticLockingFailureException | DataIntegrityViolationException e) {
+            // another checkout of this cart, or a retry with the same key, committed first
+            if (idempotencyKey != null) {
+                Optional<CheckoutRequest> winner = checkoutRequestRepository
+                        .findByUserIdAndIdempotencyKey(customer.getId(), idempotencyKey);
+                if (winner.isPresent()) {
+                    return replayCheckout(winner.get());
+                }
+            }
+            log.info("Concurrent checkout of the cart of user {} lost the race: {}", customer.getId(), e.getMessage());
+            throw new BadRequestException("Your cart is already being checked out");
+        }
+        if (replayed.get() != null) {
+            return replayCheckout(replayed.get());
+        }
+
+        log.info("building response to send");
+
+        return checkoutResponse();
+    }
+
+    private Response<?> replayCheckout(CheckoutRequest completed) {
+        log.info("Replaying checkout {} of user {} (order {})",
+                completed.getIdempotencyKey(), completed.getUserId(), completed.getOrderId());
+        return checkoutResponse();
+    }
+
+    private static Response<?> checkoutResponse() {
+        return Response.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Your order has been received! We've sent a secure payment link to your email. Please proceed for payment to confirm your order.")
+                .build();
+    }
+
+    private void checkout(User customer, String idempotencyKey) {
+
         String deliveryAddress = customer.getAddress();
 
         log.info("deliveryAddress passed");
@@ -77,7 +157,7 @@ public class OrderServiceImpl  implements OrderService{
         if (deliveryAddress == null) {
             throw new NotFoundException("Delivery Address Not present for the user");
         }
-        Cart cart = cartRepository.findByUser_Id(customer.getId())
+        Cart cart = cartRepository.findForCheckoutByUserId(customer.getId())
                 .orElseThrow(()-> new NotFoundException("Cart not found for the user" ));
 
 
@@ -91,71 +171,58 @@ public class OrderServiceImpl  implements OrderService{
 
         List<OrderItem> orderItems = new ArrayList<>();
 
-        BigDecimal totalAmount = BigDecimal.ZERO;
-
-
-        log.info("totalAmount passed");
+        Order order = Order.builder()
+                .user(customer)
+                .orderItems(orderItems)
+                .orderDate(LocalDateTime.now())
+                .orderStatus(OrderStatus.INITIALIZED)
+                .paymentStatus(PaymentStatus.PENDING)
+                .build();
 
         for (CartItem cartItem: cartItems){
 
             OrderItem orderItem = OrderItem.builder()
+                    .order(order)
                     .menu(cartItem.getMenu())
                     .quantity(cartItem.getQuantity())
                     .pricePerUnit(cartItem.getPricePerUnit())
                     .subtotal(cartItem.getSubtotal())
                     .build();
             orderItems.add(orderItem);
-            totalAmount = totalAmount.add(orderItem.getSubtotal());
         }
 
-        log.info("orderItem adding passed");
-
-        Order order = Order.builder()
-                .user(customer)
-                .orderItems(orderItems)
-                .orderDate(LocalDateTime.now())
-                .totalAmount(totalAmount)
-                .orderStatus(OrderStatus.INITIALIZED)
-                .paymentStatus(PaymentStatus.PENDING)
-                .build();
-
+        // the cart's running total; CartStore flushed it with the lines just before this transaction
+        order.setTotalAmount(cart.getTotalAmount());
 
         log.info("order build passed");
 
+        // cascades to the items; with pooled ids nothing is inserted until the flush, which batches the item INSERTs
         Order savedOrder = orderRepository.save(order); //save order
 
 
         log.info("order saved passed");
 
-        orderItems.forEach(orderItem -> orderItem.setOrder(savedOrder));
-
-        orderItemRepository.saveAll(orderItems); //save order item
-
-
-        log.info("order items saved");
-
         // Clear the user's cart after the order is placed
         cartService.clearShoppingCart();
 
         log.info("shopping cart cleared");
 
-        OrderDTO orderDTO = modelMapper.map(savedOrder, OrderDTO.class);
+        OrderDTO orderDTO = orderMapper.toDTO(savedOrder, true);
 
 
-        log.info("model mappern mapped savedOrder to OrderDTO");
+        log.info("mapped savedOrder to OrderDTO");
 
         // Send email notifications
         sendOrderConfirmationEmail(customer, orderDTO);
 
-
-        log.info("building response to send");
-
-
-        return Response.builder()
-                .statusCode(HttpStatus.OK.value())
-                .message("Your order has been received! We've sent a secure payment link to your email. Please proceed for payment to confirm your order.")
-                .build();
-
+        if (idempotencyKey != null) {
+            checkoutRequestRepository.save(CheckoutRequest.builder()
+                    .userId(customer.getId())
+                    .idempotencyKey(idempotencyKey)
+                    .orderId(savedOrder.getId())
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        }
     }
 
     @Override
@@ -165,7 +232,7 @@ public class OrderServiceImpl  implements OrderService{
         Order order = orderRepository.findById(id)
                 .orElseThrow(()-> new NotFoundException("Order Not Found"));
 
-        OrderDTO orderDTO = modelMapper.map(order, OrderDTO.class);
+        OrderDTO orderDTO = orderMapper.toDTO(order, true);
 
         return Response.<OrderDTO>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -180,19 +247,18 @@ public class OrderServiceImpl  implements OrderService{
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id"));
 
-        Page<Order> orderPage;
+        // a constant number of statements per page: the order rows (with customer), their items
+        // (with menu columns) and the count; no entity graph is loaded
+        Page<OrderListRow> orderPage = orderRepository.findListRows(orderStatus, pageable);
 
-        if (orderStatus != null){
-            orderPage = orderRepository.findByOrderStatus(orderStatus, pageable);
-        }else {
-            orderPage = orderRepository.findAll(pageable);
-        }
+        List<Long> orderIds = orderPage.map(OrderListRow::id).getContent();
+        Map<Long, List<OrderItemListRow>> itemsByOrder = orderIds.isEmpty()
+                ? Map.of()
+                : orderItemRepository.findListRowsByOrderIds(orderIds).stream()
+                        .collect(Collectors.groupingBy(OrderItemListRow::orderId));
 
-        Page<OrderDTO> orderDTOPage  = orderPage.map(order -> {
-            OrderDTO dto = modelMapper.map(order, OrderDTO.class);
-            dto.getOrderItems().forEach(orderItemDTO -> orderItemDTO.getMenu().setReviews(null));
-            return dto;
-        });
+        Page<OrderDTO> orderDTOPage  = orderPage.map(row ->
+                orderMapper.toDTO(row, itemsByOrder.getOrDefault(row.id(), List.of())));
 
 
         return Response.<Page<OrderDTO>>builder()
@@ -204,30 +270,77 @@ public class OrderServiceImpl  implements OrderService{
     }
 
     @Override
-    public Response<List<OrderDTO>> getOrdersOfUser() {
+    public Response<OrderHistoryPageDTO> getOrdersOfUser(String cursor, int size, OrderStatus orderStatus,
+                                                         LocalDate from, LocalDate to) {
         log.info("Inside getOrdersOfUser()");
 
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+
+        LocalDateTime cursorDate = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                cursorDate = LocalDateTime.parse(cursor.substring(0, separator));
+                cursorId = Long.parseLong(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
+
         User customer = userService.getCurrentLoggedInUser();
-        List<Order> orders = orderRepository.findByUserOrderByOrderDateDesc(customer);
 
-        List<OrderDTO> orderDTOS = orders.stream()
-                .map(order -> modelMapper.map(order, OrderDTO.class))
-                .toList();
+        // fetch one extra row to learn whether another page exists without a COUNT query
+        List<OrderSummaryDTO> orders = orderRepository.findHistory(customer.getId(), orderStatus,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                cursorDate, cursorId, Limit.of(size + 1));
 
-        orderDTOS.forEach(orderItem -> {
-            orderItem.setUser(null);
-            orderItem.getOrderItems().forEach(item-> item.getMenu().setReviews(null));
-        });
+        boolean hasMore = orders.size() > size;
+        if (hasMore) {
+            orders = orders.subList(0, size);
+        }
+        OrderSummaryDTO last = hasMore ? orders.get(orders.size() - 1) : null;
 
+        OrderHistoryPageDTO historyPage = OrderHistoryPageDTO.builder()
+                .orders(orders)
+                .nextCursor(last != null ? last.getOrderDate() + "_" + last.getId() : null)
+                .hasMore(hasMore)
+                .build();
 
-        return Response.<List<OrderDTO>>builder()
+        return Response.<OrderHistoryPageDTO>builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Orders for user retrieved successfully")
-                .data(orderDTOS)
+                .data(historyPage)
                 .build();
 
     }
 
+    @Override
+    public Response<OrderDTO> getOrderOfUser(Long orderId) {
+        log.info("Inside getOrderOfUser()");
+
+        User customer = userService.getCurrentLoggedInUser();
+        Order order = orderRepository.findWithItemsByIdAndUserId(orderId, customer.getId())
+                .orElseThrow(() -> new NotFoundException("Order Not Found"));
+
+        OrderDTO orderDTO = orderMapper.toDTO(order, false);
+
+        Set<Long> reviewedMenuIds = new HashSet<>(reviewRepository.findReviewedMenuIds(customer.getId(), orderId));
+        orderDTO.getOrderItems().forEach(item -> item.setReviewed(reviewedMenuIds.contains(item.getMenuId())));
+
+        return Response.<OrderDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Order retrieved successfully")
+                .data(orderDTO)
+                .build();
+    }
+
     @Override
     public Response<OrderItemDTO> getOrderItemById(Long orderItemId) {
 
@@ -237,9 +350,7 @@ public class OrderServiceImpl  implements OrderService{
                 .orElseThrow(()-> new NotFoundException("Order Item Not Found"));
 
 
-        OrderItemDTO orderItemDTO = modelMapper.map(orderItem, OrderItemDTO.class);
-
-        orderItemDTO.setMenu(modelMapper.map(orderItem.getMenu(), MenuDTO.class));
+        OrderItemDTO orderItemDTO = orderMapper.toDTO(orderItem);
 
 
         return Response.<OrderItemDTO>builder()
@@ -287,59 +398,47 @@ public class OrderServiceImpl  implements OrderService{
 
         String subject =  "Your Order Confirmation - Order #" + orderDTO.getId();
 
-        //create a Thymeleaf contex and set variables. import the context from Thymeleaf
-        Context context = new Context(Locale.getDefault());
+        // the template is rendered by the outbox dispatcher, so only plain values are collected here
+        Map<String, Object> variables = new HashMap<>();
 
-        context.setVariable("customerName", customer.getName());
-        context.setVariable("orderId", String.valueOf(orderDTO.getId()));
-        context.setVariable("orderDate", orderDTO.getOrderDate().toString());
-        context.setVariable("totalAmount", orderDTO.getTotalAmount().toString());
+        variables.put("customerName", customer.getName());
+        variables.put("orderId", String.valueOf(orderDTO.getId()));
+        variables.put("orderDate", orderDTO.getOrderDate().toString());
+        variables.put("totalAmount", orderDTO.getTotalAmount().toString());
 
         // Format delivery address
         String deliveryAddress = orderDTO.getUser().getAddress();
-        context.setVariable("deliveryAddress", deliveryAddress);
+        variables.put("deliveryAddress", deliveryAddress);
 
-        context.setVariable("currentYear", java.time.Year.now());
+        variables.put("currentYear", java.time.Year.now().getValue());
 
-        // Build the order items HTML using StringBuilder
-        StringBuilder orderItemsHtml = new StringBuilder();
+        // rows are laid out by the template's th:each; plain values only so they survive the outbox's JSON
+        List<Map<String, Object>> orderItems = new ArrayList<>();
 
         for (OrderItemDTO item : orderDTO.getOrderItems()) {
-            orderItemsHtml.append("<div class=\"order-item\">")
-                    .append("<p>").append(item.getMenu().getName()).append(" x ").append(item.getQuantity()).append("</p>")
-                    .append("<p> $ ").append(item.getSubtotal()).append("</p>")
-                    .append("</div>");
+            Map<String, Object> row = new HashMap<>();
+            row.put("name", item.getMenu().getName());
+            row.put("quantity", item.getQuantity());
+            row.put("subtotal", String.valueOf(item.getSubtotal()));
+            orderItems.add(row);
         }
 
-            context.setVariable("orderItemsHtml", orderItemsHtml.toString());
-            context.setVariable("totalItems", orderDTO.getOrderItems().size());
+            variables.put("orderItems", orderItems);
+            variables.put("totalItems", orderDTO.getOrderItems().size());
 
 
             String paymentLink = basePaymentLink + orderDTO.getId() + "&amount=" + orderDTO.getTotalAmount(); // Replace "yourdomain.com"
-            context.setVariable("paymentLink", paymentLink);
+            variables.put("paymentLink", paymentLink);
 
-            // Process the Thymeleaf template to generate the HTML email body
-            String emailBody = templateEngine.process("order-confirmation", context);  // "order-confirmation" is the template name
-
-            notificationService.sendEmail(NotificationDTO.builder()
+            // Written to the email outbox in the order's transaction; sent after commit by EmailOutboxDispatcher
+            notificationService.queueEmail(NotificationDTO.builder()
                     .recipient(customer.getEmail())
                     .subject(subject)
-                    .body(emailBody)
+                    .template("order-confirmation")
+                    .templateVariables(variables)
                     .isHtml(true)
                     .build());
 
         }
 
 }
-
-
-
-
-
-
-
-
-
-
-
-
@@ -1,15 +1,26 @@
 package com.phegon.FoodApp.payment.controller;
 
 
+import com.phegon.FoodApp.enums.PaymentGateway;
+import com.phegon.FoodApp.enums.PaymentStatus;
 import com.phegon.FoodApp.payment.dtos.PaymentDTO;
+import com.phegon.FoodApp.payment.dtos.PaymentGatewayStatsDTO;
+import com.phegon.FoodApp.payment.dtos.PaymentLedgerPageDTO;
 import com.phegon.FoodApp.payment.services.PaymentService;
+import com.phegon.FoodApp.payment.services.PaymentWebhookService;
 import com.phegon.FoodApp.response.Response;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,6 +29,7 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentWebhookService paymentWebhookService;
 
     @PostMapping("/pay")
     public ResponseEntity<Response<?>> initializePayment(@RequestBody @Valid PaymentDTO paymentRequest){
@@ -29,10 +41,49 @@ public class PaymentController {
         paymentService.updatePaymentForOrder(paymentRequest);
     }
 
+    // called by Stripe, authenticated by the Stripe-Signature header rather than a JWT
+    @PostMapping("/webhook")
+    public ResponseEntity<Response<?>> receiveWebhook(@RequestBody String payload,
+                                                      @RequestHeader(value = "Stripe-Signature", required = false) String signature){
+        return ResponseEntity.ok(paymentWebhookService.receiveEvent(payload, signature));
+    }
+
     @GetMapping("/all")
     @PreAuthorize("hasAuthority('ADMIN')")
-    public ResponseEntity<Response<List<PaymentDTO>>> getAllPayments(){
-        return ResponseEntity.ok(paymentService.getAllPayments());
+    public ResponseEntity<Response<PaymentLedgerPageDTO>> getAllPayments(
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) PaymentGateway gateway,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "50") int size){
+        return ResponseEntity.ok(paymentService.getAllPayments(status, gateway, from, to, cursor, size));
+    }
+
+    // the same filters as /all, the whole ledger as CSV written while it is read
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public void exportPayments(
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) PaymentGateway gateway,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletResponse response) throws IOException {
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payments.csv\"");
+        paymentService.exportPayments(status, gateway, from, to, response.getOutputStream());
+    }
+
+    @GetMapping("/revenue")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response<List<BigDecimal>>> getMonthlyRevenue(@RequestParam int year){
+        return ResponseEntity.ok(paymentService.getMonthlyRevenue(year));
+    }
+
+    @GetMapping("/gateway/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response<PaymentGatewayStatsDTO>> getGatewayStats(){
+        return ResponseEntity.ok(paymentService.getGatewayStats());
     }
 
     @GetMapping("/{paymentId}")
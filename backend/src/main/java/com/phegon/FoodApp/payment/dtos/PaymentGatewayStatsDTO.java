@@ -0,0 +1,42 @@
+package com.phegon.FoodApp.payment.dtos;
+
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class PaymentGatewayStatsDTO {
+
+    private String backend;
+
+    private String circuitState; // CLOSED, OPEN or HALF_OPEN
+
+    private int inFlight;
+
+    private int maxConcurrentCalls;
+
+    private long calls; // admitted calls, each of which may take several attempts
+
+    private long attempts;
+
+    private long retries;
+
+    private long failures;
+
+    private long timedOut; // callers that stopped waiting
+
+    private long rejected; // turned away by the bulkhead
+
+    private long shortCircuited; // turned away by the open circuit
+
+    private long meanMillis; // per attempt
+
+    private long p50Millis;
+
+    private long p99Millis;
+
+    private Map<String, Long> latencyBuckets;
+}
@@ -0,0 +1,32 @@
+package com.phegon.FoodApp.payment.dtos;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of the payment ledger, newest first. Pass nextCursor back as the cursor to get the
+ * following page; it is null on the last page. The summary comes with the first page only.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PaymentLedgerPageDTO {
+
+    private List<PaymentDTO> payments;
+
+    private Long nextCursor;
+
+    private boolean hasMore;
+
+    private PaymentLedgerSummaryDTO summary;
+}
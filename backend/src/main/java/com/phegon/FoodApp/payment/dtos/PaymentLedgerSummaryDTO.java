@@ -0,0 +1,29 @@
+package com.phegon.FoodApp.payment.dtos;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Totals over every payment matching the ledger's filters, not just the page shown.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PaymentLedgerSummaryDTO {
+
+    private Long payments;
+
+    private Long completedPayments;
+
+    private BigDecimal revenue; // sum of the completed payments
+}
@@ -0,0 +1,71 @@
+package com.phegon.FoodApp.payment.entity;
+
+
+import com.phegon.FoodApp.enums.WebhookEventStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A Stripe webhook event in the payment inbox. Rows are written as soon as the signature checks
+ * out and drained by PaymentWebhookDispatcher; the unique event id turns Stripe's redeliveries
+ * into no-ops.
+ */
+@Entity
+@Data
+@Table(name = "payment_webhook_events",
+        uniqueConstraints = @UniqueConstraint(name = "uk_payment_webhook_events_event_id", columnNames = "event_id"),
+        indexes = {
+                @Index(name = "idx_payment_webhook_events_status_next_attempt", columnList = "status, next_attempt_at"),
+                @Index(name = "idx_payment_webhook_events_intent_status", columnList = "payment_intent_id, status")
+        })
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_webhook_event_seq")
+    @SequenceGenerator(name = "payment_webhook_event_seq", sequenceName = "payment_webhook_event_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false)
+    private String eventId;
+
+    private String type;
+
+    @Column(name = "payment_intent_id")
+    private String paymentIntentId;
+
+    private Long orderId; // from the intent's metadata, null for intents created without it
+
+    private BigDecimal amount;
+
+    @Column(length = 1000)
+    private String failureReason;
+
+    @Lob
+    private String payload; // the event as Stripe signed it
+
+    @Enumerated(EnumType.STRING)
+    private WebhookEventStatus status;
+
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime eventCreatedAt; // Stripe's clock, the order events are applied in
+
+    private LocalDateTime receivedAt;
+
+    private LocalDateTime processedAt;
+}
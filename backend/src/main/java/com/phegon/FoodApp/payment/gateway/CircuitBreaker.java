@@ -0,0 +1,106 @@
+package com.phegon.FoodApp.payment.gateway;
+
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count based circuit breaker over the outcomes of the last {@code window} calls.
+ * <p>
+ * Opens once at least {@code minCalls} outcomes are recorded and the failure share reaches
+ * {@code failureRate}. While open every call is refused; after {@code openFor} a single trial
+ * call is let through (half-open), which closes the breaker on success and reopens it on failure.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean[] failed; // ring buffer of the last outcomes
+    private final double failureRate;
+    private final int minCalls;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private int next;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+
+    public CircuitBreaker(int window, double failureRate, int minCalls, Duration openFor, LongSupplier nanoClock) {
+        this.failed = new boolean[window];
+        this.failureRate = failureRate;
+        this.minCalls = Math.min(minCalls, window);
+        this.openNanos = openFor.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns false if the call must not be made. A true answer must be followed by
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) return false;
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) return false;
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minCalls && failures >= failureRate * recorded) {
+            open();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+
+    private void record(boolean failure) {
+        if (recorded == failed.length) {
+            if (failed[next]) failures--; // drop the oldest outcome
+        } else {
+            recorded++;
+        }
+        failed[next] = failure;
+        if (failure) failures++;
+        next = (next + 1) % failed.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        trialInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        trialInFlight = false;
+    }
+}
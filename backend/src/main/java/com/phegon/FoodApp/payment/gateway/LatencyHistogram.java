@@ -0,0 +1,71 @@
+package com.phegon.FoodApp.payment.gateway;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed millisecond buckets. Percentiles are reported as the
+ * upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_MILLIS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MILLIS.length + 1]; // the last one is unbounded
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long millis = nanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < BOUNDS_MILLIS.length && millis > BOUNDS_MILLIS[bucket]) bucket++;
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long meanMillis() {
+        long calls = count.sum();
+        return calls == 0 ? 0 : totalNanos.sum() / calls / 1_000_000;
+    }
+
+    /**
+     * Upper bound in ms of the bucket holding the given percentile (0-100), or -1 past the last bound.
+     */
+    public long percentileMillis(double percentile) {
+        long calls = count.sum();
+        if (calls == 0) return 0;
+        long rank = (long) Math.ceil(calls * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) return BOUNDS_MILLIS[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Counts per bucket, keyed by the bucket's upper bound ("<=50ms", ..., ">10000ms").
+     */
+    public Map<String, Long> buckets() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            snapshot.put("<=" + BOUNDS_MILLIS[i] + "ms", buckets[i].sum());
+        }
+        snapshot.put(">" + BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1] + "ms", buckets[BOUNDS_MILLIS.length].sum());
+        return snapshot;
+    }
+}
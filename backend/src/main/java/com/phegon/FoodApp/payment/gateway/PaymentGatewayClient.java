@@ -0,0 +1,249 @@
+package com.phegon.FoodApp.payment.gateway;
+
+
+import com.phegon.FoodApp.exceptions.PaymentProcessingException;
+import com.phegon.FoodApp.payment.dtos.PaymentGatewayStatsDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Isolates calls to the payment provider from the rest of the application.
+ * <p>
+ * Calls run on the gateway's own small pool. At most payment.gateway.max-concurrent-calls are in
+ * flight (the bulkhead); a caller that cannot get a slot within payment.gateway.bulkhead-wait-ms is
+ * turned away instead of queueing behind a slow provider. A circuit breaker stops calling a
+ * provider that keeps failing and lets one trial call through after a pause. Idempotent calls are
+ * retried on retryable failures with exponential backoff and jitter, within the overall
+ * payment.gateway.call-timeout-ms. Every attempt's latency goes into a histogram.
+ * <p>
+ * Every failure reaches the caller as a {@link PaymentProcessingException}.
+ */
+@Component
+@Slf4j
+public class PaymentGatewayClient {
+
+    private final PaymentIntentBackend backend;
+    private final int maxConcurrentCalls;
+    private final long bulkheadWaitMillis;
+    private final long callTimeoutMillis;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService executor;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+
+    public PaymentGatewayClient(PaymentIntentBackend backend,
+                                @Value("${payment.gateway.max-concurrent-calls:16}") int maxConcurrentCalls,
+                                @Value("${payment.gateway.bulkhead-wait-ms:200}") long bulkheadWaitMillis,
+                                @Value("${payment.gateway.call-timeout-ms:10000}") long callTimeoutMillis,
+                                @Value("${payment.gateway.max-attempts:3}") int maxAttempts,
+                                @Value("${payment.gateway.base-backoff-ms:100}") long baseBackoffMillis,
+                                @Value("${payment.gateway.breaker.window:20}") int breakerWindow,
+                                @Value("${payment.gateway.breaker.failure-rate:0.5}") double breakerFailureRate,
+                                @Value("${payment.gateway.breaker.min-calls:10}") int breakerMinCalls,
+                                @Value("${payment.gateway.breaker.open-seconds:30}") long breakerOpenSeconds) {
+        this.backend = backend;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.bulkheadWaitMillis = bulkheadWaitMillis;
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.bulkhead = new Semaphore(maxConcurrentCalls, true);
+        this.circuitBreaker = new CircuitBreaker(breakerWindow, breakerFailureRate, breakerMinCalls,
+                Duration.ofSeconds(breakerOpenSeconds), System::nanoTime);
+
+        // one thread per bulkhead slot, so the queue never holds more than is already admitted
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrentCalls, runnable -> {
+            Thread thread = new Thread(runnable, "payment-gateway-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Creates a payment intent, waiting at most payment.gateway.call-timeout-ms for it.
+     */
+    public PaymentIntentBackend.Intent createPaymentIntent(PaymentIntentBackend.CreateRequest request) {
+        return await(createPaymentIntentAsync(request));
+    }
+
+    /**
+     * Same, with the caller's idempotency key: calls that pass the same key get the same intent.
+     */
+    public PaymentIntentBackend.Intent createPaymentIntent(PaymentIntentBackend.CreateRequest request, String idempotencyKey) {
+        return await(createPaymentIntentAsync(request, idempotencyKey));
+    }
+
+    public CompletableFuture<PaymentIntentBackend.Intent> createPaymentIntentAsync(PaymentIntentBackend.CreateRequest request) {
+        return createPaymentIntentAsync(request, UUID.randomUUID().toString());
+    }
+
+    public CompletableFuture<PaymentIntentBackend.Intent> createPaymentIntentAsync(PaymentIntentBackend.CreateRequest request,
+                                                                                  String idempotencyKey) {
+        // one key for all attempts, so a retry after a lost response cannot create a second intent
+        return call("create payment intent", () -> backend.create(request, idempotencyKey));
+    }
+
+    /**
+     * Cancels an intent in the background. Cancelling is idempotent, so it is retried like a create.
+     */
+    public CompletableFuture<Void> cancelPaymentIntentAsync(String intentId) {
+        return call("cancel payment intent " + intentId, () -> {
+            backend.cancel(intentId);
+            return null;
+        });
+    }
+
+    public PaymentGatewayStatsDTO getStats() {
+        return PaymentGatewayStatsDTO.builder()
+                .backend(backend.name())
+                .circuitState(circuitBreaker.state().name())
+                .inFlight(maxConcurrentCalls - bulkhead.availablePermits())
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .calls(calls.sum())
+                .attempts(latency.count())
+                .retries(retries.sum())
+                .failures(failures.sum())
+                .timedOut(timedOut.sum())
+                .rejected(rejected.sum())
+                .shortCircuited(shortCircuited.sum())
+                .meanMillis(latency.meanMillis())
+                .p50Millis(latency.percentileMillis(50))
+                .p99Millis(latency.percentileMillis(99))
+                .latencyBuckets(latency.buckets())
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+
+    private <T> CompletableFuture<T> call(String operation, Supplier<T> attempt) {
+        try {
+            if (!bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                return CompletableFuture.failedFuture(new PaymentProcessingException("Payment provider is busy, please try again shortly"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new PaymentProcessingException("Interrupted while waiting for the payment provider"));
+        }
+
+        if (!circuitBreaker.tryAcquire()) {
+            bulkhead.release();
+            shortCircuited.increment();
+            return CompletableFuture.failedFuture(new PaymentProcessingException("Payment provider is unavailable, please try again shortly"));
+        }
+
+        calls.increment();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(callTimeoutMillis);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return withRetries(operation, attempt, deadline);
+                } finally {
+                    bulkhead.release();
+                }
+            }, executor);
+        } catch (RuntimeException e) { // rejected after shutdown
+            bulkhead.release();
+            circuitBreaker.onSuccess(); // says nothing about the provider
+            return CompletableFuture.failedFuture(new PaymentProcessingException("Payment gateway is shutting down"));
+        }
+    }
+
+    private <T> T withRetries(String operation, Supplier<T> attempt, long deadline) {
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            long start = System.nanoTime();
+            try {
+                T result = attempt.get();
+                latency.record(System.nanoTime() - start);
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (PaymentGatewayException e) {
+                latency.record(System.nanoTime() - start);
+
+                if (!e.isRetryable()) {
+                    circuitBreaker.onSuccess(); // the provider answered; a refused request says nothing about its health
+                    failures.increment();
+                    throw new PaymentProcessingException("Payment provider refused to " + operation + ": " + e.getMessage(), e);
+                }
+
+                long backoffMillis = backoffMillis(attemptNumber);
+                if (attemptNumber >= maxAttempts || System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis) >= deadline) {
+                    circuitBreaker.onFailure();
+                    failures.increment();
+                    log.warn("Could not {} after {} attempts: {}", operation, attemptNumber, e.getMessage());
+                    throw new PaymentProcessingException("Payment provider is unavailable, please try again shortly", e);
+                }
+
+                retries.increment();
+                log.info("Attempt {} to {} failed, retrying in {}ms: {}", attemptNumber, operation, backoffMillis, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    circuitBreaker.onFailure();
+                    failures.increment();
+                    throw new PaymentProcessingException("Interrupted while retrying the payment provider", e);
+                }
+            } catch (RuntimeException e) {
+                latency.record(System.nanoTime() - start);
+                circuitBreaker.onFailure();
+                failures.increment();
+                throw new PaymentProcessingException("Payment provider call failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // exponential with full jitter: anywhere from 0 to base * 2^(attempt-1), so retries spread out
+    private long backoffMillis(int attemptNumber) {
+        long ceiling = baseBackoffMillis << Math.min(attemptNumber - 1, 16);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(callTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOut.increment(); // the attempt keeps its slot until the HTTP read timeout ends it
+            throw new PaymentProcessingException("Payment provider did not answer in time, please try again");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PaymentProcessingException processing) throw processing;
+            throw new PaymentProcessingException("Payment provider call failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentProcessingException("Interrupted while waiting for the payment provider");
+        }
+    }
+}
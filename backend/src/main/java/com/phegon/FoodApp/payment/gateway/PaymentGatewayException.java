@@ -0,0 +1,16 @@
+package com.phegon.FoodApp.payment.gateway;
+
+
+public class PaymentGatewayException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public PaymentGatewayException(String message, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,27 @@
+package com.phegon.FoodApp.payment.gateway;
+
+
+/**
+ * The provider side of {@link PaymentGatewayClient}: one blocking call per method, no retries or
+ * timeouts of its own beyond the HTTP client's. Failures are reported as
+ * {@link PaymentGatewayException}, marked retryable when the provider may not have seen the call
+ * or asked us to back off.
+ */
+public interface PaymentIntentBackend {
+
+    record CreateRequest(long amountInCents, String currency, Long orderId) {}
+
+    record Intent(String id, String clientSecret, long amountInCents, String status) {}
+
+    String name();
+
+    /**
+     * Creates a payment intent. Calls with the same idempotency key create at most one intent.
+     */
+    Intent create(CreateRequest request, String idempotencyKey);
+
+    /**
+     * Cancels an intent that will not be used any more.
+     */
+    void cancel(String intentId);
+}
@@ -0,0 +1,80 @@
+package com.phegon.FoodApp.payment.gateway;
+
+
+import com.stripe.StripeClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Talks to Stripe through its own {@link StripeClient} instead of the global {@code Stripe.apiKey},
+ * with connect/read timeouts and the SDK's own retries turned off; retrying is up to
+ * {@link PaymentGatewayClient}. payment.gateway.stripe.api-base points it at a local stripe-mock.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.backend", havingValue = "stripe", matchIfMissing = true)
+public class StripePaymentIntentBackend implements PaymentIntentBackend {
+
+    private final StripeClient stripeClient;
+
+
+    public StripePaymentIntentBackend(@Value("${stripe.api.secret.key}") String secretKey,
+                                      @Value("${payment.gateway.connect-timeout-ms:2000}") int connectTimeoutMillis,
+                                      @Value("${payment.gateway.read-timeout-ms:5000}") int readTimeoutMillis,
+                                      @Value("${payment.gateway.stripe.api-base:}") String apiBase) {
+        StripeClient.StripeClientBuilder builder = StripeClient.builder()
+                .setApiKey(secretKey)
+                .setConnectTimeout(connectTimeoutMillis)
+                .setReadTimeout(readTimeoutMillis)
+                .setMaxNetworkRetries(0);
+        if (!apiBase.isBlank()) {
+            builder.setApiBase(apiBase);
+        }
+        this.stripeClient = builder.build();
+    }
+
+    @Override
+    public String name() {
+        return "stripe";
+    }
+
+    @Override
+    public Intent create(CreateRequest request, String idempotencyKey) {
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(request.amountInCents())
+                .setCurrency(request.currency())
+                .putMetadata("orderId", String.valueOf(request.orderId()))
+                .build();
+        try {
+            PaymentIntent intent = stripeClient.paymentIntents()
+                    .create(params, RequestOptions.builder().setIdempotencyKey(idempotencyKey).build());
+            return new Intent(intent.getId(), intent.getClientSecret(), intent.getAmount(), intent.getStatus());
+        } catch (StripeException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public void cancel(String intentId) {
+        try {
+            stripeClient.paymentIntents().cancel(intentId);
+        } catch (StripeException e) {
+            throw translate(e);
+        }
+    }
+
+    // retry what Stripe may not have processed or asked us to slow down for; 4xx answers stay
+    // wrong however often they are sent (an idempotency key reused with other params included)
+    static PaymentGatewayException translate(StripeException e) {
+        boolean retryable = e instanceof ApiConnectionException
+                || e instanceof RateLimitException
+                || (e.getStatusCode() != null && e.getStatusCode() >= 500);
+        return new PaymentGatewayException(e.getMessage(), retryable, e);
+    }
+}
@@ -0,0 +1,73 @@
+package com.phegon.FoodApp.payment.gateway;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for Stripe, for load tests ({@code payment.gateway.backend=stub}). Answers after
+ * payment.gateway.stub.latency-ms (+/- half of it) and fails a payment.gateway.stub.failure-rate
+ * share of the calls with a retryable error. Honors idempotency keys like Stripe does.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.backend", havingValue = "stub")
+@Slf4j
+public class StubPaymentIntentBackend implements PaymentIntentBackend {
+
+    private final long latencyMillis;
+    private final double failureRate;
+
+    private final ConcurrentHashMap<String, Intent> intentsByIdempotencyKey = new ConcurrentHashMap<>();
+    private final Set<String> canceled = ConcurrentHashMap.newKeySet();
+    private final AtomicLong ids = new AtomicLong();
+
+
+    public StubPaymentIntentBackend(@Value("${payment.gateway.stub.latency-ms:50}") long latencyMillis,
+                                    @Value("${payment.gateway.stub.failure-rate:0}") double failureRate) {
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+        log.warn("Payments go to the local stub backend, not to Stripe");
+    }
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+
+    @Override
+    public Intent create(CreateRequest request, String idempotencyKey) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis / 2 + random.nextLong(latencyMillis + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PaymentGatewayException("Interrupted", false, e);
+            }
+        }
+        if (random.nextDouble() < failureRate) {
+            throw new PaymentGatewayException("Stub provider failure", true, null);
+        }
+        return intentsByIdempotencyKey.computeIfAbsent(idempotencyKey, key -> {
+            String id = "pi_stub_" + ids.incrementAndGet();
+            return new Intent(id, id + "_secret_" + UUID.randomUUID(), request.amountInCents(), "requires_payment_method");
+        });
+    }
+
+    @Override
+    public void cancel(String intentId) {
+        canceled.add(intentId);
+    }
+
+    public boolean isCanceled(String intentId) {
+        return canceled.contains(intentId);
+    }
+}
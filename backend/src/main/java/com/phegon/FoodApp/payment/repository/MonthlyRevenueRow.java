@@ -0,0 +1,9 @@
+package com.phegon.FoodApp.payment.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * The completed payments of one calendar month (1-12), summed.
+ */
+public record MonthlyRevenueRow(Integer month, BigDecimal revenue) {
+}
@@ -0,0 +1,24 @@
+package com.phegon.FoodApp.payment.repository;
+
+import com.phegon.FoodApp.enums.PaymentGateway;
+import com.phegon.FoodApp.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One line of the payment ledger: the payment's own columns, its order id and the paying
+ * customer, read in a single joined query.
+ */
+public record PaymentLedgerRow(Long id,
+                               LocalDateTime paymentDate,
+                               BigDecimal amount,
+                               PaymentStatus paymentStatus,
+                               PaymentGateway paymentGateway,
+                               String transactionId,
+                               String failureReason,
+                               Long orderId,
+                               Long userId,
+                               String userName,
+                               String userEmail) {
+}
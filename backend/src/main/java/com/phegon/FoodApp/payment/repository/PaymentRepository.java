@@ -1,7 +1,69 @@
 package com.phegon.FoodApp.payment.repository;
 
+import com.phegon.FoodApp.enums.PaymentGateway;
+import com.phegon.FoodApp.enums.PaymentStatus;
+import com.phegon.FoodApp.payment.dtos.PaymentLedgerSummaryDTO;
 import com.phegon.FoodApp.payment.entity.Payment;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
+
+    String LEDGER_ROW = "SELECT new com.phegon.FoodApp.payment.repository.PaymentLedgerRow(" +
+            "p.id, p.paymentDate, p.amount, p.paymentStatus, p.paymentGateway, p.transactionId, p.failureReason, " +
+            "p.order.id, u.id, u.name, u.email) " +
+            "FROM Payment p LEFT JOIN p.user u ";
+
+    String LEDGER_FILTER = "WHERE (:status IS NULL OR p.paymentStatus = :status) " +
+            "AND (:gateway IS NULL OR p.paymentGateway = :gateway) " +
+            "AND (:from IS NULL OR p.paymentDate >= :from) " +
+            "AND (:to IS NULL OR p.paymentDate < :to) ";
+
+    boolean existsByTransactionIdAndPaymentStatus(String transactionId, PaymentStatus paymentStatus);
+
+    // keyset ledger on id, newest first; the cursor is the id of the last row of the previous page
+    @Query(LEDGER_ROW + LEDGER_FILTER +
+            "AND (:cursorId IS NULL OR p.id < :cursorId) " +
+            "ORDER BY p.id DESC")
+    List<PaymentLedgerRow> findLedger(@Param("status") PaymentStatus status,
+                                      @Param("gateway") PaymentGateway gateway,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      @Param("cursorId") Long cursorId,
+                                      Limit limit);
+
+    // the whole ledger as a cursor; rows are read as the stream is consumed, so the caller
+    // must keep a transaction open and close the stream
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query(LEDGER_ROW + LEDGER_FILTER + "ORDER BY p.id DESC")
+    Stream<PaymentLedgerRow> streamLedger(@Param("status") PaymentStatus status,
+                                          @Param("gateway") PaymentGateway gateway,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.phegon.FoodApp.payment.dtos.PaymentLedgerSummaryDTO(COUNT(p), " +
+            "SUM(CASE WHEN p.paymentStatus = com.phegon.FoodApp.enums.PaymentStatus.COMPLETED THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN p.paymentStatus = com.phegon.FoodApp.enums.PaymentStatus.COMPLETED THEN p.amount ELSE 0 END)) " +
+            "FROM Payment p " + LEDGER_FILTER)
+    PaymentLedgerSummaryDTO summarizeLedger(@Param("status") PaymentStatus status,
+                                            @Param("gateway") PaymentGateway gateway,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.phegon.FoodApp.payment.repository.MonthlyRevenueRow(" +
+            "EXTRACT(MONTH FROM p.paymentDate), SUM(p.amount)) " +
+            "FROM Payment p " +
+            "WHERE p.paymentStatus = com.phegon.FoodApp.enums.PaymentStatus.COMPLETED " +
+            "AND p.paymentDate >= :from AND p.paymentDate < :to " +
+            "GROUP BY EXTRACT(MONTH FROM p.paymentDate)")
+    List<MonthlyRevenueRow> findMonthlyRevenue(@Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to);
 }
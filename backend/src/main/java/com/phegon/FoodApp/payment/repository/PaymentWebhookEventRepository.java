@@ -0,0 +1,39 @@
+package com.phegon.FoodApp.payment.repository;
+
+import com.phegon.FoodApp.enums.WebhookEventStatus;
+import com.phegon.FoodApp.payment.entity.PaymentWebhookEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface PaymentWebhookEventRepository extends JpaRepository<PaymentWebhookEvent, Long> {
+
+    // FOR UPDATE SKIP LOCKED (lock timeout -2), oldest event first so each intent's events come out in order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM PaymentWebhookEvent e WHERE e.status IN :statuses AND e.nextAttemptAt <= :now " +
+            "ORDER BY e.eventCreatedAt, e.id")
+    List<PaymentWebhookEvent> findDueForUpdate(@Param("statuses") Collection<WebhookEventStatus> statuses,
+                                               @Param("now") LocalDateTime now,
+                                               Limit limit);
+
+    // intents with an event waiting out its backoff or claimed by another dispatcher
+    @Query("SELECT DISTINCT e.paymentIntentId FROM PaymentWebhookEvent e WHERE e.paymentIntentId IN :intentIds " +
+            "AND e.status IN :statuses AND e.nextAttemptAt > :now")
+    List<String> findBusyIntents(@Param("intentIds") Collection<String> intentIds,
+                                 @Param("statuses") Collection<WebhookEventStatus> statuses,
+                                 @Param("now") LocalDateTime now);
+
+    boolean existsByEventId(String eventId);
+
+    long countByStatus(WebhookEventStatus status);
+}
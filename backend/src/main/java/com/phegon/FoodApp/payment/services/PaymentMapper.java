@@ -0,0 +1,74 @@
+package com.phegon.FoodApp.payment.services;
+
+
+import com.phegon.FoodApp.auth_users.dtos.UserDTO;
+import com.phegon.FoodApp.auth_users.services.UserMapper;
+import com.phegon.FoodApp.order.services.OrderMapper;
+import com.phegon.FoodApp.payment.dtos.PaymentDTO;
+import com.phegon.FoodApp.payment.entity.Payment;
+import com.phegon.FoodApp.payment.repository.PaymentLedgerRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain field-by-field Payment -> PaymentDTO mapping with explicit depth: list views get the
+ * payment row and its order id only; the detail view adds the order (with items, without the
+ * customer) and the paying user (without roles). Ledger rows carry the customer's name and email.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentMapper {
+
+    private final OrderMapper orderMapper;
+    private final UserMapper userMapper;
+
+    public PaymentDTO toDTO(Payment payment, boolean withDetails) {
+        PaymentDTO paymentDTO = new PaymentDTO();
+        paymentDTO.setId(payment.getId());
+        paymentDTO.setAmount(payment.getAmount());
+        paymentDTO.setPaymentStatus(payment.getPaymentStatus());
+        paymentDTO.setTransactionId(payment.getTransactionId());
+        paymentDTO.setPaymentGateway(payment.getPaymentGateway());
+        paymentDTO.setFailureReason(payment.getFailureReason());
+        paymentDTO.setPaymentDate(payment.getPaymentDate());
+        if (payment.getOrder() != null) {
+            paymentDTO.setOrderId(payment.getOrder().getId());
+        }
+        if (withDetails) {
+            paymentDTO.setOrder(orderMapper.toDTO(payment.getOrder(), false));
+            paymentDTO.setUser(userMapper.toDTO(payment.getUser(), false));
+        }
+        return paymentDTO;
+    }
+
+    public PaymentDTO toDTO(PaymentLedgerRow row) {
+        PaymentDTO paymentDTO = new PaymentDTO();
+        paymentDTO.setId(row.id());
+        paymentDTO.setAmount(row.amount());
+        paymentDTO.setPaymentStatus(row.paymentStatus());
+        paymentDTO.setTransactionId(row.transactionId());
+        paymentDTO.setPaymentGateway(row.paymentGateway());
+        paymentDTO.setFailureReason(row.failureReason());
+        paymentDTO.setPaymentDate(row.paymentDate());
+        paymentDTO.setOrderId(row.orderId());
+        if (row.userId() != null) {
+            UserDTO userDTO = new UserDTO();
+            userDTO.setId(row.userId());
+            userDTO.setName(row.userName());
+            userDTO.setEmail(row.userEmail());
+            paymentDTO.setUser(userDTO);
+        }
+        return paymentDTO;
+    }
+
+    public List<PaymentDTO> toDTOs(List<Payment> payments) {
+        List<PaymentDTO> paymentDTOS = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            paymentDTOS.add(toDTO(payment, false));
+        }
+        return paymentDTOS;
+    }
+}
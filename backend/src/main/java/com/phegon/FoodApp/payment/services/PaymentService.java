@@ -1,15 +1,28 @@
 package com.phegon.FoodApp.payment.services;
 
+import com.phegon.FoodApp.enums.PaymentGateway;
+import com.phegon.FoodApp.enums.PaymentStatus;
 import com.phegon.FoodApp.payment.dtos.PaymentDTO;
+import com.phegon.FoodApp.payment.dtos.PaymentGatewayStatsDTO;
+import com.phegon.FoodApp.payment.dtos.PaymentLedgerPageDTO;
 import com.phegon.FoodApp.response.Response;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface PaymentService {
 
     Response<?> initializePayment(PaymentDTO paymentDTO);
     void updatePaymentForOrder(PaymentDTO paymentDTO);
-    Response<List<PaymentDTO>> getAllPayments();
+    Response<PaymentLedgerPageDTO> getAllPayments(PaymentStatus status, PaymentGateway gateway, LocalDate from, LocalDate to,
+                                                  Long cursor, int size);
+    void exportPayments(PaymentStatus status, PaymentGateway gateway, LocalDate from, LocalDate to,
+                        OutputStream out) throws IOException;
+    Response<List<BigDecimal>> getMonthlyRevenue(int year);
     Response<PaymentDTO> getPaymentById(Long paymentId);
+    Response<PaymentGatewayStatsDTO> getGatewayStats();
 
 }
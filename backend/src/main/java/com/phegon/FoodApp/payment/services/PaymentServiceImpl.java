@@ -11,55 +11,70 @@ import com.phegon.FoodApp.exceptions.NotFoundException;
 import com.phegon.FoodApp.order.entity.Order;
 import com.phegon.FoodApp.order.repository.OrderRepository;
 import com.phegon.FoodApp.payment.dtos.PaymentDTO;
+import com.phegon.FoodApp.payment.dtos.PaymentGatewayStatsDTO;
+import com.phegon.FoodApp.payment.dtos.PaymentLedgerPageDTO;
+import com.phegon.FoodApp.payment.dtos.PaymentLedgerSummaryDTO;
 import com.phegon.FoodApp.payment.entity.Payment;
+import com.phegon.FoodApp.payment.gateway.PaymentGatewayClient;
+import com.phegon.FoodApp.payment.gateway.PaymentIntentBackend;
+import com.phegon.FoodApp.payment.repository.MonthlyRevenueRow;
+import com.phegon.FoodApp.payment.repository.PaymentLedgerRow;
 import com.phegon.FoodApp.payment.repository.PaymentRepository;
 import com.phegon.FoodApp.response.Response;
-import com.stripe.Stripe;
-import com.stripe.model.PaymentIntent;
-import com.stripe.param.PaymentIntentConfirmParams;
-import com.stripe.param.PaymentIntentCreateParams;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Year;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentServiceImpl implements PaymentService {
 
+    private static final int MAX_LEDGER_PAGE_SIZE = 200;
+    private static final String LEDGER_CSV_HEADER =
+            "id,payment_date,amount,status,gateway,transaction_id,order_id,user_id,user_name,user_email,failure_reason\r\n";
+
     private final PaymentRepository paymentRepository;
     private final NotificationService notificationService;
     private final OrderRepository orderRepository;
-    private final TemplateEngine templateEngine;
-    private final ModelMapper modelMapper;
-
+    private final PaymentMapper paymentMapper;
+    private final PaymentGatewayClient paymentGatewayClient;
 
-    @Value("${stripe.api.secret.key}")
-    private String secreteKey;
 
     @Value("${frontend.base.url}")
     private String frontendBaseUrl;
 
+    @Value("${payment.intent.max-age-hours:24}")
+    private long intentMaxAgeHours;
+
 
     @Override
     public Response<?> initializePayment(PaymentDTO paymentRequest) {
 
         log.info("Inside initializePayment()");
-        Stripe.apiKey = secreteKey;
 
         Long orderId = paymentRequest.getOrderId();
 
@@ -92,40 +107,75 @@ public class PaymentServiceImpl implements PaymentService {
             throw new BadRequestException("Total amount cannot be zero");
         }
 
-        //create payment intent i.e create unique transaction id for that payment
-        try {
-            PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
-                    .setAmount(paymentRequest.getAmount().multiply(BigDecimal.valueOf(100)).longValue()) // converting to cent
-                    .setCurrency("usd")
-                    .putMetadata("orderId", String.valueOf(orderId))
-                    .build();
+        // a reload of the payment page gets the intent it was given before, without a call to Stripe
+        if (isReusable(order)) {
+            log.info("Reusing payment intent {} of order {}", order.getPaymentIntentId(), orderId);
+            return clientSecretResponse(order.getPaymentIntentClientSecret());
+        }
 
-            PaymentIntent intent = PaymentIntent.create(params);
-            String uniqueTransactionId = intent.getClientSecret();
+        //create payment intent i.e create unique transaction id for that payment; the gateway bounds,
+        // times out and retries the call and fails with PaymentProcessingException.
+        // Requests racing past the check above saw the same stored intent, so they send the same key
+        // and Stripe creates one intent for all of them.
+        long amountInCents = paymentRequest.getAmount().multiply(BigDecimal.valueOf(100)).longValue(); // converting to cent
+        String previousIntentId = order.getPaymentIntentId();
+        String idempotencyKey = "order-" + orderId + "-" + amountInCents + "-after-" + (previousIntentId == null ? "none" : previousIntentId);
+
+        PaymentIntentBackend.Intent intent = paymentGatewayClient.createPaymentIntent(
+                new PaymentIntentBackend.CreateRequest(amountInCents, "usd", orderId), idempotencyKey);
+        orderRepository.recordPaymentIntent(orderId, intent.id(), intent.clientSecret(), order.getTotalAmount(), LocalDateTime.now());
+
+        if (previousIntentId != null && !previousIntentId.equals(intent.id())) {
+            // superseded: cancel it so it cannot be paid and does not linger; best effort
+            paymentGatewayClient.cancelPaymentIntentAsync(previousIntentId).whenComplete((ignored, e) -> {
+                if (e != null) log.warn("Could not cancel superseded payment intent {}: {}", previousIntentId, e.getMessage());
+            });
+        }
 
-            return Response.builder()
-                    .statusCode(HttpStatus.OK.value())
-                    .message("success")
-                    .data(uniqueTransactionId)
-                    .build();
+        return clientSecretResponse(intent.clientSecret());
+    }
 
-        } catch (Exception e) {
-            log.info("ERROR in PaymentIntentCreateParams" + e.getMessage());
-            throw new RuntimeException("Error Creating payment unique transaction id");
-        }
+    private boolean isReusable(Order order) {
+        return order.getPaymentIntentId() != null
+                && order.getPaymentIntentClientSecret() != null
+                && order.getPaymentIntentAmount() != null
+                && order.getPaymentIntentAmount().compareTo(order.getTotalAmount()) == 0
+                && order.getPaymentIntentCreatedAt() != null
+                && order.getPaymentIntentCreatedAt().isAfter(LocalDateTime.now().minusHours(intentMaxAgeHours));
+    }
+
+    private static Response<?> clientSecretResponse(String uniqueTransactionId) {
+        return Response.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("success")
+                .data(uniqueTransactionId)
+                .build();
     }
 
 
 
     @Override
+    @Transactional
     public void updatePaymentForOrder(PaymentDTO paymentDTO) {
 
         log.info("inside updatePaymentForOrder()");
 
         Long orderId = paymentDTO.getOrderId();
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new NotFoundException("Order Not Found"));
 
+        // the Stripe webhook and the client both report the outcome of a payment; the order's row
+        // lock serialises them, so whichever arrives second finds it recorded and changes nothing
+        if (order.getPaymentStatus() == PaymentStatus.COMPLETED) {
+            log.info("Payment for order {} already completed, ignoring result for {}", orderId, paymentDTO.getTransactionId());
+            return;
+        }
+        if (!paymentDTO.isSuccess() && paymentDTO.getTransactionId() != null
+                && paymentRepository.existsByTransactionIdAndPaymentStatus(paymentDTO.getTransactionId(), PaymentStatus.FAILED)) {
+            log.info("Failure of {} for order {} already recorded", paymentDTO.getTransactionId(), orderId);
+            return;
+        }
+
         //  Build payment entity to save
         Payment payment = new Payment();
         payment.setPaymentGateway(PaymentGateway.STRIPE);
@@ -142,12 +192,12 @@ public class PaymentServiceImpl implements PaymentService {
 
         paymentRepository.save(payment);
 
-        // Prepare email context. Context should be. imported from thymeleaf
-        Context context = new Context(Locale.getDefault());
-        context.setVariable("CUSTOMERName", order.getUser().getName());
-        context.setVariable("orderId", order.getId());
-        context.setVariable("currentYear", Year.now().getValue());
-        context.setVariable("amount", "$" + paymentDTO.getAmount());
+        // Prepare email variables; the template is rendered by the outbox dispatcher after commit
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("CUSTOMERName", order.getUser().getName());
+        variables.put("orderId", order.getId());
+        variables.put("currentYear", Year.now().getValue());
+        variables.put("amount", "$" + paymentDTO.getAmount());
 
         if (paymentDTO.isSuccess()) {
             order.setPaymentStatus(PaymentStatus.COMPLETED);
@@ -155,21 +205,18 @@ public class PaymentServiceImpl implements PaymentService {
             orderRepository.save(order);
 
 
-            log.info("PAYMENT IS SUCCESSFUL ABOUT TO SEND EMAIL");
+            log.info("PAYMENT IS SUCCESSFUL ABOUT TO QUEUE EMAIL");
 
             // Add success-specific variables
-            context.setVariable("transactionId", paymentDTO.getTransactionId());
-            context.setVariable("paymentDate", LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a")));
-            context.setVariable("frontendBaseUrl", this.frontendBaseUrl);
-
-            String emailBody = templateEngine.process("payment-success", context);
+            variables.put("transactionId", paymentDTO.getTransactionId());
+            variables.put("paymentDate", LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a")));
+            variables.put("frontendBaseUrl", this.frontendBaseUrl);
 
-            log.info("HAVE GOTTEN TEMPLATE");
-
-            notificationService.sendEmail(NotificationDTO.builder()
+            notificationService.queueEmail(NotificationDTO.builder()
                     .recipient(order.getUser().getEmail())
                     .subject("Payment Successful - Order #" + order.getId())
-                    .body(emailBody)
+                    .template("payment-success")
+                    .templateVariables(variables)
                     .isHtml(true)
                     .build());
         } else {
@@ -178,16 +225,15 @@ public class PaymentServiceImpl implements PaymentService {
             orderRepository.save(order);
 
 
-            log.info("PAYMENT IS FAILED ABOUT TO SEND EMAIL");
+            log.info("PAYMENT IS FAILED ABOUT TO QUEUE EMAIL");
             // Add failure-specific variables
-            context.setVariable("failureReason", paymentDTO.getFailureReason());
-
-            String emailBody = templateEngine.process("payment-failed", context);
+            variables.put("failureReason", paymentDTO.getFailureReason());
 
-            notificationService.sendEmail(NotificationDTO.builder()
+            notificationService.queueEmail(NotificationDTO.builder()
                     .recipient(order.getUser().getEmail())
                     .subject("Payment Failed - Order #" + order.getId())
-                    .body(emailBody)
+                    .template("payment-failed")
+                    .templateVariables(variables)
                     .isHtml(true)
                     .build());
         }
@@ -195,26 +241,133 @@ public class PaymentServiceImpl implements PaymentService {
 
 
     @Override
-    public Response<List<PaymentDTO>> getAllPayments() {
+    public Response<PaymentLedgerPageDTO> getAllPayments(PaymentStatus status, PaymentGateway gateway,
+                                                         LocalDate from, LocalDate to, Long cursor, int size) {
 
         log.info("inside getAllPayments()");
 
-        List<Payment> paymentList = paymentRepository.findAll(Sort.by(Sort.Direction.DESC, "id"));
-        List<PaymentDTO> paymentDTOS = modelMapper.map(paymentList, new TypeToken<List<PaymentDTO>>() {}.getType());
+        if (size < 1 || size > MAX_LEDGER_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_LEDGER_PAGE_SIZE);
+        }
+        validateRange(from, to);
 
-        paymentDTOS.forEach(item -> {
-            item.setOrder(null);
-            item.setUser(null);
-        });
+        // fetch one extra row to learn whether another page exists without a COUNT query
+        List<PaymentLedgerRow> rows = paymentRepository.findLedger(status, gateway, startOf(from), endOf(to),
+                cursor, Limit.of(size + 1));
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
 
-        return Response.<List<PaymentDTO>>builder()
+        List<PaymentDTO> payments = new ArrayList<>(rows.size());
+        rows.forEach(row -> payments.add(paymentMapper.toDTO(row)));
+
+        PaymentLedgerPageDTO ledgerPage = PaymentLedgerPageDTO.builder()
+                .payments(payments)
+                .nextCursor(hasMore ? rows.get(rows.size() - 1).id() : null)
+                .hasMore(hasMore)
+                .summary(cursor == null ? summarize(status, gateway, from, to) : null)
+                .build();
+
+        return Response.<PaymentLedgerPageDTO>builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("payment retreived succeessfully")
-                .data(paymentDTOS)
+                .data(ledgerPage)
                 .build();
 
     }
 
+    private PaymentLedgerSummaryDTO summarize(PaymentStatus status, PaymentGateway gateway, LocalDate from, LocalDate to) {
+        PaymentLedgerSummaryDTO summary = paymentRepository.summarizeLedger(status, gateway, startOf(from), endOf(to));
+        // SUM over no rows is NULL
+        return PaymentLedgerSummaryDTO.builder()
+                .payments(summary == null || summary.getPayments() == null ? 0L : summary.getPayments())
+                .completedPayments(summary == null || summary.getCompletedPayments() == null ? 0L : summary.getCompletedPayments())
+                .revenue(summary == null || summary.getRevenue() == null ? BigDecimal.ZERO : summary.getRevenue())
+                .build();
+    }
+
+
+    @Override
+    @Transactional(readOnly = true) // the cursor lives as long as the transaction
+    public void exportPayments(PaymentStatus status, PaymentGateway gateway, LocalDate from, LocalDate to,
+                               OutputStream out) throws IOException {
+
+        log.info("inside exportPayments()");
+
+        validateRange(from, to);
+
+        // rows go out as they are read; projections are not managed, so the persistence context stays empty
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(LEDGER_CSV_HEADER);
+        long exported = 0;
+        try (Stream<PaymentLedgerRow> rows = paymentRepository.streamLedger(status, gateway, startOf(from), endOf(to))) {
+            Iterator<PaymentLedgerRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writeCsvLine(writer, iterator.next());
+                exported++;
+            }
+        }
+        writer.flush();
+
+        log.info("Exported {} payments", exported);
+    }
+
+    private static void writeCsvLine(Writer writer, PaymentLedgerRow row) throws IOException {
+        writer.write(csv(row.id()) + ',' + csv(row.paymentDate()) + ',' + csv(row.amount()) + ',' +
+                csv(row.paymentStatus()) + ',' + csv(row.paymentGateway()) + ',' + csv(row.transactionId()) + ',' +
+                csv(row.orderId()) + ',' + csv(row.userId()) + ',' + csv(row.userName()) + ',' +
+                csv(row.userEmail()) + ',' + csv(row.failureReason()) + "\r\n");
+    }
+
+    // RFC 4180 quoting; text a spreadsheet would run as a formula is prefixed with a quote
+    private static String csv(Object value) {
+        if (value == null) return "";
+        String text = value.toString();
+        if (value instanceof String && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            text = '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+
+    @Override
+    public Response<List<BigDecimal>> getMonthlyRevenue(int year) {
+
+        log.info("inside getMonthlyRevenue()");
+
+        List<BigDecimal> revenue = new ArrayList<>(Collections.nCopies(12, BigDecimal.ZERO));
+        for (MonthlyRevenueRow row : paymentRepository.findMonthlyRevenue(
+                LocalDate.of(year, 1, 1).atStartOfDay(), LocalDate.of(year + 1, 1, 1).atStartOfDay())) {
+            revenue.set(row.month() - 1, row.revenue());
+        }
+
+        return Response.<List<BigDecimal>>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Monthly revenue retrieved")
+                .data(revenue)
+                .build();
+    }
+
+    private static void validateRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+    }
+
+    private static LocalDateTime startOf(LocalDate from) {
+        return from != null ? from.atStartOfDay() : null;
+    }
+
+    // 'to' is inclusive: the whole day counts
+    private static LocalDateTime endOf(LocalDate to) {
+        return to != null ? to.plusDays(1).atStartOfDay() : null;
+    }
+
 
     @Override
     public Response<PaymentDTO> getPaymentById(Long paymentId) {
@@ -222,13 +375,7 @@ public class PaymentServiceImpl implements PaymentService {
         log.info("inside getPaymentById()");
 
         Payment payment = paymentRepository.findById(paymentId).orElseThrow(()-> new NotFoundException("Payment not found"));
-        PaymentDTO paymentDTOS = modelMapper.map(payment, PaymentDTO.class);
-
-        paymentDTOS.getUser().setRoles(null);
-        paymentDTOS.getOrder().setUser(null);
-        paymentDTOS.getOrder().getOrderItems().forEach(item->{
-            item.getMenu().setReviews(null);
-        });
+        PaymentDTO paymentDTOS = paymentMapper.toDTO(payment, true);
 
         return Response.<PaymentDTO>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -236,4 +383,17 @@ public class PaymentServiceImpl implements PaymentService {
                 .data(paymentDTOS)
                 .build();
     }
+
+
+    @Override
+    public Response<PaymentGatewayStatsDTO> getGatewayStats() {
+
+        log.info("inside getGatewayStats()");
+
+        return Response.<PaymentGatewayStatsDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Payment gateway stats retrieved")
+                .data(paymentGatewayClient.getStats())
+                .build();
+    }
 }
@@ -0,0 +1,220 @@
+package com.phegon.FoodApp.payment.services;
+
+
+import com.phegon.FoodApp.enums.WebhookEventStatus;
+import com.phegon.FoodApp.order.repository.OrderRepository;
+import com.phegon.FoodApp.payment.dtos.PaymentDTO;
+import com.phegon.FoodApp.payment.entity.PaymentWebhookEvent;
+import com.phegon.FoodApp.payment.repository.PaymentWebhookEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the payment webhook inbox.
+ *
+ * Each round claims a batch of due events (FOR UPDATE SKIP LOCKED, marked PROCESSING with a lease)
+ * oldest first and groups them by payment intent. Intents are spread over a small fixed pool of
+ * workers; one worker applies an intent's events one after another, each in its own transaction
+ * together with the order update, so an intent's events take effect in the order Stripe created them.
+ * A failed event is retried with exponential backoff and jitter until max-attempts, after which it
+ * is DEAD; the intent's later events wait behind it until then. An intent with an event in backoff
+ * or claimed elsewhere is left alone for the round.
+ */
+@Component
+@Slf4j
+public class PaymentWebhookDispatcher {
+
+    private static final List<WebhookEventStatus> DUE_STATUSES = List.of(WebhookEventStatus.PENDING, WebhookEventStatus.PROCESSING);
+
+    private final PaymentWebhookEventRepository paymentWebhookEventRepository;
+    private final PaymentService paymentService;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final ExecutorService executor;
+
+
+    public PaymentWebhookDispatcher(PaymentWebhookEventRepository paymentWebhookEventRepository,
+                                    PaymentService paymentService,
+                                    OrderRepository orderRepository,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${payment.webhook.batch-size:100}") int batchSize,
+                                    @Value("${payment.webhook.concurrency:4}") int concurrency,
+                                    @Value("${payment.webhook.max-attempts:10}") int maxAttempts,
+                                    @Value("${payment.webhook.base-backoff-seconds:5}") long baseBackoffSeconds,
+                                    @Value("${payment.webhook.max-backoff-seconds:1800}") long maxBackoffSeconds,
+                                    @Value("${payment.webhook.lease-seconds:120}") long leaseSeconds) {
+        this.paymentWebhookEventRepository = paymentWebhookEventRepository;
+        this.paymentService = paymentService;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = Duration.ofSeconds(baseBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "payment-webhook-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private record Batch(List<PaymentWebhookEvent> claimed, boolean full) {}
+
+
+    @Scheduled(fixedDelayString = "${payment.webhook.poll-interval-ms:1000}")
+    public int dispatch() {
+
+        int processed = 0;
+        Batch batch;
+        do {
+            batch = claimBatch();
+            if (batch.claimed().isEmpty()) {
+                break;
+            }
+
+            Map<String, List<PaymentWebhookEvent>> byIntent = new LinkedHashMap<>();
+            for (PaymentWebhookEvent event : batch.claimed()) {
+                byIntent.computeIfAbsent(event.getPaymentIntentId(), intent -> new ArrayList<>()).add(event);
+            }
+
+            List<CompletableFuture<Integer>> results = new ArrayList<>(byIntent.size());
+            for (List<PaymentWebhookEvent> events : byIntent.values()) {
+                results.add(CompletableFuture.supplyAsync(() -> processInOrder(events), executor));
+            }
+            processed += results.stream().mapToInt(CompletableFuture::join).sum();
+
+        } while (batch.full());
+
+        return processed;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+
+    private Batch claimBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<PaymentWebhookEvent> due = paymentWebhookEventRepository.findDueForUpdate(DUE_STATUSES, now, Limit.of(batchSize));
+            if (due.isEmpty()) {
+                return new Batch(List.of(), false);
+            }
+
+            Set<String> intents = new HashSet<>();
+            due.forEach(event -> intents.add(event.getPaymentIntentId()));
+            Set<String> busy = new HashSet<>(paymentWebhookEventRepository.findBusyIntents(intents, DUE_STATUSES, now));
+
+            List<PaymentWebhookEvent> claimed = new ArrayList<>(due.size());
+            for (PaymentWebhookEvent event : due) {
+                if (busy.contains(event.getPaymentIntentId())) continue;
+                event.setStatus(WebhookEventStatus.PROCESSING);
+                event.setNextAttemptAt(now.plus(lease));
+                claimed.add(event);
+            }
+            return new Batch(paymentWebhookEventRepository.saveAll(claimed), due.size() == batchSize && !claimed.isEmpty());
+        });
+    }
+
+    // returns how many of the intent's events were applied
+    private int processInOrder(List<PaymentWebhookEvent> events) {
+        int processed = 0;
+        for (int i = 0; i < events.size(); i++) {
+            PaymentWebhookEvent event = events.get(i);
+            try {
+                apply(event);
+                processed++;
+            } catch (Exception e) {
+                recordFailure(event, e);
+                if (event.getStatus() != WebhookEventStatus.DEAD) {
+                    deferBehind(event, events.subList(i + 1, events.size()));
+                    break;
+                }
+            }
+        }
+        return processed;
+    }
+
+    private void apply(PaymentWebhookEvent event) {
+        PaymentDTO result = new PaymentDTO();
+        result.setOrderId(event.getOrderId() != null ? event.getOrderId()
+                : orderRepository.findIdByPaymentIntentId(event.getPaymentIntentId())
+                        .orElseThrow(() -> new IllegalStateException("No order for payment intent " + event.getPaymentIntentId())));
+        result.setAmount(event.getAmount());
+        result.setTransactionId(event.getPaymentIntentId());
+        result.setSuccess(PaymentWebhookServiceImpl.PAYMENT_SUCCEEDED.equals(event.getType()));
+        result.setFailureReason(event.getFailureReason());
+
+        // the order update, its email and the inbox row commit together
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentService.updatePaymentForOrder(result);
+            event.setStatus(WebhookEventStatus.PROCESSED);
+            event.setProcessedAt(LocalDateTime.now());
+            event.setLastError(null);
+            paymentWebhookEventRepository.save(event);
+        });
+    }
+
+    private void recordFailure(PaymentWebhookEvent event, Exception e) {
+        String error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+        event.setAttempts(event.getAttempts() + 1);
+        event.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (event.getAttempts() >= maxAttempts) {
+            event.setStatus(WebhookEventStatus.DEAD);
+            log.error("Stripe event {} for payment intent {} moved to dead letter after {} attempts: {}",
+                    event.getEventId(), event.getPaymentIntentId(), event.getAttempts(), error);
+        } else {
+            event.setStatus(WebhookEventStatus.PENDING);
+            event.setNextAttemptAt(LocalDateTime.now().plus(backoff(event.getAttempts())));
+            log.warn("Stripe event {} for payment intent {} failed (attempt {}): {}",
+                    event.getEventId(), event.getPaymentIntentId(), event.getAttempts(), error);
+        }
+        transactionTemplate.executeWithoutResult(status -> paymentWebhookEventRepository.save(event));
+    }
+
+    // the intent's later events go back to the inbox, due no earlier than the failed one
+    private void deferBehind(PaymentWebhookEvent failed, List<PaymentWebhookEvent> later) {
+        if (later.isEmpty()) return;
+        for (PaymentWebhookEvent event : later) {
+            event.setStatus(WebhookEventStatus.PENDING);
+            event.setNextAttemptAt(failed.getNextAttemptAt());
+        }
+        transactionTemplate.executeWithoutResult(status -> paymentWebhookEventRepository.saveAll(later));
+    }
+
+    // base * 2^(attempts - 1), capped, plus up to 20% jitter so failed events don't retry in lockstep
+    private Duration backoff(int attempts) {
+        long baseMillis = baseBackoff.toMillis();
+        long millis = Math.min(maxBackoff.toMillis(), baseMillis << Math.min(attempts - 1, 30));
+        return Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(millis / 5 + 1));
+    }
+}
@@ -0,0 +1,9 @@
+package com.phegon.FoodApp.payment.services;
+
+import com.phegon.FoodApp.response.Response;
+
+public interface PaymentWebhookService {
+
+    Response<?> receiveEvent(String payload, String signature);
+
+}
@@ -0,0 +1,158 @@
+package com.phegon.FoodApp.payment.services;
+
+
+import com.phegon.FoodApp.enums.WebhookEventStatus;
+import com.phegon.FoodApp.exceptions.BadRequestException;
+import com.phegon.FoodApp.exceptions.PaymentProcessingException;
+import com.phegon.FoodApp.payment.entity.PaymentWebhookEvent;
+import com.phegon.FoodApp.payment.repository.PaymentWebhookEventRepository;
+import com.phegon.FoodApp.response.Response;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.model.EventDataObjectDeserializer;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.net.Webhook;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Set;
+
+/**
+ * Receives Stripe's webhook calls. An event whose signature checks out is appended to the
+ * payment inbox and acknowledged straight away; PaymentWebhookDispatcher applies it to the order
+ * later, so a slow database or mail server never makes Stripe time out and resend.
+ */
+@Service
+@Slf4j
+public class PaymentWebhookServiceImpl implements PaymentWebhookService {
+
+    static final String PAYMENT_SUCCEEDED = "payment_intent.succeeded";
+    static final String PAYMENT_FAILED = "payment_intent.payment_failed";
+
+    private static final Set<String> HANDLED_TYPES = Set.of(PAYMENT_SUCCEEDED, PAYMENT_FAILED);
+
+    private final PaymentWebhookEventRepository paymentWebhookEventRepository;
+    private final String webhookSecret;
+    private final long toleranceSeconds;
+
+
+    public PaymentWebhookServiceImpl(PaymentWebhookEventRepository paymentWebhookEventRepository,
+                                     @Value("${stripe.webhook.secret:}") String webhookSecret,
+                                     @Value("${stripe.webhook.tolerance-seconds:300}") long toleranceSeconds) {
+        this.paymentWebhookEventRepository = paymentWebhookEventRepository;
+        this.webhookSecret = webhookSecret;
+        this.toleranceSeconds = toleranceSeconds;
+    }
+
+
+    @Override
+    public Response<?> receiveEvent(String payload, String signature) {
+
+        if (!StringUtils.hasText(webhookSecret)) {
+            // 503, so Stripe keeps the event and retries once the secret is configured
+            throw new PaymentProcessingException("Stripe webhooks are not configured");
+        }
+        if (!StringUtils.hasText(signature) || payload == null) {
+            throw new BadRequestException("Missing Stripe signature");
+        }
+
+        Event event;
+        try {
+            event = Webhook.constructEvent(payload, signature, webhookSecret, toleranceSeconds);
+        } catch (SignatureVerificationException e) {
+            log.warn("Rejected Stripe webhook: {}", e.getMessage());
+            throw new BadRequestException("Invalid Stripe signature");
+        } catch (RuntimeException e) { // signed, but not an event this library can read
+            throw new BadRequestException("Invalid Stripe event");
+        }
+
+        if (!HANDLED_TYPES.contains(event.getType())) {
+            log.debug("Ignoring Stripe event {} of type {}", event.getId(), event.getType());
+            return acknowledged("Event ignored");
+        }
+        if (paymentWebhookEventRepository.existsByEventId(event.getId())) {
+            log.info("Stripe event {} already received", event.getId());
+            return acknowledged("Event already received");
+        }
+
+        PaymentIntent intent = paymentIntent(event);
+        LocalDateTime now = LocalDateTime.now();
+        PaymentWebhookEvent inboxEvent = PaymentWebhookEvent.builder()
+                .eventId(event.getId())
+                .type(event.getType())
+                .paymentIntentId(intent.getId())
+                .orderId(orderId(intent))
+                .amount(intent.getAmount() == null ? null : BigDecimal.valueOf(intent.getAmount(), 2))
+                .failureReason(failureReason(intent))
+                .payload(payload)
+                .status(WebhookEventStatus.PENDING)
+                .nextAttemptAt(now)
+                .eventCreatedAt(event.getCreated() == null ? now
+                        : LocalDateTime.ofInstant(Instant.ofEpochSecond(event.getCreated()), ZoneId.systemDefault()))
+                .receivedAt(now)
+                .build();
+
+        try {
+            paymentWebhookEventRepository.save(inboxEvent);
+        } catch (DataIntegrityViolationException e) {
+            // the same event delivered twice at once; the other request stored it
+            log.info("Stripe event {} already received", event.getId());
+            return acknowledged("Event already received");
+        }
+
+        log.info("Queued Stripe event {} ({}) for payment intent {}", event.getId(), event.getType(), intent.getId());
+        return acknowledged("Event received");
+    }
+
+
+    private static PaymentIntent paymentIntent(Event event) {
+        EventDataObjectDeserializer data = event.getDataObjectDeserializer();
+        StripeObject object = data.getObject().orElse(null);
+        if (object == null) {
+            // sent with an API version other than the library's; the fields read here are stable across versions
+            try {
+                object = data.deserializeUnsafe();
+            } catch (EventDataObjectDeserializationException e) {
+                throw new BadRequestException("Unreadable Stripe event " + event.getId());
+            }
+        }
+        if (!(object instanceof PaymentIntent intent) || intent.getId() == null) {
+            throw new BadRequestException("Stripe event " + event.getId() + " carries no payment intent");
+        }
+        return intent;
+    }
+
+    private static Long orderId(PaymentIntent intent) {
+        String orderId = intent.getMetadata() == null ? null : intent.getMetadata().get("orderId");
+        try {
+            return StringUtils.hasText(orderId) ? Long.valueOf(orderId) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String failureReason(PaymentIntent intent) {
+        if (intent.getLastPaymentError() == null || intent.getLastPaymentError().getMessage() == null) {
+            return null;
+        }
+        String message = intent.getLastPaymentError().getMessage();
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    private static Response<?> acknowledged(String message) {
+        return Response.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message(message)
+                .build();
+    }
+}
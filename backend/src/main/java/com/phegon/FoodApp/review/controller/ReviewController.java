@@ -3,6 +3,7 @@ package com.phegon.FoodApp.review.controller;
 
 import com.phegon.FoodApp.response.Response;
 import com.phegon.FoodApp.review.dtos.ReviewDTO;
+import com.phegon.FoodApp.review.dtos.ReviewPageDTO;
 import com.phegon.FoodApp.review.services.ReviewService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -10,8 +11,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/reviews")
 @RequiredArgsConstructor
@@ -28,9 +27,11 @@ public class ReviewController {
     }
 
     @GetMapping("/menu-item/{menuId}")
-    public ResponseEntity<Response<List<ReviewDTO>>> getReviewsForMenu(
-            @PathVariable Long menuId) {
-        return ResponseEntity.ok(reviewService.getReviewsForMenu(menuId));
+    public ResponseEntity<Response<ReviewPageDTO>> getReviewsForMenu(
+            @PathVariable Long menuId,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(reviewService.getReviewsForMenu(menuId, cursor, size));
     }
 
     @GetMapping("/menu-item/average/{menuId}")
@@ -39,4 +40,10 @@ public class ReviewController {
         return ResponseEntity.ok(reviewService.getAverageRating(menuId));
     }
 
+    @PostMapping("/ratings/reconcile")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response<Integer>> reconcileRatingAggregates() {
+        return ResponseEntity.ok(reviewService.reconcileRatingAggregates());
+    }
+
 }
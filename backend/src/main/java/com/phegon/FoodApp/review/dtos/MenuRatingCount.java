@@ -0,0 +1,13 @@
+package com.phegon.FoodApp.review.dtos;
+
+/**
+ * Number of reviews with a given rating for one menu, as grouped by the reviews table.
+ */
+public interface MenuRatingCount {
+
+    Long getMenuId();
+
+    Integer getRating();
+
+    Long getTotal();
+}
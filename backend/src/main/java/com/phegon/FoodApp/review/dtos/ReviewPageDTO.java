@@ -0,0 +1,30 @@
+package com.phegon.FoodApp.review.dtos;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a menu's reviews, newest first. Pass nextCursor back as the cursor
+ * to get the following page; it is null on the last page.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ReviewPageDTO {
+
+    private List<ReviewDTO> reviews;
+
+    private Long nextCursor;
+
+    private boolean hasMore;
+}
@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "reviews")
+@Table(name = "reviews", indexes = @Index(name = "idx_reviews_menu_id_id", columnList = "menu_id, id"))
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -1,6 +1,9 @@
 package com.phegon.FoodApp.review.repository;
 
+import com.phegon.FoodApp.review.dtos.MenuRatingCount;
 import com.phegon.FoodApp.review.entity.Review;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,10 +12,27 @@ import java.util.List;
 
 public interface ReviewRepository extends JpaRepository<Review, Long> {
 
-    List<Review> findByMenuIdOrderByIdDesc(Long menuId);
+    // keyset pagination on (menu_id, id): both pages are a bounded range scan of idx_reviews_menu_id_id
+    @EntityGraph(attributePaths = {"user", "menu"})
+    List<Review> findByMenuIdOrderByIdDesc(Long menuId, Limit limit);
 
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.menu.id = :menuId")
-    Double calculateAverageRatingByMenuId(@Param("menuId") Long menuId);
+    @EntityGraph(attributePaths = {"user", "menu"})
+    List<Review> findByMenuIdAndIdLessThanOrderByIdDesc(Long menuId, Long id, Limit limit);
+
+    @Query("SELECT r.menu.id AS menuId, r.rating AS rating, COUNT(r) AS total " +
+            "FROM Review r " +
+            "WHERE r.menu IS NOT NULL AND r.rating IS NOT NULL " +
+            "GROUP BY r.menu.id, r.rating")
+    List<MenuRatingCount> countRatingsByMenu();
+
+    @Query("SELECT r.menu.id AS menuId, r.rating AS rating, COUNT(r) AS total " +
+            "FROM Review r " +
+            "WHERE r.menu.id = :menuId AND r.rating IS NOT NULL " +
+            "GROUP BY r.menu.id, r.rating")
+    List<MenuRatingCount> countRatingsByMenuId(@Param("menuId") Long menuId);
+
+    @Query("SELECT r.menu.id FROM Review r WHERE r.user.id = :userId AND r.orderId = :orderId")
+    List<Long> findReviewedMenuIds(@Param("userId") Long userId, @Param("orderId") Long orderId);
 
     @Query("SELECT CASE WHEN COUNT(r) > 0 THEN true ELSE false END " +
             "FROM Review r " +
@@ -0,0 +1,140 @@
+package com.phegon.FoodApp.review.services;
+
+
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.entity.RatingHistogramConverter;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
+import com.phegon.FoodApp.review.dtos.MenuRatingCount;
+import com.phegon.FoodApp.review.repository.ReviewRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Rebuilds the denormalized rating aggregates on {@link Menu} from the reviews table.
+ *
+ * The aggregates are maintained incrementally on every review, so this only has to repair drift
+ * (manual edits, deleted reviews, rows written before the aggregates existed). A first pass finds
+ * the menus that disagree with a single GROUP BY; each of those is then recounted and written
+ * under the same row lock createReview takes, so a review landing mid-run is never lost.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RatingAggregateReconciler {
+
+    private final ReviewRepository reviewRepository;
+    private final MenuRepository menuRepository;
+    private final MenuCatalog menuCatalog;
+    private final TransactionTemplate transactionTemplate;
+
+
+    @Scheduled(cron = "${ratings.reconcile.cron:0 0 3 * * *}")
+    public int reconcile() {
+
+        long start = System.currentTimeMillis();
+
+        Map<Long, long[]> histograms = toHistograms(reviewRepository.countRatingsByMenu());
+
+        List<Long> drifted = new ArrayList<>();
+        for (Menu menu : menuRepository.findAll()) {
+            if (!matches(menu, histograms.get(menu.getId()))) {
+                drifted.add(menu.getId());
+            }
+        }
+
+        int corrected = 0;
+        for (Long menuId : drifted) {
+            Boolean changed = transactionTemplate.execute(status -> correct(menuId));
+            if (Boolean.TRUE.equals(changed)) {
+                corrected++;
+            }
+        }
+
+        if (corrected > 0) {
+            menuCatalog.invalidate();
+        }
+
+        log.info("Rating aggregates reconciled: drifted={}, corrected={}, took={}ms",
+                drifted.size(), corrected, System.currentTimeMillis() - start);
+
+        return corrected;
+    }
+
+    private boolean correct(Long menuId) {
+
+        Menu menu = menuRepository.findByIdForUpdate(menuId).orElse(null);
+        if (menu == null) {
+            return false; // deleted since the first pass
+        }
+
+        long[] histogram = toHistograms(reviewRepository.countRatingsByMenuId(menuId)).get(menuId);
+        if (matches(menu, histogram)) {
+            return false; // a concurrent review already brought it in line
+        }
+
+        if (histogram == null) {
+            histogram = new long[RatingHistogramConverter.MAX_RATING];
+        }
+
+        long count = 0;
+        long total = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            count += histogram[i];
+            total += histogram[i] * (i + 1);
+        }
+
+        log.warn("Correcting rating aggregates of menu {}: count {} -> {}, total {} -> {}",
+                menuId, menu.getReviewCount(), count, menu.getRatingTotal(), total);
+
+        menu.setRatingHistogram(histogram);
+        menu.setReviewCount(count);
+        menu.setRatingTotal(total);
+        menuRepository.save(menu);
+        return true;
+    }
+
+    private boolean matches(Menu menu, long[] histogram) {
+        if (histogram == null) {
+            return isZero(menu.getReviewCount()) && isZero(menu.getRatingTotal())
+                    && (menu.getRatingHistogram() == null || Arrays.stream(menu.getRatingHistogram()).allMatch(c -> c == 0));
+        }
+        long count = 0;
+        long total = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            count += histogram[i];
+            total += histogram[i] * (i + 1);
+        }
+        return Arrays.equals(histogram, menu.getRatingHistogram())
+                && Objects.equals(count, menu.getReviewCount())
+                && Objects.equals(total, menu.getRatingTotal());
+    }
+
+    private static boolean isZero(Long value) {
+        return value == null || value == 0;
+    }
+
+    private Map<Long, long[]> toHistograms(List<MenuRatingCount> counts) {
+        Map<Long, long[]> histograms = new HashMap<>();
+        for (MenuRatingCount count : counts) {
+            Integer rating = count.getRating();
+            if (rating == null || rating < 1 || rating > RatingHistogramConverter.MAX_RATING) {
+                log.warn("Skipping out of range rating {} on menu {}", rating, count.getMenuId());
+                continue;
+            }
+            histograms.computeIfAbsent(count.getMenuId(), id -> new long[RatingHistogramConverter.MAX_RATING])
+                    [rating - 1] += count.getTotal();
+        }
+        return histograms;
+    }
+}
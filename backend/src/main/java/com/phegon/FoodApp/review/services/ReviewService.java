@@ -2,11 +2,14 @@ package com.phegon.FoodApp.review.services;
 
 import com.phegon.FoodApp.response.Response;
 import com.phegon.FoodApp.review.dtos.ReviewDTO;
+import com.phegon.FoodApp.review.dtos.ReviewPageDTO;
 
 import java.util.List;
 
 public interface ReviewService {
     Response<ReviewDTO> createReview(ReviewDTO reviewDTO);
-    Response<List<ReviewDTO>> getReviewsForMenu(Long menuId);
+    Response<ReviewPageDTO> getReviewsForMenu(Long menuId, Long cursor, int size);
+    ReviewPageDTO getReviewPage(Long menuId, Long cursor, int size);
     Response<Double> getAverageRating(Long menuId);
+    Response<Integer> reconcileRatingAggregates();
 }
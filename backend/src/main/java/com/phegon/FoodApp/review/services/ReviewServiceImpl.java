@@ -6,18 +6,22 @@ import com.phegon.FoodApp.auth_users.services.UserService;
 import com.phegon.FoodApp.enums.OrderStatus;
 import com.phegon.FoodApp.exceptions.BadRequestException;
 import com.phegon.FoodApp.exceptions.NotFoundException;
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
 import com.phegon.FoodApp.menu.entity.Menu;
 import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
 import com.phegon.FoodApp.order.entity.Order;
 import com.phegon.FoodApp.order.repository.OrderItemRepository;
 import com.phegon.FoodApp.order.repository.OrderRepository;
 import com.phegon.FoodApp.response.Response;
 import com.phegon.FoodApp.review.dtos.ReviewDTO;
+import com.phegon.FoodApp.review.dtos.ReviewPageDTO;
 import com.phegon.FoodApp.review.entity.Review;
 import com.phegon.FoodApp.review.repository.ReviewRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -36,6 +40,10 @@ public class ReviewServiceImpl implements ReviewService {
     private final OrderItemRepository orderItemRepository;
     private final ModelMapper modelMapper;
     private final UserService userService;
+    private final MenuCatalog menuCatalog;
+    private final RatingAggregateReconciler ratingAggregateReconciler;
+
+    private static final int MAX_PAGE_SIZE = 100;
 
 
     @Override
@@ -52,8 +60,8 @@ public class ReviewServiceImpl implements ReviewService {
             throw new BadRequestException("Order ID and Menu Item ID are required");
         }
 
-        // Validate menu item exists
-        Menu menu = menuRepository.findById(reviewDTO.getMenuId())
+        // Validate menu item exists, locking it so the rating aggregates below are updated serially
+        Menu menu = menuRepository.findByIdForUpdate(reviewDTO.getMenuId())
                 .orElseThrow(() -> new NotFoundException("Menu item not found"));
 
 
@@ -100,6 +108,11 @@ public class ReviewServiceImpl implements ReviewService {
 
         Review savedReview = reviewRepository.save(review);
 
+        // Keep the running rating aggregates in step with the new review
+        menu.addRating(reviewDTO.getRating());
+        menuRepository.save(menu);
+        menuCatalog.ratingChanged(menu);
+
         // Return response with review data
         ReviewDTO responseDto = modelMapper.map(savedReview, ReviewDTO.class);
         responseDto.setUserName(user.getName());
@@ -114,28 +127,54 @@ public class ReviewServiceImpl implements ReviewService {
     }
 
     @Override
-    public Response<List<ReviewDTO>> getReviewsForMenu(Long menuId) {
+    public Response<ReviewPageDTO> getReviewsForMenu(Long menuId, Long cursor, int size) {
         log.info("Inside getReviewsForMenu()");
 
-        List<Review> reviews = reviewRepository.findByMenuIdOrderByIdDesc(menuId);
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        return Response.<ReviewPageDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Reviews retrieved successfully")
+                .data(getReviewPage(menuId, cursor, size))
+                .build();
+
+    }
+
+    @Override
+    public ReviewPageDTO getReviewPage(Long menuId, Long cursor, int size) {
+
+        // fetch one extra row to learn whether another page exists without a COUNT query
+        Limit limit = Limit.of(size + 1);
+        List<Review> reviews = cursor == null
+                ? reviewRepository.findByMenuIdOrderByIdDesc(menuId, limit)
+                : reviewRepository.findByMenuIdAndIdLessThanOrderByIdDesc(menuId, cursor, limit);
+
+        boolean hasMore = reviews.size() > size;
+        if (hasMore) {
+            reviews = reviews.subList(0, size);
+        }
 
         List<ReviewDTO> reviewDTOs = reviews.stream()
                 .map(review -> modelMapper.map(review, ReviewDTO.class))
                 .toList();
 
-        return Response.<List<ReviewDTO>>builder()
-                .statusCode(HttpStatus.OK.value())
-                .message("Reviews retrieved successfully")
-                .data(reviewDTOs)
+        return ReviewPageDTO.builder()
+                .reviews(reviewDTOs)
+                .nextCursor(hasMore ? reviews.get(reviews.size() - 1).getId() : null)
+                .hasMore(hasMore)
                 .build();
-
     }
 
     @Override
     public Response<Double> getAverageRating(Long menuId) {
         log.info("Inside getAverageRating()");
 
-        Double averageRating = reviewRepository.calculateAverageRatingByMenuId(menuId);
+        // served from the rating aggregates in the menu catalog instead of AVG() over reviews
+        Double averageRating = menuCatalog.findMenu(menuId)
+                .map(MenuDTO::getAverageRating)
+                .orElse(null);
 
         return Response.<Double>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -143,4 +182,17 @@ public class ReviewServiceImpl implements ReviewService {
                 .data(averageRating != null ? averageRating : 0.0)
                 .build();
     }
+
+    @Override
+    public Response<Integer> reconcileRatingAggregates() {
+        log.info("Inside reconcileRatingAggregates()");
+
+        int corrected = ratingAggregateReconciler.reconcile();
+
+        return Response.<Integer>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Rating aggregates reconciled")
+                .data(corrected)
+                .build();
+    }
 }
@@ -7,6 +7,7 @@ import com.phegon.FoodApp.response.Response;
 import com.phegon.FoodApp.role.dtos.RoleDTO;
 import com.phegon.FoodApp.role.entity.Role;
 import com.phegon.FoodApp.role.repository.RoleRepository;
+import com.phegon.FoodApp.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
@@ -22,6 +23,7 @@ public class RoleServiceImpl implements RoleService {
 
     private final RoleRepository roleRepository;
     private final ModelMapper modelMapper;
+    private final PrincipalCache principalCache;
 
 
 
@@ -51,6 +53,7 @@ public class RoleServiceImpl implements RoleService {
 
         existingRole.setName(roleDTO.getName());
         Role updatedRole = roleRepository.save(existingRole);
+        principalCache.evictAll(); // cached principals carry role names as authorities
 
         return Response.<RoleDTO>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -82,6 +85,7 @@ public class RoleServiceImpl implements RoleService {
         }
 
         roleRepository.deleteById(id);
+        principalCache.evictAll();
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
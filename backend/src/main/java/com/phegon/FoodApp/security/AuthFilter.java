@@ -39,14 +39,15 @@ public class AuthFilter extends OncePerRequestFilter {
 
         if (token != null) {
             try {
-                // 🧩 Giải mã email từ token
-                String email = jwtUtils.getUsernameFromToken(token);
+                // 🧩 Giải mã email từ token (verify chữ ký + hạn dùng một lần duy nhất)
+                JwtUtils.VerifiedToken verifiedToken = jwtUtils.verifyToken(token);
+                String email = verifiedToken.subject();
 
-                // 🧩 Load user từ DB
+                // 🧩 Load user (PrincipalCache trước, DB khi cache miss)
                 UserDetails userDetails = customUserDetailsService.loadUserByUsername(email);
 
                 // 🧩 Kiểm tra token hợp lệ và set authentication
-                if (StringUtils.hasText(email) && jwtUtils.isTokenValid(token, userDetails)) {
+                if (StringUtils.hasText(email) && jwtUtils.isTokenValid(verifiedToken, userDetails)) {
                     UsernamePasswordAuthenticationToken authenticationToken =
                             new UsernamePasswordAuthenticationToken(
                                     userDetails, null, userDetails.getAuthorities()
@@ -14,11 +14,12 @@ import org.springframework.stereotype.Service;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
-        User user = userRepository.findByEmail(username)
+        User user = principalCache.get(username, userRepository::findByEmail)
                 .orElseThrow(()-> new NotFoundException("User not found"));
 
         return AuthUser.builder()
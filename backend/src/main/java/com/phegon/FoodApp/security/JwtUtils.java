@@ -1,6 +1,7 @@
 package com.phegon.FoodApp.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
@@ -10,9 +11,13 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
-import java.util.function.Function;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Service
 @Slf4j
@@ -21,7 +26,20 @@ public class JwtUtils {
 
     // Token validity set to 30 days
     private static final long EXPIRATION_TIME = 30L * 24 * 60 * 60 * 1000;
+
+    // verified tokens remembered by SHA-256 of the token, so repeat requests skip signature checks and JSON parsing
+    private static final int VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+
     private SecretKey key;
+    private JwtParser parser; // immutable and thread-safe, built once
+
+    private final LinkedHashMap<ByteBuffer, VerifiedToken> verifiedTokens =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, VerifiedToken> eldest) {
+                    return size() > VERIFIED_TOKEN_CACHE_SIZE;
+                }
+            }; // guarded by itself
 
     @Value("${secreteJwtString}")
     private String secreteJwtString;
@@ -30,6 +48,7 @@ public class JwtUtils {
     private void init() {
         byte[] keyByte = secreteJwtString.getBytes(StandardCharsets.UTF_8);
         this.key = new SecretKeySpec(keyByte, "HmacSHA256");
+        this.parser = Jwts.parser().verifyWith(key).build();
     }
 
     public String generateToken(String email) {
@@ -41,30 +60,57 @@ public class JwtUtils {
                 .compact();
     }
 
+    /**
+     * Verifies signature and expiry once and returns the claims the filter needs.
+     * Throws the usual jjwt exceptions (e.g. ExpiredJwtException) for invalid tokens.
+     */
+    public VerifiedToken verifyToken(String token) {
+
+        ByteBuffer tokenHash = sha256(token);
+
+        VerifiedToken cached;
+        synchronized (verifiedTokens) {
+            cached = verifiedTokens.get(tokenHash);
+        }
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        // expired tokens fall through to the parser so callers get the same ExpiredJwtException
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime());
+
+        synchronized (verifiedTokens) {
+            verifiedTokens.put(tokenHash, verified);
+        }
+        return verified;
+    }
+
     public String getUsernameFromToken(String token) {
-        return extractClaims(token, Claims::getSubject);
+        return verifyToken(token).subject();
     }
 
-    private <T> T extractClaims(String token, Function<Claims, T> claimsTFunction) {
-        return claimsTFunction.apply(Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload());
+    public boolean isTokenValid(VerifiedToken token, UserDetails userDetails) {
+        return token.subject() != null
+                && token.subject().equals(userDetails.getUsername())
+                && token.expiresAt() > System.currentTimeMillis();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return isTokenValid(verifyToken(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractClaims(token, Claims::getExpiration).before(new Date());
+    private static ByteBuffer sha256(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
-
-
-
-
-
-
-
-
 
 
+    public record VerifiedToken(String subject, long expiresAt) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.phegon.FoodApp.security;
+
+
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.role.entity.Role;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded, TTL based cache of authenticated users keyed by email, so the auth filter does not
+ * hit the users table (and its EAGER roles join) on every request.
+ *
+ * Entries hold a detached snapshot of the user's columns and roles only; every lookup hands out
+ * a fresh copy, so callers may mutate what they get back without affecting other requests.
+ * Writes to a user must call {@link #evict(String)}, writes to roles {@link #evictAll()}.
+ */
+@Component
+@Slf4j
+public class PrincipalCache {
+
+    private final long ttlNanos;
+    private final int maxSize;
+
+    // access ordered, so the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Entry> entries; // guarded by this
+
+    // bumped on every eviction; a load that started before an eviction must not be cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+
+    public PrincipalCache(@Value("${security.principal-cache.ttl-seconds:60}") long ttlSeconds,
+                          @Value("${security.principal-cache.max-size:10000}") int maxSize) {
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > PrincipalCache.this.maxSize;
+            }
+        };
+    }
+
+    public Optional<User> get(String email, Function<String, Optional<User>> loader) {
+
+        long now = System.nanoTime();
+
+        synchronized (this) {
+            Entry entry = entries.get(email);
+            if (entry != null && now - entry.loadedAt() < ttlNanos) {
+                hits.increment();
+                return Optional.of(copyOf(entry.user()));
+            }
+        }
+
+        misses.increment();
+
+        long loadGeneration = generation.get();
+        Optional<User> loaded = loader.apply(email);
+
+        loaded.ifPresent(user -> {
+            User snapshot = copyOf(user);
+            synchronized (this) {
+                if (generation.get() == loadGeneration) {
+                    entries.put(email, new Entry(snapshot, now));
+                }
+            }
+        });
+
+        return loaded.map(PrincipalCache::copyOf);
+    }
+
+    public void evict(String email) {
+        synchronized (this) {
+            generation.incrementAndGet();
+            entries.remove(email);
+        }
+    }
+
+    public void evictAll() {
+        synchronized (this) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+
+    // columns and roles only: lazy collections would not survive outside the loading session
+    private static User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .password(user.getPassword())
+                .phoneNumber(user.getPhoneNumber())
+                .profileUrl(user.getProfileUrl())
+                .address(user.getAddress())
+                .isActive(user.isActive())
+                .roles(user.getRoles() == null ? null : user.getRoles().stream()
+                        .map(role -> Role.builder().id(role.getId()).name(role.getName()).build())
+                        .collect(Collectors.toCollection(ArrayList::new)))
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+
+    private record Entry(User user, long loadedAt) {
+    }
+}
@@ -5,6 +5,7 @@ import com.phegon.FoodApp.exceptions.CustomAuthenticationEntryPoint;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -40,6 +41,7 @@ public class SecurityFilter {
                 // 👇 Thêm dòng này để Docker healthcheck không bị 401
                 .requestMatchers("/actuator/**").permitAll()
                 .requestMatchers("/api/auth/**", "/api/categories/**", "/api/menu/**", "/api/reviews/**").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/payments/webhook").permitAll()
                 .anyRequest().authenticated()
             )
             .sessionManagement(mag -> mag.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -0,0 +1,88 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.aws.AWSS3ServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Utilities;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AWSS3ServiceImplTest {
+
+    @Mock S3Client s3Client;
+    @Mock S3AsyncClient s3AsyncClient;
+
+    AWSS3ServiceImpl service;
+
+    MockMultipartFile file = new MockMultipartFile("imageFile", "burger.png", "image/png", new byte[2048]);
+
+    @BeforeEach
+    void init() {
+        // one upload slot, give up immediately when it is taken
+        service = new AWSS3ServiceImpl(s3Client, s3AsyncClient, "bucket", 1, 0);
+        lenient().when(s3AsyncClient.utilities())
+                .thenReturn(S3Utilities.builder().region(Region.US_EAST_2).build());
+    }
+
+    @Test
+    void uploadFile_StreamsWithKnownLengthAndReturnsUrl() {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+        URL url = service.uploadFile("menus/burger.png", file);
+
+        assertTrue(url.toString().endsWith("/menus/burger.png"));
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<AsyncRequestBody> body = ArgumentCaptor.forClass(AsyncRequestBody.class);
+        verify(s3AsyncClient).putObject(request.capture(), body.capture());
+        assertEquals(2048L, request.getValue().contentLength());
+        assertEquals("image/png", request.getValue().contentType());
+        assertEquals(2048L, body.getValue().contentLength().orElseThrow());
+    }
+
+    @Test
+    void uploadFile_Failure_ThrowsAndFreesSlot() {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("s3 down")))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> service.uploadFile("menus/a.png", file));
+        assertEquals("s3 down", ex.getMessage());
+
+        assertNotNull(service.uploadFile("menus/b.png", file));
+    }
+
+    @Test
+    void uploadFileAsync_AllSlotsBusy_FailsFast() {
+        CompletableFuture<PutObjectResponse> inFlight = new CompletableFuture<>();
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenReturn(inFlight);
+
+        CompletableFuture<URL> first = service.uploadFileAsync("menus/a.png", file);
+        CompletableFuture<URL> second = service.uploadFileAsync("menus/b.png", file);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, second::get);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        verify(s3AsyncClient, times(1)).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+
+        inFlight.complete(PutObjectResponse.builder().build());
+        assertTrue(first.isDone());
+    }
+}
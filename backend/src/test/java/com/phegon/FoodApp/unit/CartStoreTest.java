@@ -0,0 +1,360 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.auth_users.repository.UserRepository;
+import com.phegon.FoodApp.auth_users.services.UserService;
+import com.phegon.FoodApp.cart.dtos.CartDTO;
+import com.phegon.FoodApp.cart.entity.Cart;
+import com.phegon.FoodApp.cart.entity.CartItem;
+import com.phegon.FoodApp.cart.repository.CartItemRepository;
+import com.phegon.FoodApp.cart.repository.CartRepository;
+import com.phegon.FoodApp.cart.repository.CartTotalsRow;
+import com.phegon.FoodApp.cart.services.CartMapper;
+import com.phegon.FoodApp.cart.services.CartServiceImpl;
+import com.phegon.FoodApp.cart.services.CartStore;
+import com.phegon.FoodApp.cart.services.CartTotalsReconciler;
+import com.phegon.FoodApp.category.entity.Category;
+import com.phegon.FoodApp.exceptions.BadRequestException;
+import com.phegon.FoodApp.exceptions.NotFoundException;
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
+import com.phegon.FoodApp.menu.services.MenuMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the write-behind cart store against an in-memory database: taps must not touch the
+ * database, a flush must write everything since the last one in a handful of statements, and
+ * concurrent taps must not be lost.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CartStoreTest {
+
+    @Autowired TestEntityManager entityManager;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired CartRepository cartRepository;
+    @Autowired CartItemRepository cartItemRepository;
+    @Autowired MenuRepository menuRepository;
+    @Autowired UserRepository userRepository;
+    @MockitoBean UserService userService;
+    @MockitoBean MenuCatalog menuCatalog;
+
+    TransactionTemplate tx;
+    CartStore cartStore;
+    CartServiceImpl cartService;
+    Statistics statistics;
+
+    @BeforeEach
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+        cartStore = store(100, 30);
+        cartService = new CartServiceImpl(cartStore, menuCatalog, userService, new CartMapper(new MenuMapper()));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        lenient().when(menuCatalog.findMenu(anyLong())).thenAnswer(inv -> Optional.ofNullable(
+                        menuRepository.findById(inv.<Long>getArgument(0)).orElse(null))
+                .map(menu -> {
+                    MenuDTO menuDTO = new MenuDTO();
+                    menuDTO.setId(menu.getId());
+                    menuDTO.setName(menu.getName());
+                    menuDTO.setPrice(menu.getPrice());
+                    return menuDTO;
+                }));
+    }
+
+    CartStore store(int maxCarts, long idleMinutes) {
+        return new CartStore(cartRepository, cartItemRepository, menuRepository, userRepository, tx, maxCarts, idleMinutes, 1000);
+    }
+
+    record Fixture(User user, Cart cart, Menu burger, Menu fries) {}
+
+    Fixture seed(EntityManager em, int burgers) {
+        String suffix = String.valueOf(System.nanoTime());
+        User user = User.builder().name("cart user").email("cart" + suffix + "@x.com").password("secret").isActive(true).build();
+        em.persist(user);
+        Category category = Category.builder().name("Cart " + suffix).build();
+        em.persist(category);
+        Menu burger = Menu.builder().name("Burger").price(new BigDecimal("4.50")).category(category).build();
+        Menu fries = Menu.builder().name("Fries").price(new BigDecimal("2.00")).category(category).build();
+        em.persist(burger);
+        em.persist(fries);
+        Cart cart = Cart.builder().user(user).cartItems(new ArrayList<>())
+                .totalAmount(burger.getPrice().multiply(BigDecimal.valueOf(burgers))).itemCount(burgers).build();
+        em.persist(cart);
+        em.persist(CartItem.builder().cart(cart).menu(burger).quantity(burgers).pricePerUnit(burger.getPrice())
+                .subtotal(burger.getPrice().multiply(BigDecimal.valueOf(burgers))).build());
+        when(userService.getCurrentLoggedInUser()).thenReturn(user);
+        return new Fixture(user, cart, burger, fries);
+    }
+
+    Fixture seed(int burgers) {
+        Fixture fixture = seed(entityManager.getEntityManager(), burgers);
+        entityManager.flush();
+        entityManager.clear();
+        return fixture;
+    }
+
+    CartItem stored(Fixture fixture, Menu menu) {
+        entityManager.flush();
+        entityManager.clear();
+        return cartItemRepository.findByCart_Id(fixture.cart().getId()).stream()
+                .filter(item -> item.getMenu().getId().equals(menu.getId()))
+                .findFirst().orElse(null);
+    }
+
+    static CartDTO addRequest(Long menuId, int quantity) {
+        CartDTO cartDTO = new CartDTO();
+        cartDTO.setMenuId(menuId);
+        cartDTO.setQuantity(quantity);
+        return cartDTO;
+    }
+
+    @Test
+    void taps_AreServedFromMemory_FlushWritesThemOnce() {
+        Fixture fixture = seed(1);
+        cartService.getShoppingCart(); // loads the cart
+        statistics.clear();
+
+        for (int i = 0; i < 20; i++) {
+            cartService.incrementItem(fixture.burger().getId());
+        }
+        cartService.decrementItem(fixture.burger().getId());
+        cartService.addItemToCart(addRequest(fixture.burger().getId(), 3));
+        CartDTO cart = cartService.getShoppingCart().getData();
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(23, cart.getCartItems().get(0).getQuantity());
+        assertEquals(new BigDecimal("103.50"), cart.getTotalAmount());
+        assertEquals("Burger", cart.getCartItems().get(0).getMenu().getName());
+
+        assertEquals(1, cartStore.flushDirty());
+        entityManager.flush();
+        assertTrue(statistics.getPrepareStatementCount() <= 3, "flush took " + statistics.getPrepareStatementCount()); // lines, line UPDATEs, totals
+        assertEquals(0, cartStore.flushDirty()); // nothing left to write
+
+        CartItem burger = stored(fixture, fixture.burger());
+        assertEquals(23, burger.getQuantity());
+        assertEquals(new BigDecimal("103.50"), burger.getSubtotal());
+        Cart stored = cartRepository.findById(fixture.cart().getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("103.50").compareTo(stored.getTotalAmount()));
+        assertEquals(23, stored.getItemCount());
+    }
+
+    @Test
+    void runningTotals_FollowEveryChange() {
+        Fixture fixture = seed(2);
+
+        cartService.addItemToCart(addRequest(fixture.fries().getId(), 3));
+        cartService.incrementItem(fixture.burger().getId());
+        cartService.decrementItem(fixture.fries().getId());
+        Long friesLine = cartService.getShoppingCart().getData().getCartItems().get(1).getId();
+        CartDTO cart = cartService.getShoppingCart().getData();
+        assertEquals(0, new BigDecimal("17.50").compareTo(cart.getTotalAmount())); // 3 x 4.50 + 2 x 2.00
+        assertEquals(5, cart.getItemCount());
+
+        cartService.removeItem(friesLine);
+        cart = cartService.getShoppingCart().getData();
+        assertEquals(0, new BigDecimal("13.50").compareTo(cart.getTotalAmount()));
+        assertEquals(3, cart.getItemCount());
+
+        cartService.clearShoppingCart();
+        cart = cartService.getShoppingCart().getData();
+        assertEquals(0, BigDecimal.ZERO.compareTo(cart.getTotalAmount()));
+        assertEquals(0, cart.getItemCount());
+    }
+
+    @Test
+    void cartStoredWithoutTotals_IsCountedOnceOnLoad() {
+        Fixture fixture = seed(4);
+        cartRepository.updateTotals(fixture.cart().getId(), null, 0);
+        entityManager.clear();
+
+        CartStore.CartSnapshot cart = cartStore.read(fixture.user().getId());
+        assertEquals(0, new BigDecimal("18.00").compareTo(cart.totalAmount()));
+        assertEquals(4, cart.itemCount());
+
+        assertEquals(1, cartStore.flushDirty());
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(0, new BigDecimal("18.00").compareTo(cartRepository.findById(fixture.cart().getId()).orElseThrow().getTotalAmount()));
+    }
+
+    @Test
+    void reconciler_RepairsDriftedTotals() {
+        Fixture drifted = seed(2);
+        Fixture fine = seed(1);
+        cartRepository.updateTotals(drifted.cart().getId(), new BigDecimal("99.00"), 7);
+        entityManager.clear();
+
+        CartTotalsReconciler reconciler = new CartTotalsReconciler(cartRepository, cartStore);
+
+        List<Long> flagged = cartRepository.findDriftedTotals().stream().map(CartTotalsRow::cartId).toList();
+        assertTrue(flagged.contains(drifted.cart().getId()));
+        assertFalse(flagged.contains(fine.cart().getId()));
+
+        reconciler.reconcile();
+        entityManager.flush();
+        entityManager.clear();
+
+        Cart repaired = cartRepository.findById(drifted.cart().getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("9.00").compareTo(repaired.getTotalAmount()));
+        assertEquals(2, repaired.getItemCount());
+        assertTrue(cartRepository.findDriftedTotals().stream().noneMatch(row -> row.cartId().equals(drifted.cart().getId())));
+    }
+
+    @Test
+    void newMenu_IsWrittenThroughWithItsId_RemovalIsWrittenBehind() {
+        Fixture fixture = seed(1);
+
+        cartService.addItemToCart(addRequest(fixture.fries().getId(), 2));
+
+        Long friesLine = cartService.getShoppingCart().getData().getCartItems().get(1).getId();
+        assertNotNull(friesLine);
+        assertEquals(friesLine, stored(fixture, fixture.fries()).getId());
+
+        cartService.removeItem(friesLine);
+        cartService.decrementItem(fixture.burger().getId());
+        assertTrue(cartService.getShoppingCart().getData().getCartItems().isEmpty());
+        assertNotNull(stored(fixture, fixture.fries()));
+
+        cartStore.flushDirty();
+        assertNull(stored(fixture, fixture.fries()));
+        assertNull(stored(fixture, fixture.burger()));
+    }
+
+    @Test
+    void rejectsUnknownLinesAndBadRequests() {
+        Fixture other = seed(1);
+        Long othersLine = stored(other, other.burger()).getId();
+        Fixture mine = seed(1);
+
+        assertThrows(NotFoundException.class, () -> cartService.removeItem(othersLine));
+        assertThrows(NotFoundException.class, () -> cartService.incrementItem(mine.fries().getId()));
+        assertThrows(NotFoundException.class, () -> cartService.addItemToCart(addRequest(-1L, 1)));
+        assertThrows(BadRequestException.class, () -> cartService.addItemToCart(addRequest(mine.fries().getId(), 0)));
+    }
+
+    @Test
+    void eviction_DropsIdleAndLeastRecentCarts_WhichReloadFromTheDatabase() {
+        Fixture first = seed(2);
+        Fixture second = seed(3);
+
+        CartStore idle = store(100, 0);
+        idle.adjust(first.user().getId(), first.burger().getId(), 1);
+        assertEquals(1, idle.size());
+        idle.flushDirty(); // flushed first, then evicted
+        assertEquals(0, idle.size());
+        assertEquals(3, idle.read(first.user().getId()).lines().get(0).quantity());
+
+        CartStore small = store(1, 30);
+        small.read(first.user().getId());
+        small.read(second.user().getId());
+        small.flushDirty();
+        assertEquals(1, small.size());
+        assertEquals(3, small.read(second.user().getId()).lines().get(0).quantity());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void clearInARolledBackTransaction_ForgetsTheCart() {
+        Fixture fixture = committed(2);
+        try {
+            cartStore.read(fixture.user().getId());
+
+            tx.executeWithoutResult(status -> {
+                cartStore.clear(fixture.user().getId());
+                status.setRollbackOnly();
+            });
+
+            List<CartStore.CartLine> lines = cartStore.read(fixture.user().getId()).lines();
+            assertEquals(1, lines.size());
+            assertEquals(2, lines.get(0).quantity());
+        } finally {
+            delete(fixture);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void concurrentTaps_WhileFlushing_NoneAreLost() throws Exception {
+        Fixture fixture = committed(100); // enough that the decrements never reach the last unit
+        Long userId = fixture.user().getId();
+        Long menuId = fixture.burger().getId();
+
+        ExecutorService pool = Executors.newFixedThreadPool(9);
+        AtomicBoolean tapping = new AtomicBoolean(true);
+        try {
+            Future<?> flusher = pool.submit(() -> {
+                while (tapping.get()) cartStore.flushDirty();
+            });
+            List<Future<?>> taps = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                taps.add(pool.submit(() -> {
+                    for (int j = 0; j < 50; j++) cartStore.adjust(userId, menuId, 1);
+                }));
+                taps.add(pool.submit(() -> {
+                    for (int j = 0; j < 10; j++) cartStore.adjust(userId, menuId, -1);
+                }));
+            }
+            for (Future<?> tap : taps) tap.get();
+            tapping.set(false);
+            flusher.get();
+            cartStore.flushDirty();
+
+            int expected = 100 + 4 * 50 - 4 * 10;
+            assertEquals(expected, cartStore.read(userId).lines().get(0).quantity());
+            CartItem burger = tx.execute(status -> stored(fixture, fixture.burger()));
+            assertEquals(expected, burger.getQuantity());
+        } finally {
+            pool.shutdownNow();
+            delete(fixture);
+        }
+    }
+
+    Fixture committed(int burgers) {
+        return tx.execute(status -> seed(entityManager.getEntityManager(), burgers));
+    }
+
+    void delete(Fixture fixture) {
+        tx.executeWithoutResult(status -> {
+            EntityManager em = entityManager.getEntityManager();
+            em.createQuery("DELETE FROM CartItem ci WHERE ci.cart.id = :id").setParameter("id", fixture.cart().getId()).executeUpdate();
+            em.remove(em.find(Cart.class, fixture.cart().getId()));
+            em.remove(em.find(Menu.class, fixture.burger().getId()));
+            em.remove(em.find(Menu.class, fixture.fries().getId()));
+            em.remove(em.find(Category.class, fixture.burger().getCategory().getId()));
+            em.remove(em.find(User.class, fixture.user().getId()));
+        });
+    }
+}
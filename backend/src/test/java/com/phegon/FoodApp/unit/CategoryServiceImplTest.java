@@ -5,6 +5,7 @@ import com.phegon.FoodApp.category.entity.Category;
 import com.phegon.FoodApp.category.repository.CategoryRepository;
 import com.phegon.FoodApp.category.services.CategoryServiceImpl;
 import com.phegon.FoodApp.exceptions.NotFoundException;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
 import com.phegon.FoodApp.response.Response;
 
 import org.junit.jupiter.api.*;
@@ -23,6 +24,7 @@ class CategoryServiceImplTest {
 
     @Mock CategoryRepository categoryRepository;
     @Mock org.modelmapper.ModelMapper modelMapper;
+    @Mock MenuCatalog menuCatalog;
 
     @InjectMocks CategoryServiceImpl categoryService;
 
@@ -274,6 +276,7 @@ class CategoryServiceImplTest {
 
             Response<?> res = categoryService.deleteCategory(1L);
             assertEquals(200, res.getStatusCode());
+            verify(menuCatalog).invalidate();
         }
 
         @Test
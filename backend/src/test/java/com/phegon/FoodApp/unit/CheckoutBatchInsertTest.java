@@ -0,0 +1,127 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.auth_users.repository.UserRepository;
+import com.phegon.FoodApp.auth_users.services.UserMapper;
+import com.phegon.FoodApp.auth_users.services.UserService;
+import com.phegon.FoodApp.cart.entity.Cart;
+import com.phegon.FoodApp.cart.entity.CartItem;
+import com.phegon.FoodApp.cart.repository.CartItemRepository;
+import com.phegon.FoodApp.cart.repository.CartRepository;
+import com.phegon.FoodApp.cart.services.CartService;
+import com.phegon.FoodApp.cart.services.CartStore;
+import com.phegon.FoodApp.category.entity.Category;
+import com.phegon.FoodApp.email_notification.services.NotificationService;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuMapper;
+import com.phegon.FoodApp.order.entity.Order;
+import com.phegon.FoodApp.order.repository.CheckoutRequestRepository;
+import com.phegon.FoodApp.order.repository.OrderItemRepository;
+import com.phegon.FoodApp.order.repository.OrderRepository;
+import com.phegon.FoodApp.order.services.OrderMapper;
+import com.phegon.FoodApp.order.services.OrderServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Places orders from carts of different sizes against an in-memory database and checks that the
+ * number of statements sent for a checkout does not depend on the number of line items.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CheckoutBatchInsertTest {
+
+    @Autowired TestEntityManager entityManager;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderItemRepository orderItemRepository;
+    @Autowired CartRepository cartRepository;
+    @Autowired CartItemRepository cartItemRepository;
+    @Autowired MenuRepository menuRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired CheckoutRequestRepository checkoutRequestRepository;
+    @MockitoBean UserService userService;
+    @MockitoBean CartService cartService;
+    @MockitoBean NotificationService notificationService;
+
+    OrderServiceImpl orderService;
+    Statistics statistics;
+    Category category;
+    int users;
+
+    @BeforeEach
+    void init() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        orderService = new OrderServiceImpl(orderRepository, orderItemRepository, userService, notificationService,
+                new OrderMapper(new UserMapper(), new MenuMapper()), cartService, cartRepository,
+                new CartStore(cartRepository, cartItemRepository, menuRepository, userRepository, transactionTemplate, 100, 30, 1000),
+                null, checkoutRequestRepository, transactionTemplate);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        category = entityManager.persist(Category.builder().name("Mains").build());
+    }
+
+    User customerWithCart(int items) {
+        User user = entityManager.persist(User.builder().name("user" + users).email("user" + users++ + "@x.com")
+                .password("secret").address("street").isActive(true).build());
+        Cart cart = entityManager.persist(Cart.builder().user(user).cartItems(new ArrayList<>())
+                .totalAmount(BigDecimal.TEN.multiply(BigDecimal.valueOf(items))).itemCount(items).build());
+        for (int i = 0; i < items; i++) {
+            Menu menu = entityManager.persist(Menu.builder().name("menu" + i).price(BigDecimal.TEN).category(category).build());
+            cart.getCartItems().add(entityManager.persist(CartItem.builder().cart(cart).menu(menu).quantity(1)
+                    .pricePerUnit(BigDecimal.TEN).subtotal(BigDecimal.TEN).build()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return user;
+    }
+
+    long checkoutStatements(User user) {
+        when(userService.getCurrentLoggedInUser()).thenReturn(user);
+        statistics.clear();
+        orderService.placeOrderFromCart("key-" + user.getId());
+        entityManager.flush();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void placeOrderFromCart_StatementCountDoesNotGrowWithLineItems() {
+        List<User> warmUp = List.of(customerWithCart(1), customerWithCart(1));
+        User small = customerWithCart(2);
+        User large = customerWithCart(40);
+        warmUp.forEach(this::checkoutStatements); // the pooled optimizer reads each sequence twice on first use
+
+        long smallCheckout = checkoutStatements(small);
+        long largeCheckout = checkoutStatements(large);
+
+        assertEquals(smallCheckout, largeCheckout, "item INSERTs should be batched");
+        assertTrue(largeCheckout <= 10, "checkout took " + largeCheckout + " statements");
+
+        entityManager.clear();
+        List<Order> orders = orderRepository.findAll();
+        assertEquals(4, orders.size());
+        assertEquals(40, orderItemRepository.findAll().stream()
+                .filter(item -> item.getOrder().getUser().getId().equals(large.getId())).count());
+        assertEquals(new BigDecimal("400.00"), orders.stream()
+                .filter(order -> order.getUser().getId().equals(large.getId())).findFirst().orElseThrow().getTotalAmount());
+    }
+}
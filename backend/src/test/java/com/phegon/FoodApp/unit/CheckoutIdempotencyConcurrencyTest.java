@@ -0,0 +1,133 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.auth_users.repository.UserRepository;
+import com.phegon.FoodApp.auth_users.services.UserMapper;
+import com.phegon.FoodApp.auth_users.services.UserService;
+import com.phegon.FoodApp.cart.entity.Cart;
+import com.phegon.FoodApp.cart.entity.CartItem;
+import com.phegon.FoodApp.cart.repository.CartItemRepository;
+import com.phegon.FoodApp.cart.repository.CartRepository;
+import com.phegon.FoodApp.cart.services.CartService;
+import com.phegon.FoodApp.cart.services.CartStore;
+import com.phegon.FoodApp.category.entity.Category;
+import com.phegon.FoodApp.email_notification.services.NotificationService;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuMapper;
+import com.phegon.FoodApp.order.repository.CheckoutRequestRepository;
+import com.phegon.FoodApp.order.repository.OrderItemRepository;
+import com.phegon.FoodApp.order.repository.OrderRepository;
+import com.phegon.FoodApp.order.services.OrderMapper;
+import com.phegon.FoodApp.order.services.OrderServiceImpl;
+import com.phegon.FoodApp.response.Response;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Sends each checkout twice at once with the same Idempotency-Key, as a double tap or an early retry
+ * would, against an in-memory database, and checks that both get the original result.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutIdempotencyConcurrencyTest {
+
+    static final int CUSTOMERS = 10;
+
+    @Autowired TestEntityManager entityManager;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderItemRepository orderItemRepository;
+    @Autowired CartRepository cartRepository;
+    @Autowired CartItemRepository cartItemRepository;
+    @Autowired MenuRepository menuRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired CheckoutRequestRepository checkoutRequestRepository;
+    @MockitoBean UserService userService;
+    @MockitoBean CartService cartService;
+    @MockitoBean NotificationService notificationService;
+
+    @Test
+    void placeOrderFromCart_SameKeyTwiceAtOnce_BothSucceedWithOneOrder() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CartStore cartStore = new CartStore(cartRepository, cartItemRepository, menuRepository, userRepository, tx, 100, 30, 1000);
+        OrderServiceImpl orderService = new OrderServiceImpl(orderRepository, orderItemRepository, userService, notificationService,
+                new OrderMapper(new UserMapper(), new MenuMapper()), cartService, cartRepository, cartStore,
+                null, checkoutRequestRepository, tx);
+
+        ThreadLocal<User> current = new ThreadLocal<>();
+        when(userService.getCurrentLoggedInUser()).thenAnswer(invocation -> current.get());
+        // as CartServiceImpl does: the checkout empties the cart in its own transaction
+        doAnswer(invocation -> {
+            cartStore.clear(current.get().getId());
+            return null;
+        }).when(cartService).clearShoppingCart();
+
+        List<User> customers = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            Category category = entityManager.persist(Category.builder().name("Mains").build());
+            Menu menu = entityManager.persist(Menu.builder().name("Burger").price(BigDecimal.TEN).category(category).build());
+            for (int i = 0; i < CUSTOMERS; i++) {
+                User user = entityManager.persist(User.builder().name("user" + i).email("tap" + i + "@x.com")
+                        .password("secret").address("street").isActive(true).build());
+                Cart cart = entityManager.persist(Cart.builder().user(user).cartItems(new ArrayList<>())
+                        .totalAmount(BigDecimal.TEN).itemCount(1).build());
+                entityManager.persist(CartItem.builder().cart(cart).menu(menu).quantity(1)
+                        .pricePerUnit(BigDecimal.TEN).subtotal(BigDecimal.TEN).build());
+                customers.add(user);
+            }
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (User user : customers) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Response<?>>> taps = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    taps.add(pool.submit(() -> {
+                        current.set(user);
+                        start.await();
+                        return orderService.placeOrderFromCart("tap-" + user.getId());
+                    }));
+                }
+                start.countDown();
+                for (Future<Response<?>> tap : taps) {
+                    assertEquals(200, tap.get().getStatusCode(), "user " + user.getId());
+                }
+            }
+
+            assertEquals(CUSTOMERS, orderRepository.count());
+            assertEquals(CUSTOMERS, checkoutRequestRepository.count());
+            verify(notificationService, times(CUSTOMERS)).queueEmail(any());
+        } finally {
+            pool.shutdown();
+            checkoutRequestRepository.deleteAllInBatch();
+            orderItemRepository.deleteAllInBatch();
+            orderRepository.deleteAllInBatch();
+            cartItemRepository.deleteAllInBatch();
+            cartRepository.deleteAllInBatch();
+            menuRepository.deleteAllInBatch();
+            tx.executeWithoutResult(status -> entityManager.getEntityManager()
+                    .createQuery("DELETE FROM Category").executeUpdate());
+            userRepository.deleteAllInBatch(customers);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.auth_users.repository.UserRepository;
+import com.phegon.FoodApp.auth_users.services.UserMapper;
+import com.phegon.FoodApp.auth_users.services.UserService;
+import com.phegon.FoodApp.cart.entity.Cart;
+import com.phegon.FoodApp.cart.entity.CartItem;
+import com.phegon.FoodApp.cart.repository.CartItemRepository;
+import com.phegon.FoodApp.cart.repository.CartRepository;
+import com.phegon.FoodApp.cart.services.CartService;
+import com.phegon.FoodApp.cart.services.CartStore;
+import com.phegon.FoodApp.category.entity.Category;
+import com.phegon.FoodApp.config.VirtualThreadMonitor;
+import com.phegon.FoodApp.email_notification.services.NotificationService;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuMapper;
+import com.phegon.FoodApp.order.repository.CheckoutRequestRepository;
+import com.phegon.FoodApp.order.repository.OrderItemRepository;
+import com.phegon.FoodApp.order.repository.OrderRepository;
+import com.phegon.FoodApp.order.services.OrderMapper;
+import com.phegon.FoodApp.order.services.OrderServiceImpl;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Places 5k concurrent checkouts once on a platform pool the size of Tomcat's default
+ * (200 threads) and once on virtual threads, and prints throughput and latency for both.
+ * <p>
+ * Each checkout first blocks for {@code benchmark.io-latency-ms} (100ms by default), standing in for
+ * the request's other blocking calls, then runs the real checkout against an in-memory database
+ * behind a Hikari pool the size of production's. Run with {@code mvn verify -Dit.test=CheckoutThreadingBenchmarkIT};
+ * only consistency is asserted, the numbers depend on the machine and are logged.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:checkout-benchmark;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=10",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.phegon.FoodApp=WARN",
+        "logging.level.com.phegon.FoodApp.unit.CheckoutThreadingBenchmarkIT=INFO"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Slf4j
+class CheckoutThreadingBenchmarkIT {
+
+    static final int CHECKOUTS = Integer.getInteger("benchmark.checkouts", 5_000);
+    static final long IO_LATENCY_MS = Long.getLong("benchmark.io-latency-ms", 100);
+    static final int PLATFORM_THREADS = 200;
+
+    @Autowired TestEntityManager entityManager;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderItemRepository orderItemRepository;
+    @Autowired CartRepository cartRepository;
+    @Autowired CartItemRepository cartItemRepository;
+    @Autowired MenuRepository menuRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired CheckoutRequestRepository checkoutRequestRepository;
+    @MockitoBean UserService userService;
+    @MockitoBean CartService cartService;
+    @MockitoBean NotificationService notificationService;
+
+    final ThreadLocal<User> customer = new ThreadLocal<>();
+
+    TransactionTemplate tx;
+    OrderServiceImpl orderService;
+
+    record Run(String mode, long wallMillis, long p50Millis, long p99Millis, long failures, String firstFailure) {
+
+        double throughput() {
+            return CHECKOUTS * 1000.0 / wallMillis;
+        }
+    }
+
+    @BeforeEach
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+        orderService = new OrderServiceImpl(orderRepository, orderItemRepository, userService, notificationService,
+                new OrderMapper(new UserMapper(), new MenuMapper()), cartService, cartRepository,
+                new CartStore(cartRepository, cartItemRepository, menuRepository, userRepository, tx, CHECKOUTS * 2, 30, 1000),
+                null, checkoutRequestRepository, tx);
+        when(userService.getCurrentLoggedInUser()).thenAnswer(invocation -> customer.get());
+    }
+
+    @Test
+    void checkouts_OnPlatformThreadsAndOnVirtualThreads() throws Exception {
+        List<User> platformCustomers = customersWithCarts("platform");
+        List<User> virtualCustomers = customersWithCarts("virtual");
+
+        Run platform;
+        try (ExecutorService pool = Executors.newFixedThreadPool(PLATFORM_THREADS)) {
+            platform = run("platform x" + PLATFORM_THREADS, pool, platformCustomers);
+        }
+
+        VirtualThreadMonitor monitor = new VirtualThreadMonitor(5);
+        monitor.start();
+        Run virtual;
+        VirtualThreadMonitor.Stats stats;
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            monitor.sample();
+            virtual = run("virtual", pool, virtualCustomers);
+            stats = monitor.sample();
+        } finally {
+            monitor.stop();
+        }
+
+        for (Run run : List.of(platform, virtual)) {
+            log.info("{}: {} checkouts in {}ms, {}/s, p50 {}ms, p99 {}ms, {} failed",
+                    run.mode(), CHECKOUTS, run.wallMillis(), String.format("%.1f", run.throughput()),
+                    run.p50Millis(), run.p99Millis(), run.failures());
+            if (run.firstFailure() != null) log.info("{}: first failure {}", run.mode(), run.firstFailure());
+        }
+        log.info("virtual carriers {}/{} at {}% CPU, {} pins over 5ms ({}ms), sites {}",
+                stats.carriers(), stats.parallelism(), Math.round(stats.carrierUtilization() * 100),
+                stats.pinnedEvents(), stats.pinnedMillis(), stats.pinnedSites());
+
+        // a failure must not leave half an order behind; with far more threads than connections,
+        // checkouts that wait longer than Hikari's connection timeout do fail
+        assertEquals(2L * CHECKOUTS - platform.failures() - virtual.failures(), orderRepository.count());
+    }
+
+    Run run(String mode, ExecutorService pool, List<User> customers) throws Exception {
+        long start = System.nanoTime();
+        List<Future<Long>> checkouts = new ArrayList<>(customers.size());
+        for (User user : customers) {
+            checkouts.add(pool.submit(() -> {
+                customer.set(user);
+                try {
+                    Thread.sleep(IO_LATENCY_MS);
+                    orderService.placeOrderFromCart("bench-" + user.getId());
+                } finally {
+                    customer.remove();
+                }
+                return (System.nanoTime() - start) / 1_000_000; // queueing included, as for a request
+            }));
+        }
+
+        long[] latencies = new long[checkouts.size()];
+        long failures = 0;
+        String firstFailure = null;
+        for (int i = 0; i < checkouts.size(); i++) {
+            try {
+                latencies[i] = checkouts.get(i).get();
+            } catch (ExecutionException e) {
+                failures++;
+                if (firstFailure == null) firstFailure = String.valueOf(e.getCause());
+            }
+        }
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Arrays.sort(latencies);
+        return new Run(mode, wallMillis, latencies[latencies.length / 2], latencies[latencies.length * 99 / 100], failures, firstFailure);
+    }
+
+    List<User> customersWithCarts(String prefix) {
+        return tx.execute(status -> {
+            EntityManager em = entityManager.getEntityManager();
+            Category category = Category.builder().name("Bench " + prefix).build();
+            em.persist(category);
+            Menu menu = Menu.builder().name("Burger").price(BigDecimal.TEN).category(category).build();
+            em.persist(menu);
+
+            List<User> users = new ArrayList<>(CHECKOUTS);
+            for (int i = 0; i < CHECKOUTS; i++) {
+                User user = User.builder().name(prefix + i).email(prefix + i + "@bench.com")
+                        .password("secret").address("street").isActive(true).build();
+                em.persist(user);
+                Cart cart = Cart.builder().user(user).cartItems(new ArrayList<>())
+                        .totalAmount(new BigDecimal("20")).itemCount(2).build();
+                em.persist(cart);
+                em.persist(CartItem.builder().cart(cart).menu(menu).quantity(2)
+                        .pricePerUnit(BigDecimal.TEN).subtotal(new BigDecimal("20")).build());
+                users.add(user);
+                if (i % 500 == 499) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            return users;
+        });
+    }
+}
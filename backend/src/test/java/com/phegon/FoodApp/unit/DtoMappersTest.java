@@ -0,0 +1,161 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.dtos.UserDTO;
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.auth_users.services.UserMapper;
+import com.phegon.FoodApp.cart.dtos.CartDTO;
+import com.phegon.FoodApp.cart.entity.Cart;
+import com.phegon.FoodApp.cart.entity.CartItem;
+import com.phegon.FoodApp.cart.services.CartMapper;
+import com.phegon.FoodApp.category.entity.Category;
+import com.phegon.FoodApp.enums.OrderStatus;
+import com.phegon.FoodApp.enums.PaymentStatus;
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.services.MenuMapper;
+import com.phegon.FoodApp.order.dtos.OrderDTO;
+import com.phegon.FoodApp.order.entity.Order;
+import com.phegon.FoodApp.order.entity.OrderItem;
+import com.phegon.FoodApp.order.services.OrderMapper;
+import com.phegon.FoodApp.payment.dtos.PaymentDTO;
+import com.phegon.FoodApp.payment.entity.Payment;
+import com.phegon.FoodApp.payment.services.PaymentMapper;
+import com.phegon.FoodApp.review.entity.Review;
+import com.phegon.FoodApp.role.entity.Role;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DtoMappersTest {
+
+    final MenuMapper menuMapper = new MenuMapper();
+    final UserMapper userMapper = new UserMapper();
+    final OrderMapper orderMapper = new OrderMapper(userMapper, menuMapper);
+    final CartMapper cartMapper = new CartMapper(menuMapper);
+    final PaymentMapper paymentMapper = new PaymentMapper(orderMapper, userMapper);
+
+    User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setName("John");
+        user.setEmail("john@example.com");
+        user.setPassword("$2a$10$hash");
+        user.setAddress("HN");
+        user.setActive(true);
+        user.setRoles(List.of(Role.builder().id(2L).name("CUSTOMER").build()));
+        return user;
+    }
+
+    Menu menu() {
+        Category category = new Category();
+        category.setId(5L);
+        Menu menu = Menu.builder().id(4L).name("Burger").price(BigDecimal.TEN).category(category)
+                .reviews(List.of(new Review())).build();
+        menu.setThumbnailUrl("t.jpg");
+        menu.setCardUrl("c.jpg");
+        menu.setDetailUrl("d.jpg");
+        return menu;
+    }
+
+    Order order() {
+        OrderItem item = new OrderItem();
+        item.setId(9L);
+        item.setMenu(menu());
+        item.setQuantity(2);
+        item.setPricePerUnit(BigDecimal.TEN);
+        item.setSubtotal(BigDecimal.valueOf(20));
+
+        Order order = new Order();
+        order.setId(3L);
+        order.setUser(user());
+        order.setOrderDate(LocalDateTime.now());
+        order.setTotalAmount(BigDecimal.valueOf(20));
+        order.setOrderStatus(OrderStatus.INITIALIZED);
+        order.setPaymentStatus(PaymentStatus.PENDING);
+        order.setOrderItems(List.of(item));
+        return order;
+    }
+
+    @Test
+    void menu_MapsScalarsAndVariants_NeverReviews() {
+        MenuDTO dto = menuMapper.toDTO(menu());
+
+        assertEquals("Burger", dto.getName());
+        assertEquals(5L, dto.getCategoryId());
+        assertEquals(0L, dto.getReviewCount());
+        assertEquals("t.jpg 160w, c.jpg 480w, d.jpg 1024w", dto.getImageSrcSet());
+        assertNull(dto.getReviews());
+
+        MenuDTO copy = menuMapper.copy(dto);
+        assertNotSame(dto, copy);
+        assertEquals(dto.getImageVariants(), copy.getImageVariants());
+    }
+
+    @Test
+    void user_NeverCopiesPassword_RolesOnlyWhenAsked() {
+        UserDTO withRoles = userMapper.toDTO(user());
+        UserDTO withoutRoles = userMapper.toDTO(user(), false);
+
+        assertNull(withRoles.getPassword());
+        assertEquals("CUSTOMER", withRoles.getRoles().get(0).getName());
+        assertTrue(withRoles.isActive());
+        assertNull(withoutRoles.getRoles());
+        assertEquals("HN", withoutRoles.getAddress());
+    }
+
+    @Test
+    void order_CustomerOnlyWhenAsked_ItemsCarryMenu() {
+        OrderDTO withUser = orderMapper.toDTO(order(), true);
+        OrderDTO withoutUser = orderMapper.toDTO(order(), false);
+
+        assertEquals("john@example.com", withUser.getUser().getEmail());
+        assertNull(withUser.getUser().getRoles());
+        assertNull(withoutUser.getUser());
+        assertEquals(4L, withUser.getOrderItems().get(0).getMenuId());
+        assertEquals("Burger", withUser.getOrderItems().get(0).getMenu().getName());
+        assertNull(withUser.getOrderItems().get(0).getMenu().getReviews());
+    }
+
+    @Test
+    void payment_ListViewIsFlat_DetailViewHasOrderAndUser() {
+        Payment payment = new Payment();
+        payment.setId(6L);
+        payment.setAmount(BigDecimal.valueOf(20));
+        payment.setOrder(order());
+        payment.setUser(user());
+
+        PaymentDTO flat = paymentMapper.toDTOs(List.of(payment)).get(0);
+        PaymentDTO detail = paymentMapper.toDTO(payment, true);
+
+        assertEquals(3L, flat.getOrderId());
+        assertNull(flat.getOrder());
+        assertNull(flat.getUser());
+        assertNull(detail.getOrder().getUser());
+        assertNull(detail.getUser().getRoles());
+        assertEquals(1, detail.getOrder().getOrderItems().size());
+    }
+
+    @Test
+    void cart_MapsItemsWithoutOwner() {
+        CartItem item = new CartItem();
+        item.setId(8L);
+        item.setMenu(menu());
+        item.setQuantity(1);
+        item.setSubtotal(BigDecimal.TEN);
+
+        Cart cart = new Cart();
+        cart.setId(2L);
+        cart.setUser(user());
+        cart.setCartItems(List.of(item));
+
+        CartDTO dto = cartMapper.toDTO(cart);
+
+        assertEquals(1, dto.getCartItems().size());
+        assertEquals(BigDecimal.TEN, dto.getCartItems().get(0).getSubtotal());
+        assertNull(dto.getCartItems().get(0).getMenu().getReviews());
+    }
+}
@@ -0,0 +1,139 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
+import com.phegon.FoodApp.email_notification.entity.EmailOutbox;
+import com.phegon.FoodApp.email_notification.repository.EmailOutboxRepository;
+import com.phegon.FoodApp.email_notification.services.EmailOutboxDispatcher;
+import com.phegon.FoodApp.email_notification.services.NotificationService;
+import com.phegon.FoodApp.enums.OutboxStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxDispatcherTest {
+
+    @Mock EmailOutboxRepository emailOutboxRepository;
+    @Mock NotificationService notificationService;
+    @Mock TransactionTemplate transactionTemplate;
+
+    EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        // batch size 2, 2 threads, 3 attempts, 30s base backoff, 1h cap, 5 min lease
+        dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, notificationService, transactionTemplate,
+                2, 2, 3, 30, 3600, 300);
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().when(emailOutboxRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        lenient().when(notificationService.toNotification(any()))
+                .thenAnswer(inv -> NotificationDTO.builder().id(inv.<EmailOutbox>getArgument(0).getId()).build());
+        lenient().when(notificationService.deliverBatch(anyList()))
+                .thenAnswer(inv -> Collections.nCopies(inv.<List<?>>getArgument(0).size(), null));
+    }
+
+    EmailOutbox outbox(Long id, int attempts) {
+        return EmailOutbox.builder()
+                .id(id)
+                .recipient(id + "@x.com")
+                .status(OutboxStatus.PENDING)
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void dispatch_SendsBatchAndMarksSent() {
+        EmailOutbox first = outbox(1L, 0);
+        when(emailOutboxRepository.findDueForUpdate(anyList(), any(), eq(Limit.of(2))))
+                .thenReturn(List.of(first));
+
+        assertEquals(1, dispatcher.dispatch());
+
+        assertEquals(OutboxStatus.SENT, first.getStatus());
+        assertNotNull(first.getSentAt());
+        verify(notificationService).deliverBatch(anyList());
+    }
+
+    @Test
+    void dispatch_FullBatch_KeepsDraining() {
+        when(emailOutboxRepository.findDueForUpdate(anyList(), any(), any()))
+                .thenReturn(List.of(outbox(1L, 0), outbox(2L, 0)))
+                .thenReturn(List.of(outbox(3L, 0)));
+
+        assertEquals(3, dispatcher.dispatch());
+        verify(emailOutboxRepository, times(2)).findDueForUpdate(anyList(), any(), any());
+        // the full batch is split across both workers, one SMTP connection each
+        verify(notificationService, times(3)).deliverBatch(argThat(chunk -> chunk.size() == 1));
+    }
+
+    @Test
+    void dispatch_PartialFailure_OnlyFailedRowsRetried() {
+        EmailOutbox sent = outbox(1L, 0);
+        EmailOutbox rejected = outbox(2L, 0);
+        when(emailOutboxRepository.findDueForUpdate(anyList(), any(), any()))
+                .thenReturn(List.of(sent, rejected))
+                .thenReturn(List.of());
+        when(notificationService.deliverBatch(anyList())).thenAnswer(inv -> inv.<List<NotificationDTO>>getArgument(0).stream()
+                .map(notification -> notification.getId() == 2L ? "550 mailbox unavailable" : null)
+                .toList());
+
+        assertEquals(1, dispatcher.dispatch());
+
+        assertEquals(OutboxStatus.SENT, sent.getStatus());
+        assertEquals(OutboxStatus.PENDING, rejected.getStatus());
+        assertEquals("550 mailbox unavailable", rejected.getLastError());
+    }
+
+    @Test
+    void dispatch_Failure_RetriesWithBackoffThenDeadLetters() {
+        EmailOutbox retried = outbox(1L, 0);
+        EmailOutbox exhausted = outbox(2L, 2);
+        when(emailOutboxRepository.findDueForUpdate(anyList(), any(), any()))
+                .thenReturn(List.of(retried, exhausted))
+                .thenReturn(List.of());
+        when(notificationService.deliverBatch(anyList())).thenThrow(new IllegalStateException("smtp down"));
+
+        assertEquals(0, dispatcher.dispatch());
+
+        assertEquals(OutboxStatus.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+        assertEquals("smtp down", retried.getLastError());
+        assertTrue(retried.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(29)));
+
+        assertEquals(OutboxStatus.DEAD, exhausted.getStatus());
+        assertEquals(3, exhausted.getAttempts());
+    }
+
+    @Test
+    void dispatch_NothingDue_DoesNothing() {
+        when(emailOutboxRepository.findDueForUpdate(anyList(), any(), any())).thenReturn(List.of());
+
+        assertEquals(0, dispatcher.dispatch());
+        verify(notificationService, never()).deliverBatch(anyList());
+    }
+}
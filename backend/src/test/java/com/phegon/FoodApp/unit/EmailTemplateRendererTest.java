@@ -0,0 +1,90 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.email_notification.dtos.EmailRenderStatsDTO;
+import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
+import com.phegon.FoodApp.email_notification.services.EmailTemplateRenderer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplateRendererTest {
+
+    EmailTemplateRenderer renderer;
+
+    @BeforeEach
+    void init() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+
+        renderer = new EmailTemplateRenderer(engine, List.of("order-confirmation"));
+    }
+
+    Map<String, Object> orderVariables(String itemName) {
+        return Map.of(
+                "customerName", "Ada",
+                "orderId", "42",
+                "orderItems", List.of(
+                        Map.of("name", itemName, "quantity", 2, "subtotal", "19.98"),
+                        Map.of("name", "Fries", "quantity", 1, "subtotal", "3.50")));
+    }
+
+    @Test
+    void render_OrderConfirmation_RendersItemRowsInTemplate() {
+        String html = renderer.render("order-confirmation", orderVariables("<b>Burger</b>"));
+
+        assertTrue(html.contains("Ada"));
+        assertTrue(html.contains("&lt;b&gt;Burger&lt;/b&gt;"), "item names must be escaped, not injected as HTML");
+        assertTrue(html.contains("19.98"));
+        assertTrue(html.contains("Fries"));
+        assertEquals(2, html.split("class=\"order-item\"").length - 1);
+    }
+
+    @Test
+    void renderBatch_ReusesBufferWithoutLeakingPreviousOutput() {
+        List<EmailTemplateRenderer.Rendered> rendered = renderer.renderBatch(List.of(
+                NotificationDTO.builder().template("order-confirmation").templateVariables(orderVariables("Burger")).build(),
+                NotificationDTO.builder().body("plain body").build(),
+                NotificationDTO.builder().template("no-such-template").build(),
+                NotificationDTO.builder().template("order-confirmation").templateVariables(Map.of("orderId", "7")).build()));
+
+        assertTrue(rendered.get(0).body().contains("Burger"));
+        assertEquals("plain body", rendered.get(1).body());
+        assertNotNull(rendered.get(2).failure());
+        assertFalse(rendered.get(3).body().contains("Burger"), "variables from the previous email must be cleared");
+        assertTrue(rendered.get(3).body().contains("7"));
+    }
+
+    @Test
+    void getStats_TracksRendersAndFailuresPerTemplate() {
+        renderer.render("order-confirmation", orderVariables("Burger"));
+        renderer.render("order-confirmation", orderVariables("Pizza"));
+        assertThrows(RuntimeException.class, () -> renderer.render("no-such-template", Map.of()));
+
+        List<EmailRenderStatsDTO> stats = renderer.getStats();
+
+        assertEquals("no-such-template", stats.get(0).getTemplate());
+        assertEquals(1, stats.get(0).getFailures());
+        assertEquals("order-confirmation", stats.get(1).getTemplate());
+        assertEquals(2, stats.get(1).getRenders());
+        assertTrue(stats.get(1).getAverageRenderMillis() > 0);
+    }
+
+    @Test
+    void preload_ParsesTemplatesWithoutCountingWarmUp() {
+        renderer.preload();
+
+        assertTrue(renderer.getStats().isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.security.AuthUser;
+import com.phegon.FoodApp.security.JwtUtils;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilsTest {
+
+    static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    JwtUtils jwtUtils;
+
+    @BeforeEach
+    void init() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "secreteJwtString", SECRET);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+    }
+
+    @Test
+    void verifyToken_ReturnsSubjectAndExpiry() {
+        String token = jwtUtils.generateToken("a@x.com");
+
+        JwtUtils.VerifiedToken verified = jwtUtils.verifyToken(token);
+
+        assertEquals("a@x.com", verified.subject());
+        assertTrue(verified.expiresAt() > System.currentTimeMillis());
+        assertSame(verified, jwtUtils.verifyToken(token)); // served from the verified-token cache
+
+        AuthUser owner = AuthUser.builder().user(User.builder().email("a@x.com").build()).build();
+        AuthUser other = AuthUser.builder().user(User.builder().email("b@x.com").build()).build();
+        assertTrue(jwtUtils.isTokenValid(verified, owner));
+        assertFalse(jwtUtils.isTokenValid(verified, other));
+    }
+
+    @Test
+    void verifyToken_TamperedSignature_Throws() {
+        String token = jwtUtils.generateToken("a@x.com");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(SignatureException.class, () -> jwtUtils.verifyToken(tampered));
+    }
+
+    @Test
+    void verifyToken_Expired_ThrowsExpiredJwtException() {
+        String expired = Jwts.builder()
+                .subject("a@x.com")
+                .expiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"))
+                .compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtils.verifyToken(expired));
+    }
+}
@@ -0,0 +1,193 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.category.entity.Category;
+import com.phegon.FoodApp.menu.dtos.MenuCatalogStatsDTO;
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MenuCatalogTest {
+
+    @Mock MenuRepository menuRepository;
+
+    @InjectMocks MenuCatalog menuCatalog;
+
+    Menu menu(Long id, String name, String description, Long categoryId) {
+        Category category = new Category();
+        category.setId(categoryId);
+        return Menu.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .price(BigDecimal.TEN)
+                .imageUrl("https://s3.com/" + id + ".png")
+                .category(category)
+                .build();
+    }
+
+    List<Menu> catalog() {
+        return List.of(
+                menu(3L, "Pepperoni Pizza", "Spicy", 1L),
+                menu(2L, "Burger", "Cheesy PIZZA style bun", 2L),
+                menu(1L, "Salad", "Fresh", 1L));
+    }
+
+    @Test
+    void firstRead_BuildsSnapshot_ThenServesFromMemory() {
+        when(menuRepository.findAllForCatalog()).thenReturn(catalog());
+
+        List<MenuDTO> first = menuCatalog.findMenus(null, null);
+        List<MenuDTO> second = menuCatalog.findMenus(null, null);
+
+        assertEquals(3, first.size());
+        assertSame(first, second);
+        verify(menuRepository, times(1)).findAllForCatalog();
+
+        MenuCatalogStatsDTO stats = menuCatalog.getStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getRebuilds());
+        assertEquals(3, stats.getSize());
+    }
+
+    @Test
+    void snapshot_KeepsRepositoryOrderAndProjectsFields() {
+        when(menuRepository.findAllForCatalog()).thenReturn(catalog());
+
+        List<MenuDTO> menus = menuCatalog.findMenus(null, null);
+
+        assertEquals(List.of(3L, 2L, 1L), menus.stream().map(MenuDTO::getId).toList());
+        assertEquals(1L, menus.get(0).getCategoryId());
+        assertNull(menus.get(0).getReviews());
+        assertThrows(UnsupportedOperationException.class, () -> menus.add(new MenuDTO()));
+    }
+
+    @Test
+    void invalidate_RebuildsOnNextRead() {
+        when(menuRepository.findAllForCatalog())
+                .thenReturn(catalog())
+                .thenReturn(List.of(menu(4L, "Taco", "New", 3L)));
+
+        menuCatalog.findMenus(null, null);
+        menuCatalog.invalidate();
+        List<MenuDTO> rebuilt = menuCatalog.findMenus(null, null);
+
+        assertEquals(1, rebuilt.size());
+        assertEquals(4L, rebuilt.get(0).getId());
+        assertEquals(2, menuCatalog.getStats().getRebuilds());
+    }
+
+    @Test
+    void findMenus_FiltersByCategory() {
+        when(menuRepository.findAllForCatalog()).thenReturn(catalog());
+
+        List<MenuDTO> menus = menuCatalog.findMenus(1L, null);
+
+        assertEquals(List.of(3L, 1L), menus.stream().map(MenuDTO::getId).toList());
+        assertTrue(menuCatalog.findMenus(99L, null).isEmpty());
+    }
+
+    @Test
+    void findMenus_SearchMatchesNameOrDescriptionIgnoringCase() {
+        when(menuRepository.findAllForCatalog()).thenReturn(catalog());
+
+        List<MenuDTO> menus = menuCatalog.findMenus(null, "pizza");
+
+        assertEquals(List.of(3L, 2L), menus.stream().map(MenuDTO::getId).toList());
+    }
+
+    @Test
+    void findMenus_CategoryAndSearch() {
+        when(menuRepository.findAllForCatalog()).thenReturn(catalog());
+
+        List<MenuDTO> menus = menuCatalog.findMenus(1L, "PIZZA");
+
+        assertEquals(1, menus.size());
+        assertEquals(3L, menus.get(0).getId());
+    }
+
+    @Test
+    void findMenus_BlankSearchReturnsAll() {
+        when(menuRepository.findAllForCatalog()).thenReturn(catalog());
+
+        assertEquals(3, menuCatalog.findMenus(null, "  ").size());
+    }
+
+    @Test
+    void findMenus_SearchToleratesTypos() {
+        when(menuRepository.findAllForCatalog()).thenReturn(catalog());
+
+        assertEquals(List.of(3L, 2L), menuCatalog.findMenus(null, "piza").stream().map(MenuDTO::getId).toList());
+        assertEquals(List.of(3L, 2L), menuCatalog.findMenus(null, "pizaz").stream().map(MenuDTO::getId).toList());
+    }
+
+    @Test
+    void menuSaved_UpdatesSearchWithoutFullRebuildOfIndex() {
+        when(menuRepository.findAllForCatalog())
+                .thenReturn(catalog())
+                .thenReturn(List.of(menu(3L, "Garlic Bread", "Toasted", 1L)));
+
+        assertEquals(1, menuCatalog.findMenus(null, "pepperoni").size());
+
+        menuCatalog.menuSaved(menu(3L, "Garlic Bread", "Toasted", 1L));
+
+        assertTrue(menuCatalog.findMenus(null, "pepperoni").isEmpty());
+        assertEquals(3L, menuCatalog.findMenus(null, "garlic").get(0).getId());
+    }
+
+    @Test
+    void menuDeleted_RemovesFromSearch() {
+        when(menuRepository.findAllForCatalog())
+                .thenReturn(catalog())
+                .thenReturn(catalog().subList(1, 3));
+
+        menuCatalog.findMenus(null, null);
+        menuCatalog.menuDeleted(3L);
+
+        assertEquals(List.of(2L), menuCatalog.findMenus(null, "pizza").stream().map(MenuDTO::getId).toList());
+        assertEquals(1, menuCatalog.getStats().getSearches());
+    }
+
+    @Test
+    void ratingChanged_SwapsTheMenuWithoutRebuilding() {
+        when(menuRepository.findAllForCatalog()).thenReturn(catalog());
+        List<MenuDTO> before = menuCatalog.findMenus(null, null);
+        Menu reviewed = menu(3L, "Pepperoni Pizza", "Spicy", 1L);
+        reviewed.addRating(4);
+        reviewed.addRating(5);
+
+        menuCatalog.ratingChanged(reviewed);
+
+        MenuDTO rated = menuCatalog.findMenu(3L).orElseThrow();
+        assertEquals(4.5, rated.getAverageRating());
+        assertEquals(2L, rated.getReviewCount());
+        assertSame(rated, menuCatalog.findMenus(1L, null).get(0));
+        assertSame(rated, menuCatalog.findMenus(null, null).get(0));
+        assertSame(rated, menuCatalog.findMenus(null, "pepperoni").get(0));
+        assertEquals(0L, before.get(0).getReviewCount()); // served snapshots are not mutated
+        assertSame(before.get(1), menuCatalog.findMenus(null, null).get(1));
+
+        // a late callback carrying older aggregates is ignored
+        Menu older = menu(3L, "Pepperoni Pizza", "Spicy", 1L);
+        older.addRating(1);
+        menuCatalog.ratingChanged(older);
+        assertEquals(2L, menuCatalog.findMenu(3L).orElseThrow().getReviewCount());
+
+        verify(menuRepository, times(1)).findAllForCatalog();
+        assertEquals(1, menuCatalog.getStats().getRebuilds());
+        assertEquals(menuCatalog.getStats().getVersion(), menuCatalog.getStats().getSnapshotVersion());
+    }
+}
@@ -0,0 +1,134 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.aws.AWSS3Service;
+import com.phegon.FoodApp.aws.S3DeletionQueue;
+import com.phegon.FoodApp.menu.dtos.MenuDTO;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
+import com.phegon.FoodApp.menu.services.MenuImageProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MenuImageProcessorTest {
+
+    @Mock AWSS3Service awss3Service;
+    @Mock S3DeletionQueue s3DeletionQueue;
+    @Mock MenuRepository menuRepository;
+    @Mock MenuCatalog menuCatalog;
+    @Mock TransactionTemplate transactionTemplate;
+
+    MenuImageProcessor processor;
+
+    @BeforeEach
+    void init() throws Exception {
+        // 1 worker, queue of 10, JPEG quality 0.8
+        processor = new MenuImageProcessor(awss3Service, s3DeletionQueue, menuRepository, menuCatalog, transactionTemplate, 1, 10, 0.8f);
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+        lenient().when(awss3Service.uploadBytes(anyString(), any(), anyString()))
+                .thenAnswer(inv -> new URL("https://s3.com/" + inv.getArgument(0)));
+        lenient().when(menuRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    Menu menu(String imageUrl) {
+        return Menu.builder().id(7L).name("Burger").imageUrl(imageUrl).build();
+    }
+
+    MockMultipartFile png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+        return new MockMultipartFile("imageFile", "burger.png", "image/png", out.toByteArray());
+    }
+
+    @Test
+    void generateVariants_ResizesUploadsAndStoresUrls() throws Exception {
+        Menu stored = menu("https://s3.com/menus/abc_burger.png");
+        when(menuRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(stored));
+
+        processor.generateVariants(menu("https://s3.com/menus/abc_burger.png"), "abc_burger.png", png(2000, 1000))
+                .get(10, TimeUnit.SECONDS);
+
+        ArgumentCaptor<byte[]> content = ArgumentCaptor.forClass(byte[].class);
+        verify(awss3Service).uploadBytes(eq("menus/abc_burger_thumbnail.jpg"), content.capture(), eq("image/jpeg"));
+        verify(awss3Service).uploadBytes(eq("menus/abc_burger_card.jpg"), content.capture(), eq("image/jpeg"));
+        verify(awss3Service).uploadBytes(eq("menus/abc_burger_detail.jpg"), content.capture(), eq("image/jpeg"));
+
+        List<Integer> widths = content.getAllValues().stream()
+                .map(bytes -> {
+                    try {
+                        return ImageIO.read(new ByteArrayInputStream(bytes)).getWidth();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+        assertEquals(List.of(160, 480, 1024), widths);
+
+        assertEquals("https://s3.com/menus/abc_burger_thumbnail.jpg", stored.getThumbnailUrl());
+        assertEquals("https://s3.com/menus/abc_burger_detail.jpg", stored.getDetailUrl());
+        verify(menuCatalog).menuSaved(stored);
+    }
+
+    @Test
+    void generateVariants_ImageReplacedMeanwhile_DiscardsVariants() throws Exception {
+        when(menuRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(menu("https://s3.com/menus/newer.png")));
+
+        processor.generateVariants(menu("https://s3.com/menus/abc_burger.png"), "abc_burger.png", png(600, 400))
+                .get(10, TimeUnit.SECONDS);
+
+        verify(s3DeletionQueue).enqueueAll(List.of(
+                "menus/abc_burger_thumbnail.jpg", "menus/abc_burger_card.jpg", "menus/abc_burger_detail.jpg"));
+        verify(menuRepository, never()).save(any());
+        verify(menuCatalog, never()).menuSaved(any());
+    }
+
+    @Test
+    void generateVariants_NotAnImage_LeavesMenuAlone() throws Exception {
+        MockMultipartFile text = new MockMultipartFile("imageFile", "menu.txt", "text/plain", "hello".getBytes());
+
+        processor.generateVariants(menu("https://s3.com/menus/menu.txt"), "menu.txt", text).get(10, TimeUnit.SECONDS);
+
+        verify(awss3Service, never()).uploadBytes(anyString(), any(), anyString());
+        verifyNoInteractions(menuRepository);
+    }
+
+    @Test
+    void applyVariants_BuildsResponsiveSet() {
+        Menu menu = menu("https://s3.com/menus/a.png");
+        menu.setThumbnailUrl("t.jpg");
+        menu.setCardUrl("c.jpg");
+        menu.setDetailUrl("d.jpg");
+        MenuDTO dto = new MenuDTO();
+
+        MenuImageProcessor.applyVariants(menu, dto);
+
+        assertEquals("c.jpg", dto.getImageVariants().get(MenuImageProcessor.CARD));
+        assertEquals("t.jpg 160w, c.jpg 480w, d.jpg 1024w", dto.getImageSrcSet());
+        assertEquals(List.of("menus/t.jpg", "menus/c.jpg", "menus/d.jpg"), MenuImageProcessor.variantKeys(menu));
+    }
+}
@@ -0,0 +1,98 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.menu.services.MenuSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MenuSearchIndexTest {
+
+    MenuSearchIndex index;
+
+    @BeforeEach
+    void init() {
+        index = new MenuSearchIndex();
+        index.index(1L, "Margherita Pizza", "Tomato, mozzarella and basil");
+        index.index(2L, "Pizza Bread", "Garlic bread baked in the pizza oven");
+        index.index(3L, "Chicken Burger", "Crispy chicken with cheese");
+        index.index(4L, "Phở Bò", "Vietnamese beef noodle soup");
+        index.index(5L, "Cheeseburger", "Beef patty with cheddar");
+    }
+
+    @Test
+    void exactMatch_RanksNameAboveDescription() {
+        // 1 and 2 both have "pizza" in the name, 2 additionally in the description
+        assertEquals(List.of(2L, 1L), index.search("pizza"));
+        assertEquals(List.of(2L), index.search("garlic"));
+    }
+
+    @Test
+    void prefixMatch_SupportsSearchAsYouType() {
+        assertEquals(List.of(1L), index.search("marg"));
+        assertEquals(List.of(5L, 3L), index.search("chee"));
+    }
+
+    @Test
+    void exactMatch_RanksAbovePrefixMatch() {
+        index.index(6L, "Cheese Fries", "Fries");
+
+        // exact name match on 6 beats the name prefix match on 5 and the description match on 3
+        assertEquals(List.of(6L, 5L, 3L), index.search("cheese"));
+        // infix text is not matched: "burger" inside "cheeseburger" is not a token prefix
+        assertEquals(List.of(3L), index.search("burger"));
+    }
+
+    @Test
+    void typoTolerance_OneEdit() {
+        assertEquals(List.of(3L), index.search("chiken"));      // deletion
+        assertEquals(List.of(3L), index.search("chicken"));     // exact
+        assertEquals(List.of(3L), index.search("chickenn"));    // insertion
+        assertEquals(List.of(1L), index.search("margharita"));  // substitution
+        assertEquals(List.of(2L, 1L), index.search("pizaz"));   // transposition
+    }
+
+    @Test
+    void typoTolerance_NotAppliedToShortTokens() {
+        assertTrue(index.search("bef").isEmpty());
+        assertEquals(List.of(5L, 4L), index.search("beef"));
+    }
+
+    @Test
+    void allTokensMustMatch() {
+        assertEquals(List.of(2L), index.search("pizza garlic"));
+        assertTrue(index.search("pizza chicken").isEmpty());
+    }
+
+    @Test
+    void accentsAreIgnored() {
+        assertEquals(List.of(4L), index.search("pho bo"));
+        assertEquals(List.of(4L), index.search("PHỞ"));
+    }
+
+    @Test
+    void reindex_ReplacesOldTerms() {
+        index.index(1L, "Hawaiian", "Ham and pineapple");
+
+        assertEquals(List.of(2L), index.search("pizza"));
+        assertEquals(List.of(1L), index.search("pineapple"));
+    }
+
+    @Test
+    void remove_DropsMenuAndUnusedTerms() {
+        int terms = index.termCount();
+
+        index.remove(4L);
+
+        assertTrue(index.search("pho").isEmpty());
+        assertEquals(4, index.size());
+        assertTrue(index.termCount() < terms);
+    }
+
+    @Test
+    void punctuationOnlyQuery_ReturnsNothing() {
+        assertTrue(index.search("!!!").isEmpty());
+    }
+}
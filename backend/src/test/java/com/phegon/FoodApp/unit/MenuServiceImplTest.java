@@ -1,6 +1,7 @@
 package com.phegon.FoodApp.unit;
 
 import com.phegon.FoodApp.aws.AWSS3Service;
+import com.phegon.FoodApp.aws.S3DeletionQueue;
 import com.phegon.FoodApp.category.entity.Category;
 import com.phegon.FoodApp.category.repository.CategoryRepository;
 import com.phegon.FoodApp.exceptions.BadRequestException;
@@ -8,13 +9,14 @@ import com.phegon.FoodApp.exceptions.NotFoundException;
 import com.phegon.FoodApp.menu.dtos.MenuDTO;
 import com.phegon.FoodApp.menu.entity.Menu;
 import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
+import com.phegon.FoodApp.menu.services.MenuImageProcessor;
+import com.phegon.FoodApp.menu.services.MenuMapper;
 import com.phegon.FoodApp.menu.services.MenuServiceImpl;
 import com.phegon.FoodApp.response.Response;
 import com.phegon.FoodApp.review.dtos.ReviewDTO;
-
-import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Root;
+import com.phegon.FoodApp.review.dtos.ReviewPageDTO;
+import com.phegon.FoodApp.review.services.ReviewService;
 
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -29,18 +31,9 @@ import java.util.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.*;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
-import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Expression;
-import jakarta.persistence.criteria.Path;
-import jakarta.persistence.criteria.Predicate;
-import jakarta.persistence.criteria.Root;
 
 @ExtendWith(MockitoExtension.class)
 class MenuServiceImplTest {
@@ -48,7 +41,11 @@ class MenuServiceImplTest {
     @Mock MenuRepository menuRepository;
     @Mock CategoryRepository categoryRepository;
     @Mock AWSS3Service awss3Service;
-    @Mock org.modelmapper.ModelMapper modelMapper;
+    @Mock MenuMapper menuMapper;
+    @Mock MenuCatalog menuCatalog;
+    @Mock ReviewService reviewService;
+    @Mock MenuImageProcessor menuImageProcessor;
+    @Mock S3DeletionQueue s3DeletionQueue;
 
     @InjectMocks MenuServiceImpl menuService;
     // helper
@@ -103,12 +100,13 @@ class MenuServiceImplTest {
             Menu saved = mockMenu();
             when(menuRepository.save(any())).thenReturn(saved);
 
-            when(modelMapper.map(saved, MenuDTO.class)).thenReturn(dto);
+            when(menuMapper.toDTO(saved)).thenReturn(dto);
 
             Response<MenuDTO> res = menuService.createMenu(dto);
 
             assertEquals(200, res.getStatusCode());
             assertNotNull(res.getData());
+            verify(menuImageProcessor).generateVariants(eq(saved), anyString(), any());
         }
 
         @Test
@@ -181,7 +179,7 @@ class MenuServiceImplTest {
         }
 
         @Test
-        void createMenu_ModelMapperFails() throws Exception {
+        void createMenu_MapperFails() throws Exception {
             MenuDTO dto = mockMenuDTO();
             dto.setImageFile(mockFile_NoStrict());
 
@@ -194,7 +192,7 @@ class MenuServiceImplTest {
             when(menuRepository.save(any()))
                     .thenReturn(mockMenu());
 
-            when(modelMapper.map(any(), eq(MenuDTO.class)))
+            when(menuMapper.toDTO(any()))
                     .thenThrow(new RuntimeException("mapper error"));
 
             assertThrows(RuntimeException.class,
@@ -215,7 +213,7 @@ class MenuServiceImplTest {
             when(menuRepository.save(any()))
                     .thenReturn(mockMenu());
 
-            when(modelMapper.map(any(), eq(MenuDTO.class)))
+            when(menuMapper.toDTO(any()))
                     .thenReturn(dto);
 
             Response<MenuDTO> res = menuService.createMenu(dto);
@@ -248,7 +246,7 @@ class MenuServiceImplTest {
 
             Menu updated = existingWithImage();
             when(menuRepository.save(any())).thenReturn(updated);
-            when(modelMapper.map(updated, MenuDTO.class)).thenReturn(dto);
+            when(menuMapper.toDTO(updated)).thenReturn(dto);
 
             Response<MenuDTO> res = menuService.updateMenu(dto);
 
@@ -277,18 +275,20 @@ class MenuServiceImplTest {
 
             when(menuRepository.save(any())).thenReturn(updated);
 
-            when(modelMapper.map(updated, MenuDTO.class))
+            when(menuMapper.toDTO(updated))
                     .thenReturn(dto);
 
             Response<MenuDTO> res = menuService.updateMenu(dto);
 
             assertEquals(200, res.getStatusCode());
 
-            // old image must be deleted
-            verify(awss3Service).deleteFile("menus/old.png");
+            // old image must be queued for deletion, not deleted inline
+            verify(s3DeletionQueue).enqueueAll(List.of("menus/old.png"));
+            verify(awss3Service, never()).deleteFile(anyString());
 
             // new file must be uploaded
             verify(awss3Service).uploadFile(startsWith("menus/"), any());
+            verify(menuImageProcessor).generateVariants(eq(updated), anyString(), any());
         }
 
         @Test
@@ -338,7 +338,7 @@ class MenuServiceImplTest {
 
             when(menuRepository.save(any())).thenReturn(menuNoImage);
 
-            when(modelMapper.map(any(), eq(MenuDTO.class)))
+            when(menuMapper.toDTO(any()))
                     .thenReturn(dto);
 
             menuService.updateMenu(dto);
@@ -389,7 +389,7 @@ class MenuServiceImplTest {
         }
 
         @Test
-        void updateMenu_ModelMapperFails() throws Exception {
+        void updateMenu_MapperFails() throws Exception {
             MenuDTO dto = mockMenuDTO();
             dto.setId(10L);
             dto.setImageFile(mockFile_NoStrict());
@@ -406,7 +406,7 @@ class MenuServiceImplTest {
             when(menuRepository.save(any()))
                     .thenReturn(existingWithImage());
 
-            when(modelMapper.map(any(), eq(MenuDTO.class)))
+            when(menuMapper.toDTO(any()))
                     .thenThrow(new RuntimeException("mapper error"));
 
             assertThrows(RuntimeException.class,
@@ -435,7 +435,7 @@ class MenuServiceImplTest {
             when(menuRepository.save(captor.capture()))
                     .thenReturn(existing);
 
-            when(modelMapper.map(any(), eq(MenuDTO.class)))
+            when(menuMapper.toDTO(any()))
                     .thenReturn(dto);
 
             menuService.updateMenu(dto);
@@ -464,7 +464,7 @@ class MenuServiceImplTest {
             when(menuRepository.save(any()))
                     .thenReturn(existingWithImage());
 
-            when(modelMapper.map(any(), eq(MenuDTO.class)))
+            when(menuMapper.toDTO(any()))
                     .thenReturn(dto);
 
             menuService.updateMenu(dto);
@@ -482,42 +482,64 @@ class MenuServiceImplTest {
     @DisplayName("GET MENU BY ID TESTS")
     class GetMenuByIdTests {
 
+        ReviewPageDTO latestReviews(Long nextCursor, Long... ids) {
+            List<ReviewDTO> reviews = new ArrayList<>();
+            for (Long id : ids) {
+                ReviewDTO review = new ReviewDTO();
+                review.setId(id);
+                reviews.add(review);
+            }
+            return ReviewPageDTO.builder()
+                    .reviews(reviews)
+                    .nextCursor(nextCursor)
+                    .hasMore(nextCursor != null)
+                    .build();
+        }
+
         @Test
         void getMenuById_Success() {
-            Menu menu = mockMenu();
+            MenuDTO catalogDTO = mockMenuDTO();
+            catalogDTO.setId(10L);
 
             MenuDTO dto = mockMenuDTO();
             dto.setId(10L);
 
-            when(menuRepository.findById(10L))
-                    .thenReturn(Optional.of(menu));
+            when(menuCatalog.findMenu(10L))
+                    .thenReturn(Optional.of(catalogDTO));
 
-            when(modelMapper.map(menu, MenuDTO.class))
+            when(menuMapper.copy(catalogDTO))
                     .thenReturn(dto);
 
+            when(reviewService.getReviewPage(10L, null, 10))
+                    .thenReturn(latestReviews(null));
+
             Response<MenuDTO> res = menuService.getMenuById(10L);
 
             assertEquals(200, res.getStatusCode());
             assertEquals(10L, res.getData().getId());
+            assertNotSame(catalogDTO, res.getData());
+            verify(menuRepository, never()).findById(any());
         }
 
         @Test
         void getMenuById_NotFound() {
-            when(menuRepository.findById(10L))
+            when(menuCatalog.findMenu(10L))
                     .thenReturn(Optional.empty());
 
             assertThrows(NotFoundException.class,
                     () -> menuService.getMenuById(10L));
+
+            verifyNoInteractions(reviewService);
         }
 
         @Test
-        void getMenuById_ModelMapperFails() {
-            Menu menu = mockMenu();
+        void getMenuById_MapperFails() {
+            MenuDTO catalogDTO = mockMenuDTO();
 
-            when(menuRepository.findById(10L))
-                    .thenReturn(Optional.of(menu));
+            when(menuCatalog.findMenu(10L))
+                    .thenReturn(Optional.of(catalogDTO));
 
-            when(modelMapper.map(menu, MenuDTO.class))
+            when(menuMapper.copy(catalogDTO))
                     .thenThrow(new RuntimeException("Mapper error"));
 
             assertThrows(RuntimeException.class,
@@ -525,49 +547,45 @@ class MenuServiceImplTest {
         }
 
         @Test
-        void getMenuById_ReviewSortDesc() {
-
-            Menu menu = mockMenu();
-
-            ReviewDTO r1 = new ReviewDTO(); r1.setId(1L);
-            ReviewDTO r2 = new ReviewDTO(); r2.setId(5L);
-            ReviewDTO r3 = new ReviewDTO(); r3.setId(3L);
-
-            List<ReviewDTO> reviews = new ArrayList<>(List.of(r1, r2, r3));
-
+        void getMenuById_EmbedsLatestReviewsWithCursor() {
+            MenuDTO catalogDTO = mockMenuDTO();
             MenuDTO dto = mockMenuDTO();
-            dto.setReviews(reviews);
 
-            when(menuRepository.findById(10L))
-                    .thenReturn(Optional.of(menu));
+            when(menuCatalog.findMenu(10L))
+                    .thenReturn(Optional.of(catalogDTO));
 
-            when(modelMapper.map(menu, MenuDTO.class))
+            when(menuMapper.copy(catalogDTO))
                     .thenReturn(dto);
 
+            when(reviewService.getReviewPage(10L, null, 10))
+                    .thenReturn(latestReviews(3L, 5L, 4L, 3L));
+
             Response<MenuDTO> res = menuService.getMenuById(10L);
 
-            List<ReviewDTO> sorted = res.getData().getReviews();
+            List<ReviewDTO> reviews = res.getData().getReviews();
 
-            assertEquals(5L, sorted.get(0).getId());
-            assertEquals(3L, sorted.get(1).getId());
-            assertEquals(1L, sorted.get(2).getId());
+            assertEquals(List.of(5L, 4L, 3L), reviews.stream().map(ReviewDTO::getId).toList());
+            assertEquals(3L, res.getData().getNextReviewCursor());
         }
 
         @Test
-        void getMenuById_ReviewNullList() {
-            Menu menu = mockMenu();
-
+        void getMenuById_NoReviews() {
+            MenuDTO catalogDTO = mockMenuDTO();
             MenuDTO dto = mockMenuDTO();
-            dto.setReviews(null);
 
-            when(menuRepository.findById(10L))
-                    .thenReturn(Optional.of(menu));
+            when(menuCatalog.findMenu(10L))
+                    .thenReturn(Optional.of(catalogDTO));
 
-            when(modelMapper.map(menu, MenuDTO.class))
+            when(menuMapper.copy(catalogDTO))
                     .thenReturn(dto);
 
-            // Must not throw
-            assertDoesNotThrow(() -> menuService.getMenuById(10L));
+            when(reviewService.getReviewPage(10L, null, 10))
+                    .thenReturn(latestReviews(null));
+
+            Response<MenuDTO> res = menuService.getMenuById(10L);
+
+            assertTrue(res.getData().getReviews().isEmpty());
+            assertNull(res.getData().getNextReviewCursor());
         }
     }
 
@@ -585,10 +603,6 @@ class MenuServiceImplTest {
             when(menuRepository.findById(10L))
                     .thenReturn(Optional.of(menu));
 
-            // deleteFile không return gì → dùng doNothing
-            doNothing().when(awss3Service)
-                    .deleteFile("menus/a.png");
-
             // deleteById cũng không trả về
             doNothing().when(menuRepository)
                     .deleteById(10L);
@@ -597,7 +611,7 @@ class MenuServiceImplTest {
 
             assertEquals(200, res.getStatusCode());
 
-            verify(awss3Service).deleteFile("menus/a.png");
+            verify(s3DeletionQueue).enqueueAll(List.of("menus/a.png"));
             verify(menuRepository).deleteById(10L);
         }
 
@@ -633,21 +647,21 @@ class MenuServiceImplTest {
 
 
         @Test
-        void deleteMenu_DeleteFileFails() {
+        void deleteMenu_ImageDeletionDeferred_NoInlineS3Call() {
 
             Menu menu = mockMenu();
             menu.setId(10L);
             menu.setImageUrl("https://s3.com/a.png");
+            menu.setThumbnailUrl("https://s3.com/a_thumbnail.jpg");
 
             when(menuRepository.findById(10L))
                     .thenReturn(Optional.of(menu));
 
-            doThrow(new RuntimeException("s3 error"))
-                    .when(awss3Service)
-                    .deleteFile("menus/a.png");
+            Response<?> res = menuService.deleteMenu(10L);
 
-            assertThrows(RuntimeException.class,
-                    () -> menuService.deleteMenu(10L));
+            assertEquals(200, res.getStatusCode());
+            verify(awss3Service, never()).deleteFile(anyString());
+            verify(s3DeletionQueue).enqueueAll(List.of("menus/a_thumbnail.jpg", "menus/a.png"));
         }
 
 
@@ -661,10 +675,6 @@ class MenuServiceImplTest {
             when(menuRepository.findById(10L))
                     .thenReturn(Optional.of(menu));
 
-            // deleteFile OK
-            doNothing().when(awss3Service)
-                    .deleteFile("menus/a.png");
-
             // deleteById lỗi
             doThrow(new RuntimeException("db error"))
                     .when(menuRepository)
@@ -672,29 +682,20 @@ class MenuServiceImplTest {
 
             assertThrows(RuntimeException.class,
                     () -> menuService.deleteMenu(10L));
+
+            // the image stays while the row still points at it
+            verify(s3DeletionQueue, never()).enqueueAll(any());
         }
     }
 
 @Nested
     class GetMenusTests {
 
-        Menu menu1() {
-            Menu m = mockMenu();
-            m.setId(1L);
-            return m;
-        }
-
         @Test
         void getMenus_NoFilter() {
-            List<Menu> menus = List.of(menu1());
-
-            when(menuRepository.findAll(
-                    ArgumentMatchers.<Specification<Menu>>any(),
-                    Mockito.<Sort>any()
-            )).thenReturn(menus);
-
             MenuDTO dto = mockMenuDTO();
-            when(modelMapper.map(any(Menu.class), eq(MenuDTO.class))).thenReturn(dto);
+
+            when(menuCatalog.findMenus(null, null)).thenReturn(List.of(dto));
 
             Response<List<MenuDTO>> res = menuService.getMenus(null, null);
 
@@ -704,33 +705,21 @@ class MenuServiceImplTest {
 
         @Test
         void getMenus_WithCategoryAndSearch() {
-            List<Menu> menus = List.of(menu1());
-
-            when(menuRepository.findAll(
-                    ArgumentMatchers.<Specification<Menu>>any(),
-                    Mockito.<Sort>any()
-            )).thenReturn(menus);
-
             MenuDTO dto = mockMenuDTO();
-            when(modelMapper.map(any(Menu.class), eq(MenuDTO.class))).thenReturn(dto);
+
+            when(menuCatalog.findMenus(1L, "pizza")).thenReturn(List.of(dto));
 
             Response<List<MenuDTO>> res = menuService.getMenus(1L, "pizza");
 
             assertEquals(200, res.getStatusCode());
 
-            verify(menuRepository).findAll(
-                    ArgumentMatchers.<Specification<Menu>>any(),
-                    Mockito.<Sort>any()
-            );
+            verify(menuCatalog).findMenus(1L, "pizza");
         }
 
         @Test
         void getMenus_EmptyList() {
 
-            when(menuRepository.findAll(
-                    ArgumentMatchers.<Specification<Menu>>any(),
-                    Mockito.<Sort>any()
-            )).thenReturn(Collections.emptyList());
+            when(menuCatalog.findMenus(null, null)).thenReturn(Collections.emptyList());
 
             Response<List<MenuDTO>> res = menuService.getMenus(null, null);
 
@@ -739,156 +728,71 @@ class MenuServiceImplTest {
         }
 
         @Test
-        void getMenus_ModelMapperFails() {
-            List<Menu> menus = List.of(menu1());
+        void getMenus_ServedWithoutDatabase() {
 
-            when(menuRepository.findAll(
-                    ArgumentMatchers.<Specification<Menu>>any(),
-                    Mockito.<Sort>any()
-            )).thenReturn(menus);
+            when(menuCatalog.findMenus(null, null)).thenReturn(List.of(mockMenuDTO()));
 
-            when(modelMapper.map(any(Menu.class), eq(MenuDTO.class)))
-                    .thenThrow(new RuntimeException());
+            menuService.getMenus(null, null);
 
-            assertThrows(RuntimeException.class, () -> menuService.getMenus(null, null));
+            verifyNoInteractions(menuRepository, menuMapper);
         }
     }
 
 
     @Nested
-    @DisplayName("BUILD SPECIFICATION TESTS (FULL FIX)")
-    class BuildSpecificationTests {
-
-        // --- Call private method ---
-        Specification<Menu> callSpec(Long categoryId, String search) throws Exception {
-            var m = MenuServiceImpl.class
-                    .getDeclaredMethod("buildSpecification", Long.class, String.class);
-            m.setAccessible(true);
-            return (Specification<Menu>) m.invoke(menuService, categoryId, search);
-        }
-
-        // --- ROOT FOR: NO FILTER ---
-        Root<Menu> mockRoot_NoFilters() {
-            Root<Menu> root = mock(Root.class);
-
-            // KHÔNG STUB bất kỳ root.get(...) nào
-            // → để tránh UnnecessaryStubbing
-            return root;
-        }
-
-        // --- ROOT FOR: CATEGORY ONLY ---
-        Root<Menu> mockRoot_Category() {
-            Root<Menu> root = mock(Root.class);
-            Path<Object> cat = mock(Path.class);
-            Path<Object> catId = mock(Path.class);
-
-            doReturn(cat).when(root).get("category");
-            doReturn(catId).when(cat).get("id");
-
-            return root;
-        }
-
-        // --- ROOT FOR: SEARCH ONLY ---
-        Root<Menu> mockRoot_Search() {
-            Root<Menu> root = mock(Root.class);
-            Path<Object> name = mock(Path.class);
-            Path<Object> desc = mock(Path.class);
-
-            doReturn(name).when(root).get("name");
-            doReturn(desc).when(root).get("description");
-
-            return root;
-        }
-
-        // --- ROOT FOR: CATEGORY + SEARCH ---
-        Root<Menu> mockRoot_CategoryAndSearch() {
-            Root<Menu> root = mock(Root.class);
-
-            Path<Object> cat = mock(Path.class);
-            Path<Object> catId = mock(Path.class);
-            Path<Object> name = mock(Path.class);
-            Path<Object> desc = mock(Path.class);
-
-            doReturn(cat).when(root).get("category");
-            doReturn(catId).when(cat).get("id");
-
-            doReturn(name).when(root).get("name");
-            doReturn(desc).when(root).get("description");
-
-            return root;
-        }
-
-        // --- CriteriaBuilder FIX ---
-        CriteriaBuilder mockCb() {
-            CriteriaBuilder cb = mock(CriteriaBuilder.class);
-            Predicate p = mock(Predicate.class);
-            Expression<String> expr = mock(Expression.class);
-
-            lenient().when(cb.and(any(Predicate[].class))).thenReturn(p);
-            lenient().when(cb.equal(any(), any())).thenReturn(p);
-            lenient().when(cb.or(any(), any())).thenReturn(p);
-            lenient().when(cb.lower(any())).thenReturn(expr);
-            lenient().when(cb.like(any(), anyString())).thenReturn(p);
-
-            return cb;
-        }
-
-        // ======== TESTS =========
+    @DisplayName("CATALOG UPDATE TESTS")
+    class CatalogInvalidationTests {
 
         @Test
-        void spec_NoFilters() throws Exception {
-            var spec = callSpec(null, null);
+        void createMenu_UpdatesCatalog() throws Exception {
+            MenuDTO dto = mockMenuDTO();
+            dto.setImageFile(mockFile_NoStrict());
 
-            Root<Menu> root = mockRoot_NoFilters();  // không stub gì
-            CriteriaQuery<?> query = mock(CriteriaQuery.class);
-            CriteriaBuilder cb = mockCb();
+            when(categoryRepository.findById(1L)).thenReturn(Optional.of(mockCategory()));
+            when(awss3Service.uploadFile(anyString(), any())).thenReturn(new URL("https://s3.com/ok.png"));
+            when(menuRepository.save(any())).thenReturn(mockMenu());
 
-            spec.toPredicate(root, query, cb);
+            menuService.createMenu(dto);
 
-            verify(cb, never()).equal(any(), any());
-            verify(cb, never()).like(any(), anyString());
+            verify(menuCatalog).menuSaved(any(Menu.class));
         }
 
         @Test
-        void spec_CategoryOnly() throws Exception {
-            var spec = callSpec(1L, null);
+        void updateMenu_UpdatesCatalog() {
+            MenuDTO dto = mockMenuDTO();
+            dto.setId(10L);
 
-            Root<Menu> root = mockRoot_Category();
-            CriteriaQuery<?> query = mock(CriteriaQuery.class);
-            CriteriaBuilder cb = mockCb();
+            when(menuRepository.findById(10L)).thenReturn(Optional.of(mockMenu()));
+            when(categoryRepository.findById(1L)).thenReturn(Optional.of(mockCategory()));
+            when(menuRepository.save(any())).thenReturn(mockMenu());
 
-            spec.toPredicate(root, query, cb);
+            menuService.updateMenu(dto);
 
-            verify(cb, times(1)).equal(any(), eq(1L));
-            verify(cb, never()).like(any(), anyString());
+            verify(menuCatalog).menuSaved(any(Menu.class));
         }
 
         @Test
-        void spec_SearchOnly() throws Exception {
-            var spec = callSpec(null, "pizza");
+        void deleteMenu_UpdatesCatalog() {
+            Menu menu = mockMenu();
+            menu.setImageUrl(null);
 
-            Root<Menu> root = mockRoot_Search();
-            CriteriaQuery<?> query = mock(CriteriaQuery.class);
-            CriteriaBuilder cb = mockCb();
+            when(menuRepository.findById(10L)).thenReturn(Optional.of(menu));
 
-            spec.toPredicate(root, query, cb);
+            menuService.deleteMenu(10L);
 
-            verify(cb, times(2)).like(any(), contains("pizza"));
-            verify(cb, never()).equal(any(), any());
+            verify(menuCatalog).menuDeleted(10L);
         }
 
         @Test
-        void spec_CategoryAndSearch() throws Exception {
-            var spec = callSpec(1L, "pizza");
+        void updateMenu_NotFound_LeavesCatalogAlone() {
+            MenuDTO dto = mockMenuDTO();
+            dto.setId(999L);
 
-            Root<Menu> root = mockRoot_CategoryAndSearch();
-            CriteriaQuery<?> query = mock(CriteriaQuery.class);
-            CriteriaBuilder cb = mockCb();
+            when(menuRepository.findById(999L)).thenReturn(Optional.empty());
 
-            spec.toPredicate(root, query, cb);
+            assertThrows(NotFoundException.class, () -> menuService.updateMenu(dto));
 
-            verify(cb, times(1)).equal(any(), eq(1L));
-            verify(cb, times(2)).like(any(), contains("pizza"));
+            verifyNoInteractions(menuCatalog);
         }
     }
 
@@ -0,0 +1,174 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.auth_users.services.UserMapper;
+import com.phegon.FoodApp.auth_users.services.UserService;
+import com.phegon.FoodApp.category.entity.Category;
+import com.phegon.FoodApp.enums.OrderStatus;
+import com.phegon.FoodApp.enums.PaymentGateway;
+import com.phegon.FoodApp.enums.PaymentStatus;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.services.MenuMapper;
+import com.phegon.FoodApp.order.dtos.OrderDTO;
+import com.phegon.FoodApp.order.dtos.OrderHistoryPageDTO;
+import com.phegon.FoodApp.order.entity.Order;
+import com.phegon.FoodApp.order.entity.OrderItem;
+import com.phegon.FoodApp.order.repository.OrderItemRepository;
+import com.phegon.FoodApp.order.repository.OrderRepository;
+import com.phegon.FoodApp.order.services.OrderMapper;
+import com.phegon.FoodApp.order.services.OrderServiceImpl;
+import com.phegon.FoodApp.payment.entity.Payment;
+import com.phegon.FoodApp.review.entity.Review;
+import com.phegon.FoodApp.role.entity.Role;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the admin order listing and the customer order history against an in-memory database
+ * and counts the SQL statements Hibernate issues for one page.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class OrderListingStatementCountTest {
+
+    @Autowired TestEntityManager entityManager;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderItemRepository orderItemRepository;
+    @MockitoBean UserService userService;
+
+    final OrderMapper orderMapper = new OrderMapper(new UserMapper(), new MenuMapper());
+
+    static final LocalDateTime BASE_DATE = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    OrderServiceImpl orderService;
+    Statistics statistics;
+    List<User> users;
+
+    @BeforeEach
+    void seed() {
+        orderService = new OrderServiceImpl(orderRepository, orderItemRepository, userService, null, orderMapper, null, null, null, null, null, null);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Role customer = entityManager.persist(new Role(null, "CUSTOMER_" + System.nanoTime()));
+        Category category = entityManager.persist(Category.builder().name("Mains").build());
+
+        users = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            users.add(entityManager.persist(User.builder().name("user" + i).email("user" + i + "@x.com")
+                    .password("secret").address("street " + i).isActive(true)
+                    .roles(new ArrayList<>(List.of(customer))).build()));
+        }
+
+        List<Menu> menus = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Menu menu = entityManager.persist(Menu.builder().name("menu" + i).price(BigDecimal.TEN).category(category).build());
+            entityManager.persist(Review.builder().menu(menu).user(users.get(i)).rating(5).createdAt(LocalDateTime.now()).build());
+            menus.add(menu);
+        }
+
+        for (int i = 0; i < 30; i++) {
+            User user = users.get(i % users.size());
+            // dates repeat, so the history keyset has to break ties on id
+            Order order = entityManager.persist(Order.builder().user(user).orderDate(BASE_DATE.minusHours(i % 4))
+                    .totalAmount(BigDecimal.valueOf(30)).orderStatus(i % 2 == 0 ? OrderStatus.INITIALIZED : OrderStatus.DELIVERED)
+                    .paymentStatus(PaymentStatus.PENDING).build());
+            for (int j = 0; j < 3; j++) {
+                entityManager.persist(OrderItem.builder().order(order).menu(menus.get((i + j) % menus.size()))
+                        .quantity(1).pricePerUnit(BigDecimal.TEN).subtotal(BigDecimal.TEN).build());
+            }
+            entityManager.persist(Payment.builder().order(order).user(user).amount(BigDecimal.valueOf(30))
+                    .paymentStatus(PaymentStatus.PENDING).paymentGateway(PaymentGateway.STRIPE).build());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllOrders_OnePageCostsThreeStatements() {
+        Page<OrderDTO> page = orderService.getAllOrders(null, 0, 10).getData();
+
+        assertEquals(10, page.getContent().size());
+        assertEquals(30, page.getTotalElements());
+        assertEquals(3, page.getContent().get(0).getOrderItems().size());
+        assertNotNull(page.getContent().get(0).getUser().getEmail());
+        assertNotNull(page.getContent().get(0).getOrderItems().get(0).getMenu().getName());
+        assertEquals(3, statistics.getPrepareStatementCount()); // rows, count, items
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getAllOrders_StatementCountDoesNotGrowWithPageSize() {
+        orderService.getAllOrders(OrderStatus.INITIALIZED, 0, 5);
+        long smallPage = statistics.getPrepareStatementCount();
+        statistics.clear();
+
+        Page<OrderDTO> page = orderService.getAllOrders(OrderStatus.INITIALIZED, 0, 50).getData();
+
+        assertEquals(15, page.getContent().size());
+        assertTrue(page.getContent().stream().allMatch(order -> order.getOrderStatus() == OrderStatus.INITIALIZED));
+        assertEquals(3, smallPage);
+        assertEquals(2, statistics.getPrepareStatementCount()); // a short first page needs no count
+    }
+
+    @Test
+    void getOrdersOfUser_WalksHistoryNewestFirst_OneStatementPerPage() {
+        User customer = users.get(0); // orders 0, 12 and 24
+        when(userService.getCurrentLoggedInUser()).thenReturn(customer);
+
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            OrderHistoryPageDTO page = orderService.getOrdersOfUser(cursor, 1, null, null, null).getData();
+            page.getOrders().forEach(order -> walked.add(order.getId()));
+            assertTrue(page.getOrders().stream().allMatch(order -> order.getItemCount() == 3));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        List<Long> expected = orderRepository.findAll().stream()
+                .filter(order -> order.getUser().getId().equals(customer.getId()))
+                .sorted(Comparator.comparing(Order::getOrderDate).thenComparing(Order::getId).reversed())
+                .map(Order::getId)
+                .toList();
+        assertEquals(expected, walked);
+        assertEquals(3, pages);
+        statistics.clear();
+
+        orderService.getOrdersOfUser(null, 20, OrderStatus.INITIALIZED, BASE_DATE.toLocalDate(), BASE_DATE.toLocalDate());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void entityListing_ForComparison_IssuesAStatementPerOrder() {
+        Page<Order> orders = orderRepository.findAll(PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id")));
+        orders.map(order -> orderMapper.toDTO(order, true)).getContent();
+
+        assertTrue(statistics.getPrepareStatementCount() > 10,
+                "expected N+1 on the entity path, got " + statistics.getPrepareStatementCount());
+    }
+}
@@ -3,11 +3,13 @@ package com.phegon.FoodApp.unit;
 import java.lang.reflect.Method;
 import com.phegon.FoodApp.auth_users.dtos.UserDTO;
 import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.auth_users.services.UserMapper;
 import com.phegon.FoodApp.auth_users.services.UserService;
 import com.phegon.FoodApp.cart.entity.Cart;
 import com.phegon.FoodApp.cart.entity.CartItem;
 import com.phegon.FoodApp.cart.repository.CartRepository;
 import com.phegon.FoodApp.cart.services.CartService;
+import com.phegon.FoodApp.cart.services.CartStore;
 import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
 import com.phegon.FoodApp.email_notification.services.NotificationService;
 import com.phegon.FoodApp.enums.OrderStatus;
@@ -16,14 +18,23 @@ import com.phegon.FoodApp.exceptions.BadRequestException;
 import com.phegon.FoodApp.exceptions.NotFoundException;
 import com.phegon.FoodApp.menu.dtos.MenuDTO;
 import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.services.MenuMapper;
 import com.phegon.FoodApp.order.dtos.OrderDTO;
+import com.phegon.FoodApp.order.dtos.OrderHistoryPageDTO;
 import com.phegon.FoodApp.order.dtos.OrderItemDTO;
+import com.phegon.FoodApp.order.dtos.OrderSummaryDTO;
+import com.phegon.FoodApp.order.entity.CheckoutRequest;
 import com.phegon.FoodApp.order.entity.Order;
 import com.phegon.FoodApp.order.entity.OrderItem;
+import com.phegon.FoodApp.order.repository.CheckoutRequestRepository;
+import com.phegon.FoodApp.order.repository.OrderItemListRow;
 import com.phegon.FoodApp.order.repository.OrderItemRepository;
+import com.phegon.FoodApp.order.repository.OrderListRow;
 import com.phegon.FoodApp.order.repository.OrderRepository;
+import com.phegon.FoodApp.order.services.OrderMapper;
 import com.phegon.FoodApp.order.services.OrderServiceImpl;
 import com.phegon.FoodApp.response.Response;
+import com.phegon.FoodApp.review.repository.ReviewRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -31,20 +42,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -65,11 +81,9 @@ class OrderServiceImplTest {
     @Mock
     private NotificationService notificationService;
 
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private OrderMapper orderMapper = new OrderMapper(new UserMapper(), new MenuMapper());
 
-    @Mock
-    private TemplateEngine templateEngine;
 
     @Mock
     private CartService cartService;
@@ -77,6 +91,18 @@ class OrderServiceImplTest {
     @Mock
     private CartRepository cartRepository;
 
+    @Mock
+    private CartStore cartStore;
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @Mock
+    private CheckoutRequestRepository checkoutRequestRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private OrderServiceImpl orderService;
 
@@ -92,6 +118,15 @@ class OrderServiceImplTest {
         Field f = OrderServiceImpl.class.getDeclaredField("basePaymentLink");
         f.setAccessible(true);
         f.set(orderService, "https://pay.test?orderId=");
+
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().doAnswer(inv -> {
+            inv.<Runnable>getArgument(1).run();
+            return null;
+        }).when(cartStore).checkout(any(), any());
     }
 
     // ===== Helper methods =====
@@ -135,6 +170,8 @@ class OrderServiceImplTest {
         item2.setSubtotal(BigDecimal.valueOf(40));
 
         cart.setCartItems(Arrays.asList(item1, item2));
+        cart.setTotalAmount(BigDecimal.valueOf(50));
+        cart.setItemCount(3);
         return cart;
     }
 
@@ -197,6 +234,8 @@ class OrderServiceImplTest {
         item.setSubtotal(BigDecimal.valueOf(100));
 
         cart.setCartItems(List.of(item));
+        cart.setTotalAmount(BigDecimal.valueOf(100));
+        cart.setItemCount(2);
         return cart;
     }
 
@@ -245,22 +284,19 @@ class OrderServiceImplTest {
             mockUser.setAddress("HN");
 
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCartWithItems()));
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCartWithItems()));
 
             lenient().when(orderRepository.save(any())).thenReturn(mockSaveOrder());
-            lenient().when(orderItemRepository.saveAll(any())).thenReturn(List.of());
 
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
+            when(orderMapper.toDTO(any(Order.class), anyBoolean()))
                     .thenReturn(mockFullOrderDTO());
 
-            when(templateEngine.process(eq("order-confirmation"), any()))
-                    .thenReturn("<html/>");
 
-            Response<?> res = orderService.placeOrderFromCart();
+            Response<?> res = orderService.placeOrderFromCart(null);
 
             assertEquals(200, res.getStatusCode());
             verify(cartService, times(1)).clearShoppingCart();
-            verify(notificationService, times(1)).sendEmail(any());
+            verify(notificationService, times(1)).queueEmail(any());
         }
 
         @Test
@@ -269,7 +305,7 @@ class OrderServiceImplTest {
             when(userService.getCurrentLoggedInUser()).thenReturn(u);
 
             assertThrows(NotFoundException.class,
-                    () -> orderService.placeOrderFromCart());
+                    () -> orderService.placeOrderFromCart(null));
 
             verifyNoInteractions(cartRepository);
         }
@@ -277,11 +313,11 @@ class OrderServiceImplTest {
         @Test
         void testPlaceOrder_CartNotFound() {
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId()))
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId()))
                     .thenReturn(Optional.empty());
 
             assertThrows(NotFoundException.class,
-                    () -> orderService.placeOrderFromCart());
+                    () -> orderService.placeOrderFromCart(null));
         }
 
         @Test
@@ -291,11 +327,11 @@ class OrderServiceImplTest {
             cart.setCartItems(null);
 
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId()))
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId()))
                     .thenReturn(Optional.of(cart));
 
             assertThrows(BadRequestException.class,
-                    () -> orderService.placeOrderFromCart());
+                    () -> orderService.placeOrderFromCart(null));
         }
 
         @Test
@@ -305,17 +341,17 @@ class OrderServiceImplTest {
             cart.setCartItems(Collections.emptyList());
 
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId()))
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId()))
                     .thenReturn(Optional.of(cart));
 
             assertThrows(BadRequestException.class,
-                    () -> orderService.placeOrderFromCart());
+                    () -> orderService.placeOrderFromCart(null));
         }
 
         @Test
         void testPlaceOrder_OrderItemsBuildCorrectly() {
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCart));
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCart));
 
             ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
             when(orderRepository.save(orderCaptor.capture()))
@@ -325,20 +361,16 @@ class OrderServiceImplTest {
                         return o;
                     });
 
-            when(orderItemRepository.saveAll(anyList()))
-                    .thenAnswer(inv -> inv.getArgument(0));
-
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
+            when(orderMapper.toDTO(any(Order.class), anyBoolean()))
                     .thenAnswer(inv -> buildOrderDTOFromOrder((Order) inv.getArgument(0)));
-            when(templateEngine.process(eq("order-confirmation"), any(Context.class)))
-                    .thenReturn("<html></html>");
 
-            orderService.placeOrderFromCart();
+            orderService.placeOrderFromCart(null);
 
             Order captured = orderCaptor.getValue();
             assertNotNull(captured);
             assertEquals(2, captured.getOrderItems().size());
             assertEquals(BigDecimal.valueOf(50), captured.getTotalAmount());
+            assertSame(mockCart.getTotalAmount(), captured.getTotalAmount()); // the running total, not re-added
         }
 
         @Test
@@ -347,17 +379,15 @@ class OrderServiceImplTest {
             mockUser.setAddress("HN");
 
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCartWithItems()));
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCartWithItems()));
 
             lenient().when(orderRepository.save(any())).thenReturn(mockSaveOrder());
-            lenient().when(orderItemRepository.saveAll(any())).thenReturn(List.of());
 
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
+            when(orderMapper.toDTO(any(Order.class), anyBoolean()))
                     .thenReturn(mockFullOrderDTO());
 
-            when(templateEngine.process(anyString(), any())).thenReturn("<html/>");
 
-            orderService.placeOrderFromCart();
+            orderService.placeOrderFromCart(null);
 
             verify(orderRepository, times(1)).save(any());
         }
@@ -367,19 +397,24 @@ class OrderServiceImplTest {
             mockUser.setAddress("HN");
 
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCartWithItems()));
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCartWithItems()));
 
             lenient().when(orderRepository.save(any())).thenReturn(mockSaveOrder());
-            lenient().when(orderItemRepository.saveAll(any())).thenReturn(List.of());
 
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
+            when(orderMapper.toDTO(any(Order.class), anyBoolean()))
                     .thenReturn(mockFullOrderDTO());
 
-            when(templateEngine.process(anyString(), any())).thenReturn("<html/>");
 
-            orderService.placeOrderFromCart();
+            ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+
+            orderService.placeOrderFromCart(null);
 
-            verify(orderItemRepository, times(1)).saveAll(any());
+            // the items are persisted through the order's cascade, in the same flush
+            verify(orderRepository).save(orderCaptor.capture());
+            Order saved = orderCaptor.getValue();
+            assertFalse(saved.getOrderItems().isEmpty());
+            assertTrue(saved.getOrderItems().stream().allMatch(item -> item.getOrder() == saved));
+            verifyNoInteractions(orderItemRepository);
         }
 
         @Test
@@ -387,58 +422,42 @@ class OrderServiceImplTest {
             mockUser.setAddress("HN");
 
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCartWithItems()));
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCartWithItems()));
 
             lenient().when(orderRepository.save(any())).thenReturn(mockSaveOrder());
-            lenient().when(orderItemRepository.saveAll(any())).thenReturn(List.of());
 
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
+            when(orderMapper.toDTO(any(Order.class), anyBoolean()))
                     .thenReturn(mockFullOrderDTO());
 
-            when(templateEngine.process(anyString(), any())).thenReturn("<html/>");
 
-            orderService.placeOrderFromCart();
+            orderService.placeOrderFromCart(null);
 
             verify(cartService, times(1)).clearShoppingCart();
         }
 
         @Test
-        void testPlaceOrder_ModelMapperError() {
+        void testPlaceOrder_MapperError() {
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCart));
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCart));
 
             when(orderRepository.save(any(Order.class))).thenReturn(new Order());
-            when(orderItemRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
+            when(orderMapper.toDTO(any(Order.class), anyBoolean()))
                     .thenThrow(new RuntimeException("Mapper error"));
 
             assertThrows(RuntimeException.class,
-                    () -> orderService.placeOrderFromCart());
+                    () -> orderService.placeOrderFromCart(null));
         }
 
         @Test
         void testPlaceOrder_OrderRepositorySaveThrows() {
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCart));
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCart));
 
             when(orderRepository.save(any(Order.class)))
                     .thenThrow(new RuntimeException("DB error"));
 
             assertThrows(RuntimeException.class,
-                    () -> orderService.placeOrderFromCart());
-        }
-
-        @Test
-        void testPlaceOrder_OrderItemsSaveThrows() {
-            when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCart));
-
-            when(orderRepository.save(any(Order.class))).thenReturn(new Order());
-            when(orderItemRepository.saveAll(anyList()))
-                    .thenThrow(new RuntimeException("SaveAll error"));
-
-            assertThrows(RuntimeException.class,
-                    () -> orderService.placeOrderFromCart());
+                    () -> orderService.placeOrderFromCart(null));
         }
 
         @Test
@@ -448,7 +467,7 @@ class OrderServiceImplTest {
             Order mockSaveOrder = mockSaveOrder();
 
             when(userService.getCurrentLoggedInUser()).thenReturn(user);
-            when(cartRepository.findByUser_Id(user.getId())).thenReturn(Optional.of(cart));
+            when(cartRepository.findForCheckoutByUserId(user.getId())).thenReturn(Optional.of(cart));
 
             // Only necessary stub before clearShoppingCart() is called
             when(orderRepository.save(any())).thenReturn(mockSaveOrder);
@@ -457,7 +476,7 @@ class OrderServiceImplTest {
             doThrow(new RuntimeException("clear error"))
                     .when(cartService).clearShoppingCart();
 
-            assertThrows(RuntimeException.class, () -> orderService.placeOrderFromCart());
+            assertThrows(RuntimeException.class, () -> orderService.placeOrderFromCart(null));
 
             verify(cartService, times(1)).clearShoppingCart();
         }
@@ -466,7 +485,7 @@ class OrderServiceImplTest {
         @Test
         void testPlaceOrder_SendEmailCalled() {
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCart));
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCart));
 
             when(orderRepository.save(any(Order.class)))
                     .thenAnswer(inv -> {
@@ -474,19 +493,18 @@ class OrderServiceImplTest {
                         o.setId(123L);
                         return o;
                     });
-            when(orderItemRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
+            when(orderMapper.toDTO(any(Order.class), anyBoolean()))
                     .thenAnswer(inv -> buildOrderDTOFromOrder((Order) inv.getArgument(0)));
-            when(templateEngine.process(eq("order-confirmation"), any(Context.class)))
-                    .thenReturn("<html>Email</html>");
 
-            orderService.placeOrderFromCart();
+            orderService.placeOrderFromCart(null);
 
             ArgumentCaptor<NotificationDTO> captor = ArgumentCaptor.forClass(NotificationDTO.class);
-            verify(notificationService, times(1)).sendEmail(captor.capture());
+            verify(notificationService, times(1)).queueEmail(captor.capture());
 
             NotificationDTO sent = captor.getValue();
             assertEquals(mockUser.getEmail(), sent.getRecipient());
+            assertEquals("order-confirmation", sent.getTemplate());
+            assertNull(sent.getBody()); // rendered by the outbox dispatcher, not during checkout
             assertTrue(sent.getSubject().contains("Order #123"));
         }
 
@@ -496,28 +514,25 @@ class OrderServiceImplTest {
             mockUser.setAddress("HN");
 
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCartWithItems()));
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCartWithItems()));
 
             lenient().when(orderRepository.save(any())).thenReturn(mockSaveOrder());
-            lenient().when(orderItemRepository.saveAll(any())).thenReturn(List.of());
 
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
+            when(orderMapper.toDTO(any(Order.class), anyBoolean()))
                     .thenReturn(mockFullOrderDTO());
 
-            when(templateEngine.process(anyString(), any()))
-                    .thenReturn("<html/>");
 
             doThrow(new RuntimeException("Email failed"))
-                    .when(notificationService).sendEmail(any());
+                    .when(notificationService).queueEmail(any());
 
             assertThrows(RuntimeException.class,
-                    () -> orderService.placeOrderFromCart());
+                    () -> orderService.placeOrderFromCart(null));
         }
 
         @Test
         void testPlaceOrder_PaymentLinkCorrectInEmail() {
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(cartRepository.findByUser_Id(mockUser.getId())).thenReturn(Optional.of(mockCart));
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCart));
 
             when(orderRepository.save(any(Order.class)))
                     .thenAnswer(inv -> {
@@ -525,23 +540,99 @@ class OrderServiceImplTest {
                         o.setId(777L);
                         return o;
                     });
-            when(orderItemRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
 
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
+            when(orderMapper.toDTO(any(Order.class), anyBoolean()))
                     .thenAnswer(inv -> buildOrderDTOFromOrder((Order) inv.getArgument(0)));
 
-            ArgumentCaptor<Context> contextCaptor = ArgumentCaptor.forClass(Context.class);
-            when(templateEngine.process(eq("order-confirmation"), contextCaptor.capture()))
-                    .thenReturn("<html></html>");
+            orderService.placeOrderFromCart(null);
 
-            orderService.placeOrderFromCart();
+            ArgumentCaptor<NotificationDTO> captor = ArgumentCaptor.forClass(NotificationDTO.class);
+            verify(notificationService).queueEmail(captor.capture());
 
-            Context ctx = contextCaptor.getValue();
-            String paymentLink = (String) ctx.getVariable("paymentLink");
+            String paymentLink = (String) captor.getValue().getTemplateVariables().get("paymentLink");
             assertNotNull(paymentLink);
             assertTrue(paymentLink.startsWith("https://pay.test?orderId="));
             assertTrue(paymentLink.contains("777"));
         }
+
+        @Test
+        void testPlaceOrder_WithKey_RecordsCheckout() {
+            when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
+            when(checkoutRequestRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.empty());
+            when(cartRepository.findForCheckoutByUserId(mockUser.getId())).thenReturn(Optional.of(mockCart));
+            when(orderRepository.save(any(Order.class))).thenAnswer(inv -> {
+                Order o = inv.getArgument(0);
+                o.setId(55L);
+                return o;
+            });
+
+            orderService.placeOrderFromCart("key-1");
+
+            ArgumentCaptor<CheckoutRequest> captor = ArgumentCaptor.forClass(CheckoutRequest.class);
+            verify(checkoutRequestRepository).save(captor.capture());
+            assertEquals("key-1", captor.getValue().getIdempotencyKey());
+            assertEquals(1L, captor.getValue().getUserId());
+            assertEquals(55L, captor.getValue().getOrderId());
+        }
+
+        @Test
+        void testPlaceOrder_ReplayedKey_ReturnsOriginalResultWithoutNewOrder() {
+            when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
+            when(checkoutRequestRepository.findByUserIdAndIdempotencyKey(1L, "key-1"))
+                    .thenReturn(Optional.of(CheckoutRequest.builder().userId(1L).idempotencyKey("key-1").orderId(55L).build()));
+
+            Response<?> res = orderService.placeOrderFromCart("key-1");
+
+            assertEquals(200, res.getStatusCode());
+            assertTrue(res.getMessage().startsWith("Your order has been received"));
+            verifyNoInteractions(transactionTemplate, cartRepository, orderRepository, notificationService, cartService);
+        }
+
+        @Test
+        void testPlaceOrder_ConcurrentRetryWithSameKey_ReplaysWinner() {
+            when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
+            when(checkoutRequestRepository.findByUserIdAndIdempotencyKey(1L, "key-1"))
+                    .thenReturn(Optional.empty())
+                    .thenReturn(Optional.empty())
+                    .thenReturn(Optional.of(CheckoutRequest.builder().userId(1L).idempotencyKey("key-1").orderId(55L).build()));
+            doThrow(new DataIntegrityViolationException("uk_checkout_requests_user_key"))
+                    .when(transactionTemplate).executeWithoutResult(any());
+
+            Response<?> res = orderService.placeOrderFromCart("key-1");
+
+            assertEquals(200, res.getStatusCode());
+        }
+
+        @Test
+        void testPlaceOrder_SameKeyCommittedWhileWaitingForCart_ReplaysWithoutNewOrder() {
+            when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
+            when(checkoutRequestRepository.findByUserIdAndIdempotencyKey(1L, "key-1"))
+                    .thenReturn(Optional.empty())
+                    .thenReturn(Optional.of(CheckoutRequest.builder().userId(1L).idempotencyKey("key-1").orderId(55L).build()));
+
+            Response<?> res = orderService.placeOrderFromCart("key-1");
+
+            assertEquals(200, res.getStatusCode());
+            verify(cartStore).checkout(eq(1L), any());
+            verifyNoInteractions(transactionTemplate, orderRepository, notificationService, cartService);
+        }
+
+        @Test
+        void testPlaceOrder_ConcurrentCheckoutOfSameCart_Rejected() {
+            when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
+            doThrow(new ObjectOptimisticLockingFailureException(Cart.class, 10L))
+                    .when(transactionTemplate).executeWithoutResult(any());
+
+            assertThrows(BadRequestException.class, () -> orderService.placeOrderFromCart(null));
+            verifyNoInteractions(checkoutRequestRepository);
+        }
+
+        @Test
+        void testPlaceOrder_InvalidKey() {
+            assertThrows(BadRequestException.class, () -> orderService.placeOrderFromCart(" "));
+            assertThrows(BadRequestException.class, () -> orderService.placeOrderFromCart("k".repeat(65)));
+            verifyNoInteractions(userService, transactionTemplate);
+        }
     }
 
     // =========================================================
@@ -558,7 +649,7 @@ class OrderServiceImplTest {
 
             OrderDTO dto = new OrderDTO();
             dto.setId(1L);
-            when(modelMapper.map(order, OrderDTO.class)).thenReturn(dto);
+            when(orderMapper.toDTO(eq(order), anyBoolean())).thenReturn(dto);
 
             Response<OrderDTO> res = orderService.getOrderById(1L);
 
@@ -575,11 +666,11 @@ class OrderServiceImplTest {
         }
 
         @Test
-        void testGetOrderById_ModelMapperError() {
+        void testGetOrderById_MapperError() {
             Order order = new Order();
             order.setId(2L);
             when(orderRepository.findById(2L)).thenReturn(Optional.of(order));
-            when(modelMapper.map(order, OrderDTO.class))
+            when(orderMapper.toDTO(eq(order), anyBoolean()))
                     .thenThrow(new RuntimeException("mapper error"));
 
             assertThrows(RuntimeException.class,
@@ -593,92 +684,67 @@ class OrderServiceImplTest {
     @Nested
     class GetAllOrdersTests {
 
-        @Test
-        void testGetAllOrders_NoStatus() {
-            Order o = new Order();
-            o.setOrderItems(new ArrayList<>());
-
-            Page<Order> page = new PageImpl<>(List.of(o));
-
-            when(orderRepository.findAll(any(Pageable.class))).thenReturn(page);
+        private OrderListRow row(Long id) {
+            return new OrderListRow(id, LocalDateTime.now(), BigDecimal.TEN, OrderStatus.INITIALIZED,
+                    PaymentStatus.PENDING, 1L, "John Doe", "john@example.com", "0909", "123 Street");
+        }
 
-            OrderDTO mapped = new OrderDTO();
-            mapped.setOrderItems(List.of(new OrderItemDTO(){{
-                setMenu(new MenuDTO());
-            }}));
+        private OrderItemListRow itemRow(Long orderId, Long id) {
+            return new OrderItemListRow(orderId, id, 2, BigDecimal.valueOf(5), BigDecimal.TEN,
+                    7L, "Burger", BigDecimal.valueOf(5), "https://s3.com/menus/b.png", null, null, null, 3L);
+        }
 
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
-                    .thenReturn(mapped);
+        @Test
+        void testGetAllOrders_NoStatus() {
+            Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id"));
+            when(orderRepository.findListRows(null, pageable))
+                    .thenReturn(new PageImpl<>(List.of(row(1L), row(2L)), pageable, 2));
+            when(orderItemRepository.findListRowsByOrderIds(List.of(1L, 2L)))
+                    .thenReturn(List.of(itemRow(1L, 10L), itemRow(2L, 20L), itemRow(1L, 11L)));
 
             Response<Page<OrderDTO>> res = orderService.getAllOrders(null, 0, 10);
+
             assertEquals(200, res.getStatusCode());
+            List<OrderDTO> content = res.getData().getContent();
+            assertEquals(List.of(10L, 11L), content.get(0).getOrderItems().stream().map(OrderItemDTO::getId).toList());
+            assertEquals(1, content.get(1).getOrderItems().size());
+            assertEquals("john@example.com", content.get(0).getUser().getEmail());
+            assertEquals(7L, content.get(0).getOrderItems().get(0).getMenuId());
+            assertEquals("Burger", content.get(0).getOrderItems().get(0).getMenu().getName());
         }
 
         @Test
         void testGetAllOrders_WithStatus() {
-            Order o = new Order();
-            o.setOrderItems(new ArrayList<>());
-
-            Page<Order> page = new PageImpl<>(List.of(o));
-
-            when(orderRepository.findByOrderStatus(eq(OrderStatus.INITIALIZED), any(Pageable.class)))
-                    .thenReturn(page);
-
-            OrderDTO mapped = new OrderDTO();
-            mapped.setOrderItems(List.of(new OrderItemDTO(){{
-                setMenu(new MenuDTO());
-            }}));
-
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
-                    .thenReturn(mapped);
+            when(orderRepository.findListRows(eq(OrderStatus.INITIALIZED), any(Pageable.class)))
+                    .thenReturn(new PageImpl<>(List.of(row(1L))));
+            when(orderItemRepository.findListRowsByOrderIds(List.of(1L))).thenReturn(List.of());
 
             Response<Page<OrderDTO>> res = orderService.getAllOrders(OrderStatus.INITIALIZED, 0, 10);
+
             assertEquals(200, res.getStatusCode());
+            assertTrue(res.getData().getContent().get(0).getOrderItems().isEmpty());
         }
 
         @Test
-        void testGetAllOrders_OrderItemsMenuReviewsSetNull() {
-            Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id"));
-            Order order = new Order();
-            order.setId(3L);
-
-            Page<Order> page = new PageImpl<>(List.of(order), pageable, 1);
-            when(orderRepository.findAll(pageable)).thenReturn(page);
-
-            OrderDTO dto = new OrderDTO();
-            dto.setId(3L);
-
-            MenuDTO menuDTO = new MenuDTO();
-            menuDTO.setReviews(new ArrayList<>());
+        void testGetAllOrders_EmptyPage_NoItemQuery() {
+            when(orderRepository.findListRows(any(), any(Pageable.class))).thenReturn(Page.empty());
 
-            OrderItemDTO itemDTO = new OrderItemDTO();
-            itemDTO.setMenu(menuDTO);
-            dto.setOrderItems(List.of(itemDTO));
+            Response<Page<OrderDTO>> res = orderService.getAllOrders(null, 3, 10);
 
-            when(modelMapper.map(order, OrderDTO.class)).thenReturn(dto);
-
-            Response<Page<OrderDTO>> res = orderService.getAllOrders(null, 0, 10);
-
-            List<OrderDTO> content = res.getData().getContent();
-            assertEquals(1, content.size());
-            assertNull(content.get(0).getOrderItems().get(0).getMenu().getReviews());
+            assertTrue(res.getData().getContent().isEmpty());
+            verifyNoInteractions(orderItemRepository);
         }
 
-         @Test
-        void testGetAllOrders_ModelMapperError() {
-            Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id"));
-
-            Order order = new Order();
-            order.setId(10L);
-
-            Page<Order> page = new PageImpl<>(List.of(order), pageable, 1);
-            when(orderRepository.findAll(pageable)).thenReturn(page);
+        @Test
+        void testGetAllOrders_NeverLoadsEntities() {
+            when(orderRepository.findListRows(any(), any(Pageable.class)))
+                    .thenReturn(new PageImpl<>(List.of(row(1L))));
+            when(orderItemRepository.findListRowsByOrderIds(any())).thenReturn(List.of(itemRow(1L, 10L)));
 
-            when(modelMapper.map(order, OrderDTO.class))
-                    .thenThrow(new RuntimeException("Mapping failed"));
+            orderService.getAllOrders(null, 0, 10);
 
-            assertThrows(RuntimeException.class,
-                    () -> orderService.getAllOrders(null, 0, 10));
+            verify(orderRepository, never()).findAll(any(Pageable.class));
+            verify(orderMapper, never()).toDTO(any(Order.class), anyBoolean());
         }
     }
 
@@ -688,107 +754,91 @@ class OrderServiceImplTest {
     @Nested
     class GetOrdersOfUserTests {
 
-        @Test
-        void testGetOrdersOfUser_Success() {
-
-            Order o = new Order();
-            o.setOrderItems(new ArrayList<>());
-
-            when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(orderRepository.findByUserOrderByOrderDateDesc(mockUser))
-                    .thenReturn(List.of(o));
-
-            OrderDTO mapped = new OrderDTO();
-            mapped.setOrderItems(List.of(new OrderItemDTO(){{
-                setMenu(new MenuDTO());
-            }}));
-
-            when(modelMapper.map(any(Order.class), eq(OrderDTO.class)))
-                    .thenReturn(mapped);
-
-            Response<List<OrderDTO>> res = orderService.getOrdersOfUser();
-
-            assertEquals(200, res.getStatusCode());
-            assertEquals(1, res.getData().size());
-            assertNull(res.getData().get(0).getUser());
+        private OrderSummaryDTO summary(Long id, LocalDateTime date) {
+            return new OrderSummaryDTO(id, date, BigDecimal.TEN, OrderStatus.DELIVERED, PaymentStatus.COMPLETED, 2);
         }
 
         @Test
-        void testGetOrdersOfUser_EmptyList() {
-
+        void testGetOrdersOfUser_FirstPage_HasMoreWithCursor() {
+            LocalDateTime date = LocalDateTime.of(2025, 3, 1, 12, 30);
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
-            when(orderRepository.findByUserOrderByOrderDateDesc(mockUser))
-                    .thenReturn(Collections.emptyList());
+            when(orderRepository.findHistory(1L, null, null, null, null, null, Limit.of(3)))
+                    .thenReturn(List.of(summary(9L, date), summary(8L, date), summary(7L, date.minusDays(1))));
 
-            Response<List<OrderDTO>> res = orderService.getOrdersOfUser();
+            Response<OrderHistoryPageDTO> res = orderService.getOrdersOfUser(null, 2, null, null, null);
 
             assertEquals(200, res.getStatusCode());
-            assertNotNull(res.getData());
-            assertTrue(res.getData().isEmpty());
+            assertEquals(List.of(9L, 8L), res.getData().getOrders().stream().map(OrderSummaryDTO::getId).toList());
+            assertTrue(res.getData().isHasMore());
+            assertEquals("2025-03-01T12:30_8", res.getData().getNextCursor());
         }
 
         @Test
-        void testGetOrdersOfUser_ModelMapperError() {
-
+        void testGetOrdersOfUser_CursorAndFilters_PassedToQuery() {
             when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
+            when(orderRepository.findHistory(1L, OrderStatus.DELIVERED,
+                    LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 2, 1, 0, 0),
+                    LocalDateTime.of(2025, 3, 1, 12, 30), 8L, Limit.of(21)))
+                    .thenReturn(List.of(summary(7L, LocalDateTime.of(2025, 1, 5, 9, 0))));
 
-            Order order = new Order();
-            order.setId(2L);
-
-            when(orderRepository.findByUserOrderByOrderDateDesc(mockUser))
-                    .thenReturn(List.of(order));
+            Response<OrderHistoryPageDTO> res = orderService.getOrdersOfUser("2025-03-01T12:30_8", 20,
+                    OrderStatus.DELIVERED, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
 
-            when(modelMapper.map(order, OrderDTO.class))
-                    .thenThrow(new RuntimeException("ModelMapper error"));
+            assertEquals(1, res.getData().getOrders().size());
+            assertFalse(res.getData().isHasMore());
+            assertNull(res.getData().getNextCursor());
+        }
 
-            assertThrows(RuntimeException.class,
-                    () -> orderService.getOrdersOfUser());
+        @Test
+        void testGetOrdersOfUser_InvalidCursor() {
+            assertThrows(BadRequestException.class,
+                    () -> orderService.getOrdersOfUser("not-a-cursor", 20, null, null, null));
+            verifyNoInteractions(orderRepository);
         }
 
         @Test
-        void testGetOrdersOfUser_RemoveUserAndReviews() {
+        void testGetOrdersOfUser_InvalidSizeOrRange() {
+            assertThrows(BadRequestException.class,
+                    () -> orderService.getOrdersOfUser(null, 0, null, null, null));
+            assertThrows(BadRequestException.class,
+                    () -> orderService.getOrdersOfUser(null, 20, null, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1)));
+        }
 
-            when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
+        @Test
+        void testGetOrderOfUser_MarksReviewedItems() {
+            Menu burger = new Menu();
+            burger.setId(1L);
+            Menu pizza = new Menu();
+            pizza.setId(2L);
 
-            // Fake order
             Order order = new Order();
-            order.setId(3L);
-            order.setUser(mockUser);
-
-            Menu menu = new Menu();
-            menu.setReviews(List.of()); // raw entity
-
-            OrderItem orderItem = new OrderItem();
-            orderItem.setMenu(menu);
-            order.setOrderItems(List.of(orderItem));
-
-            when(orderRepository.findByUserOrderByOrderDateDesc(mockUser))
-                    .thenReturn(List.of(order));
-
-            // DTO
-            OrderDTO dto = new OrderDTO();
-            dto.setId(3L);
-            dto.setUser(new UserDTO());
+            order.setId(5L);
+            order.setOrderItems(List.of(
+                    OrderItem.builder().id(50L).menu(burger).build(),
+                    OrderItem.builder().id(51L).menu(pizza).build()));
 
-            OrderItemDTO itemDTO = new OrderItemDTO();
-            MenuDTO menuDTO = new MenuDTO();
-            menuDTO.setReviews(List.of(new com.phegon.FoodApp.review.dtos.ReviewDTO()));
-            itemDTO.setMenu(menuDTO);
-
-            dto.setOrderItems(List.of(itemDTO));
+            when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
+            when(orderRepository.findWithItemsByIdAndUserId(5L, 1L)).thenReturn(Optional.of(order));
+            when(reviewRepository.findReviewedMenuIds(1L, 5L)).thenReturn(List.of(2L));
 
-            when(modelMapper.map(order, OrderDTO.class)).thenReturn(dto);
+            Response<OrderDTO> res = orderService.getOrderOfUser(5L);
 
-            Response<List<OrderDTO>> res = orderService.getOrdersOfUser();
+            assertFalse(res.getData().getOrderItems().get(0).getReviewed());
+            assertTrue(res.getData().getOrderItems().get(1).getReviewed());
+            assertNull(res.getData().getUser());
+        }
 
-            OrderDTO returned = res.getData().get(0);
+        @Test
+        void testGetOrderOfUser_SomeoneElsesOrder_NotFound() {
+            when(userService.getCurrentLoggedInUser()).thenReturn(mockUser);
+            when(orderRepository.findWithItemsByIdAndUserId(5L, 1L)).thenReturn(Optional.empty());
 
-            assertNull(returned.getUser());
-            assertNull(returned.getOrderItems().get(0).getMenu().getReviews());
+            assertThrows(NotFoundException.class, () -> orderService.getOrderOfUser(5L));
+            verifyNoInteractions(reviewRepository);
         }
     }
 
-        // =========================================================
+    // =========================================================
     // E. getOrderItemById()
     // =========================================================
     @Nested
@@ -810,8 +860,7 @@ class OrderServiceImplTest {
             dto.setId(10L);
             dto.setMenu(new MenuDTO());
 
-            when(modelMapper.map(item, OrderItemDTO.class)).thenReturn(dto);
-            when(modelMapper.map(menu, MenuDTO.class)).thenReturn(new MenuDTO());
+            when(orderMapper.toDTO(item)).thenReturn(dto);
 
             Response<OrderItemDTO> res = orderService.getOrderItemById(10L);
 
@@ -830,7 +879,7 @@ class OrderServiceImplTest {
         }
 
         @Test
-        void testGetOrderItemById_ModelMapperError() {
+        void testGetOrderItemById_MapperError() {
 
             Menu menu = new Menu();
             OrderItem item = new OrderItem();
@@ -838,7 +887,7 @@ class OrderServiceImplTest {
 
             when(orderItemRepository.findById(5L)).thenReturn(Optional.of(item));
 
-            when(modelMapper.map(item, OrderItemDTO.class))
+            when(orderMapper.toDTO(item))
                     .thenThrow(new RuntimeException("Mapping error"));
 
             assertThrows(RuntimeException.class,
@@ -859,8 +908,7 @@ class OrderServiceImplTest {
             OrderItemDTO dto = new OrderItemDTO();
             dto.setMenu(new MenuDTO());
 
-            when(modelMapper.map(item, OrderItemDTO.class)).thenReturn(dto);
-            when(modelMapper.map(menu, MenuDTO.class)).thenReturn(new MenuDTO());
+            when(orderMapper.toDTO(item)).thenReturn(dto);
 
             Response<OrderItemDTO> res = orderService.getOrderItemById(1L);
 
@@ -960,12 +1008,12 @@ class OrderServiceImplTest {
     class OrderEmailTests {
 
         @Test
-        void testOrderEmail_TemplateError() throws Exception {
+        void testOrderEmail_QueueError() throws Exception {
             User user = mockUserWithAddress();
             OrderDTO dto = mockFullOrderDTO();
 
-            when(templateEngine.process(eq("order-confirmation"), any()))
-                    .thenThrow(new RuntimeException("template error"));
+            doThrow(new RuntimeException("outbox error"))
+                    .when(notificationService).queueEmail(any());
 
             Method m = OrderServiceImpl.class
                     .getDeclaredMethod("sendOrderConfirmationEmail", User.class, OrderDTO.class);
@@ -975,7 +1023,7 @@ class OrderServiceImplTest {
                     () -> m.invoke(orderService, user, dto));
 
             assertTrue(ex.getCause() instanceof RuntimeException);
-            assertEquals("template error", ex.getCause().getMessage());
+            assertEquals("outbox error", ex.getCause().getMessage());
         }
 
         @Test
@@ -983,11 +1031,7 @@ class OrderServiceImplTest {
             User user = mockUserWithAddress();
             OrderDTO dto = mockFullOrderDTO();
 
-            // template return hợp lệ
-            when(templateEngine.process(eq("order-confirmation"), any()))
-                    .thenReturn("<html>Email OK</html>");
-
-            doNothing().when(notificationService).sendEmail(any());
+            doNothing().when(notificationService).queueEmail(any());
 
             Method m = OrderServiceImpl.class
                     .getDeclaredMethod("sendOrderConfirmationEmail", User.class, OrderDTO.class);
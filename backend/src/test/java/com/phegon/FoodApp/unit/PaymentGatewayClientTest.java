@@ -0,0 +1,230 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.exceptions.PaymentProcessingException;
+import com.phegon.FoodApp.payment.dtos.PaymentGatewayStatsDTO;
+import com.phegon.FoodApp.payment.gateway.CircuitBreaker;
+import com.phegon.FoodApp.payment.gateway.PaymentGatewayClient;
+import com.phegon.FoodApp.payment.gateway.PaymentGatewayException;
+import com.phegon.FoodApp.payment.gateway.PaymentIntentBackend;
+import com.phegon.FoodApp.payment.gateway.StubPaymentIntentBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentGatewayClientTest {
+
+    static final PaymentIntentBackend.CreateRequest REQUEST = new PaymentIntentBackend.CreateRequest(2500, "usd", 7L);
+
+    final List<String> idempotencyKeys = new ArrayList<>();
+    final List<String> canceled = new CopyOnWriteArrayList<>();
+    PaymentGatewayClient client;
+
+    @AfterEach
+    void shutdown() {
+        if (client != null) client.shutdown();
+    }
+
+    PaymentGatewayClient client(BiFunction<PaymentIntentBackend.CreateRequest, String, PaymentIntentBackend.Intent> create,
+                                int maxConcurrentCalls, long callTimeoutMillis) {
+        PaymentIntentBackend backend = new PaymentIntentBackend() {
+            @Override
+            public String name() {
+                return "fake";
+            }
+
+            @Override
+            public Intent create(CreateRequest request, String idempotencyKey) {
+                synchronized (idempotencyKeys) {
+                    idempotencyKeys.add(idempotencyKey);
+                }
+                return create.apply(request, idempotencyKey);
+            }
+
+            @Override
+            public void cancel(String intentId) {
+                canceled.add(intentId);
+            }
+        };
+        // 3 attempts, 1ms backoff, breaker opens at 50% failures over at least 4 calls and stays open for a minute
+        client = new PaymentGatewayClient(backend, maxConcurrentCalls, 50, callTimeoutMillis, 3, 1, 10, 0.5, 4, 60);
+        return client;
+    }
+
+    static PaymentIntentBackend.Intent intent(PaymentIntentBackend.CreateRequest request) {
+        return new PaymentIntentBackend.Intent("pi_1", "pi_1_secret", request.amountInCents(), "requires_payment_method");
+    }
+
+    @Test
+    void retryableFailures_AreRetriedWithTheSameIdempotencyKey() {
+        AtomicInteger attempts = new AtomicInteger();
+        client((request, key) -> {
+            if (attempts.incrementAndGet() < 3) throw new PaymentGatewayException("connection reset", true, null);
+            return intent(request);
+        }, 4, 5_000);
+
+        PaymentIntentBackend.Intent created = client.createPaymentIntent(REQUEST);
+
+        assertEquals("pi_1_secret", created.clientSecret());
+        assertEquals(3, idempotencyKeys.size());
+        assertEquals(1, idempotencyKeys.stream().distinct().count());
+
+        PaymentGatewayStatsDTO stats = client.getStats();
+        assertEquals(1, stats.getCalls());
+        assertEquals(3, stats.getAttempts());
+        assertEquals(2, stats.getRetries());
+        assertEquals(0, stats.getFailures());
+        assertEquals(3, stats.getLatencyBuckets().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals("fake", stats.getBackend());
+    }
+
+    @Test
+    void callersKey_IsSentAsIs_AndCancelsGoThroughTheGateway() throws Exception {
+        client((request, key) -> intent(request), 4, 5_000);
+
+        client.createPaymentIntent(REQUEST, "order-7-2500-after-none");
+        client.cancelPaymentIntentAsync("pi_old").get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("order-7-2500-after-none"), idempotencyKeys);
+        assertEquals(List.of("pi_old"), canceled);
+        assertEquals(2, client.getStats().getCalls());
+    }
+
+    @Test
+    void refusedRequests_AreNotRetried_AndLeaveTheCircuitClosed() {
+        client((request, key) -> {
+            throw new PaymentGatewayException("amount must be positive", false, null);
+        }, 4, 5_000);
+
+        for (int i = 0; i < 6; i++) {
+            PaymentProcessingException e = assertThrows(PaymentProcessingException.class, () -> client.createPaymentIntent(REQUEST));
+            assertTrue(e.getMessage().contains("amount must be positive"));
+        }
+
+        assertEquals(6, idempotencyKeys.size());
+        assertEquals("CLOSED", client.getStats().getCircuitState());
+        assertEquals(6, client.getStats().getFailures());
+    }
+
+    @Test
+    void failingProvider_OpensTheCircuit_AndCallsStopReachingIt() {
+        client((request, key) -> {
+            throw new PaymentGatewayException("503 from provider", true, null);
+        }, 4, 5_000);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(PaymentProcessingException.class, () -> client.createPaymentIntent(REQUEST));
+        }
+        assertEquals(12, idempotencyKeys.size()); // 4 calls x 3 attempts
+        assertEquals("OPEN", client.getStats().getCircuitState());
+
+        PaymentProcessingException e = assertThrows(PaymentProcessingException.class, () -> client.createPaymentIntent(REQUEST));
+        assertTrue(e.getMessage().contains("unavailable"));
+        assertEquals(12, idempotencyKeys.size());
+        assertEquals(1, client.getStats().getShortCircuited());
+    }
+
+    @Test
+    void bulkhead_TurnsAwayCallersBeyondTheLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        client((request, key) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return intent(request);
+        }, 2, 5_000);
+
+        CompletableFuture<PaymentIntentBackend.Intent> first = client.createPaymentIntentAsync(REQUEST);
+        CompletableFuture<PaymentIntentBackend.Intent> second = client.createPaymentIntentAsync(REQUEST);
+
+        PaymentProcessingException e = assertThrows(PaymentProcessingException.class, () -> client.createPaymentIntent(REQUEST));
+        assertTrue(e.getMessage().contains("busy"));
+        assertEquals(2, client.getStats().getInFlight());
+        assertEquals(1, client.getStats().getRejected());
+
+        release.countDown();
+        assertEquals("pi_1", first.get(5, TimeUnit.SECONDS).id());
+        assertEquals("pi_1", second.get(5, TimeUnit.SECONDS).id());
+        assertEquals("pi_1", client.createPaymentIntent(REQUEST).id()); // slots are free again
+    }
+
+    @Test
+    void slowProvider_TimesOutTheCaller() {
+        client((request, key) -> {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return intent(request);
+        }, 2, 100);
+
+        long start = System.nanoTime();
+        PaymentProcessingException e = assertThrows(PaymentProcessingException.class, () -> client.createPaymentIntent(REQUEST));
+
+        assertTrue(e.getMessage().contains("in time"));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(900));
+        assertEquals(1, client.getStats().getTimedOut());
+    }
+
+    @Test
+    void circuitBreaker_LetsOneTrialCallThroughAfterThePause() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(4, 0.5, 4, Duration.ofSeconds(30), now::get);
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess();
+        }
+        for (int i = 0; i < 2; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(breaker.tryAcquire()); // the trial
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void stubBackend_HonorsIdempotencyKeys() {
+        StubPaymentIntentBackend stub = new StubPaymentIntentBackend(0, 0);
+
+        PaymentIntentBackend.Intent first = stub.create(REQUEST, "key-1");
+        PaymentIntentBackend.Intent retried = stub.create(REQUEST, "key-1");
+        PaymentIntentBackend.Intent other = stub.create(REQUEST, "key-2");
+
+        assertEquals(first, retried);
+        assertNotEquals(first.id(), other.id());
+        assertEquals(2500, first.amountInCents());
+        assertTrue(first.clientSecret().startsWith(first.id() + "_secret_"));
+
+        stub.cancel(first.id());
+        assertTrue(stub.isCanceled(first.id()));
+        assertFalse(stub.isCanceled(other.id()));
+    }
+}
@@ -0,0 +1,170 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.auth_users.services.UserMapper;
+import com.phegon.FoodApp.enums.OrderStatus;
+import com.phegon.FoodApp.enums.PaymentGateway;
+import com.phegon.FoodApp.enums.PaymentStatus;
+import com.phegon.FoodApp.menu.services.MenuMapper;
+import com.phegon.FoodApp.order.entity.Order;
+import com.phegon.FoodApp.order.services.OrderMapper;
+import com.phegon.FoodApp.payment.dtos.PaymentDTO;
+import com.phegon.FoodApp.payment.dtos.PaymentLedgerPageDTO;
+import com.phegon.FoodApp.payment.entity.Payment;
+import com.phegon.FoodApp.payment.repository.PaymentRepository;
+import com.phegon.FoodApp.payment.services.PaymentMapper;
+import com.phegon.FoodApp.payment.services.PaymentServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the payment ledger, its totals and its CSV export against an in-memory database and
+ * counts the SQL statements Hibernate issues.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class PaymentLedgerQueryTest {
+
+    @Autowired TestEntityManager entityManager;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired PaymentRepository paymentRepository;
+
+    static final LocalDateTime BASE_DATE = LocalDateTime.of(2025, 3, 10, 12, 0);
+
+    PaymentServiceImpl paymentService;
+    Statistics statistics;
+    List<Long> paymentIds;
+
+    @BeforeEach
+    void seed() {
+        PaymentMapper paymentMapper = new PaymentMapper(new OrderMapper(new UserMapper(), new MenuMapper()), new UserMapper());
+        paymentService = new PaymentServiceImpl(paymentRepository, null, null, paymentMapper, null);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(entityManager.persist(User.builder().name("user" + i).email("user" + i + "@x.com")
+                    .password("secret").address("street").isActive(true).build()));
+        }
+
+        // 24 payments, one a day going back from BASE_DATE; every third one failed, every fourth via PayPal
+        paymentIds = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            User user = users.get(i % users.size());
+            Order order = entityManager.persist(Order.builder().user(user).orderDate(BASE_DATE.minusDays(i))
+                    .totalAmount(BigDecimal.TEN).orderStatus(OrderStatus.CONFIRMED).paymentStatus(PaymentStatus.COMPLETED).build());
+            paymentIds.add(entityManager.persist(Payment.builder().order(order).user(user)
+                    .amount(BigDecimal.valueOf(10 + i))
+                    .paymentStatus(i % 3 == 0 ? PaymentStatus.FAILED : PaymentStatus.COMPLETED)
+                    .paymentGateway(i % 4 == 0 ? PaymentGateway.PAYPAL : PaymentGateway.STRIPE)
+                    .transactionId(i == 1 ? "pi_\"quoted\", with comma" : "pi_" + i)
+                    .failureReason(i == 0 ? "=HYPERLINK(\"x\")" : null)
+                    .paymentDate(BASE_DATE.minusDays(i)).build()).getId());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllPayments_WalksLedgerNewestFirst_OneStatementPerPage() {
+        List<Long> walked = new ArrayList<>();
+        Long cursor = null;
+        int pages = 0;
+        do {
+            PaymentLedgerPageDTO page = paymentService.getAllPayments(null, null, null, null, cursor, 10).getData();
+            page.getPayments().forEach(payment -> walked.add(payment.getId()));
+            assertEquals(pages == 0, page.getSummary() != null);
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(paymentIds.stream().sorted((a, b) -> Long.compare(b, a)).toList(), walked);
+        assertEquals(3, pages);
+        assertEquals(4, statistics.getPrepareStatementCount()); // a page each, the first one's totals
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getAllPayments_FiltersByStatusGatewayAndDates() {
+        PaymentLedgerPageDTO page = paymentService.getAllPayments(PaymentStatus.COMPLETED, PaymentGateway.STRIPE,
+                BASE_DATE.minusDays(9).toLocalDate(), BASE_DATE.toLocalDate(), null, 50).getData();
+
+        // days 0-9, not failed (0, 3, 6, 9) and not PayPal (0, 4, 8): 1, 2, 5, 7
+        assertEquals(List.of(paymentIds.get(1), paymentIds.get(2), paymentIds.get(5), paymentIds.get(7)),
+                page.getPayments().stream().map(PaymentDTO::getId).sorted().toList());
+        PaymentDTO payment = page.getPayments().get(0);
+        assertNotNull(payment.getOrderId());
+        assertNotNull(payment.getUser().getEmail());
+        assertNull(payment.getOrder());
+
+        assertEquals(4L, page.getSummary().getPayments());
+        assertEquals(4L, page.getSummary().getCompletedPayments());
+        assertEquals(0, new BigDecimal("11").add(new BigDecimal("12")).add(new BigDecimal("15")).add(new BigDecimal("17"))
+                .compareTo(page.getSummary().getRevenue()));
+    }
+
+    @Test
+    void getAllPayments_SummaryCoversTheWholeFilterNotThePage() {
+        PaymentLedgerPageDTO page = paymentService.getAllPayments(null, null, null, null, null, 5).getData();
+
+        assertEquals(5, page.getPayments().size());
+        assertEquals(24L, page.getSummary().getPayments());
+        assertEquals(16L, page.getSummary().getCompletedPayments());
+    }
+
+    @Test
+    void getMonthlyRevenue_SumsCompletedPaymentsPerMonth() {
+        List<BigDecimal> revenue = paymentService.getMonthlyRevenue(2025).getData();
+
+        assertEquals(12, revenue.size());
+        // March 10 back to February 15; days 0-9 fall in March
+        BigDecimal march = BigDecimal.ZERO;
+        BigDecimal february = BigDecimal.ZERO;
+        for (int i = 0; i < 24; i++) {
+            if (i % 3 == 0) continue;
+            if (i <= 9) march = march.add(BigDecimal.valueOf(10 + i));
+            else february = february.add(BigDecimal.valueOf(10 + i));
+        }
+        assertEquals(0, march.compareTo(revenue.get(2)));
+        assertEquals(0, february.compareTo(revenue.get(1)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(revenue.get(0)));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void exportPayments_WritesEveryMatchingRowAsCsv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        paymentService.exportPayments(null, null, null, LocalDate.from(BASE_DATE), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(25, lines.length);
+        assertTrue(lines[0].startsWith("id,payment_date,amount,status"));
+        assertTrue(lines[1].startsWith(paymentIds.get(23) + ","), lines[1]); // latest id first
+        assertTrue(lines[24].startsWith(paymentIds.get(0) + ","), lines[24]);
+        assertTrue(lines[24].endsWith(",\"'=HYPERLINK(\"\"x\"\")\""), lines[24]);
+        assertTrue(lines[23].contains(",\"pi_\"\"quoted\"\", with comma\","), lines[23]);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
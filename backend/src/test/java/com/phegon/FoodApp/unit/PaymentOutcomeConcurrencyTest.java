@@ -0,0 +1,104 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.auth_users.repository.UserRepository;
+import com.phegon.FoodApp.email_notification.services.NotificationService;
+import com.phegon.FoodApp.enums.OrderStatus;
+import com.phegon.FoodApp.enums.PaymentStatus;
+import com.phegon.FoodApp.order.entity.Order;
+import com.phegon.FoodApp.order.repository.OrderRepository;
+import com.phegon.FoodApp.payment.dtos.PaymentDTO;
+import com.phegon.FoodApp.payment.entity.Payment;
+import com.phegon.FoodApp.payment.repository.PaymentRepository;
+import com.phegon.FoodApp.payment.services.PaymentServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Reports each order's payment outcome through the webhook worker and PUT /update at the same time,
+ * against an in-memory database, and checks that it is recorded once.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentOutcomeConcurrencyTest {
+
+    static final int ORDERS = 20;
+
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired OrderRepository orderRepository;
+    @Autowired PaymentRepository paymentRepository;
+    @Autowired UserRepository userRepository;
+
+    PaymentDTO succeeded(Order order) {
+        PaymentDTO result = new PaymentDTO();
+        result.setOrderId(order.getId());
+        result.setAmount(order.getTotalAmount());
+        result.setTransactionId("pi_" + order.getId());
+        result.setSuccess(true);
+        return result;
+    }
+
+    @Test
+    void updatePaymentForOrder_WebhookAndClientAtOnce_RecordOnePayment() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        NotificationService notificationService = mock(NotificationService.class);
+        PaymentServiceImpl paymentService = new PaymentServiceImpl(paymentRepository, notificationService, orderRepository, null, null);
+
+        User user = userRepository.save(User.builder().name("payer").email("payer@x.com")
+                .password("secret").address("street").isActive(true).build());
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(orderRepository.save(Order.builder().user(user).orderDate(LocalDateTime.now())
+                    .totalAmount(BigDecimal.TEN).orderStatus(OrderStatus.INITIALIZED).paymentStatus(PaymentStatus.PENDING).build()));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (Order order : orders) {
+                // the dispatcher's transaction and the controller's, released together
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> reports = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    reports.add(pool.submit(() -> {
+                        start.await();
+                        tx.executeWithoutResult(status -> paymentService.updatePaymentForOrder(succeeded(order)));
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> report : reports) report.get();
+            }
+
+            List<Payment> payments = paymentRepository.findAll();
+            for (Order order : orders) {
+                assertEquals(1, payments.stream().filter(payment -> payment.getOrder().getId().equals(order.getId())
+                        && payment.getPaymentStatus() == PaymentStatus.COMPLETED).count(), "order " + order.getId());
+                assertEquals(OrderStatus.CONFIRMED, orderRepository.findById(order.getId()).orElseThrow().getOrderStatus());
+            }
+            verify(notificationService, times(ORDERS)).queueEmail(any());
+        } finally {
+            pool.shutdown();
+            paymentRepository.deleteAllInBatch();
+            orderRepository.deleteAllByIdInBatch(orders.stream().map(Order::getId).toList());
+            userRepository.delete(user);
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package com.phegon.FoodApp.unit;
 
-import com.phegon.FoodApp.order.dtos.OrderDTO;
-import com.phegon.FoodApp.order.dtos.OrderItemDTO;
-import com.phegon.FoodApp.menu.dtos.MenuDTO;
-import com.phegon.FoodApp.review.dtos.ReviewDTO;
-import com.phegon.FoodApp.auth_users.dtos.UserDTO;
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.services.MenuMapper;
+import com.phegon.FoodApp.review.entity.Review;
+import com.phegon.FoodApp.auth_users.services.UserMapper;
 import com.phegon.FoodApp.payment.dtos.PaymentDTO;
 import com.phegon.FoodApp.auth_users.entity.User;
 import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
@@ -14,29 +13,30 @@ import com.phegon.FoodApp.enums.PaymentGateway;
 import com.phegon.FoodApp.enums.PaymentStatus;
 import com.phegon.FoodApp.exceptions.BadRequestException;
 import com.phegon.FoodApp.exceptions.NotFoundException;
+import com.phegon.FoodApp.exceptions.PaymentProcessingException;
 import com.phegon.FoodApp.order.entity.Order;
 import com.phegon.FoodApp.order.entity.OrderItem;
 import com.phegon.FoodApp.order.repository.OrderRepository;
+import com.phegon.FoodApp.order.services.OrderMapper;
+import com.phegon.FoodApp.payment.dtos.PaymentLedgerPageDTO;
+import com.phegon.FoodApp.payment.dtos.PaymentLedgerSummaryDTO;
 import com.phegon.FoodApp.payment.entity.Payment;
+import com.phegon.FoodApp.payment.gateway.PaymentGatewayClient;
+import com.phegon.FoodApp.payment.gateway.PaymentIntentBackend;
+import com.phegon.FoodApp.payment.repository.PaymentLedgerRow;
 import com.phegon.FoodApp.payment.repository.PaymentRepository;
+import com.phegon.FoodApp.payment.services.PaymentMapper;
 import com.phegon.FoodApp.payment.services.PaymentServiceImpl;
 import com.phegon.FoodApp.response.Response;
-import com.stripe.Stripe;
-import com.stripe.model.PaymentIntent;
-import com.stripe.param.PaymentIntentCreateParams;
 import org.junit.jupiter.api.*;
 import org.mockito.*;
-import org.modelmapper.ModelMapper;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
-import org.springframework.data.domain.Sort;
-import java.lang.reflect.Field;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.lang.reflect.Type;
-import org.modelmapper.TypeToken;
+import java.util.concurrent.CompletableFuture;
 
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -56,10 +56,12 @@ class PaymentServiceImplTest {
     private OrderRepository orderRepository;
 
     @Mock
-    private TemplateEngine templateEngine;
+    private PaymentGatewayClient paymentGatewayClient;
 
-    @Mock
-    private ModelMapper modelMapper;
+
+    @Spy
+    private PaymentMapper paymentMapper = new PaymentMapper(
+            new OrderMapper(new UserMapper(), new MenuMapper()), new UserMapper());
 
     @InjectMocks
     private PaymentServiceImpl paymentService;
@@ -71,6 +73,7 @@ class PaymentServiceImplTest {
     @BeforeEach
     void setUp() {
         closeable = openMocks(this);
+        ReflectionTestUtils.setField(paymentService, "intentMaxAgeHours", 24L);
         mockOrder = mockOrderWithUser();
     }
 
@@ -107,55 +110,117 @@ class PaymentServiceImplTest {
 
         when(orderRepository.findById(1L)).thenReturn(Optional.of(mockOrder));
 
-        try (MockedStatic<PaymentIntent> mocked = mockStatic(PaymentIntent.class)) {
+        when(paymentGatewayClient.createPaymentIntent(any(), anyString()))
+                .thenThrow(new PaymentProcessingException("Payment provider refused to create payment intent: Missing metadata"));
+
+        assertThrows(PaymentProcessingException.class,
+                () -> paymentService.initializePayment(req));
+    }
+
+    @Test
+    void testInitializePayment_GatewayUnavailable() {
+        PaymentDTO req = new PaymentDTO();
+        req.setOrderId(1L);
+        req.setAmount(BigDecimal.valueOf(100));
+
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(mockOrder));
 
-            mocked.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
-                    .thenThrow(new IllegalArgumentException("Missing metadata"));
+        when(paymentGatewayClient.createPaymentIntent(any(), anyString()))
+                .thenThrow(new PaymentProcessingException("Payment provider is unavailable, please try again shortly"));
 
-            assertThrows(RuntimeException.class,
-                    () -> paymentService.initializePayment(req));
-        }
+        assertThrows(PaymentProcessingException.class,
+                () -> paymentService.initializePayment(req));
     }
 
     @Test
-    void testInitializePayment_StripeThrows() {
+    void testInitializePayment_Success() {
         PaymentDTO req = new PaymentDTO();
         req.setOrderId(1L);
         req.setAmount(BigDecimal.valueOf(100));
 
         when(orderRepository.findById(1L)).thenReturn(Optional.of(mockOrder));
 
-        try (MockedStatic<PaymentIntent> mocked = mockStatic(PaymentIntent.class)) {
+        when(paymentGatewayClient.createPaymentIntent(any(), anyString()))
+                .thenReturn(new PaymentIntentBackend.Intent("pi_1", "secret123", 10000, "requires_payment_method"));
+
+        Response<?> res = paymentService.initializePayment(req);
 
-            mocked.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
-                    .thenThrow(new RuntimeException("Stripe error"));
+        assertEquals(200, res.getStatusCode());
+        assertEquals("secret123", res.getData());
 
-            assertThrows(RuntimeException.class,
-                    () -> paymentService.initializePayment(req));
-        }
+        ArgumentCaptor<PaymentIntentBackend.CreateRequest> request = ArgumentCaptor.forClass(PaymentIntentBackend.CreateRequest.class);
+        verify(paymentGatewayClient).createPaymentIntent(request.capture(), eq("order-1-10000-after-none"));
+        assertEquals(10000, request.getValue().amountInCents());
+        assertEquals("usd", request.getValue().currency());
+        assertEquals(1L, request.getValue().orderId());
+        verify(orderRepository).recordPaymentIntent(eq(1L), eq("pi_1"), eq("secret123"), eq(BigDecimal.valueOf(100)), any());
+        verify(paymentGatewayClient, never()).cancelPaymentIntentAsync(any());
     }
 
     @Test
-    void testInitializePayment_Success() {
+    void testInitializePayment_ReusesTheStoredIntent() {
+        mockOrder.setPaymentIntentId("pi_old");
+        mockOrder.setPaymentIntentClientSecret("pi_old_secret");
+        mockOrder.setPaymentIntentAmount(new BigDecimal("100.00"));
+        mockOrder.setPaymentIntentCreatedAt(LocalDateTime.now().minusHours(2));
+
+        PaymentDTO req = new PaymentDTO();
+        req.setOrderId(1L);
+        req.setAmount(BigDecimal.valueOf(100));
+
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(mockOrder));
+
+        Response<?> res = paymentService.initializePayment(req);
+
+        assertEquals("pi_old_secret", res.getData());
+        verifyNoInteractions(paymentGatewayClient);
+        verify(orderRepository, never()).recordPaymentIntent(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testInitializePayment_AmountChanged_ReplacesAndCancelsTheStoredIntent() {
+        mockOrder.setPaymentIntentId("pi_old");
+        mockOrder.setPaymentIntentClientSecret("pi_old_secret");
+        mockOrder.setPaymentIntentAmount(BigDecimal.valueOf(80));
+        mockOrder.setPaymentIntentCreatedAt(LocalDateTime.now().minusMinutes(5));
+
         PaymentDTO req = new PaymentDTO();
         req.setOrderId(1L);
         req.setAmount(BigDecimal.valueOf(100));
 
         when(orderRepository.findById(1L)).thenReturn(Optional.of(mockOrder));
+        when(paymentGatewayClient.createPaymentIntent(any(), eq("order-1-10000-after-pi_old")))
+                .thenReturn(new PaymentIntentBackend.Intent("pi_new", "pi_new_secret", 10000, "requires_payment_method"));
+        when(paymentGatewayClient.cancelPaymentIntentAsync("pi_old")).thenReturn(CompletableFuture.completedFuture(null));
 
-        try (MockedStatic<PaymentIntent> mocked = mockStatic(PaymentIntent.class)) {
+        Response<?> res = paymentService.initializePayment(req);
 
-            PaymentIntent intent = mock(PaymentIntent.class);
-            when(intent.getClientSecret()).thenReturn("secret123");
+        assertEquals("pi_new_secret", res.getData());
+        verify(orderRepository).recordPaymentIntent(eq(1L), eq("pi_new"), eq("pi_new_secret"), eq(BigDecimal.valueOf(100)), any());
+        verify(paymentGatewayClient).cancelPaymentIntentAsync("pi_old");
+    }
 
-            mocked.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
-                    .thenReturn(intent);
+    @Test
+    void testInitializePayment_ExpiredIntent_IsReplaced() {
+        mockOrder.setPaymentIntentId("pi_old");
+        mockOrder.setPaymentIntentClientSecret("pi_old_secret");
+        mockOrder.setPaymentIntentAmount(BigDecimal.valueOf(100));
+        mockOrder.setPaymentIntentCreatedAt(LocalDateTime.now().minusHours(25));
 
-            Response<?> res = paymentService.initializePayment(req);
+        PaymentDTO req = new PaymentDTO();
+        req.setOrderId(1L);
+        req.setAmount(BigDecimal.valueOf(100));
 
-            assertEquals(200, res.getStatusCode());
-            assertEquals("secret123", res.getData());
-        }
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(mockOrder));
+        when(paymentGatewayClient.createPaymentIntent(any(), anyString()))
+                .thenReturn(new PaymentIntentBackend.Intent("pi_new", "pi_new_secret", 10000, "requires_payment_method"));
+        when(paymentGatewayClient.cancelPaymentIntentAsync("pi_old"))
+                .thenReturn(CompletableFuture.failedFuture(new PaymentProcessingException("busy")));
+
+        Response<?> res = paymentService.initializePayment(req); // a failed cancel does not fail the request
+
+        assertEquals("pi_new_secret", res.getData());
+        verify(paymentGatewayClient).cancelPaymentIntentAsync("pi_old");
     }
 
 
@@ -220,27 +285,19 @@ class PaymentServiceImplTest {
 
 
     @Test
-    void testInitializePayment_StripeKeyNull() throws Exception {
-
-        // set giá trị secreteKey = null
-        Field f = PaymentServiceImpl.class.getDeclaredField("secreteKey");
-        f.setAccessible(true);
-        f.set(paymentService, null);
+    void testInitializePayment_GatewayBusy() {
 
         PaymentDTO req = new PaymentDTO();
         req.setOrderId(1L);
         req.setAmount(BigDecimal.valueOf(100));
 
         when(orderRepository.findById(1L)).thenReturn(Optional.of(mockOrder));
+        when(paymentGatewayClient.createPaymentIntent(any(), anyString()))
+                .thenThrow(new PaymentProcessingException("Payment provider is busy, please try again shortly"));
 
-        try (MockedStatic<PaymentIntent> mocked = mockStatic(PaymentIntent.class)) {
-
-            mocked.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
-                    .thenThrow(new RuntimeException("Stripe key missing"));
-
-            assertThrows(RuntimeException.class,
-                    () -> paymentService.initializePayment(req));
-        }
+        PaymentProcessingException e = assertThrows(PaymentProcessingException.class,
+                () -> paymentService.initializePayment(req));
+        assertTrue(e.getMessage().contains("busy"));
     }
 
 
@@ -266,14 +323,11 @@ class PaymentServiceImplTest {
 
         when(orderRepository.findById(1L)).thenReturn(Optional.of(mockOrder));
 
-        try (MockedStatic<PaymentIntent> mocked = mockStatic(PaymentIntent.class)) {
+        when(paymentGatewayClient.createPaymentIntent(any(), anyString()))
+                .thenThrow(new PaymentProcessingException("Payment provider call failed: Invalid metadata"));
 
-            mocked.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
-                    .thenThrow(new IllegalArgumentException("Invalid metadata"));
-
-            assertThrows(RuntimeException.class,
-                    () -> paymentService.initializePayment(req));
-        }
+        assertThrows(PaymentProcessingException.class,
+                () -> paymentService.initializePayment(req));
     }
     
     // B. UPDATE PAYMENT — 12 TEST
@@ -282,10 +336,9 @@ class PaymentServiceImplTest {
     void testUpdatePayment_Success() {
         Order order = mockOrderWithUser();
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
         when(paymentRepository.save(any())).thenReturn(new Payment());
         when(orderRepository.save(any())).thenReturn(order);
-        when(templateEngine.process(eq("payment-success"), any())).thenReturn("<html/>");
 
         PaymentDTO dto = new PaymentDTO();
         dto.setOrderId(1L);
@@ -307,10 +360,9 @@ class PaymentServiceImplTest {
         dto.setSuccess(false);
         dto.setFailureReason("Card declined");
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
         when(paymentRepository.save(any())).thenReturn(new Payment());
         when(orderRepository.save(any())).thenReturn(order);
-        when(templateEngine.process(eq("payment-failed"), any())).thenReturn("<html>FAIL</html>");
 
         assertDoesNotThrow(() -> paymentService.updatePaymentForOrder(dto));
 
@@ -323,7 +375,7 @@ class PaymentServiceImplTest {
         PaymentDTO dto = new PaymentDTO();
         dto.setOrderId(999L);
 
-        when(orderRepository.findById(999L)).thenReturn(Optional.empty());
+        when(orderRepository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class,
                 () -> paymentService.updatePaymentForOrder(dto));
@@ -337,7 +389,7 @@ class PaymentServiceImplTest {
         dto.setOrderId(1L);
         dto.setSuccess(true);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
         when(paymentRepository.save(any())).thenThrow(new RuntimeException("DB Error"));
 
         assertThrows(RuntimeException.class,
@@ -352,7 +404,7 @@ class PaymentServiceImplTest {
         dto.setOrderId(1L);
         dto.setSuccess(true);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
         when(paymentRepository.save(any())).thenReturn(new Payment());
         when(orderRepository.save(any())).thenThrow(new RuntimeException("Save error"));
 
@@ -361,19 +413,19 @@ class PaymentServiceImplTest {
     }
 
     @Test
-    void testUpdatePayment_TemplateError_Success() {
+    void testUpdatePayment_QueueError_Success() {
         Order order = mockOrderWithUser();
 
         PaymentDTO dto = new PaymentDTO();
         dto.setOrderId(1L);
         dto.setSuccess(true);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
         when(paymentRepository.save(any())).thenReturn(new Payment());
         when(orderRepository.save(any())).thenReturn(order);
 
-        when(templateEngine.process(eq("payment-success"), any()))
-                .thenThrow(new RuntimeException("Template error"));
+        doThrow(new RuntimeException("Outbox error"))
+                .when(notificationService).queueEmail(any());
 
         assertThrows(RuntimeException.class,
                 () -> paymentService.updatePaymentForOrder(dto));
@@ -387,13 +439,12 @@ class PaymentServiceImplTest {
         dto.setOrderId(1L);
         dto.setSuccess(true);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
         when(paymentRepository.save(any())).thenReturn(new Payment());
         when(orderRepository.save(any())).thenReturn(order);
-        when(templateEngine.process(eq("payment-success"), any())).thenReturn("<html>Ok</html>");
 
         doThrow(new RuntimeException("Email failed"))
-                .when(notificationService).sendEmail(any());
+                .when(notificationService).queueEmail(any());
 
         assertThrows(RuntimeException.class,
                 () -> paymentService.updatePaymentForOrder(dto));
@@ -407,13 +458,12 @@ class PaymentServiceImplTest {
         dto.setOrderId(1L);
         dto.setSuccess(false);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
         when(paymentRepository.save(any())).thenReturn(new Payment());
         when(orderRepository.save(any())).thenReturn(order);
-        when(templateEngine.process(eq("payment-failed"), any())).thenReturn("<html>Fail</html>");
 
         doThrow(new RuntimeException("Email error"))
-                .when(notificationService).sendEmail(any());
+                .when(notificationService).queueEmail(any());
 
         assertThrows(RuntimeException.class,
                 () -> paymentService.updatePaymentForOrder(dto));
@@ -428,10 +478,9 @@ class PaymentServiceImplTest {
         dto.setSuccess(false);
         dto.setFailureReason(null);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
         when(paymentRepository.save(any())).thenReturn(new Payment());
         when(orderRepository.save(any())).thenReturn(order);
-        when(templateEngine.process(eq("payment-failed"), any())).thenReturn("<html></html>");
 
         assertDoesNotThrow(() -> paymentService.updatePaymentForOrder(dto));
     }
@@ -445,10 +494,9 @@ class PaymentServiceImplTest {
         dto.setAmount(null);
         dto.setSuccess(true);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
         when(paymentRepository.save(any())).thenReturn(new Payment());
         when(orderRepository.save(any())).thenReturn(order);
-        when(templateEngine.process(eq("payment-success"), any())).thenReturn("<html></html>");
 
         assertDoesNotThrow(() -> paymentService.updatePaymentForOrder(dto));
     }
@@ -462,10 +510,9 @@ class PaymentServiceImplTest {
         dto.setTransactionId(null);
         dto.setSuccess(true);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
         when(paymentRepository.save(any())).thenReturn(new Payment());
         when(orderRepository.save(any())).thenReturn(order);
-        when(templateEngine.process(eq("payment-success"), any())).thenReturn("<html></html>");
 
         assertDoesNotThrow(() -> paymentService.updatePaymentForOrder(dto));
     }
@@ -478,7 +525,7 @@ class PaymentServiceImplTest {
         dto.setOrderId(1L);
         dto.setSuccess(true);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
 
         when(paymentRepository.save(any())).thenAnswer(inv -> {
             Payment p = inv.getArgument(0);
@@ -487,85 +534,128 @@ class PaymentServiceImplTest {
         });
 
         when(orderRepository.save(any())).thenReturn(order);
-        when(templateEngine.process(anyString(), any())).thenReturn("<html></html>");
 
         assertDoesNotThrow(() -> paymentService.updatePaymentForOrder(dto));
     }
 
 
-    // C. GET ALL PAYMENTS — 2 TEST
     @Test
-    void testGetAllPayments_Success() {
+    void testUpdatePayment_AlreadyCompleted_ChangesNothing() {
+        Order order = mockOrderWithUser();
+        order.setPaymentStatus(PaymentStatus.COMPLETED);
+        order.setOrderStatus(OrderStatus.CONFIRMED);
 
-        // Mock payment list
-        Payment p = new Payment();
-        List<Payment> list = List.of(p);
+        PaymentDTO dto = new PaymentDTO();
+        dto.setOrderId(1L);
+        dto.setTransactionId("pi_1");
+        dto.setSuccess(false);
 
-        when(paymentRepository.findAll(any(Sort.class))).thenReturn(list);
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
+
+        paymentService.updatePaymentForOrder(dto);
+
+        assertEquals(PaymentStatus.COMPLETED, order.getPaymentStatus());
+        assertEquals(OrderStatus.CONFIRMED, order.getOrderStatus());
+        verify(paymentRepository, never()).save(any());
+        verify(notificationService, never()).queueEmail(any());
+    }
+
+    @Test
+    void testUpdatePayment_FailureAlreadyRecorded_ChangesNothing() {
+        Order order = mockOrderWithUser();
 
-        // Mock DTO output
         PaymentDTO dto = new PaymentDTO();
-        dto.setOrder(new OrderDTO());
-        dto.setUser(new UserDTO());
+        dto.setOrderId(1L);
+        dto.setTransactionId("pi_1");
+        dto.setSuccess(false);
+
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
+        when(paymentRepository.existsByTransactionIdAndPaymentStatus("pi_1", PaymentStatus.FAILED)).thenReturn(true);
+
+        paymentService.updatePaymentForOrder(dto);
+
+        verify(paymentRepository, never()).save(any());
+        verify(notificationService, never()).queueEmail(any());
+    }
+
 
-        // ModelMapper mock
-        Type expectedType = new TypeToken<List<PaymentDTO>>() {}.getType();
+    // C. GET ALL PAYMENTS — 2 TEST
+    @Test
+    void testGetAllPayments_Success() {
 
-        when(modelMapper.map(eq(list), eq(expectedType)))
-                .thenReturn(List.of(dto));
+        PaymentLedgerRow row = new PaymentLedgerRow(3L, LocalDateTime.now(), BigDecimal.TEN, PaymentStatus.COMPLETED,
+                PaymentGateway.STRIPE, "pi_3", null, mockOrder.getId(), 1L, "Test User", "test@example.com");
+
+        when(paymentRepository.findLedger(isNull(), isNull(), isNull(), isNull(), isNull(), any()))
+                .thenReturn(List.of(row));
+        when(paymentRepository.summarizeLedger(isNull(), isNull(), isNull(), isNull()))
+                .thenReturn(new PaymentLedgerSummaryDTO(1L, 1L, BigDecimal.TEN));
 
         // Call service
-        Response<List<PaymentDTO>> res = paymentService.getAllPayments();
+        Response<PaymentLedgerPageDTO> res = paymentService.getAllPayments(null, null, null, null, null, 50);
 
-        // Assertions
-        assertNotNull(res.getData());
-        assertEquals(1, res.getData().size());
-        assertNull(res.getData().get(0).getOrder());
-        assertNull(res.getData().get(0).getUser());
+        // Assertions: list view carries the order id and the customer's name only
+        List<PaymentDTO> payments = res.getData().getPayments();
+        assertEquals(1, payments.size());
+        assertEquals(mockOrder.getId(), payments.get(0).getOrderId());
+        assertEquals(BigDecimal.TEN, payments.get(0).getAmount());
+        assertNull(payments.get(0).getOrder());
+        assertEquals("Test User", payments.get(0).getUser().getName());
+        assertFalse(res.getData().isHasMore());
+        assertNull(res.getData().getNextCursor());
+        assertEquals(BigDecimal.TEN, res.getData().getSummary().getRevenue());
     }
 
 
     @Test
     void testGetAllPayments_Empty() {
-        when(paymentRepository.findAll(any(Sort.class))).thenReturn(List.of());
+        when(paymentRepository.findLedger(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
 
-        when(modelMapper.map(any(), any(Type.class)))
-                .thenReturn(List.of());
+        Response<PaymentLedgerPageDTO> res = paymentService.getAllPayments(null, null, null, null, null, 50);
 
-        Response<List<PaymentDTO>> res = paymentService.getAllPayments();
+        assertEquals(0, res.getData().getPayments().size());
+        // SUM over no rows comes back as null
+        assertEquals(0L, res.getData().getSummary().getPayments());
+        assertEquals(BigDecimal.ZERO, res.getData().getSummary().getRevenue());
+    }
 
-        assertNotNull(res.getData());
-        assertEquals(0, res.getData().size());
+    @Test
+    void testGetAllPayments_InvalidArguments() {
+        assertThrows(BadRequestException.class, () -> paymentService.getAllPayments(null, null, null, null, null, 0));
+        assertThrows(BadRequestException.class, () -> paymentService.getAllPayments(null, null, null, null, null, 201));
+        assertThrows(BadRequestException.class, () -> paymentService.getAllPayments(null, null,
+                LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 1), null, 50));
+        verifyNoInteractions(paymentRepository);
     }
 
-    // D. GET PAYMENT BY ID — 6 TEST
+    // D. GET PAYMENT BY ID
 
     @Test
     void testGetPaymentById_Success() {
-        Payment p = new Payment();
-        p.setOrder(new Order());
-        p.setUser(new User());
+        Menu menu = new Menu();
+        menu.setId(4L);
+        menu.setName("Burger");
+        menu.setReviews(List.of(new Review()));
 
-        OrderItemDTO itemDTO = new OrderItemDTO();
-        MenuDTO menuDTO = new MenuDTO();
-        menuDTO.setReviews(List.of(new ReviewDTO()));
-        itemDTO.setMenu(menuDTO);
+        OrderItem item = new OrderItem();
+        item.setMenu(menu);
+        item.setQuantity(2);
 
-        OrderDTO orderDTO = new OrderDTO();
-        orderDTO.setOrderItems(List.of(itemDTO));
+        Order order = mockOrderWithUser();
+        order.setOrderItems(List.of(item));
 
-        PaymentDTO dto = new PaymentDTO();
-        dto.setOrder(orderDTO);
-        dto.setUser(new UserDTO());
+        Payment p = new Payment();
+        p.setOrder(order);
+        p.setUser(order.getUser());
 
         when(paymentRepository.findById(1L)).thenReturn(Optional.of(p));
-        when(modelMapper.map(any(Payment.class), eq(PaymentDTO.class)))
-                .thenReturn(dto);
 
         Response<PaymentDTO> res = paymentService.getPaymentById(1L);
 
+        assertEquals(order.getUser().getEmail(), res.getData().getUser().getEmail());
         assertNull(res.getData().getUser().getRoles());
         assertNull(res.getData().getOrder().getUser());
+        assertEquals(4L, res.getData().getOrder().getOrderItems().get(0).getMenuId());
         assertNull(res.getData().getOrder().getOrderItems().get(0).getMenu().getReviews());
     }
 
@@ -579,14 +669,13 @@ class PaymentServiceImplTest {
     }
 
     @Test
-    void testGetPaymentById_ModelMapperError() {
+    void testGetPaymentById_MapperError() {
         Payment payment = new Payment();
         payment.setId(1L);
 
         when(paymentRepository.findById(1L)).thenReturn(Optional.of(payment));
 
-        when(modelMapper.map(any(), eq(PaymentDTO.class)))
-                .thenThrow(new RuntimeException("Mapper error"));
+        doThrow(new RuntimeException("Mapper error")).when(paymentMapper).toDTO(any(), anyBoolean());
 
         assertThrows(RuntimeException.class,
                 () -> paymentService.getPaymentById(1L));
@@ -600,11 +689,11 @@ class PaymentServiceImplTest {
         payment.setOrder(mockOrderWithUser());
 
         when(paymentRepository.findById(1L)).thenReturn(Optional.of(payment));
-        when(modelMapper.map(any(), eq(PaymentDTO.class)))
-                .thenReturn(new PaymentDTO());
 
-        assertThrows(NullPointerException.class,
-                () -> paymentService.getPaymentById(1L));
+        Response<PaymentDTO> res = paymentService.getPaymentById(1L);
+
+        assertNull(res.getData().getUser());
+        assertNotNull(res.getData().getOrder());
     }
 
     @Test
@@ -615,11 +704,12 @@ class PaymentServiceImplTest {
         payment.setOrder(null);
 
         when(paymentRepository.findById(1L)).thenReturn(Optional.of(payment));
-        when(modelMapper.map(any(), eq(PaymentDTO.class)))
-                .thenReturn(new PaymentDTO());
 
-        assertThrows(NullPointerException.class,
-                () -> paymentService.getPaymentById(1L));
+        Response<PaymentDTO> res = paymentService.getPaymentById(1L);
+
+        assertNull(res.getData().getOrder());
+        assertNull(res.getData().getOrderId());
+        assertNotNull(res.getData().getUser());
     }
 
     @Test
@@ -636,15 +726,11 @@ class PaymentServiceImplTest {
         payment.setUser(order.getUser());
         payment.setOrder(order);
 
-        PaymentDTO dto = new PaymentDTO();
-        dto.setUser(new com.phegon.FoodApp.auth_users.dtos.UserDTO());
-        dto.setOrder(new com.phegon.FoodApp.order.dtos.OrderDTO());
-
         when(paymentRepository.findById(1L)).thenReturn(Optional.of(payment));
-        when(modelMapper.map(any(), eq(PaymentDTO.class))).thenReturn(dto);
 
-        assertThrows(NullPointerException.class,
-                () -> paymentService.getPaymentById(1L));
+        Response<PaymentDTO> res = paymentService.getPaymentById(1L);
+
+        assertNull(res.getData().getOrder().getOrderItems().get(0).getMenu());
     }
 
 }
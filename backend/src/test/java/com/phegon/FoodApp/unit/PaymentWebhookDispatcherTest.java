@@ -0,0 +1,189 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.enums.WebhookEventStatus;
+import com.phegon.FoodApp.order.repository.OrderRepository;
+import com.phegon.FoodApp.payment.dtos.PaymentDTO;
+import com.phegon.FoodApp.payment.entity.PaymentWebhookEvent;
+import com.phegon.FoodApp.payment.repository.PaymentWebhookEventRepository;
+import com.phegon.FoodApp.payment.services.PaymentService;
+import com.phegon.FoodApp.payment.services.PaymentWebhookDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentWebhookDispatcherTest {
+
+    @Mock PaymentWebhookEventRepository paymentWebhookEventRepository;
+    @Mock PaymentService paymentService;
+    @Mock OrderRepository orderRepository;
+    @Mock TransactionTemplate transactionTemplate;
+
+    PaymentWebhookDispatcher dispatcher;
+
+    // order id -> the results applied to it, in application order
+    final Map<Long, List<Boolean>> applied = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        // batch size 10, 2 workers, 3 attempts, 5s base backoff, 30 min cap, 2 min lease
+        dispatcher = new PaymentWebhookDispatcher(paymentWebhookEventRepository, paymentService, orderRepository,
+                transactionTemplate, 10, 2, 3, 5, 1800, 120);
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().when(paymentWebhookEventRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        lenient().when(paymentWebhookEventRepository.findBusyIntents(any(), anyList(), any())).thenReturn(List.of());
+        lenient().doAnswer(inv -> {
+            PaymentDTO result = inv.getArgument(0);
+            applied.computeIfAbsent(result.getOrderId(), id -> new CopyOnWriteArrayList<>()).add(result.isSuccess());
+            return null;
+        }).when(paymentService).updatePaymentForOrder(any());
+    }
+
+    static PaymentWebhookEvent event(long id, String intentId, Long orderId, boolean succeeded) {
+        return PaymentWebhookEvent.builder()
+                .id(id)
+                .eventId("evt_" + id)
+                .type(succeeded ? "payment_intent.succeeded" : "payment_intent.payment_failed")
+                .paymentIntentId(intentId)
+                .orderId(orderId)
+                .amount(new BigDecimal("25.99"))
+                .status(WebhookEventStatus.PENDING)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void dispatch_AppliesEachIntentsEventsInOrder() {
+        PaymentWebhookEvent firstFailure = event(1L, "pi_a", 1L, false);
+        PaymentWebhookEvent otherIntent = event(2L, "pi_b", 2L, true);
+        PaymentWebhookEvent thenSuccess = event(3L, "pi_a", 1L, true);
+        when(paymentWebhookEventRepository.findDueForUpdate(anyList(), any(), any()))
+                .thenReturn(List.of(firstFailure, otherIntent, thenSuccess));
+
+        assertEquals(3, dispatcher.dispatch());
+
+        assertEquals(List.of(false, true), applied.get(1L));
+        assertEquals(List.of(true), applied.get(2L));
+        for (PaymentWebhookEvent event : List.of(firstFailure, otherIntent, thenSuccess)) {
+            assertEquals(WebhookEventStatus.PROCESSED, event.getStatus());
+            assertNotNull(event.getProcessedAt());
+        }
+        verify(paymentService).updatePaymentForOrder(argThat(result ->
+                "pi_b".equals(result.getTransactionId()) && new BigDecimal("25.99").equals(result.getAmount())));
+    }
+
+    @Test
+    void dispatch_Failure_HoldsBackTheIntentsLaterEvents() {
+        PaymentWebhookEvent failing = event(1L, "pi_a", 1L, false);
+        PaymentWebhookEvent later = event(2L, "pi_a", 1L, true);
+        PaymentWebhookEvent otherIntent = event(3L, "pi_b", 2L, true);
+        when(paymentWebhookEventRepository.findDueForUpdate(anyList(), any(), any()))
+                .thenReturn(List.of(failing, later, otherIntent));
+        doThrow(new IllegalStateException("deadlock")).when(paymentService)
+                .updatePaymentForOrder(argThat(result -> result.getOrderId() == 1L));
+
+        assertEquals(1, dispatcher.dispatch());
+
+        assertEquals(WebhookEventStatus.PENDING, failing.getStatus());
+        assertEquals(1, failing.getAttempts());
+        assertEquals("deadlock", failing.getLastError());
+        assertTrue(failing.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(4)));
+
+        assertEquals(WebhookEventStatus.PENDING, later.getStatus());
+        assertEquals(0, later.getAttempts());
+        assertEquals(failing.getNextAttemptAt(), later.getNextAttemptAt());
+        verify(paymentService, times(1)).updatePaymentForOrder(argThat(result -> result.getOrderId() == 1L));
+
+        assertEquals(WebhookEventStatus.PROCESSED, otherIntent.getStatus());
+    }
+
+    @Test
+    void dispatch_DeadEvent_DoesNotBlockTheIntent() {
+        PaymentWebhookEvent exhausted = event(1L, "pi_a", null, false);
+        exhausted.setAttempts(2);
+        PaymentWebhookEvent later = event(2L, "pi_a", 1L, true);
+        when(paymentWebhookEventRepository.findDueForUpdate(anyList(), any(), any()))
+                .thenReturn(List.of(exhausted, later));
+        when(orderRepository.findIdByPaymentIntentId("pi_a")).thenReturn(Optional.empty());
+
+        assertEquals(1, dispatcher.dispatch());
+
+        assertEquals(WebhookEventStatus.DEAD, exhausted.getStatus());
+        assertEquals(3, exhausted.getAttempts());
+        assertEquals(WebhookEventStatus.PROCESSED, later.getStatus());
+    }
+
+    @Test
+    void dispatch_EventWithoutOrderId_FindsOrderByIntent() {
+        PaymentWebhookEvent event = event(1L, "pi_a", null, true);
+        when(paymentWebhookEventRepository.findDueForUpdate(anyList(), any(), any())).thenReturn(List.of(event));
+        when(orderRepository.findIdByPaymentIntentId("pi_a")).thenReturn(Optional.of(7L));
+
+        assertEquals(1, dispatcher.dispatch());
+        assertEquals(List.of(true), applied.get(7L));
+    }
+
+    @Test
+    void dispatch_BusyIntent_IsLeftForALaterRound() {
+        PaymentWebhookEvent waiting = event(1L, "pi_a", 1L, true);
+        PaymentWebhookEvent free = event(2L, "pi_b", 2L, true);
+        when(paymentWebhookEventRepository.findDueForUpdate(anyList(), any(), any())).thenReturn(List.of(waiting, free));
+        when(paymentWebhookEventRepository.findBusyIntents(any(), anyList(), any())).thenReturn(List.of("pi_a"));
+
+        assertEquals(1, dispatcher.dispatch());
+
+        assertEquals(WebhookEventStatus.PENDING, waiting.getStatus());
+        assertNull(applied.get(1L));
+        assertEquals(WebhookEventStatus.PROCESSED, free.getStatus());
+    }
+
+    @Test
+    void dispatch_FullBatch_KeepsDraining() {
+        List<PaymentWebhookEvent> full = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) full.add(event(id, "pi_" + id, id, true));
+        when(paymentWebhookEventRepository.findDueForUpdate(anyList(), any(), eq(Limit.of(10))))
+                .thenReturn(full)
+                .thenReturn(List.of(event(11L, "pi_11", 11L, true)));
+
+        assertEquals(11, dispatcher.dispatch());
+        verify(paymentWebhookEventRepository, times(2)).findDueForUpdate(anyList(), any(), any());
+    }
+
+    @Test
+    void dispatch_NothingDue_DoesNothing() {
+        when(paymentWebhookEventRepository.findDueForUpdate(anyList(), any(), any())).thenReturn(Collections.emptyList());
+
+        assertEquals(0, dispatcher.dispatch());
+        verifyNoInteractions(paymentService);
+    }
+}
@@ -0,0 +1,124 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.enums.WebhookEventStatus;
+import com.phegon.FoodApp.exceptions.BadRequestException;
+import com.phegon.FoodApp.exceptions.PaymentProcessingException;
+import com.phegon.FoodApp.payment.entity.PaymentWebhookEvent;
+import com.phegon.FoodApp.payment.repository.PaymentWebhookEventRepository;
+import com.phegon.FoodApp.payment.services.PaymentWebhookServiceImpl;
+import com.phegon.FoodApp.response.Response;
+import com.stripe.Stripe;
+import com.stripe.net.Webhook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentWebhookServiceImplTest {
+
+    static final String SECRET = "whsec_test";
+
+    @Mock PaymentWebhookEventRepository paymentWebhookEventRepository;
+
+    PaymentWebhookServiceImpl webhookService;
+
+    @BeforeEach
+    void init() {
+        webhookService = new PaymentWebhookServiceImpl(paymentWebhookEventRepository, SECRET, 300);
+    }
+
+    static String event(String id, String type, String intentId) {
+        return """
+                {"id": "%s", "object": "event", "api_version": "%s", "created": 1760000000, "type": "%s",
+                 "data": {"object": {"id": "%s", "object": "payment_intent", "amount": 2599, "currency": "usd",
+                   "status": "requires_payment_method", "metadata": {"orderId": "42"},
+                   "last_payment_error": {"message": "Your card was declined."}}}}
+                """.formatted(id, Stripe.API_VERSION, type, intentId);
+    }
+
+    static String sign(String payload, String secret) throws Exception {
+        long timestamp = Webhook.Util.getTimeNow();
+        return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(secret, timestamp + "." + payload);
+    }
+
+    @Test
+    void receiveEvent_SignedPaymentEvent_IsStoredAndAcknowledged() throws Exception {
+        String payload = event("evt_1", "payment_intent.payment_failed", "pi_1");
+
+        Response<?> response = webhookService.receiveEvent(payload, sign(payload, SECRET));
+
+        assertEquals(200, response.getStatusCode());
+        ArgumentCaptor<PaymentWebhookEvent> stored = ArgumentCaptor.forClass(PaymentWebhookEvent.class);
+        verify(paymentWebhookEventRepository).save(stored.capture());
+        PaymentWebhookEvent event = stored.getValue();
+        assertEquals("evt_1", event.getEventId());
+        assertEquals("pi_1", event.getPaymentIntentId());
+        assertEquals(42L, event.getOrderId());
+        assertEquals(new BigDecimal("25.99"), event.getAmount());
+        assertEquals("Your card was declined.", event.getFailureReason());
+        assertEquals(WebhookEventStatus.PENDING, event.getStatus());
+        assertEquals(payload, event.getPayload());
+        assertNotNull(event.getNextAttemptAt());
+        assertNotNull(event.getEventCreatedAt());
+    }
+
+    @Test
+    void receiveEvent_WrongSignature_IsRejected() throws Exception {
+        String payload = event("evt_1", "payment_intent.succeeded", "pi_1");
+
+        assertThrows(BadRequestException.class, () -> webhookService.receiveEvent(payload, sign(payload, "whsec_other")));
+        assertThrows(BadRequestException.class, () -> webhookService.receiveEvent(payload, null));
+        verify(paymentWebhookEventRepository, never()).save(any());
+    }
+
+    @Test
+    void receiveEvent_TamperedPayload_IsRejected() throws Exception {
+        String payload = event("evt_1", "payment_intent.succeeded", "pi_1");
+        String signature = sign(payload, SECRET);
+
+        assertThrows(BadRequestException.class,
+                () -> webhookService.receiveEvent(payload.replace("2599", "1"), signature));
+    }
+
+    @Test
+    void receiveEvent_Redelivery_IsAcknowledgedWithoutStoring() throws Exception {
+        String payload = event("evt_1", "payment_intent.succeeded", "pi_1");
+        when(paymentWebhookEventRepository.existsByEventId("evt_1")).thenReturn(true);
+
+        assertEquals(200, webhookService.receiveEvent(payload, sign(payload, SECRET)).getStatusCode());
+        verify(paymentWebhookEventRepository, never()).save(any());
+    }
+
+    @Test
+    void receiveEvent_ConcurrentRedelivery_HitsUniqueKeyAndIsAcknowledged() throws Exception {
+        String payload = event("evt_1", "payment_intent.succeeded", "pi_1");
+        when(paymentWebhookEventRepository.save(any())).thenThrow(new DataIntegrityViolationException("uk_payment_webhook_events_event_id"));
+
+        assertEquals(200, webhookService.receiveEvent(payload, sign(payload, SECRET)).getStatusCode());
+    }
+
+    @Test
+    void receiveEvent_UnhandledType_IsAcknowledgedWithoutStoring() throws Exception {
+        String payload = event("evt_1", "payment_intent.created", "pi_1");
+
+        assertEquals(200, webhookService.receiveEvent(payload, sign(payload, SECRET)).getStatusCode());
+        verifyNoInteractions(paymentWebhookEventRepository);
+    }
+
+    @Test
+    void receiveEvent_NoSecretConfigured_AsksStripeToRetry() {
+        webhookService = new PaymentWebhookServiceImpl(paymentWebhookEventRepository, "", 300);
+
+        assertThrows(PaymentProcessingException.class, () -> webhookService.receiveEvent("{}", "t=1,v1=x"));
+    }
+}
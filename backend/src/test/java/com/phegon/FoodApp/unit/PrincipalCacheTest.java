@@ -0,0 +1,83 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.entity.User;
+import com.phegon.FoodApp.role.entity.Role;
+import com.phegon.FoodApp.security.PrincipalCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrincipalCacheTest {
+
+    AtomicInteger loads = new AtomicInteger();
+
+    Function<String, Optional<User>> loader = email -> {
+        loads.incrementAndGet();
+        return email.startsWith("missing")
+                ? Optional.empty()
+                : Optional.of(User.builder()
+                        .id(1L)
+                        .email(email)
+                        .name("User")
+                        .isActive(true)
+                        .roles(new ArrayList<>(List.of(Role.builder().id(1L).name("CUSTOMER").build())))
+                        .build());
+    };
+
+    @Test
+    void secondLookup_IsServedFromCache_AsIndependentCopy() {
+        PrincipalCache cache = new PrincipalCache(60, 100);
+
+        User first = cache.get("a@x.com", loader).orElseThrow();
+        first.setName("Mutated");
+        User second = cache.get("a@x.com", loader).orElseThrow();
+
+        assertEquals(1, loads.get());
+        assertEquals("User", second.getName());
+        assertNotSame(first, second);
+        assertEquals("CUSTOMER", second.getRoles().get(0).getName());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void evict_ForcesReload() {
+        PrincipalCache cache = new PrincipalCache(60, 100);
+
+        cache.get("a@x.com", loader);
+        cache.evict("a@x.com");
+        cache.get("a@x.com", loader);
+        cache.evictAll();
+        cache.get("a@x.com", loader);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void expiredEntry_IsReloaded() {
+        PrincipalCache cache = new PrincipalCache(0, 100);
+
+        cache.get("a@x.com", loader);
+        cache.get("a@x.com", loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void sizeIsBounded_AndMissingUsersAreNotCached() {
+        PrincipalCache cache = new PrincipalCache(60, 2);
+
+        cache.get("a@x.com", loader);
+        cache.get("b@x.com", loader);
+        cache.get("c@x.com", loader);
+        assertTrue(cache.get("missing@x.com", loader).isEmpty());
+
+        assertEquals(2, cache.size());
+    }
+}
@@ -0,0 +1,93 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.menu.entity.Menu;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
+import com.phegon.FoodApp.review.dtos.MenuRatingCount;
+import com.phegon.FoodApp.review.repository.ReviewRepository;
+import com.phegon.FoodApp.review.services.RatingAggregateReconciler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingAggregateReconcilerTest {
+
+    @Mock ReviewRepository reviewRepository;
+    @Mock MenuRepository menuRepository;
+    @Mock MenuCatalog menuCatalog;
+    @Mock TransactionTemplate transactionTemplate;
+
+    @InjectMocks RatingAggregateReconciler reconciler;
+
+    MenuRatingCount count(Long menuId, int rating, long total) {
+        return new MenuRatingCount() {
+            public Long getMenuId() { return menuId; }
+            public Integer getRating() { return rating; }
+            public Long getTotal() { return total; }
+        };
+    }
+
+    Menu menuWithRatings(Long id, int... ratings) {
+        Menu menu = Menu.builder().id(id).name("Menu " + id).build();
+        for (int rating : ratings) {
+            menu.addRating(rating);
+        }
+        return menu;
+    }
+
+    @Test
+    void menu_AddRating_UpdatesAggregates() {
+        Menu menu = menuWithRatings(1L, 8, 10, 8);
+
+        assertEquals(3L, menu.getReviewCount());
+        assertEquals(26L, menu.getRatingTotal());
+        assertEquals(2L, menu.getRatingHistogram()[7]);
+        assertEquals(26.0 / 3, menu.getAverageRating(), 1e-9);
+        assertEquals(0.0, new Menu().getAverageRating());
+        assertThrows(IllegalArgumentException.class, () -> menu.addRating(11));
+    }
+
+    @Test
+    void reconcile_InSync_WritesNothing() {
+        when(reviewRepository.countRatingsByMenu()).thenReturn(List.of(count(1L, 8, 2), count(1L, 10, 1)));
+        when(menuRepository.findAll()).thenReturn(List.of(menuWithRatings(1L, 8, 10, 8), menuWithRatings(2L)));
+
+        assertEquals(0, reconciler.reconcile());
+
+        verifyNoInteractions(transactionTemplate);
+        verify(menuRepository, never()).save(any());
+        verify(menuCatalog, never()).invalidate();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile_Drifted_RecountsUnderLockAndInvalidatesCatalog() {
+        Menu drifted = menuWithRatings(1L, 5);
+        when(reviewRepository.countRatingsByMenu()).thenReturn(List.of(count(1L, 8, 2)));
+        when(reviewRepository.countRatingsByMenuId(1L)).thenReturn(List.of(count(1L, 8, 2)));
+        when(menuRepository.findAll()).thenReturn(List.of(drifted));
+        when(menuRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(drifted));
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<Boolean>) inv.getArgument(0)).doInTransaction(null));
+
+        assertEquals(1, reconciler.reconcile());
+
+        assertEquals(2L, drifted.getReviewCount());
+        assertEquals(16L, drifted.getRatingTotal());
+        assertEquals(0L, drifted.getRatingHistogram()[4]);
+        assertEquals(2L, drifted.getRatingHistogram()[7]);
+        verify(menuRepository).save(drifted);
+        verify(menuCatalog).invalidate();
+    }
+}
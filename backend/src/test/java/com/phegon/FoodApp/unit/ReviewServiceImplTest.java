@@ -0,0 +1,99 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.exceptions.BadRequestException;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import com.phegon.FoodApp.menu.services.MenuCatalog;
+import com.phegon.FoodApp.order.repository.OrderItemRepository;
+import com.phegon.FoodApp.order.repository.OrderRepository;
+import com.phegon.FoodApp.auth_users.services.UserService;
+import com.phegon.FoodApp.response.Response;
+import com.phegon.FoodApp.review.dtos.ReviewDTO;
+import com.phegon.FoodApp.review.dtos.ReviewPageDTO;
+import com.phegon.FoodApp.review.entity.Review;
+import com.phegon.FoodApp.review.repository.ReviewRepository;
+import com.phegon.FoodApp.review.services.RatingAggregateReconciler;
+import com.phegon.FoodApp.review.services.ReviewServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewServiceImplTest {
+
+    @Mock ReviewRepository reviewRepository;
+    @Mock MenuRepository menuRepository;
+    @Mock OrderRepository orderRepository;
+    @Mock OrderItemRepository orderItemRepository;
+    @Mock ModelMapper modelMapper;
+    @Mock UserService userService;
+    @Mock MenuCatalog menuCatalog;
+    @Mock RatingAggregateReconciler ratingAggregateReconciler;
+
+    @InjectMocks ReviewServiceImpl reviewService;
+
+    List<Review> reviews(long fromId, long toId) {
+        return LongStream.iterate(fromId, id -> id >= toId, id -> id - 1)
+                .mapToObj(id -> Review.builder().id(id).rating(8).build())
+                .toList();
+    }
+
+    void mapIds() {
+        when(modelMapper.map(any(Review.class), eq(ReviewDTO.class))).thenAnswer(inv -> {
+            ReviewDTO dto = new ReviewDTO();
+            dto.setId(inv.<Review>getArgument(0).getId());
+            return dto;
+        });
+    }
+
+    @Nested
+    @DisplayName("REVIEW FEED TESTS")
+    class ReviewFeedTests {
+
+        @Test
+        void firstPage_FetchesOneExtraRowAndReturnsCursor() {
+            when(reviewRepository.findByMenuIdOrderByIdDesc(7L, Limit.of(4))).thenReturn(reviews(100, 97));
+            mapIds();
+
+            Response<ReviewPageDTO> res = reviewService.getReviewsForMenu(7L, null, 3);
+
+            ReviewPageDTO page = res.getData();
+            assertEquals(List.of(100L, 99L, 98L), page.getReviews().stream().map(ReviewDTO::getId).toList());
+            assertTrue(page.isHasMore());
+            assertEquals(98L, page.getNextCursor());
+        }
+
+        @Test
+        void nextPage_ContinuesBelowCursor() {
+            when(reviewRepository.findByMenuIdAndIdLessThanOrderByIdDesc(7L, 98L, Limit.of(4))).thenReturn(reviews(97, 96));
+            mapIds();
+
+            ReviewPageDTO page = reviewService.getReviewsForMenu(7L, 98L, 3).getData();
+
+            assertEquals(List.of(97L, 96L), page.getReviews().stream().map(ReviewDTO::getId).toList());
+            assertFalse(page.isHasMore());
+            assertNull(page.getNextCursor());
+            verify(reviewRepository, never()).findByMenuIdOrderByIdDesc(any(), any());
+        }
+
+        @Test
+        void pageSizeOutOfRange_Throws() {
+            assertThrows(BadRequestException.class, () -> reviewService.getReviewsForMenu(7L, null, 0));
+            assertThrows(BadRequestException.class, () -> reviewService.getReviewsForMenu(7L, null, 101));
+            verifyNoInteractions(reviewRepository);
+        }
+    }
+}
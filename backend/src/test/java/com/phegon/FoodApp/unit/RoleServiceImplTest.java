@@ -7,6 +7,7 @@ import com.phegon.FoodApp.role.dtos.RoleDTO;
 import com.phegon.FoodApp.role.entity.Role;
 import com.phegon.FoodApp.role.repository.RoleRepository;
 import com.phegon.FoodApp.role.services.RoleServiceImpl;
+import com.phegon.FoodApp.security.PrincipalCache;
 
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -29,6 +30,9 @@ class RoleServiceImplTest {
     @Mock
     org.modelmapper.ModelMapper modelMapper;
 
+    @Mock
+    PrincipalCache principalCache;
+
     @InjectMocks
     RoleServiceImpl roleService;
 
@@ -153,6 +157,7 @@ class RoleServiceImplTest {
 
             Response<RoleDTO> res = roleService.updateRole(dto);
             assertEquals(200, res.getStatusCode());
+            verify(principalCache).evictAll();
         }
 
         @Test
@@ -284,6 +289,7 @@ class RoleServiceImplTest {
 
             assertEquals(200, res.getStatusCode());
             verify(roleRepository).deleteById(1L);
+            verify(principalCache).evictAll();
         }
 
         @Test
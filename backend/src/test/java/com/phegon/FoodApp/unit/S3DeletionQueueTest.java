@@ -0,0 +1,65 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.aws.AWSS3Service;
+import com.phegon.FoodApp.aws.S3DeletionQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class S3DeletionQueueTest {
+
+    @Mock AWSS3Service awss3Service;
+
+    S3DeletionQueue queue;
+
+    @BeforeEach
+    void init() {
+        queue = new S3DeletionQueue(awss3Service, 1000);
+    }
+
+    @Test
+    void flush_SendsBatchesOfAtMostOneThousandKeys() {
+        when(awss3Service.deleteFiles(anyList())).thenReturn(List.of());
+        queue.enqueueAll(IntStream.range(0, 2500).mapToObj(i -> "menus/" + i + ".png").toList());
+
+        assertEquals(2500, queue.flush());
+
+        verify(awss3Service, times(2)).deleteFiles(argThat(keys -> keys.size() == 1000));
+        verify(awss3Service).deleteFiles(argThat(keys -> keys.size() == 500));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void flush_S3Unavailable_KeepsKeysForNextRun() {
+        when(awss3Service.deleteFiles(anyList()))
+                .thenThrow(new IllegalStateException("s3 down"))
+                .thenReturn(List.of("menus/b.png"));
+        queue.enqueueAll(List.of("menus/a.png", "menus/b.png"));
+
+        assertEquals(0, queue.flush());
+        assertEquals(2, queue.size());
+
+        // keys S3 refuses are left to the orphan collector rather than retried forever
+        assertEquals(1, queue.flush());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void enqueue_IgnoresNullKeys() {
+        queue.enqueue(null);
+        queue.enqueueAll(java.util.Arrays.asList(null, "profile/x.png"));
+
+        assertEquals(1, queue.size());
+    }
+}
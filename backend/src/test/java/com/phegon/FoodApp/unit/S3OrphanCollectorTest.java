@@ -0,0 +1,77 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.auth_users.repository.UserRepository;
+import com.phegon.FoodApp.aws.AWSS3Service;
+import com.phegon.FoodApp.aws.S3DeletionQueue;
+import com.phegon.FoodApp.aws.S3OrphanCollector;
+import com.phegon.FoodApp.menu.repository.MenuRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class S3OrphanCollectorTest {
+
+    @Mock AWSS3Service awss3Service;
+    @Mock S3DeletionQueue s3DeletionQueue;
+    @Mock MenuRepository menuRepository;
+    @Mock UserRepository userRepository;
+
+    S3OrphanCollector collector;
+
+    Instant old = Instant.now().minus(Duration.ofDays(3));
+
+    @BeforeEach
+    void init() {
+        // 24h grace, at most 10 deletions per run
+        collector = new S3OrphanCollector(awss3Service, s3DeletionQueue, menuRepository, userRepository, 24, 10);
+    }
+
+    void bucket(String prefix, S3Object... objects) {
+        doAnswer(inv -> {
+            Consumer<S3Object> consumer = inv.getArgument(1);
+            for (S3Object object : objects) {
+                consumer.accept(object);
+            }
+            return null;
+        }).when(awss3Service).listFiles(eq(prefix), any());
+    }
+
+    S3Object object(String key, Instant lastModified) {
+        return S3Object.builder().key(key).lastModified(lastModified).build();
+    }
+
+    @Test
+    void collect_QueuesOnlyOldUnreferencedObjects() {
+        when(menuRepository.findAllImageUrls()).thenReturn(List.<Object[]>of(new Object[]{
+                "https://b.s3.amazonaws.com/menus/abc_my%20burger.png",
+                "https://b.s3.amazonaws.com/menus/abc_my%20burger_thumbnail.jpg", null, null}));
+        when(userRepository.findAllProfileUrls()).thenReturn(List.of("https://b.s3.amazonaws.com/profile/me.png"));
+
+        bucket("menus/",
+                object("menus/abc_my burger.png", old),
+                object("menus/abc_my burger_thumbnail.jpg", old),
+                object("menus/stale.png", old),
+                object("menus/just-uploaded.png", Instant.now()));
+        bucket("profile/",
+                object("profile/me.png", old),
+                object("profile/former.png", old));
+
+        assertEquals(2, collector.collect());
+
+        verify(s3DeletionQueue).enqueueAll(List.of("menus/stale.png", "profile/former.png"));
+    }
+}
@@ -0,0 +1,185 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.email_notification.dtos.MailTransportStatsDTO;
+import com.phegon.FoodApp.email_notification.services.SmtpMailTransport;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpMailTransportTest {
+
+    FakeSmtpServer server;
+    JavaMailSenderImpl mailSender;
+    SmtpMailTransport transport;
+
+    @BeforeEach
+    void init() throws IOException {
+        server = new FakeSmtpServer();
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.port());
+        // pool of 2, probe idle connections after 30s, 5s borrow timeout
+        transport = new SmtpMailTransport(mailSender, 2, 30, 5);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    MimeMessage message(String to) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+        helper.setFrom("noreply@foodapp.com");
+        helper.setTo(to);
+        helper.setSubject("Order confirmed");
+        helper.setText("<p>Thanks</p>", true);
+        return message;
+    }
+
+    @Test
+    void sendBatch_UsesOneConnectionForWholeBatch() throws Exception {
+        List<MessagingException> failures = transport.sendBatch(
+                List.of(message("a@x.com"), message("b@x.com"), message("c@x.com")));
+
+        assertEquals(3, failures.size());
+        assertTrue(failures.stream().allMatch(failure -> failure == null));
+        assertEquals(1, server.connections.get());
+        assertEquals(3, server.messages.get());
+
+        MailTransportStatsDTO stats = transport.getStats();
+        assertEquals(3, stats.getSent());
+        assertEquals(0, stats.getFailed());
+        assertEquals(0, stats.getQueued());
+        assertEquals(1, stats.getConnectionsOpened());
+        assertEquals(1, stats.getIdleConnections());
+    }
+
+    @Test
+    void send_ReusesPooledConnection() throws Exception {
+        transport.send(message("a@x.com"));
+        transport.send(message("b@x.com"));
+
+        assertEquals(1, server.connections.get());
+        assertEquals(2, server.messages.get());
+    }
+
+    @Test
+    void sendBatch_RejectedRecipient_FailsOnlyThatMessage() throws Exception {
+        List<MessagingException> failures = transport.sendBatch(
+                List.of(message("a@x.com"), message("reject@x.com"), message("c@x.com")));
+
+        assertNull(failures.get(0));
+        assertNotNull(failures.get(1));
+        assertNull(failures.get(2));
+        assertEquals(1, server.connections.get());
+
+        MailTransportStatsDTO stats = transport.getStats();
+        assertEquals(2, stats.getSent());
+        assertEquals(1, stats.getFailed());
+    }
+
+    @Test
+    void sendBatch_ServerDown_FailsEveryMessage() throws Exception {
+        try (ServerSocket unused = new ServerSocket(0)) {
+            mailSender.setPort(unused.getLocalPort()); // nothing listens there once closed
+        }
+
+        List<MessagingException> failures = transport.sendBatch(List.of(message("a@x.com"), message("b@x.com")));
+
+        assertTrue(failures.stream().allMatch(failure -> failure != null));
+        assertEquals(2, transport.getStats().getFailed());
+        assertEquals(0, transport.getStats().getQueued());
+    }
+
+
+    /** Just enough SMTP to accept mail; recipients containing "reject" get a 550. */
+    static class FakeSmtpServer implements AutoCloseable {
+
+        final ServerSocket socket = new ServerSocket(0);
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger messages = new AtomicInteger();
+
+        FakeSmtpServer() throws IOException {
+            Thread acceptor = new Thread(this::acceptLoop, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    connections.incrementAndGet();
+                    Thread session = new Thread(() -> serve(client), "fake-smtp-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket client) {
+            try (client;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(client.getOutputStream(), true, StandardCharsets.UTF_8)) {
+
+                reply(out, "220 localhost ESMTP fake");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase();
+                    if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                        reply(out, "250 localhost");
+                    } else if (command.startsWith("RCPT") && command.contains("REJECT")) {
+                        reply(out, "550 mailbox unavailable");
+                    } else if (command.startsWith("DATA")) {
+                        reply(out, "354 end with <CRLF>.<CRLF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // discard the message body
+                        }
+                        messages.incrementAndGet();
+                        reply(out, "250 queued");
+                    } else if (command.startsWith("QUIT")) {
+                        reply(out, "221 bye");
+                        return;
+                    } else {
+                        reply(out, "250 ok"); // MAIL, RCPT, RSET, NOOP
+                    }
+                }
+            } catch (IOException ignored) {
+                // client went away
+            }
+        }
+
+        private static void reply(PrintWriter out, String line) {
+            out.print(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
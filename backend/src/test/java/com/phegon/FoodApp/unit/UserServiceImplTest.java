@@ -5,18 +5,21 @@ package com.phegon.FoodApp.unit;
 import com.phegon.FoodApp.auth_users.dtos.UserDTO;
 import com.phegon.FoodApp.auth_users.entity.User;
 import com.phegon.FoodApp.auth_users.repository.UserRepository;
+import com.phegon.FoodApp.auth_users.services.UserMapper;
 import com.phegon.FoodApp.auth_users.services.UserServiceImpl;
 import com.phegon.FoodApp.aws.AWSS3Service;
+import com.phegon.FoodApp.aws.S3DeletionQueue;
 import com.phegon.FoodApp.email_notification.dtos.NotificationDTO;
 import com.phegon.FoodApp.email_notification.services.NotificationService;
 import com.phegon.FoodApp.exceptions.BadRequestException;
 import com.phegon.FoodApp.exceptions.NotFoundException;
 import com.phegon.FoodApp.response.Response;
+import com.phegon.FoodApp.security.AuthUser;
+import com.phegon.FoodApp.security.PrincipalCache;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
@@ -29,7 +32,6 @@ import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -38,9 +40,11 @@ class UserServiceImplTest {
 
     @Mock private UserRepository userRepository;
     @Mock private PasswordEncoder passwordEncoder;
-    @Mock private ModelMapper modelMapper;
+    @Spy private UserMapper userMapper = new UserMapper();
     @Mock private NotificationService notificationService;
     @Mock private AWSS3Service awss3Service;
+    @Mock private PrincipalCache principalCache;
+    @Mock private S3DeletionQueue s3DeletionQueue;
 
     @InjectMocks private UserServiceImpl userService;
 
@@ -82,6 +86,20 @@ class UserServiceImplTest {
         assertEquals("test@example.com", result.getEmail());
     }
 
+    @Test
+    void testGetCurrentLoggedInUser_ReusesAuthenticatedPrincipal() {
+        User user = mockUser();
+        Authentication auth = mock(Authentication.class);
+        when(auth.getPrincipal()).thenReturn(AuthUser.builder().user(user).build());
+        SecurityContextHolder.getContext().setAuthentication(auth);
+
+        assertSame(user, userService.getCurrentLoggedInUser());
+        verifyNoInteractions(userRepository);
+
+        user.setActive(false);
+        assertThrows(NotFoundException.class, () -> userService.getCurrentLoggedInUser());
+    }
+
     @Test
     void testGetCurrentLoggedInUser_NotFound() {
         when(userRepository.findByEmail("test@example.com"))
@@ -109,18 +127,15 @@ class UserServiceImplTest {
     void testGetAllUsers() {
         User u = mockUser();
         List<User> users = List.of(u);
-        List<UserDTO> userDTOs = List.of(new UserDTO());
 
         when(userRepository.findAll(Sort.by(Sort.Direction.DESC, "id")))
                 .thenReturn(users);
 
-        when(modelMapper.map(anyList(), any(java.lang.reflect.Type.class)))
-                .thenReturn(userDTOs);
-
         Response<List<UserDTO>> res = userService.getAllUsers();
 
         assertEquals(200, res.getStatusCode());
         assertEquals(1, res.getData().size());
+        assertEquals("test@example.com", res.getData().get(0).getEmail());
     }
 
     // 3) getOwnAccountDetails
@@ -128,14 +143,10 @@ class UserServiceImplTest {
     @Test
     void testGetOwnAccountDetails() {
         User u = mockUser();
-        UserDTO dto = new UserDTO();
-        dto.setEmail("test@example.com");
 
         when(userRepository.findByEmail("test@example.com"))
                 .thenReturn(Optional.of(u));
 
-        when(modelMapper.map(u, UserDTO.class)).thenReturn(dto);
-
         Response<UserDTO> res = userService.getOwnAccountDetails();
 
         assertEquals(200, res.getStatusCode());
@@ -265,7 +276,8 @@ class UserServiceImplTest {
 
         Response<?> res = userService.updateOwnAccount(dto);
 
-        verify(awss3Service).deleteFile(anyString());
+        verify(s3DeletionQueue).enqueue(anyString());
+        verify(awss3Service, never()).deleteFile(anyString());
         assertEquals(200, res.getStatusCode());
     }
 
@@ -350,6 +362,7 @@ class UserServiceImplTest {
         assertEquals(200, res.getStatusCode());
         assertFalse(u.isActive());
         verify(userRepository).save(u);
+        verify(principalCache).evict("test@example.com");
         verify(notificationService).sendEmail(any(NotificationDTO.class));
     }
 
@@ -0,0 +1,80 @@
+package com.phegon.FoodApp.unit;
+
+import com.phegon.FoodApp.config.VirtualThreadMonitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadMonitorTest {
+
+    VirtualThreadMonitor monitor;
+
+    @BeforeEach
+    void start() {
+        monitor = new VirtualThreadMonitor(10);
+        monitor.start();
+    }
+
+    @AfterEach
+    void stop() {
+        monitor.stop();
+    }
+
+    @Test
+    void sleepingInsideSynchronized_IsReportedWithItsSite() throws Exception {
+        Object lock = new Object();
+
+        Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                sleep(50);
+            }
+        }).join();
+
+        // JFR hands events to the stream about once a second
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!pinnedHere(monitor.sample()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        VirtualThreadMonitor.Stats stats = monitor.sample();
+        assertTrue(stats.pinnedEvents() >= 1);
+        assertTrue(stats.pinnedMillis() >= 40, "pinned for " + stats.pinnedMillis() + "ms");
+        assertTrue(pinnedHere(stats), "sites " + stats.pinnedSites());
+    }
+
+    @Test
+    void sample_ReportsCarrierUtilizationSinceThePreviousSample() throws Exception {
+        monitor.sample();
+
+        List<Thread> spinners = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            spinners.add(Thread.ofVirtual().start(() -> {
+                long until = System.nanoTime() + 100_000_000L;
+                while (System.nanoTime() < until) Thread.onSpinWait();
+            }));
+        }
+        for (Thread spinner : spinners) spinner.join();
+
+        VirtualThreadMonitor.Stats stats = monitor.sample();
+        assertTrue(stats.carriers() >= 1);
+        assertTrue(stats.carrierUtilization() > 0 && stats.carrierUtilization() <= 1.0,
+                "utilization " + stats.carrierUtilization());
+    }
+
+    boolean pinnedHere(VirtualThreadMonitor.Stats stats) {
+        return stats.pinnedSites().keySet().stream().anyMatch(site -> site.startsWith(getClass().getName()));
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
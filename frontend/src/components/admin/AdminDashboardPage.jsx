@@ -29,18 +29,20 @@ const AdminDashboardPage = () => {
 
       const ordersResponse = await ApiService.getAllOrders();
       const menuResponse = await ApiService.getAllMenus();
-      const paymentsResponse = await ApiService.getAllPayments();
+      // first ledger page for its all-time totals, and this year's revenue per month
+      const paymentsResponse = await ApiService.getAllPayments({}, undefined, 1);
+      const revenueResponse = await ApiService.getMonthlyRevenue(new Date().getFullYear());
       const activeCustomerResponse =
         await ApiService.countTotalActiveCustomers();
 
       if (
         ordersResponse.statusCode === 200 &&
         menuResponse.statusCode === 200 &&
-        paymentsResponse.statusCode === 200
+        paymentsResponse.statusCode === 200 &&
+        revenueResponse.statusCode === 200
       ) {
         const orders = ordersResponse.data?.content || [];
         const menu = menuResponse.data || [];
-        const payments = paymentsResponse.data || [];
         const activeCustomers = activeCustomerResponse.data || 0;
 
         const totalOrders = orders.length;
@@ -63,18 +65,8 @@ const AdminDashboardPage = () => {
           .sort((a, b) => b[1] - a[1])
           .slice(0, 5);
 
-        const totalRevenue = payments.reduce(
-          (sum, p) => (p.paymentStatus === "COMPLETED" ? sum + p.amount : sum),
-          0
-        );
-
-        const revenueByMonth = Array(12).fill(0);
-        payments.forEach((payment) => {
-          if (payment.paymentStatus === "COMPLETED") {
-            const month = new Date(payment.paymentDate).getMonth();
-            revenueByMonth[month] += payment.amount;
-          }
-        });
+        const totalRevenue = paymentsResponse.data.summary?.revenue || 0;
+        const revenueByMonth = revenueResponse.data || Array(12).fill(0);
 
         setStats({
           totalOrders,
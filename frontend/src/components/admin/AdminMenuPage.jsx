@@ -73,7 +73,7 @@ const AdminMenuPage = () => {
 
               <div className="item-footer">
                 <span className="reviews-count">
-                  {item.reviews?.length || 0} reviews
+                  {item.reviewCount || 0} reviews
                 </span>
 
                 <div className="item-actions">
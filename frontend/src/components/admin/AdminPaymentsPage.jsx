@@ -3,33 +3,32 @@ import { useNavigate } from "react-router-dom";
 import ApiService from "../../services/ApiService";
 import { useError } from "../common/ErrorDisplay";
 
+const STATUS_FILTERS = {
+  all: undefined,
+  completed: "COMPLETED",
+  pending: "PENDING",
+  failed: "FAILED",
+};
+
 const AdminPaymentsPage = () => {
   const [payments, setPayments] = useState([]);
+  const [summary, setSummary] = useState(null);
+  const [nextCursor, setNextCursor] = useState(null);
   const [filter, setFilter] = useState("all");
 
   const { ErrorDisplay, showError } = useError();
   const navigate = useNavigate();
 
-  const fetchPayments = useCallback(async () => {
+  const fetchPayments = useCallback(async (cursor) => {
     try {
-      const response = await ApiService.getAllPayments();
+      const response = await ApiService.getAllPayments({ status: STATUS_FILTERS[filter] }, cursor);
 
       if (response.statusCode === 200) {
-        let filteredPayments = response.data;
-
-        if (filter !== "all") {
-          filteredPayments = filteredPayments.filter((p) =>
-            filter === "completed"
-              ? p.paymentStatus === "COMPLETED"
-              : filter === "pending"
-              ? p.paymentStatus === "PENDING"
-              : filter === "failed"
-              ? p.paymentStatus === "FAILED"
-              : true
-          );
-        }
-
-        setPayments(filteredPayments);
+        setPayments((previous) =>
+          cursor ? [...previous, ...response.data.payments] : response.data.payments
+        );
+        if (response.data.summary) setSummary(response.data.summary);
+        setNextCursor(response.data.nextCursor || null);
       }
     } catch (error) {
       showError(error.response?.data?.message || error.message);
@@ -38,9 +37,23 @@ const AdminPaymentsPage = () => {
 
   // ✅ FIX: dependency đúng
   useEffect(() => {
-    fetchPayments();
+    fetchPayments(null);
   }, [fetchPayments]);
 
+  const handleExport = async () => {
+    try {
+      const csv = await ApiService.exportPayments({ status: STATUS_FILTERS[filter] });
+      const url = URL.createObjectURL(csv);
+      const link = document.createElement("a");
+      link.href = url;
+      link.download = "payments.csv";
+      link.click();
+      URL.revokeObjectURL(url);
+    } catch (error) {
+      showError(error.response?.data?.message || error.message);
+    }
+  };
+
   const handleViewPayment = (id) => {
     navigate(`/admin/payments/${id}`);
   };
@@ -58,6 +71,9 @@ const AdminPaymentsPage = () => {
             <option value="pending">Pending</option>
             <option value="failed">Failed</option>
           </select>
+          <button className="view-btn" onClick={handleExport}>
+            Export CSV
+          </button>
         </div>
       </div>
 
@@ -103,40 +119,30 @@ const AdminPaymentsPage = () => {
         </table>
       </div>
 
+      {nextCursor && (
+        <button className="view-btn" onClick={() => fetchPayments(nextCursor)}>
+          Load more payments
+        </button>
+      )}
+
       <div className="payment-stats">
         <div className="stat-card">
           <h3>Total Revenue</h3>
-          <p className="stat-value">
-            $
-            {payments
-              .reduce(
-                (sum, p) =>
-                  sum + (p.paymentStatus === "COMPLETED" ? p.amount : 0),
-                0
-              )
-              .toFixed(2)}
-          </p>
+          <p className="stat-value">${(summary?.revenue || 0).toFixed(2)}</p>
           <p className="stat-period">All Time</p>
         </div>
 
         <div className="stat-card">
           <h3>Online Payments</h3>
-          <p className="stat-value">
-            {payments.filter((p) => p.paymentGateway !== "CASH").length}
-          </p>
+          <p className="stat-value">{summary?.payments || 0}</p>
           <p className="stat-period">Transactions</p>
         </div>
 
         <div className="stat-card">
           <h3>Success Rate</h3>
           <p className="stat-value">
-            {payments.length > 0
-              ? `${Math.round(
-                  (payments.filter((p) => p.paymentStatus === "COMPLETED")
-                    .length /
-                    payments.length) *
-                    100
-                )}%`
+            {summary?.payments > 0
+              ? `${Math.round((summary.completedPayments / summary.payments) * 100)}%`
               : "0%"}
           </p>
           <p className="stat-period">Completed</p>
@@ -114,7 +114,9 @@ const MenuDetailsPage = () => {
       <div className="menu-item-header">
         <div className="menu-item-image-container">
           <img
-            src={menu.imageUrl}
+            src={menu.imageVariants?.detail || menu.imageUrl}
+            srcSet={menu.imageSrcSet}
+            sizes="(max-width: 768px) 100vw, 600px"
             alt={menu.name}
             className="menu-item-image-detail"
           />
@@ -88,7 +88,10 @@ const MenuPage = () => {
             key={item.id}
           >
             <img
-              src={item.imageUrl}
+              src={item.imageVariants?.card || item.imageUrl}
+              srcSet={item.imageSrcSet}
+              sizes="(max-width: 600px) 100vw, 320px"
+              loading="lazy"
               alt={item.name}
               className="menu-item-image"
             />
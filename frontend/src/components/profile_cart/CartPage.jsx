@@ -1,4 +1,4 @@
-import { useState, useEffect, useCallback } from "react";
+import { useState, useEffect, useCallback, useRef } from "react";
 import { useNavigate } from "react-router-dom";
 import ApiService from "../../services/ApiService";
 import { useError } from "../common/ErrorDisplay";
@@ -6,6 +6,7 @@ import { useError } from "../common/ErrorDisplay";
 const CartPage = () => {
   const [cart, setCart] = useState(null);
   const [message, setMessage] = useState(null);
+  const checkoutKey = useRef(null);
 
   const navigate = useNavigate();
   const { ErrorDisplay, showError } = useError();
@@ -63,9 +64,14 @@ const CartPage = () => {
   };
 
   const handleCheckout = async () => {
+    // one key per checkout attempt: double-taps and retries after a network error reuse it
+    if (!checkoutKey.current) {
+      checkoutKey.current = crypto.randomUUID();
+    }
     try {
-      const response = await ApiService.placeOrder();
+      const response = await ApiService.placeOrder(checkoutKey.current);
       if (response.statusCode === 200) {
+        checkoutKey.current = null;
         setMessage(response.message);
         setTimeout(() => {
           setMessage(null);
@@ -74,6 +80,10 @@ const CartPage = () => {
         }, 5000);
       }
     } catch (error) {
+      if (error.response) {
+        // the server answered, so this attempt is settled; only network failures retry with the same key
+        checkoutKey.current = null;
+      }
       showError(error.response?.data?.message || error.message);
     }
   };
@@ -3,52 +3,50 @@ import ApiService from "../../services/ApiService";
 import { useNavigate } from "react-router-dom";
 import { useError } from "../common/ErrorDisplay";
 
+const ORDER_STATUSES = ["INITIALIZED", "CONFIRMED", "ON_THE_WAY", "DELIVERED", "CANCELLED", "FAILED"];
+
 const OrderHistoryPage = () => {
   const [orders, setOrders] = useState(null);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [orderStatus, setOrderStatus] = useState("");
+  // order id -> its items, fetched when the customer opens the order
+  const [itemsByOrder, setItemsByOrder] = useState({});
   const navigate = useNavigate();
   const { ErrorDisplay, showError } = useError();
 
-  const fetchOrders = useCallback(async () => {
+  const fetchOrders = useCallback(async (cursor) => {
     try {
-      const response = await ApiService.getMyOrders();
+      const response = await ApiService.getMyOrders(cursor, orderStatus || undefined);
 
       if (response.statusCode === 200) {
-        const enhancedOrders = [];
-
-        for (const order of response.data) {
-          const enhancedItems = [];
-
-          for (const item of order.orderItems) {
-            const itemResponse = await ApiService.getOrderItemById(item.id);
-
-            if (itemResponse.statusCode === 200) {
-              enhancedItems.push({
-                ...item,
-                hasReview: itemResponse.data.menu.reviews.some(
-                  (review) => review.orderId === order.id
-                ),
-              });
-            } else {
-              enhancedItems.push(item);
-            }
-          }
-
-          enhancedOrders.push({
-            ...order,
-            orderItems: enhancedItems,
-          });
-        }
-
-        setOrders(enhancedOrders);
+        setOrders((previous) =>
+          cursor ? [...previous, ...response.data.orders] : response.data.orders
+        );
+        setNextCursor(response.data.nextCursor || null);
       }
     } catch (error) {
       showError(error.response?.data?.message || error.message);
     }
-  }, [showError]);
+  }, [orderStatus, showError]);
 
+  const toggleItems = async (orderId) => {
+    if (itemsByOrder[orderId]) {
+      setItemsByOrder(({ [orderId]: _, ...rest }) => rest);
+      return;
+    }
+    try {
+      const response = await ApiService.getMyOrderDetails(orderId);
+      if (response.statusCode === 200) {
+        setItemsByOrder((previous) => ({ ...previous, [orderId]: response.data.orderItems }));
+      }
+    } catch (error) {
+      showError(error.response?.data?.message || error.message);
+    }
+  };
 
   useEffect(() => {
-    fetchOrders();
+    setItemsByOrder({});
+    fetchOrders(null);
   }, [fetchOrders]);
 
   const formatDate = (dateString) => {
@@ -67,7 +65,7 @@ const OrderHistoryPage = () => {
     navigate(`/leave-review?orderId=${orderId}&menuId=${menuId}`);
   };
 
-  if (!orders || orders.length === 0) {
+  if (!orders || (orders.length === 0 && !orderStatus)) {
     return (
       <div className="order-history-container">
         <div className="no-orders-message">
@@ -82,6 +80,17 @@ const OrderHistoryPage = () => {
       <ErrorDisplay />
       <h1 className="order-history-title">Your Order History</h1>
 
+      <div className="order-history-filter">
+        <select value={orderStatus} onChange={(e) => setOrderStatus(e.target.value)}>
+          <option value="">All orders</option>
+          {ORDER_STATUSES.map((status) => (
+            <option key={status} value={status}>
+              {status}
+            </option>
+          ))}
+        </select>
+      </div>
+
       <div className="order-list">
         {orders.map((order) => (
           <div key={order.id} className="order-card">
@@ -101,49 +110,61 @@ const OrderHistoryPage = () => {
               </span>
             </div>
 
-            <div className="order-items">
-              <h2 className="order-items-title">Order Items:</h2>
-
-              {order.orderItems.map((item) => (
-                <div key={item.id} className="order-item">
-                  <div className="item-details">
-                    <span className="item-name">{item.menu.name}</span>
-                    <span className="item-quantity">
-                      Quantity: {item.quantity}
-                    </span>
-                    <span className="item-price">
-                      Price: ${item.pricePerUnit.toFixed(2)}
-                    </span>
-                    <span className="subtotal">
-                      Subtotal: ${item.subtotal.toFixed(2)}
-                    </span>
-
-                    {order.orderStatus.toLowerCase() === "delivered" &&
-                      !item.hasReview && (
-                        <button
-                          className="review-button"
-                          onClick={() =>
-                            handleLeaveReview(order.id, item.menu.id)
-                          }
-                        >
-                          Leave Review
-                        </button>
-                      )}
+            <button className="review-button" onClick={() => toggleItems(order.id)}>
+              {itemsByOrder[order.id] ? "Hide items" : `Show ${order.itemCount} items`}
+            </button>
+
+            {itemsByOrder[order.id] && (
+              <div className="order-items">
+                <h2 className="order-items-title">Order Items:</h2>
+
+                {itemsByOrder[order.id].map((item) => (
+                  <div key={item.id} className="order-item">
+                    <div className="item-details">
+                      <span className="item-name">{item.menu.name}</span>
+                      <span className="item-quantity">
+                        Quantity: {item.quantity}
+                      </span>
+                      <span className="item-price">
+                        Price: ${item.pricePerUnit.toFixed(2)}
+                      </span>
+                      <span className="subtotal">
+                        Subtotal: ${item.subtotal.toFixed(2)}
+                      </span>
+
+                      {order.orderStatus.toLowerCase() === "delivered" &&
+                        !item.reviewed && (
+                          <button
+                            className="review-button"
+                            onClick={() =>
+                              handleLeaveReview(order.id, item.menu.id)
+                            }
+                          >
+                            Leave Review
+                          </button>
+                        )}
+                    </div>
+
+                    <div className="item-image-container">
+                      <img
+                        src={item.menu.imageVariants?.thumbnail || item.menu.imageUrl}
+                        alt={item.menu.name}
+                        className="item-image"
+                      />
+                    </div>
                   </div>
-
-                  <div className="item-image-container">
-                    <img
-                      src={item.menu.imageUrl}
-                      alt={item.menu.name}
-                      className="item-image"
-                    />
-                  </div>
-                </div>
-              ))}
-            </div>
+                ))}
+              </div>
+            )}
           </div>
         ))}
       </div>
+
+      {nextCursor && (
+        <button className="review-button" onClick={() => fetchOrders(nextCursor)}>
+          Load more orders
+        </button>
+      )}
     </div>
   );
 };
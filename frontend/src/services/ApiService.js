@@ -109,12 +109,13 @@ export default class ApiService {
 
   //ORDER SECTION
 
-  static async placeOrder() {
+  // retries of one checkout must reuse its idempotency key so the server can replay the first result
+  static async placeOrder(idempotencyKey) {
     const resp = await axios.post(
       `${this.BASE_URL}/orders/checkout`,
       {},
       {
-        headers: this.getHeader(),
+        headers: { ...this.getHeader(), "Idempotency-Key": idempotencyKey },
       }
     );
     return resp.data;
@@ -151,9 +152,17 @@ export default class ApiService {
     return resp.data;
   }
 
-  static async getMyOrders() {
+  static async getMyOrders(cursor, orderStatus, size = 20) {
     const resp = await axios.get(`${this.BASE_URL}/orders/me`, {
       headers: this.getHeader(),
+      params: { cursor, orderStatus, size },
+    });
+    return resp.data;
+  }
+
+  static async getMyOrderDetails(orderId) {
+    const resp = await axios.get(`${this.BASE_URL}/orders/me/${orderId}`, {
+      headers: this.getHeader(),
     });
     return resp.data;
   }
@@ -357,9 +366,28 @@ export default class ApiService {
     return resp.data;
   }
 
-  static async getAllPayments() {
+  // filters: { status, gateway, from, to } with ISO dates; pass the previous page's nextCursor for the next page
+  static async getAllPayments(filters = {}, cursor, size = 50) {
     const resp = await axios.get(`${this.BASE_URL}/payments/all`, {
       headers: this.getHeader(),
+      params: { ...filters, cursor, size },
+    });
+    return resp.data;
+  }
+
+  static async exportPayments(filters = {}) {
+    const resp = await axios.get(`${this.BASE_URL}/payments/export`, {
+      headers: this.getHeader(),
+      params: filters,
+      responseType: "blob",
+    });
+    return resp.data;
+  }
+
+  static async getMonthlyRevenue(year) {
+    const resp = await axios.get(`${this.BASE_URL}/payments/revenue`, {
+      headers: this.getHeader(),
+      params: { year },
     });
     return resp.data;
   }